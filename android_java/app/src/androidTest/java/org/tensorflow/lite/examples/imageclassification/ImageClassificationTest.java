@@ -18,6 +18,7 @@ package org.tensorflow.lite.examples.imageclassification;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import android.content.res.AssetManager;
 import android.graphics.Bitmap;
@@ -79,6 +80,13 @@ public class ImageClassificationTest {
                 });
         helper.setThreshold(0.0f);
         helper.classify(loadImage("coffee.jpg"), 0);
+
+        // Exactly one inference ran, and every stage took measurable time
+        InferenceStats stats = helper.getStats();
+        assertEquals(1, stats.getCount());
+        assertTrue(stats.getLastPreprocessNanos() > 0);
+        assertTrue(stats.getLastInvokeNanos() > 0);
+        assertTrue(stats.getLastTurnAroundNanos() >= stats.getLastInvokeNanos());
     }
 
     private Bitmap loadImage(String fileName) {
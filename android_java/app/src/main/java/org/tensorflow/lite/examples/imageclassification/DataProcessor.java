@@ -2,292 +2,360 @@ package org.tensorflow.lite.examples.imageclassification;
 
 import android.os.Build;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.text.SimpleDateFormat;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Date;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.tensorflow.lite.examples.imageclassification.experiment.ExperimentPlan;
+import org.tensorflow.lite.examples.imageclassification.experiment.ExperimentRunner;
+import org.tensorflow.lite.examples.imageclassification.governor.ThermalGovernor;
+import org.tensorflow.lite.examples.imageclassification.governor.ThermalPolicy;
+import org.tensorflow.lite.examples.imageclassification.telemetry.CpuUtilizationSampler;
+import org.tensorflow.lite.examples.imageclassification.telemetry.FrequencyResidencyTracker;
+import org.tensorflow.lite.examples.imageclassification.telemetry.SamplingScheduler;
+import org.tensorflow.lite.examples.imageclassification.telemetry.SessionClock;
+import org.tensorflow.lite.examples.imageclassification.telemetry.SysfsNode;
+import org.tensorflow.lite.examples.imageclassification.telemetry.SysfsReader;
+import org.tensorflow.lite.examples.imageclassification.telemetry.TelemetryFormat;
+import org.tensorflow.lite.examples.imageclassification.telemetry.TelemetryRecord;
+import org.tensorflow.lite.examples.imageclassification.telemetry.TelemetrySchema;
+import org.tensorflow.lite.examples.imageclassification.telemetry.TelemetrySink;
+import org.tensorflow.lite.examples.imageclassification.telemetry.ThermalEventRing;
+import org.tensorflow.lite.examples.imageclassification.telemetry.ThermalStatus;
+import org.tensorflow.lite.examples.imageclassification.telemetry.ThermalZoneRegistry;
 
 public class DataProcessor {
 
     MainActivity mainActivity;
     String performanceFilePath;
     String rawFilePath;
-    SimpleDateFormat dateFormat;
+    SessionClock sessionClock;
     String fileSeries;
     String performanceFileName = "Performance_Measurements";
     String rawDataFileName = "Raw_Data";
-    String[] thermalZonePaths;
+    String thermalEventsFileName = "Thermal_Events";
+    String governorFileName = "Governor_Decisions";
+    String experimentFileName = "Experiment_Phases";
+    // Optional policy table in the app's external files folder, see ThermalPolicy
+    String thermalPolicyFileName = "thermal_policy.csv";
+    // Experiment plan in the external files folder, falling back to the one in the assets
+    String[] experimentPlanFileNames = {"experiment_plan.json", "experiment_plan.properties"};
+    TelemetryFormat telemetryFormat = TelemetryFormat.fromName(BuildConfig.TELEMETRY_FORMAT);
+    ThermalZoneRegistry thermalZones;
+    float[] thermalZoneTemps;
     String[] thermalZoneTypesOfInterest = {"BIG", "MID", "LITTLE", "TPU", "G3D"};
-    StringBuilder thermalZoneTypeHeaders;
     String[] cpuDevicePaths;
-    List<Float> initialFreqTimes;
+    // Resolved once, so a tick only re-reads the open nodes
+    SysfsNode[] cpuFrequencyNodes;
+    SysfsNode gpuFrequencyNode;
+    SysfsNode gpuUtilizationNode;
+    // Threads whose names start with these are summed into one utilization column each
+    String[] threadGroupsOfInterest =
+            {"Classifier-", "TaskScheduler-", "Sampler", "Sink-"};
+    float[] threadGroupUtilizations = new float[threadGroupsOfInterest.length];
     Boolean isRooted;
-    String rootAccess;
-    long startTimeSecs;
+    SysfsReader sysfsReader;
+    CpuUtilizationSampler cpuUtilizationSampler;
+    FrequencyResidencyTracker residencyTracker;
+    TelemetrySink performanceSink;
+    TelemetrySink rawSink;
+    TelemetrySink thermalEventSink;
+    TelemetrySink governorSink;
+    TelemetrySink experimentSink;
+    ThermalGovernor thermalGovernor;
+    ExperimentRunner experimentRunner;
+    SamplingScheduler.Task samplingTask;
+    SamplingScheduler.Task snapshotTask;
+    // Written by the PowerManager callback, drained on the sampler thread
+    ThermalEventRing thermalEvents =
+            new ThermalEventRing(ThermalEventRing.DEFAULT_CAPACITY, ThermalStatus.NONE);
+    ThermalEventRing.Event thermalEvent = new ThermalEventRing.Event();
+    ThermalStatus thermalStatus = ThermalStatus.NONE;
+    AtomicBoolean snapshotPending = new AtomicBoolean();
 
     public DataProcessor(MainActivity activity) {
         mainActivity = activity;
 
         isRooted = true;
-        rootAccess = "";
 
-        dateFormat = new SimpleDateFormat("HH:mm:ss");
-        fileSeries = dateFormat.format(new Date());
-        String[] timeStampSplit = fileSeries.split(":");
-        startTimeSecs = Long.parseLong(timeStampSplit[0]) * 3600 +
-                Long.parseLong(timeStampSplit[1]) * 60 +
-                Long.parseLong(timeStampSplit[2]);
+        sessionClock = mainActivity.sessionClock;
+        fileSeries = sessionClock.format("HH:mm:ss");
 
         String currentFolder = mainActivity.currentFolder;
         performanceFilePath = currentFolder + File.separator +
-                performanceFileName + fileSeries + ".csv";
+                performanceFileName + fileSeries + telemetryFormat.extension();
         rawFilePath = currentFolder + File.separator +
-                rawDataFileName + fileSeries + ".csv";
-
-        try {
-            thermalZonePaths = getThermalZoneFilePaths("/sys/class/thermal");
-        } catch (IOException | InterruptedException e) {
-            throw new RuntimeException(e);
+                rawDataFileName + fileSeries + telemetryFormat.extension();
+
+        // Sysfs nodes are opened once and re-read in place; root is only needed as a fallback
+        sysfsReader = new SysfsReader(new File(SysfsReader.DEFAULT_ROOT), isRooted);
+        // Zone types never change, so they are discovered once here
+        thermalZones = ThermalZoneRegistry.discover(
+                sysfsReader, ThermalZoneRegistry.DEFAULT_THERMAL_DIR, thermalZoneTypesOfInterest);
+        thermalZoneTemps = new float[thermalZones.size()];
+        cpuDevicePaths = getCPUDeviceFiles("devices/system/cpu");
+        cpuFrequencyNodes = new SysfsNode[cpuDevicePaths.length];
+        for (int i = 0; i < cpuDevicePaths.length; i++) {
+            cpuFrequencyNodes[i] = sysfsReader.open(cpuDevicePaths[i] + "cpufreq/scaling_cur_freq");
+        }
+        if (isRooted) {
+            // For Pixel 8, ROOTED, the gpu frequency and utilization are stored in
+            // "/sys/class/misc/mali0/device/" in files "cur_freq" and "utilization"
+            gpuFrequencyNode = sysfsReader.open("class/misc/mali0/device/cur_freq");
+            gpuUtilizationNode = sysfsReader.open("class/misc/mali0/device/utilization");
+        } else {
+            // For Note10+, they are stored in "/sys/class/kgsl/kgsl-3d0"
+            // in files "clock_mhz" and "gpu_busy_percentage"
+            gpuFrequencyNode = sysfsReader.open("class/kgsl/kgsl-3d0/clock_mhz");
+            gpuUtilizationNode = sysfsReader.open("class/kgsl/kgsl-3d0/gpu_busy_percentage");
+        }
+        cpuUtilizationSampler = new CpuUtilizationSampler();
+        // Prime the jiffy counters so the first row already has a delta
+        cpuUtilizationSampler.sample();
+
+        // Create schema for data collection
+        TelemetrySchema.Builder performanceSchema = sessionClock.addAnchor(new TelemetrySchema.Builder())
+                .addLong("sessionNanos")
+                .addLong("tick")
+                .addLong("latenessNanos")
+                .addText("thermalStatus");
+        for (int zone: thermalZones.getZonesOfInterest()) {
+            int interest = thermalZones.get(zone).interest;
+            performanceSchema.addFloat(thermalZoneTypesOfInterest[interest] + "Temperature");
+        }
+        performanceSchema
+                .addFloat("cpuFrequency")
+                .addFloat("gpuFrequency")
+                .addFloat("cpuUtilization")
+                .addFloat("gpuUtilization")
+                .addFloat("classifierThreadUtilization")
+                .addText("phase")
+                .addText("stage");
+
+        // Create schema for raw data
+        TelemetrySchema.Builder rawSchema = sessionClock.addAnchor(new TelemetrySchema.Builder())
+                .addLong("sessionNanos")
+                .addLong("tick")
+                .addLong("latenessNanos")
+                .addText("thermalStatus");
+        for (int i = 0; i < thermalZones.size(); i++) {
+            rawSchema.addFloat(thermalZones.get(i).type);
         }
-
-        try {
-            cpuDevicePaths = getCPUDeviceFiles("/sys/devices/system/cpu");
-        } catch (IOException | InterruptedException e) {
-            throw new RuntimeException(e);
+        for (String currCPUDevice: cpuDevicePaths) {
+            rawSchema.addFloat(new File(currCPUDevice).getName() + "_freq");
         }
-
-        // Create string for thermal zone type headers
-        thermalZoneTypeHeaders = new StringBuilder();
-        for (String thermalZoneType: thermalZoneTypesOfInterest) {
-            thermalZoneTypeHeaders.append(thermalZoneType).append("Temperature,");
+        rawSchema
+                .addFloat("gpuFrequency")
+                .addFloat("cpuUtilization")
+                .addFloat("gpuUtilization");
+        for (String currCPUDevice: cpuDevicePaths) {
+            rawSchema.addFloat(new File(currCPUDevice).getName() + "_utilization");
         }
-
-        // Create file for data collection
-        String FILEPATH = performanceFilePath;
-        try (PrintWriter writer = new PrintWriter(new FileOutputStream(FILEPATH, false))) {
-            String sb = "time" +
-                    ',' +
-                    "relativeTime" +
-                    ',' +
-                    "thermalStatus" +
-                    ',' +
-                    thermalZoneTypeHeaders +
-                    "cpuFrequency" +
-                    ',' +
-                    "gpuFrequency" +
-                    ',' +
-                    "cpuUtilization" +
-                    ',' +
-                    "gpuUtilization" +
-                    '\n';
-            writer.write(sb);
-            System.out.println("Creating " + performanceFileName + " done!");
-        } catch (FileNotFoundException e) {
-            System.out.println(e.getMessage());
+        for (String group: threadGroupsOfInterest) {
+            rawSchema.addFloat(threadGroupColumn(group));
         }
 
-
-        // Create headers for raw data
-        StringBuilder thermalZoneTypes = new StringBuilder();
-        for (String currThermalZone: thermalZonePaths) {
-            try {
-                String currThermalZoneType = getThermalZoneType(currThermalZone);
-                thermalZoneTypes.append(currThermalZoneType).append(',');
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        }
-        StringBuilder cpuDevicesFreq = new StringBuilder();
-        String gpuDeviceFreq = "gpuFrequency,";
-        String cpuUtilization = "cpuUtilization,";
-        String gpuUtilization = "gpuUtilization,";
-        for (String currCPUDevice: cpuDevicePaths) {
-            String[] cpuPathSplit = currCPUDevice.split("/");
-            String currCPUDeviceName = cpuPathSplit[
-                    cpuPathSplit.length - 2];
-            cpuDevicesFreq.append(currCPUDeviceName).append("_freq,");
+        // Clusters are whatever cpufreq policies the device has
+        residencyTracker = FrequencyResidencyTracker.discover(
+                sysfsReader, FrequencyResidencyTracker.DEFAULT_CPUFREQ_DIR);
+        for (int i = 0; i < residencyTracker.size(); i++) {
+            addCPUPolicyColumns(rawSchema, residencyTracker.get(i));
         }
+        rawSchema
+                .addText("phase")
+                .addText("stage");
 
-        initialFreqTimes = new ArrayList<>();
-        String cpuLittleFreqHeaders, cpuMidFreqHeaders, cpuBigFreqHeaders = "";
+        // Rows are written by a background thread over one long-lived channel per file
         try {
-            cpuLittleFreqHeaders = getCPUPolicyHeaders(
-                    "/sys/devices/system/cpu/cpufreq/policy0", "LITTLE");
-            cpuMidFreqHeaders = getCPUPolicyHeaders(
-                    "/sys/devices/system/cpu/cpufreq/policy4", "MID");
-            cpuBigFreqHeaders = getCPUPolicyHeaders(
-                    "/sys/devices/system/cpu/cpufreq/policy8", "BIG");
-        } catch (IOException | InterruptedException e) {
+            performanceSink = new TelemetrySink(new File(performanceFilePath),
+                    performanceSchema.build(), telemetryFormat.newEncoder());
+            rawSink = new TelemetrySink(new File(rawFilePath),
+                    rawSchema.build(), telemetryFormat.newEncoder());
+            TelemetrySchema thermalEventSchema =
+                    sessionClock.addAnchor(new TelemetrySchema.Builder())
+                            .addLong("sessionNanos")
+                            .addLong("statusCode")
+                            .addText("thermalStatus")
+                            .build();
+            thermalEventSink = new TelemetrySink(new File(mainActivity.currentFolder,
+                    thermalEventsFileName + fileSeries + telemetryFormat.extension()),
+                    thermalEventSchema, telemetryFormat.newEncoder());
+            governorSink = new TelemetrySink(new File(mainActivity.currentFolder,
+                    governorFileName + fileSeries + telemetryFormat.extension()),
+                    ThermalGovernor.addDecisionColumns(
+                            sessionClock.addAnchor(new TelemetrySchema.Builder())).build(),
+                    telemetryFormat.newEncoder());
+            experimentSink = new TelemetrySink(new File(mainActivity.currentFolder,
+                    experimentFileName + fileSeries + telemetryFormat.extension()),
+                    ExperimentRunner.addTransitionColumns(
+                            sessionClock.addAnchor(new TelemetrySchema.Builder())).build(),
+                    telemetryFormat.newEncoder());
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
-
-        // Create file for raw data collection
-        String RAWFILEPATH = rawFilePath;
-        try (PrintWriter writer = new PrintWriter(new FileOutputStream(RAWFILEPATH, false))) {
-            String sb = "time" +
-                    ',' +
-                    "relativeTime" +
-                    ',' +
-                    "thermalStatus" +
-                    ',' +
-                    thermalZoneTypes +
-                    cpuDevicesFreq +
-                    gpuDeviceFreq +
-                    cpuUtilization +
-                    gpuUtilization +
-                    cpuLittleFreqHeaders +
-                    cpuMidFreqHeaders +
-                    cpuBigFreqHeaders +
-                    '\n';
-            writer.write(sb);
-            System.out.println("Creating " + rawDataFileName + " done!");
-        } catch (FileNotFoundException e) {
-            System.out.println(e.getMessage());
-        }
+        thermalGovernor = new ThermalGovernor(loadThermalPolicy(), governorSink);
+        experimentRunner = new ExperimentRunner(experimentSink);
 
         dataCollection();
     }
 
-    public void dataCollection() {
-        Timer t = new Timer();
-        t.scheduleAtFixedRate(
-                new TimerTask() {
-                    @Override
-                    public void run() {
-                        try {
-                            processDataCollection();
-                        } catch (IOException e) {
-                            throw new RuntimeException(e);
-                        }
-                    }
-                },
-                0, 2000);
+    private ThermalPolicy loadThermalPolicy() {
+        File file = new File(mainActivity.currentFolder, thermalPolicyFileName);
+        if (!file.isFile()) return ThermalPolicy.defaultPolicy();
+        try (Reader reader = new FileReader(file)) {
+            return ThermalPolicy.parse(reader);
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Using default thermal policy: " + e.getMessage());
+            return ThermalPolicy.defaultPolicy();
+        }
     }
 
-    public void processDataCollection() throws IOException {
-        String FILEPATH = performanceFilePath;
-
-        ArrayList<String> currentThermalData = processThermalData(false);
-        ArrayList<Float> currentFrequencies = processFrequencyData();
-        ArrayList<String> currentUtilizations = processUtilizationData();
-        ArrayList<Float> currentPolicyTimes = processPolicyData();
-
-        StringBuilder allThermalDataOfInterest = new StringBuilder();
-        for (int i = 0; i < currentThermalData.size(); i++) {
-            allThermalDataOfInterest.append(currentThermalData.get(i)).append(",");
+    /**
+     * Reads the experiment plan, so a new one can be pushed between runs. Returns null if there
+     * is no valid plan.
+     */
+    public ExperimentPlan loadExperimentPlan() {
+        try {
+            for (String name : experimentPlanFileNames) {
+                File file = new File(mainActivity.currentFolder, name);
+                if (file.isFile()) return ExperimentPlan.load(file);
+            }
+            try (Reader reader = new InputStreamReader(
+                    mainActivity.getAssets().open(experimentPlanFileNames[0]),
+                    StandardCharsets.UTF_8)) {
+                return ExperimentPlan.parseJson(reader);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("No experiment plan: " + e.getMessage());
+            return null;
         }
+    }
 
-        dateFormat = new SimpleDateFormat("HH:mm:ss:SSS");
-        String currTime = dateFormat.format(new Date());
-        String relativeTime = Long.toString(getRelativeTime(currTime));
-        try (PrintWriter writer = new PrintWriter(new FileOutputStream(FILEPATH, true))) {
-            String sb = currTime +
-                    ',' +
-                    relativeTime +
-                    ',' +
-                    allThermalDataOfInterest +
-                    currentFrequencies.get(0) +
-                    ',' +
-                    currentFrequencies.get(1) +
-                    ',' +
-                    currentUtilizations.get(0) +
-                    ',' +
-                    currentUtilizations.get(1) +
-                    '\n';
-            writer.write(sb);
-            System.out.println("Writing to " + performanceFileName + " done!");
-        } catch (FileNotFoundException | IndexOutOfBoundsException e) {
-            System.out.println(e.getMessage());
-        }
+    public void dataCollection() {
+        // Sampled on the shared scheduler so rows line up with the other streams
+        samplingTask = tick -> processDataCollection(tick.getSequence(),
+                sessionClock.toSessionNanos(tick.getSampleNanos()), tick.getLatenessNanos());
+        mainActivity.samplingScheduler.add(samplingTask);
+        snapshotTask = tick -> {
+            // Transitions reported from here on need a snapshot of their own
+            snapshotPending.set(false);
+            processDataCollection(-1,
+                    sessionClock.toSessionNanos(tick.getSampleNanos()), tick.getLatenessNanos());
+        };
+    }
 
-        StringBuilder allCPUFreqs = new StringBuilder();
-        for (int i = 2; i < currentFrequencies.size(); i++) {
-            allCPUFreqs.append(currentFrequencies.get(i)).append(",");
+    /**
+     * Records a thermal status transition. Safe to call from any thread and never blocks: the
+     * event is queued and one out-of-band snapshot is requested on the sampler thread, which
+     * a burst of transitions shares.
+     */
+    public void onThermalStatusChanged(ThermalStatus status) {
+        thermalEvents.offer(status, sessionClock.nanos());
+        if (snapshotPending.compareAndSet(false, true)) {
+            mainActivity.samplingScheduler.runOutOfBand(snapshotTask);
         }
+    }
 
-        currentThermalData = processThermalData(true);
-        StringBuilder allThermalData = new StringBuilder();
-        for (int i = 0; i < currentThermalData.size(); i++) {
-            allThermalData.append(currentThermalData.get(i)).append(",");
-        }
+    /** Stops sampling and flushes everything collected so far. */
+    public void close() {
+        if (samplingTask != null) mainActivity.samplingScheduler.remove(samplingTask);
+        performanceSink.close();
+        rawSink.close();
+        thermalEventSink.close();
+        governorSink.close();
+        experimentSink.close();
+        cpuUtilizationSampler.close();
+        sysfsReader.close();
+    }
 
-        StringBuilder formattedPolicyData = new StringBuilder();
-        for (Float policyData: currentPolicyTimes) {
-            formattedPolicyData.append(policyData).append(',');
-        }
-        formattedPolicyData.deleteCharAt(formattedPolicyData.length() - 1);
-
-        String RAWFILEPATH = rawFilePath;
-        try (PrintWriter writer = new PrintWriter(new FileOutputStream(RAWFILEPATH, true))) {
-            String sb = currTime +
-                    ',' +
-                    relativeTime +
-                    ',' +
-                    allThermalData +
-                    allCPUFreqs +
-                    currentFrequencies.get(1) +
-                    ',' +
-                    currentUtilizations.get(0) +
-                    ',' +
-                    currentUtilizations.get(1) +
-                    ',' +
-                    formattedPolicyData +
-                    '\n';
-            writer.write(sb);
-            System.out.println("Writing to " + rawDataFileName + " done!");
-        } catch (FileNotFoundException | IndexOutOfBoundsException e) {
-            System.out.println(e.getMessage());
+    // Only runs on the sampler thread, for ticks and thermal snapshots alike
+    private void processDataCollection(long tick, long sessionNanos, long latenessNanos) {
+        processThermalEvents();
+        thermalZones.readTemperatures(thermalZoneTemps);
+        String currentThermalStatus = getThermalStatus();
+        ArrayList<Float> currentFrequencies = processFrequencyData();
+        ArrayList<Float> currentUtilizations = processUtilizationData();
+        residencyTracker.sample();
+        float maxTemperature = getMaxTemperature();
+        thermalGovernor.update(sessionNanos, thermalStatus, maxTemperature);
+        // Phase transitions happen before the rows, so the rows carry the new phase
+        experimentRunner.update(sessionNanos, maxTemperature);
+        String phase = experimentRunner.getPhaseId();
+        String stage = experimentRunner.getStage().getDisplayName();
+
+        TelemetryRecord performance = performanceSink.claim();
+        if (performance != null) {
+            int column = 0;
+            performance.set(column++, sessionNanos);
+            performance.set(column++, tick);
+            performance.set(column++, latenessNanos);
+            performance.set(column++, currentThermalStatus);
+            column = putThermalData(performance, column, false);
+            performance.set(column++, currentFrequencies.get(0));
+            performance.set(column++, currentFrequencies.get(1));
+            performance.set(column++, currentUtilizations.get(0));
+            performance.set(column++, currentUtilizations.get(1));
+            performance.set(column++, threadGroupUtilizations[0]);
+            performance.set(column++, phase);
+            performance.set(column, stage);
+            performanceSink.publish(performance);
+        }
+
+        TelemetryRecord raw = rawSink.claim();
+        if (raw != null) {
+            int column = 0;
+            raw.set(column++, sessionNanos);
+            raw.set(column++, tick);
+            raw.set(column++, latenessNanos);
+            raw.set(column++, currentThermalStatus);
+            column = putThermalData(raw, column, true);
+            for (int i = 2; i < currentFrequencies.size(); i++) {
+                raw.set(column++, currentFrequencies.get(i));
+            }
+            raw.set(column++, currentFrequencies.get(1));
+            for (int i = 0; i < currentUtilizations.size(); i++) {
+                raw.set(column++, currentUtilizations.get(i));
+            }
+            for (float utilization: threadGroupUtilizations) {
+                raw.set(column++, utilization);
+            }
+            column = putPolicyData(raw, column);
+            raw.set(column++, phase);
+            raw.set(column, stage);
+            rawSink.publish(raw);
         }
     }
 
-    private ArrayList<String> processUtilizationData() {
+    private ArrayList<Float> processUtilizationData() {
         /*
-        currentUtilizations = [cpuUtilization, gpuUtilization]
+        currentUtilizations = [cpuUtilization, gpuUtilization, cpuUtilizations]
          */
-        ArrayList<String> currentUtilizations = new ArrayList<>();
+        ArrayList<Float> currentUtilizations = new ArrayList<>();
 
-        // Get CPU Utilization
-        String cpuUtilization = "0";
-        try {
-            cpuUtilization = getCPUUtilization();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-        currentUtilizations.add(cpuUtilization);
+        // Get CPU Utilization of this process, as a percentage of one core like `top`
+        cpuUtilizationSampler.sample();
+        currentUtilizations.add(cpuUtilizationSampler.getProcessUtilization());
 
         // Get GPU Utilization
-        Float gpuUtilization = 0f;
-        try {
-
-            if (isRooted) {
-                // For Pixel 8, ROOTED, the gpu frequency is stored in "/sys/class/misc/mali0/device/"
-                // in file "cur_freq"
-                gpuUtilization = getGPUUtilization(
-                        "/sys/class/misc/mali0/device",
-                        "utilization");
-            } else {
-                // For Note10+, the gpu utilization is stored in "/sys/class/kgsl/kgsl-3d0"
-                // in file "busy_percentage"
-                gpuUtilization = getGPUUtilization(
-                        "/sys/class/kgsl/kgsl-3d0",
-                        "gpu_busy_percentage");
-            }
+        currentUtilizations.add(getGPUUtilization(gpuUtilizationNode));
 
+        // Get per core utilization
+        for (String cpuDevicePath: cpuDevicePaths) {
+            int core = Integer.parseInt(new File(cpuDevicePath).getName().substring(3));
+            currentUtilizations.add(cpuUtilizationSampler.getCoreUtilization(core));
+        }
 
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        // Get utilization of the inference and bookkeeping threads, each as one core
+        for (int i = 0; i < threadGroupsOfInterest.length; i++) {
+            threadGroupUtilizations[i] =
+                    cpuUtilizationSampler.getThreadUtilization(threadGroupsOfInterest[i]);
         }
-        currentUtilizations.add(Float.toString(gpuUtilization));
 
         return currentUtilizations;
     }
@@ -301,32 +369,16 @@ public class DataProcessor {
         // Get CPU frequencies
         Float avgCPUFreq = 0f, gpuFreq = 0f;
         ArrayList<Float> cpuFreqs = new ArrayList<>();
-        for (String cpuDevicePath: cpuDevicePaths) {
-            try {
-                Float currCPUFreq = getCPUFrequency(cpuDevicePath);
-                cpuFreqs.add(currCPUFreq);
-                avgCPUFreq += currCPUFreq;
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
+        for (SysfsNode cpuFrequencyNode: cpuFrequencyNodes) {
+            Float currCPUFreq = getCPUFrequency(cpuFrequencyNode);
+            cpuFreqs.add(currCPUFreq);
+            avgCPUFreq += currCPUFreq;
         }
         avgCPUFreq /= cpuDevicePaths.length;
         currentFrequencies.add(avgCPUFreq);
 
         // Get GPU Frequency
-        try {
-            if (isRooted) {
-                // For Pixel 8, ROOTED, the gpu frequency is stored in "/sys/class/misc/mali0/device/"
-                // in file "cur_freq"
-                gpuFreq = getGPUFrequency("/sys/class/misc/mali0/device/", "cur_freq");
-            } else {
-                // For Note10+, the gpu frequency is stored in "/sys/class/kgsl/kgsl-3d0"
-                // in file "cur_freq"
-                gpuFreq = getGPUFrequency("/sys/class/kgsl/kgsl-3d0", "clock_mhz");
-            }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        gpuFreq = getGPUFrequency(gpuFrequencyNode);
         currentFrequencies.add(gpuFreq);
 
         currentFrequencies.addAll(cpuFreqs);
@@ -334,258 +386,113 @@ public class DataProcessor {
         return currentFrequencies;
     }
 
-    private ArrayList<String> processThermalData(Boolean isRaw) throws IOException {
-        /*
-        currentThermalData = [thermalStatus, cpuTemperature, gpuTemperature, npuTemperature, tpuTemperature]
-        currentThermalData = [thermalStatus, devicesOfInterestTemperatures
-         */
-
-        ArrayList<String> currentThermalData= new ArrayList<>();
+    private void processThermalEvents() {
+        while (thermalEvents.poll(thermalEvent)) {
+            ThermalStatus status = thermalEvent.getStatus();
+            TelemetryRecord record = thermalEventSink.claim();
+            if (record == null) continue;
+            record.set(0, thermalEvent.getSessionNanos())
+                    .set(1, status.getCode())
+                    .set(2, status.getDisplayName());
+            thermalEventSink.publish(record);
+        }
+        // Kept even when the ring was full and dropped the newest events
+        thermalStatus = thermalEvents.getLatest();
+    }
 
-        String currentThermalStatus = "Unknown";
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-            currentThermalStatus = mainActivity.currentThermalStatus;
-        }
-        currentThermalData.add(currentThermalStatus);
-
-        // Calculate Avg CPU, GPU, NPU, TPU temperatures
-        Float avgCPUTemp = 0f, avgGPUTemp = 0f, avgNPUTemp = 0f, avgTPUTemp = 0f, currFileTemp = 0f;
-        int cpuCount = 0, gpuCount = 0, npuCount = 0, tpuCount = 0;
-        for (String zoneFilePath: thermalZonePaths) {
-            currFileTemp = getThermalZoneTemp(zoneFilePath);
-            if (isRooted) {
-                currentThermalData.add(Float.toString(currFileTemp));
-            } else {
-                String currFileType = getThermalZoneType(zoneFilePath);
-                for (String thermalZoneType: thermalZoneTypesOfInterest) {
-                    if (currFileType.contains(thermalZoneType)) {
-                        currentThermalData.add(Float.toString(currFileTemp));
-                        // break out of for loop
-                        break;
-                    }
-                }
+    private float getMaxTemperature() {
+        // The zones of interest drive throttling; fall back to every zone if none matched
+        float maxOfInterest = ThermalZoneRegistry.MISSING_TEMPERATURE;
+        float max = ThermalZoneRegistry.MISSING_TEMPERATURE;
+        boolean anyOfInterest = false;
+        for (int i = 0; i < thermalZones.size(); i++) {
+            max = Math.max(max, thermalZoneTemps[i]);
+            if (thermalZones.get(i).isOfInterest()) {
+                maxOfInterest = Math.max(maxOfInterest, thermalZoneTemps[i]);
+                anyOfInterest = true;
             }
         }
-
-        return currentThermalData;
+        return anyOfInterest ? maxOfInterest : max;
     }
 
-    private ArrayList<Float> processPolicyData() {
-        /*
-        currentPolicyTimes = [cpuLittlePolicyTime, cpuMidPolicyTime, cpuBigPolicyTime]
-         */
-        String policyPath = "/sys/devices/system/cpu/cpufreq/";
-        String littlePath = policyPath + "policy0/stats/time_in_state";
-        String midPath = policyPath + "policy4/stats/time_in_state";
-        String bigPath = policyPath + "policy8/stats/time_in_state";
-        ArrayList<Float> littleFreqTimes = null, midFreqTimes = null, bigFreqTimes = null;
-        try {
-            littleFreqTimes = getPolicyTimes(littlePath);
-            midFreqTimes = getPolicyTimes(midPath);
-            bigFreqTimes = getPolicyTimes(bigPath);
-        } catch (IOException | InterruptedException e) {
-            throw new RuntimeException(e);
-        }
-
-        ArrayList<Float> freqTimes = new ArrayList<>();
-        freqTimes.addAll(littleFreqTimes);
-        freqTimes.addAll(midFreqTimes);
-        freqTimes.addAll(bigFreqTimes);
-
-        ArrayList<Float> updatedTimes = new ArrayList<>();
-        for (int i = 0; i < freqTimes.size(); i++) {
-            updatedTimes.add(freqTimes.get(i) - initialFreqTimes.get(i));
+    private String getThermalStatus() {
+        String currentThermalStatus = ThermalStatus.UNKNOWN.getDisplayName();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            currentThermalStatus = thermalStatus.getDisplayName();
         }
-
-        return updatedTimes;
+        return currentThermalStatus;
     }
 
-    private String getCPUPolicyHeaders(String policyPath, String policyType) throws IOException, InterruptedException {
-        String cmd = String.format("%s cat %s/stats/time_in_state", rootAccess, policyPath);
-        Process process = Runtime.getRuntime().exec(cmd);
-        BufferedReader reader = new BufferedReader(new
-                InputStreamReader(process.getInputStream()));
-        String currLine;
-        StringBuilder cpuPolicyHeaders = new StringBuilder();
-        while ((currLine = reader.readLine()) != null) {
-            String[] currLineSplit = currLine.split(" ");
-            String currFreq = currLineSplit[0];
-            Float currFreqHz = Float.parseFloat(currFreq) / 1000000f;
-            String currTime = currLineSplit[1];
-            Float initialTimeSecs = Float.parseFloat(currTime) / 1000f;
-            initialFreqTimes.add(initialTimeSecs);
-            cpuPolicyHeaders.append(currFreqHz).append(',');
+    private int putThermalData(TelemetryRecord record, int column, boolean isRaw) {
+        // Temperatures were read once for this sample; raw data has every zone,
+        // otherwise only the zones of interest classified at discovery
+        for (int i = 0; i < thermalZones.size(); i++) {
+            if (isRaw || thermalZones.get(i).isOfInterest()) {
+                record.set(column++, thermalZoneTemps[i]);
+            }
         }
-        initialFreqTimes.add(-1f);
-        cpuPolicyHeaders.append(policyType).append(',');
-        reader.close();
-        process.waitFor();
-        return cpuPolicyHeaders.toString();
+        return column;
     }
 
-    private ArrayList<Float> getPolicyTimes(String policyPath) throws IOException, InterruptedException {
-        String cmd = String.format("%s cat %s", rootAccess, policyPath);
-        Process process = Runtime.getRuntime().exec(cmd);
-        BufferedReader reader = new BufferedReader(new
-                InputStreamReader(process.getInputStream()));
-        String currLine;
-        ArrayList<Float> cpuPolicyFreqs = new ArrayList<>();
-        while ((currLine = reader.readLine()) != null) {
-            String[] currLineSplit = currLine.split(" ");
-            String currTime = currLineSplit[1];
-            Float currTimeSeconds = Float.parseFloat(currTime) / 1000f;
-            cpuPolicyFreqs.add(currTimeSeconds);
+    private int putPolicyData(TelemetryRecord record, int column) {
+        for (int i = 0; i < residencyTracker.size(); i++) {
+            FrequencyResidencyTracker.Policy policy = residencyTracker.get(i);
+            for (int j = 0; j < policy.getFrequencyCount(); j++) {
+                record.set(column++, ticksToSeconds(policy.getTimeSinceStart(j)));
+            }
+            float effectiveFreq = policy.getEffectiveFrequency();
+            record.set(column++, effectiveFreq < 0 ? effectiveFreq : effectiveFreq / 1000000f);
         }
-        cpuPolicyFreqs.add(-1f);
-        reader.close();
-        process.waitFor();
-        return cpuPolicyFreqs;
+        return column;
     }
 
-    private String[] getThermalZoneFilePaths(String thermalDir)
-            throws IOException, InterruptedException {
-        // thermalDir for Note10+ is usually "/sys/class/thermal"
-        String cmd = String.format("%s ls %s", rootAccess, thermalDir);
-        Process process = Runtime.getRuntime().exec(cmd);
-        BufferedReader reader = new BufferedReader(
-                new InputStreamReader(process.getInputStream()));
-
-        String currFileName;
-        ArrayList<String> thermalZonePaths = new ArrayList<>();
-        while ((currFileName = reader.readLine()) != null) {
-            if (currFileName.contains("thermal_zone")) {
-                String thermalZoneFilePath = thermalDir + "/" + currFileName + "/";
-                // Get all thermal zones and filter later
-                thermalZonePaths.add(thermalZoneFilePath);
-            }
+    private void addCPUPolicyColumns(TelemetrySchema.Builder schema,
+                                     FrequencyResidencyTracker.Policy policy) {
+        // Seconds spent at each frequency since start, then the interval's effective frequency
+        for (int i = 0; i < policy.getFrequencyCount(); i++) {
+            Float currFreqGHz = policy.getFrequency(i) / 1000000f;
+            schema.addFloat(policy.name + "_" + currFreqGHz);
         }
-
-        reader.close();
-        process.waitFor();
-        return thermalZonePaths.toArray(new String[0]);
+        schema.addFloat(policy.name + "_effectiveFrequency");
     }
 
-    private String getThermalZoneType(String thermalZonePath) throws IOException {
-        String cmd = String.format("%s cat %stype", rootAccess, thermalZonePath);
-        Process process = Runtime.getRuntime().exec(cmd);
-        BufferedReader reader = new BufferedReader(
-                new InputStreamReader(process.getInputStream()));
-        String currLine = reader.readLine();
-        if (currLine != null) {
-            return currLine;
-        }
-        return "default_zone_type";
+    // "Classifier-" becomes "classifierThreads_utilization"
+    private static String threadGroupColumn(String prefix) {
+        String name = prefix.endsWith("-") ? prefix.substring(0, prefix.length() - 1) : prefix;
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1) + "Threads_utilization";
     }
 
-    private Float getThermalZoneTemp(String thermalZonePath) throws IOException {
-        String cmd = String.format("%s cat %stemp", rootAccess, thermalZonePath);
-        Process process = Runtime.getRuntime().exec(cmd);
-        BufferedReader reader = new BufferedReader(
-                new InputStreamReader(process.getInputStream()));
-        String currTemp = reader.readLine();
-        if (currTemp != null) {
-            int tmpMCValue = Integer.parseInt(currTemp);
-            if (tmpMCValue < 0) tmpMCValue = 0;
-            return tmpMCValue / 1000f;
-        }
-        return (float) -1;
+    private static float ticksToSeconds(long ticks) {
+        return ticks * FrequencyResidencyTracker.TICK_MILLIS / 1000f;
     }
 
-    private String[] getCPUDeviceFiles(String cpuDeviceDirs)
-            throws IOException, InterruptedException {
+    private String[] getCPUDeviceFiles(String cpuDeviceDirs) {
         // cpuDeviceDirs for Note10+ is usually "/sys/devices/system/cpu"
-        String cmd = String.format("%s ls %s | grep 'cpu[0-9]'", rootAccess, cpuDeviceDirs);
-        Process process = Runtime.getRuntime().exec(cmd);
-        BufferedReader reader = new BufferedReader(
-                new InputStreamReader(process.getInputStream()));
-        String currLine;
+        String[] fileNames = sysfsReader.list(cpuDeviceDirs);
         List<String> cpuDevicePaths = new ArrayList<>();
-        while ((currLine = reader.readLine()) != null) {
-            if (currLine.matches("cpu[0-9]")) {
+        for (String currLine: fileNames) {
+            if (currLine.matches("cpu[0-9]+")) {
                 String cpuDeviceFilePath = cpuDeviceDirs + "/" + currLine + "/";
                 cpuDevicePaths.add(cpuDeviceFilePath);
             }
         }
-
-        reader.close();
-        process.waitFor();
         return cpuDevicePaths.toArray(new String[0]);
     }
 
-    private Float getCPUFrequency(String cpuDevicePath) throws IOException {
-        String cmd = String.format("%s cat %s/cpufreq/scaling_cur_freq", rootAccess, cpuDevicePath);
-        Process process = Runtime.getRuntime().exec(cmd);
-        BufferedReader reader = new BufferedReader(
-                new InputStreamReader(process.getInputStream()));
-        String currFreq = reader.readLine();
-        if (currFreq != null) {
-            float tempFreq = Float.parseFloat(currFreq);
-            tempFreq /= 1000000.0;
-            return tempFreq;
-        }
-        return (float) 0;
-    }
-
-    private Float getGPUFrequency(String gpuDevicePath, String freqFileName) throws IOException {
-        String cmd = String.format("%s cat %s/%s", rootAccess, gpuDevicePath, freqFileName);
-        Process process = Runtime.getRuntime().exec(cmd);
-        BufferedReader reader = new BufferedReader(new
-                InputStreamReader(process.getInputStream()));
-        String currentGPUFreq = reader.readLine();
-        if (currentGPUFreq != null) {
-            // convert to hz
-            float mhzGPUFreq = Float.parseFloat(currentGPUFreq);
-            return mhzGPUFreq / 1000;
-        }
-        return (float) 0;
+    private Float getCPUFrequency(SysfsNode cpuFrequencyNode) {
+        long currFreq = cpuFrequencyNode.readLong(0);
+        return currFreq / 1000000f;
     }
 
-    private static String getCPUUtilization() throws IOException {
-        String cmd = "top -s 6";
-        Process process = Runtime.getRuntime().exec(cmd);
-        BufferedReader reader = new BufferedReader(new
-                InputStreamReader(process.getInputStream()));
-        String curr_cpu;
-        while ((curr_cpu = reader.readLine()) != null) {
-            if (curr_cpu.contains("org.tensorflow")) {
-                while (curr_cpu.contains("  ")) {
-                    curr_cpu = curr_cpu.replace("  ", " ");
-                }
-                curr_cpu = curr_cpu.replaceAll(" ", ",");
-                break;
-            }
-        }
-        List<String> cpu_util;
-        if (curr_cpu != null) {
-            cpu_util = Arrays.asList(curr_cpu.split(","));
-        } else {
-            cpu_util = Arrays.asList("-1", "-1", "-1", "-1");
-        }
-        return cpu_util.get(cpu_util.size() - 4);
-    }
-
-    private Float getGPUUtilization(String gpuDevicePath, String utilFileName) throws IOException {
-        String cmd = String.format("%s cat %s/%s", rootAccess, gpuDevicePath, utilFileName);
-        Process process = Runtime.getRuntime().exec(cmd);
-        BufferedReader reader = new BufferedReader(new
-                InputStreamReader(process.getInputStream()));
-        String tempReader = reader.readLine();
-        if (tempReader == null) return -1f;
-        String[] currentUtilization = tempReader.split("%");
-        String currentGPUUtilization = currentUtilization[0];
-
-        if (currentGPUUtilization != null) {
-            return Float.parseFloat(currentGPUUtilization);
-        }
-        return (float) 0;
+    private Float getGPUFrequency(SysfsNode gpuFrequencyNode) {
+        // convert to hz
+        long mhzGPUFreq = gpuFrequencyNode.readLong(0);
+        return mhzGPUFreq / 1000f;
     }
 
-    private Long getRelativeTime(String currTime) {
-        String[] timeStampSplit = currTime.split(":");
-        long currTimeSecs = Long.parseLong(timeStampSplit[0]) * 3600 +
-                Long.parseLong(timeStampSplit[1]) * 60 +
-                Long.parseLong(timeStampSplit[2]);
-        return currTimeSecs - startTimeSecs;
+    private Float getGPUUtilization(SysfsNode gpuUtilizationNode) {
+        // Utilization is reported either as "45" or "45 %"
+        return (float) gpuUtilizationNode.readLong(-1);
     }
 
 
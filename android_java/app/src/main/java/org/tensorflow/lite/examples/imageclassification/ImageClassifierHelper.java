@@ -18,14 +18,14 @@ package org.tensorflow.lite.examples.imageclassification;
 
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.os.SystemClock;
 import android.util.Log;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.tensorflow.lite.examples.imageclassification.preprocess.ModelInput;
 import org.tensorflow.lite.gpu.CompatibilityList;
-import org.tensorflow.lite.support.image.ImageProcessor;
+import org.tensorflow.lite.support.common.FileUtil;
 import org.tensorflow.lite.support.image.TensorImage;
-import org.tensorflow.lite.support.image.ops.Rot90Op;
 import org.tensorflow.lite.task.core.BaseOptions;
 import org.tensorflow.lite.task.vision.classifier.Classifications;
 import org.tensorflow.lite.task.vision.classifier.ImageClassifier;
@@ -41,9 +41,7 @@ public class ImageClassifierHelper {
     private static final int MODEL_EFFICIENTNETV1 = 2;
     private static final int MODEL_EFFICIENTNETV2 = 3;
 
-    long inferenceTime = 0;
-    private int executionCount = 0;
-    private long totalExecutionTime = 0;
+    private final InferenceStats stats = new InferenceStats();
     private float threshold;
     private int numThreads;
     private int maxResults;
@@ -53,6 +51,9 @@ public class ImageClassifierHelper {
     private final Context context;
     private final ClassifierListener imageClassifierListener;
     private ImageClassifier imageClassifier;
+    // Reused across frames; rebuilt only when the model changes
+    private ModelInput modelInput;
+    private String modelInputName;
 
     /** Helper class for wrapping Image Classification actions */
     public ImageClassifierHelper(Float threshold,
@@ -126,7 +127,11 @@ public class ImageClassifierHelper {
 
     public void setCurrentModel(int currentModel) {this.currentModel = currentModel;}
 
-    public String getCurrentModel() {return getCurrentModel();}
+    public String getCurrentModel() {return getModelName();}
+
+    public InferenceStats getStats() {
+        return stats;
+    }
 
     private void setupImageClassifier() {
         ImageClassifier.ImageClassifierOptions.Builder optionsBuilder =
@@ -173,39 +178,54 @@ public class ImageClassifierHelper {
         if (imageClassifier == null) {
             setupImageClassifier();
         }
-
-        // Inference time is the difference between the system time at the start
-        // and finish of the process
-        long startTime = SystemClock.uptimeMillis();
-        if (inferenceTime != 0) {
-            totalExecutionTime += startTime - inferenceTime;
+        if (imageClassifier == null) {
+            return;
         }
 
-        // Create preprocessor for the image.
-        // See https://www.tensorflow.org/lite/inference_with_metadata/
-        //            lite_support#imageprocessor_architecture
-        ImageProcessor imageProcessor =
-                new ImageProcessor.Builder().add(new Rot90Op(-imageRotation / 90)).build();
+        ModelInput input = getModelInput();
+        if (input == null) {
+            return;
+        }
 
-        // Preprocess the image and convert it into a TensorImage for classification.
-        TensorImage tensorImage =
-                imageProcessor.process(TensorImage.fromBitmap(image));
+        long startTime = System.nanoTime();
+        // Rotate and resize into the model's preallocated input in one pass
+        TensorImage tensorImage = input.process(image, imageRotation);
+        long preprocessed = System.nanoTime();
 
         // Classify the input image
-        imageClassifier.classify(tensorImage);
-
         List<Classifications> result = imageClassifier.classify(tensorImage);
+        long invoked = System.nanoTime();
 
-        inferenceTime = SystemClock.uptimeMillis() - inferenceTime;
+        long inferenceTime = TimeUnit.NANOSECONDS.toMillis(invoked - preprocessed);
+        imageClassifierListener.onResults(result, inferenceTime);
+        long finished = System.nanoTime();
 
-        long timeLeftInPeriod = currentTaskPeriod - inferenceTime;
+        stats.record(preprocessed - startTime, invoked - preprocessed, finished - invoked,
+                currentTaskPeriod, finished);
 
+        // Idle for the rest of the period
+        long timeLeftInPeriod = currentTaskPeriod
+                - TimeUnit.NANOSECONDS.toMillis(finished - startTime);
         if (timeLeftInPeriod > 0) {
             Thread.sleep(timeLeftInPeriod);
         }
-        totalExecutionTime += inferenceTime;
-        executionCount++;
-        imageClassifierListener.onResults(result, inferenceTime);
+    }
+
+    /** The input of the current model, read from its input tensor; null if it cannot be read. */
+    private ModelInput getModelInput() {
+        String modelName = getModelName();
+        if (modelInput == null || !modelName.equals(modelInputName)) {
+            try {
+                modelInput = ModelInput.forModel(FileUtil.loadMappedFile(context, modelName));
+            } catch (IOException | IllegalArgumentException e) {
+                imageClassifierListener.onError("Model input failed to initialize. See error "
+                        + "logs for details");
+                Log.e(TAG, "Cannot read the input of " + modelName + ": " + e.getMessage());
+                return null;
+            }
+            modelInputName = modelName;
+        }
+        return modelInput;
     }
 
     public void clearImageClassifier() {
@@ -256,7 +276,8 @@ public class ImageClassifierHelper {
         return delegateName;
     }
 
-    public long getThroughput() {
-        return executionCount * 1000L / totalExecutionTime * 1000;
+    /** Inferences per second since the classifier started, see {@link InferenceStats}. */
+    public double getThroughput() {
+        return stats.getCompletions().getMeanRate(System.nanoTime());
     }
 }
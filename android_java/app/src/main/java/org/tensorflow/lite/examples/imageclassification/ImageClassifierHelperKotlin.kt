@@ -17,25 +17,47 @@ package org.tensorflow.lite.examples.imageclassification
 
 import android.content.Context
 import android.graphics.Bitmap
-import android.os.SystemClock
 import android.util.Log
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
-import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.CoroutineDispatcher
 import kotlinx.coroutines.Job
+import kotlinx.coroutines.asCoroutineDispatcher
 import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.first
 import kotlinx.coroutines.launch
-import kotlinx.coroutines.runBlocking
 import org.tensorflow.lite.examples.imageclassification.fragments.DynamicBitmapSource
-import org.tensorflow.lite.support.image.ImageProcessor
+import org.tensorflow.lite.examples.imageclassification.fragments.FrameRing
+import org.tensorflow.lite.examples.imageclassification.fragments.FrameStats
+import org.tensorflow.lite.examples.imageclassification.governor.GovernedTask
+import org.tensorflow.lite.examples.imageclassification.pool.ClassifierPool
+import org.tensorflow.lite.examples.imageclassification.pool.DelegateCache
+import org.tensorflow.lite.examples.imageclassification.pool.ModelRegistry
+import org.tensorflow.lite.examples.imageclassification.preprocess.ModelInput
+import org.tensorflow.lite.examples.imageclassification.scheduler.Accelerator
+import org.tensorflow.lite.examples.imageclassification.scheduler.PeriodicPacer
+import org.tensorflow.lite.examples.imageclassification.scheduler.PeriodicTask
+import org.tensorflow.lite.examples.imageclassification.scheduler.TaskScheduler
+import org.tensorflow.lite.examples.imageclassification.trace.FrameStage
+import org.tensorflow.lite.examples.imageclassification.trace.FrameTracer
 import org.tensorflow.lite.support.image.TensorImage
-import org.tensorflow.lite.support.image.ops.Rot90Op
 import org.tensorflow.lite.task.core.BaseOptions
 import org.tensorflow.lite.task.vision.classifier.Classifications
 import org.tensorflow.lite.task.vision.classifier.ImageClassifier
 import org.tensorflow.lite.task.vision.classifier.ImageClassifier.ImageClassifierOptions
+import java.io.Closeable
+import java.io.File
+import java.io.FileInputStream
+import java.io.IOException
 import java.lang.IllegalStateException
-import kotlin.math.max
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicReference
+import kotlin.time.Duration.Companion.nanoseconds
 
 /** Helper class for wrapping Image Classification actions  */
 class ImageClassifierHelperKotlin(
@@ -44,33 +66,59 @@ class ImageClassifierHelperKotlin(
     private val bitmapSource: DynamicBitmapSource?,
     private val index: Int,
     private val periodOptions: List<String>
-) : ViewModel() {
+) : ViewModel(), GovernedTask {
     var threshold: Float = 0.5f
     var numThreads: Int = 2
     var maxResults: Int = 3
     private var currentDelegate: Int = 0
     private var currentModel: Int = 0
-    private var currentThroughput: Long = 0
-    private var measuredPeriod: Long = 0
     var currentTaskPeriod: Int = 0
+    // Also written by the thermal governor from the sampler thread
+    @Volatile
     var taskPeriod: Long = 0
+    @Volatile
     private var run = false
     private var job: Job? = null
-    private var totalTurnAroundTime: Long = 0
-    private var totalThroughputTime: Long = 0
-    private var totalMeasuredPeriod: Long = 0
-    private var executionCount = 0
-    private var imageClassifier: ImageClassifier? = null
-
-    /** Helper class for wrapping Image Classification actions  */
-    init {
-        setupImageClassifier()
-    }
+    private val modelRegistry = sharedModels(context)
+    private val classifierPool = sharedPool(context)
+    // Held between classifications; the classifying thread takes it while it runs
+    private val lease = AtomicReference<ClassifierPool.Lease<MappedClassifier>?>()
+    @Volatile
+    private var cleared = false
+    // Reused across frames; rebuilt only when the model changes
+    private var modelInput: ModelInput? = null
+    private var modelInputName: String? = null
+    val frameStats = FrameStats()
+    val stats = InferenceStats()
+    val pacer = PeriodicPacer(0)
+    // Set while a TaskScheduler dispatches this classifier instead of its own loop
+    @Volatile
+    var scheduledTask: PeriodicTask? = null
+        private set
+    @Volatile
+    private var taskScheduler: TaskScheduler? = null
+    // The GPU delegate only works on the thread that created it, so GPU classifications all run
+    // on this classifier's own thread, created with the first
+    @Volatile
+    private var gpuThreadExecutor: ExecutorService? = null
+    private var gpuThreadDispatcher: CoroutineDispatcher? = null
+    @Volatile
+    private var gpuThread: Thread? = null
+    @Volatile
+    private var closed = false
 
     fun setCurrentDelegate(currentDelegate: Int) {
         this.currentDelegate = currentDelegate
     }
 
+    fun setCurrentDelegate(accelerator: Accelerator) {
+        currentDelegate = when (accelerator) {
+            Accelerator.CPU -> DELEGATE_CPU
+            Accelerator.GPU -> DELEGATE_GPU
+            Accelerator.NPU -> DELEGATE_NNAPI
+        }
+    }
+
     fun getCurrentDelegateNum(): Int {
         return currentDelegate
     }
@@ -83,6 +131,14 @@ class ImageClassifierHelperKotlin(
         this.currentModel = currentModel
     }
 
+    /** Selects a model by file name, with or without the .tflite extension. */
+    fun setCurrentModel(name: String) {
+        val file = if (name.endsWith(".tflite")) name else "$name.tflite"
+        val model = MODEL_FILES.indexOf(file)
+        require(model >= 0) { "Unknown model $name" }
+        currentModel = model
+    }
+
     fun getCurrentModel(): String {
         return this.modelName
     }
@@ -92,161 +148,344 @@ class ImageClassifierHelperKotlin(
         this.taskPeriod = periodOption
     }
 
-    fun getIndex(): Int {
+    override fun getIndex(): Int {
         return index
     }
 
-    fun calculateAverageThroughput(): Long {
-        return totalThroughputTime / max(1, executionCount);
+    override fun getPeriodMs(): Long {
+        return taskPeriod
+    }
+
+    override fun setPeriodMs(periodMs: Long) {
+        taskPeriod = periodMs
+        // A scheduled task is released by its scheduler, which keeps its own copy of the period
+        val task = scheduledTask ?: return
+        taskScheduler?.setPeriod(task, TimeUnit.MILLISECONDS.toNanos(periodMs))
+    }
+
+    /** Hands this classifier's dispatch to [task] on [scheduler], or back to its loop if null. */
+    fun setScheduledTask(scheduler: TaskScheduler?, task: PeriodicTask?) {
+        taskScheduler = scheduler
+        scheduledTask = task
+    }
+
+    override fun getThreads(): Int {
+        return numThreads
+    }
+
+    override fun setThreads(threads: Int) {
+        // A classifier with the new thread count is leased before the next classification
+        numThreads = threads
     }
 
-    fun getCurrentThroughput(): Long {
-        return currentThroughput
+    /** Inferences per second since collection started. */
+    fun calculateAverageThroughput(): Double {
+        return stats.completions.getMeanRate(System.nanoTime())
+    }
+
+    /** Inferences per second over the last second. */
+    fun getCurrentThroughput(): Double {
+        return stats.completions.getWindowRate(TimeUnit.SECONDS.toNanos(1), System.nanoTime())
     }
 
     fun calculateAvgTAT(): Long {
-        return (totalTurnAroundTime / max(1, (executionCount)))
+        return TimeUnit.NANOSECONDS.toMillis(stats.avgTurnAroundNanos)
     }
 
     fun getMeasuredPeriod(): Long {
-        return measuredPeriod
+        return TimeUnit.NANOSECONDS.toMillis(stats.measuredPeriodNanos)
     }
     fun getAvgMeasuredPeriod(): Long {
-        return totalMeasuredPeriod / max(1, executionCount)
+        return TimeUnit.NANOSECONDS.toMillis(stats.avgMeasuredPeriodNanos)
     }
-    
-    private fun setupImageClassifier() {
-        val optionsBuilder = ImageClassifierOptions.builder()
-            .setScoreThreshold(threshold)
-            .setMaxResults(maxResults)
-        val baseOptionsBuilder = BaseOptions.builder().setNumThreads(
-            numThreads
-        )
-        when (currentDelegate) {
-            DELEGATE_CPU -> {}
-            DELEGATE_GPU -> if (true) { // (CompatibilityList().isDelegateSupportedOnThisDevice) {
-                baseOptionsBuilder.useGpu()
-            } else {
-                imageClassifierListener?.onError(
-                    "GPU is not supported on "
-                            + "this device"
-                )
-            }
-            DELEGATE_NNAPI -> baseOptionsBuilder.useNnapi()
-        }
 
-        optionsBuilder.setBaseOptions(baseOptionsBuilder.build())
-
-        val modelName = modelName
+    /** Open references to the current model's mapping, one per classifier built from it. */
+    fun getModelRefCount(): Int {
+        return modelRegistry.getRefCount(modelName)
+    }
 
-        try {
-            imageClassifier = ImageClassifier.createFromFileAndOptions(
-                context,
-                modelName,
-                optionsBuilder.build()
-            )
+    /** Bytes of all model files mapped by the classifiers, counted once per file. */
+    fun getMappedModelBytes(): Long {
+        return modelRegistry.mappedBytes
+    }
+    
+    /**
+     * Returns a classifier for the current model, delegate and threads, leasing one from the pool
+     * if the one held was built for other settings. GPU classifiers are owned by this
+     * classifier's GPU thread, the only one they are used and closed on.
+     */
+    private fun leaseClassifier(
+        held: ClassifierPool.Lease<MappedClassifier>?
+    ): ClassifierPool.Lease<MappedClassifier>? {
+        val accelerator = accelerator
+        // Only leased on the GPU thread, so its executor exists
+        val owner = if (accelerator == Accelerator.GPU) gpuThreadExecutor else null
+        if (held != null && held.key.matches(modelName, accelerator, numThreads, owner)) {
+            return held
+        }
+        held?.let(classifierPool::release)
+        return try {
+            classifierPool.acquire(ClassifierPool.Key(modelName, accelerator, numThreads, owner))
+                .also {
+                    if (it.isReused) {
+                        stats.recordReuse()
+                    } else {
+                        stats.recordLoad(it.loadNanos, it.instance.warmStart)
+                    }
+                }
+        } catch (e: IOException) {
+            onSetupError(e)
+            null
         } catch (e: IllegalStateException) {
-            imageClassifierListener?.onError(
-                "Image classifier failed to "
-                        + "initialize. See error logs for details"
-            )
-            Log.e(
-                TAG, "TFLite failed to load model with error: "
-                        + e.message
-            )
+            onSetupError(e)
+            null
+        } catch (e: IllegalArgumentException) {
+            // An interpreter whose delegate cannot be applied
+            onSetupError(e)
+            null
         }
     }
 
+    private fun onSetupError(e: Exception) {
+        imageClassifierListener?.onError(
+            "Image classifier failed to "
+                    + "initialize. See error logs for details"
+        )
+        Log.e(
+            TAG, "TFLite failed to load model with error: "
+                    + e.message
+        )
+    }
+
     private fun resetRtData() {
-        executionCount = 0
-        currentThroughput = 0
+        stats.reset()
+        pacer.reset()
     }
 
-    fun startCollect() = runBlocking <Unit>{
+    fun startCollect() {
         run = true
         resetRtData()
-        launch {
-            collectStream()
+        job?.cancel()
+        // A GPU task keeps to its own thread, so it only ever loads one GPU classifier
+        val dispatcher =
+            if (accelerator == Accelerator.GPU) gpuDispatcher() else inferenceDispatcher
+        job = viewModelScope.launch(dispatcher) {
+            runPeriodic()
         }
     }
 
     fun pauseCollect() {
         run = false
         job?.cancel()
+        frameStats.reset()
+        // Lets other classifiers reuse it while paused
+        clearImageClassifier()
     }
 
-    private suspend fun collectStream() {
-        job = viewModelScope.launch(Dispatchers.IO) {
-            bitmapSource?.bitmapStream?.collect {
-                if (it != null && run) {
-                    classify(it.latestBitmap, it.latestImageRotation)
-
-                }
+    /**
+     * Releases one classification job per task period. Waiting for the release and for a new
+     * frame suspends, so the shared threads only run inferences.
+     */
+    private suspend fun runPeriodic() {
+        val source = bitmapSource ?: return
+        while (run) {
+            pacer.periodNanos = TimeUnit.MILLISECONDS.toNanos(taskPeriod)
+            val wait = pacer.delayNanos(System.nanoTime())
+            if (wait > 0) {
+                delay(wait.nanoseconds)
+            }
+            // Only frames newer than the last one classified are worth a job
+            source.bitmapStream.first { it > frameStats.lastSequence }
+            // Holding the slot keeps the camera from writing into it while it is classified
+            val frame = source.acquireLatest() ?: continue
+            pacer.onStart(System.nanoTime())
+            try {
+                classifyFrame(frame)
+            } finally {
+                source.release(frame)
+                pacer.onFinish(System.nanoTime())
             }
         }
     }
 
-    @Throws(InterruptedException::class)
-    fun classify(image: Bitmap?, imageRotation: Int) {
-        if (imageClassifier == null) {
-            setupImageClassifier()
+    /**
+     * Classifies the newest camera frame once, for a scheduler dispatching this classifier.
+     * Returns false if no frame was published yet.
+     */
+    fun classifyLatest(): Boolean {
+        val source = bitmapSource ?: return false
+        val frame = source.acquireLatest() ?: return false
+        try {
+            classifyFrame(frame)
+        } finally {
+            source.release(frame)
         }
+        return true
+    }
 
-        // Create preprocessor for the image.
-        // See https://www.tensorflow.org/lite/inference_with_metadata/
-        //            lite_support#imageprocessor_architecture
-        val imageProcessor = ImageProcessor.Builder().add(Rot90Op(-imageRotation / 90)).build()
-
-        // Preprocess the image and convert it into a TensorImage for classification.
-        val tensorImage = imageProcessor.process(TensorImage.fromBitmap(image))
-
-        // Inference time is the difference between the system time at the start
-        // and finish of the process
-        val startTime = SystemClock.uptimeMillis()
-        // Classify the input image
-        val result = imageClassifier?.classify(tensorImage)
-        // Calculate the turn around time: Made up of queue time + inference time
-        val turnAroundTime = SystemClock.uptimeMillis() - startTime
-        // Increment the total inferences executed
-        executionCount++
-
-        val timeLeftInPeriod = taskPeriod - turnAroundTime
-        measuredPeriod = if (timeLeftInPeriod >= 0) taskPeriod else turnAroundTime
-        if (timeLeftInPeriod > 0) {
-            runBlocking {
-                delay(timeLeftInPeriod)
+    private fun classifyFrame(frame: FrameRing.Slot<Bitmap>) {
+        // Unset if the frame was published before tracing started
+        if (FrameTracer.isEnabled() && frame.publishNanos != 0L) {
+            FrameTracer.span(
+                FrameStage.HANDOFF, frame.sequence, frame.publishNanos, System.nanoTime()
+            )
+        }
+        frameStats.onFrame(frame.sequence)
+        classify(frame.buffer, frame.rotation, frame.sequence)
+    }
+
+    /**
+     * Classifies [image]; [frame] is its sequence in the camera stream, if it came from one. A GPU
+     * classification called from another thread, e.g. a scheduler's, waits for the GPU thread.
+     */
+    fun classify(image: Bitmap?, imageRotation: Int, frame: Long = 0) {
+        // A scheduler's job may still be running when the classifier is closed
+        if (image == null || closed) return
+        if (accelerator == Accelerator.GPU && Thread.currentThread() !== gpuThread) {
+            onGpuThread { classify(image, imageRotation, frame) }
+            return
+        }
+        cleared = false
+        val current = leaseClassifier(lease.getAndSet(null)) ?: return
+        val traced = FrameTracer.isEnabled()
+        try {
+            val startTime = System.nanoTime()
+            // Rotate and resize into the model's preallocated input in one pass
+            val tensorImage = section(traced, FrameStage.PREPROCESS) {
+                modelInputFor(current.instance.model).process(image, imageRotation)
+            }
+            val preprocessed = System.nanoTime()
+
+            // Classify the input image
+            val result = section(traced, FrameStage.INVOKE) {
+                current.instance.classifier.classify(tensorImage)
+            }
+            val invoked = System.nanoTime()
+
+            val inferenceTime = TimeUnit.NANOSECONDS.toMillis(invoked - preprocessed)
+            imageClassifierListener?.onResults(applyLimits(result), inferenceTime, index, frame)
+            val finished = System.nanoTime()
+
+            stats.record(
+                preprocessed - startTime, invoked - preprocessed, finished - invoked, taskPeriod,
+                finished
+            )
+            if (traced) {
+                FrameTracer.span(FrameStage.PREPROCESS, frame, startTime, preprocessed)
+                FrameTracer.span(FrameStage.INVOKE, frame, preprocessed, invoked)
+                FrameTracer.span(FrameStage.RESULTS, frame, invoked, finished)
             }
+        } finally {
+            lease.set(current)
+            // Cleared while classifying: hand it back now that it is free
+            if (cleared) lease.getAndSet(null)?.let(classifierPool::release)
+        }
+    }
+
+    /** Runs [block] in a platform trace section for [stage] if [traced]. */
+    private inline fun <T> section(traced: Boolean, stage: FrameStage, block: () -> T): T {
+        if (!traced) return block()
+        FrameTracer.beginSection(stage)
+        try {
+            return block()
+        } finally {
+            FrameTracer.endSection()
         }
+    }
 
-        totalMeasuredPeriod += measuredPeriod
-        totalTurnAroundTime += turnAroundTime
-        currentThroughput = if (measuredPeriod == 0L) 0;
-        else 1000 / measuredPeriod
-        totalThroughputTime += currentThroughput
+    /**
+     * Pooled classifiers are built without a score threshold and with the most results the UI
+     * offers, so changing either does not need another classifier.
+     */
+    private fun applyLimits(results: List<Classifications>): List<Classifications> {
+        return results.map { classifications ->
+            val categories = classifications.categories
+                .filter { it.score >= threshold }
+                .take(maxResults)
+            Classifications.create(categories, classifications.headIndex)
+        }
+    }
 
-        imageClassifierListener?.onResults(result, turnAroundTime, index)
+    /** The input of [model], read from its input tensor when the model changes. */
+    private fun modelInputFor(model: ModelRegistry.Model): ModelInput {
+        val input = modelInput
+        if (input != null && model.name == modelInputName) return input
+        return ModelInput.forModel(model.buffer).also {
+            modelInput = it
+            modelInputName = model.name
+        }
     }
 
+    /**
+     * Hands the classifier back to the pool, right away or once a running classification
+     * finishes. The next classification leases one again, usually the same.
+     */
     fun clearImageClassifier() {
-        imageClassifier = null
+        cleared = true
+        lease.getAndSet(null)?.let(classifierPool::release)
+    }
+
+    /**
+     * Stops classifying for good and ends the GPU thread once a classification in progress has
+     * finished and the thread has closed its classifiers. For classifiers that are replaced
+     * rather than paused.
+     */
+    fun close() {
+        pauseCollect()
+        val executor = synchronized(this) {
+            closed = true
+            gpuThreadExecutor
+        } ?: return
+        executor.execute { classifierPool.clear(executor) }
+        executor.shutdown()
+    }
+
+    override fun onCleared() {
+        close()
+    }
+
+    @Synchronized
+    private fun gpuExecutor(): ExecutorService {
+        if (closed) throw RejectedExecutionException("Classifier $index is closed")
+        gpuThreadExecutor?.let { return it }
+        return Executors.newSingleThreadExecutor { runnable ->
+            Thread(runnable, "Classifier-" + threadCount.incrementAndGet()).apply {
+                isDaemon = true
+                gpuThread = this
+            }
+        }.also { gpuThreadExecutor = it }
+    }
+
+    @Synchronized
+    private fun gpuDispatcher(): CoroutineDispatcher {
+        gpuThreadDispatcher?.let { return it }
+        return gpuExecutor().asCoroutineDispatcher().also { gpuThreadDispatcher = it }
+    }
+
+    /** Runs [block] on the GPU thread and waits for it; skipped once the classifier is closed. */
+    private fun onGpuThread(block: () -> Unit) {
+        try {
+            gpuExecutor().submit(Runnable { block() }).get()
+        } catch (e: RejectedExecutionException) {
+            // Closed meanwhile
+        } catch (e: ExecutionException) {
+            throw e.cause as? RuntimeException ?: IllegalStateException(e.cause)
+        } catch (e: InterruptedException) {
+            Thread.currentThread().interrupt()
+        }
     }
 
     /** Listener for passing results back to calling class  */
     interface ClassifierListener {
         fun onError(error: String?)
-        fun onResults(results: List<Classifications?>?, inferenceTime: Long, modelIndex: Int)
+        fun onResults(
+            results: List<Classifications?>?, inferenceTime: Long, modelIndex: Int, frame: Long
+        )
     }
 
     private val modelName: String
         get() {
-            val modelName: String = when (currentModel) {
-                MODEL_MOBILENETV1 -> "mobilenetv1.tflite"
-                MODEL_EFFICIENTNETV0 -> "efficientnet-lite0.tflite"
-                MODEL_EFFICIENTNETV1 -> "efficientnet-lite1.tflite"
-                MODEL_EFFICIENTNETV2 -> "efficientnet-lite2.tflite"
-                else -> "mobilenetv1.tflite"
-            }
-            return modelName
+            return MODEL_FILES.getOrElse(currentModel) { MODEL_FILES[MODEL_MOBILENETV1] }
         }
 
     private val delegateName: String
@@ -260,6 +499,13 @@ class ImageClassifierHelperKotlin(
             return currDelegateName
         }
 
+    private val accelerator: Accelerator
+        get() = when (currentDelegate) {
+            DELEGATE_GPU -> Accelerator.GPU
+            DELEGATE_NNAPI -> Accelerator.NPU
+            else -> Accelerator.CPU
+        }
+
     private val periodOption: Long
         get() {
             val currPeriodOption = periodOptions[currentTaskPeriod]
@@ -275,5 +521,180 @@ class ImageClassifierHelperKotlin(
         private const val MODEL_EFFICIENTNETV0 = 1
         private const val MODEL_EFFICIENTNETV1 = 2
         private const val MODEL_EFFICIENTNETV2 = 3
+        // Indexed by the MODEL_ constants
+        private val MODEL_FILES = listOf(
+            "mobilenetv1.tflite",
+            "efficientnet-lite0.tflite",
+            "efficientnet-lite1.tflite",
+            "efficientnet-lite2.tflite"
+        )
+        // Most results the UI shows; pooled classifiers return this many
+        const val MAX_RESULTS = 3
+        // One thread per concurrently running classifier, so tasks never queue behind each other
+        private const val INFERENCE_THREADS = 3
+        private const val DELEGATE_CACHE_DIR = "delegate_cache"
+
+        private var pool: ClassifierPool<MappedClassifier>? = null
+        private var models: ModelRegistry? = null
+
+        /** Model mappings shared by every classifier, created with the first. */
+        @Synchronized
+        private fun sharedModels(context: Context): ModelRegistry {
+            models?.let { return it }
+            val assets = context.applicationContext.assets
+            return ModelRegistry { model ->
+                // Stored uncompressed (noCompress 'tflite'), so the asset can be mapped in place
+                assets.openFd(model).use { fd ->
+                    FileInputStream(fd.fileDescriptor).channel.use {
+                        ModelRegistry.map(it, fd.startOffset, fd.declaredLength)
+                    }
+                }
+            }.also { models = it }
+        }
+
+        /** Pool shared by every classifier, created with the first. */
+        @Synchronized
+        private fun sharedPool(context: Context): ClassifierPool<MappedClassifier> {
+            return pool ?: ClassifierPool(
+                ClassifierLoader(
+                    context.applicationContext,
+                    sharedModels(context),
+                    DelegateCache(File(context.applicationContext.filesDir, DELEGATE_CACHE_DIR))
+                ),
+                ClassifierPool.DEFAULT_BUDGET_BYTES
+            ).also { pool = it }
+        }
+
+        private val threadCount = AtomicInteger()
+
+        /**
+         * Threads shared by the CPU and NNAPI classifiers; a paced task only holds one while
+         * inferring.
+         */
+        val inferenceDispatcher: CoroutineDispatcher =
+            Executors.newFixedThreadPool(INFERENCE_THREADS) { runnable ->
+                Thread(runnable, "Classifier-" + threadCount.incrementAndGet()).apply {
+                    isDaemon = true
+                }
+            }.asCoroutineDispatcher()
+    }
+}
+
+/** Classifies a preprocessed model input. */
+internal interface ModelClassifier : Closeable {
+    fun classify(image: TensorImage): List<Classifications>
+}
+
+/** The Task API's classifier, for the CPU. */
+internal class TaskClassifier(private val classifier: ImageClassifier) : ModelClassifier {
+    override fun classify(image: TensorImage): List<Classifications> {
+        return classifier.classify(image)
+    }
+
+    override fun close() {
+        classifier.close()
+    }
+}
+
+/** A pooled classifier and the reference to the model mapping it reads its weights from. */
+internal class MappedClassifier(
+    val classifier: ModelClassifier,
+    val model: ModelRegistry.Model,
+    // Whether its delegate was initialized from the compilation cache before
+    val warmStart: Boolean
+) : Closeable {
+    override fun close() {
+        // The interpreter reads the mapping until it is closed
+        classifier.close()
+        model.close()
+    }
+}
+
+/**
+ * Builds pooled classifiers from the model files in the assets, sharing one mapping each. GPU
+ * and NNAPI delegates serialize their compiled model into a [DelegateCache] entry, and their
+ * initializations are timed against it.
+ */
+private class ClassifierLoader(
+    private val context: Context,
+    private val models: ModelRegistry,
+    private val delegateCache: DelegateCache
+) : ClassifierPool.Loader<MappedClassifier> {
+    override fun load(key: ClassifierPool.Key): MappedClassifier {
+        val model = models.acquire(key.model)
+        return try {
+            if (key.accelerator == Accelerator.CPU) {
+                MappedClassifier(loadTaskClassifier(key, model), model, false)
+            } else {
+                val cache = openCache(key, model)
+                val start = System.nanoTime()
+                val classifier = InterpreterClassifier(
+                    model.buffer, key.accelerator, key.threads, cache,
+                    ImageClassifierHelperKotlin.MAX_RESULTS
+                )
+                val initNanos = System.nanoTime() - start
+                val warm = cache?.let { recordInit(key, it, initNanos) } ?: false
+                MappedClassifier(classifier, model, warm)
+            }
+        } catch (e: Exception) {
+            model.close()
+            throw e
+        }
+    }
+
+    private fun loadTaskClassifier(
+        key: ClassifierPool.Key, model: ModelRegistry.Model
+    ): ModelClassifier {
+        val options = ImageClassifierOptions.builder()
+            .setMaxResults(ImageClassifierHelperKotlin.MAX_RESULTS)
+            .setBaseOptions(BaseOptions.builder().setNumThreads(key.threads).build())
+            .build()
+        return TaskClassifier(ImageClassifier.createFromBufferAndOptions(model.buffer, options))
+    }
+
+    private fun openCache(
+        key: ClassifierPool.Key, model: ModelRegistry.Model
+    ): DelegateCache.Entry? {
+        // Without an entry the delegate compiles from scratch every time, but still works
+        return try {
+            delegateCache.open(key.model, model.sha256, key.accelerator, "threads=${key.threads}")
+        } catch (e: IOException) {
+            Log.w(TAG, "No delegate cache for $key: " + e.message)
+            null
+        }
+    }
+
+    private fun recordInit(
+        key: ClassifierPool.Key, cache: DelegateCache.Entry, initNanos: Long
+    ): Boolean {
+        return try {
+            cache.recordInit(initNanos).also { warm ->
+                Log.i(
+                    TAG, "$key ${if (warm) "warm" else "cold"} start in "
+                            + "${TimeUnit.NANOSECONDS.toMillis(initNanos)} ms (cold "
+                            + "${TimeUnit.NANOSECONDS.toMillis(cache.coldNanos)} ms, warm avg "
+                            + "${TimeUnit.NANOSECONDS.toMillis(cache.avgWarmNanos)} ms)"
+                )
+            }
+        } catch (e: IOException) {
+            // Only the timing is lost; the classifier works without its cache
+            Log.w(TAG, "Delegate cache of $key not updated: " + e.message)
+            false
+        }
+    }
+
+    override fun sizeOf(key: ClassifierPool.Key): Long {
+        // Counted per classifier although the mapping is shared: the CPU kernels repack the
+        // weights they read, and a delegate keeps its own copy next to the interpreter's
+        val bytes = try {
+            context.assets.openFd(key.model).use { it.length }
+        } catch (e: IOException) {
+            0L
+        }
+        return if (key.accelerator == Accelerator.CPU) bytes else 2 * bytes
+    }
+
+    companion object {
+        private const val TAG = "ClassifierLoader"
     }
-}
\ No newline at end of file
+}
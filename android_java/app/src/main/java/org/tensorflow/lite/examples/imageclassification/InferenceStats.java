@@ -0,0 +1,188 @@
+package org.tensorflow.lite.examples.imageclassification;
+
+import java.util.concurrent.TimeUnit;
+
+import org.tensorflow.lite.examples.imageclassification.telemetry.RateMeter;
+
+/**
+ * Per-stage timing of the inferences of one classifier.
+ *
+ * <p>Each inference is split into preprocess (frame to input tensor), invoke (the classifier
+ * call) and postprocess (handing the results on). The turnaround time is the sum of the three.
+ * A periodic task cannot finish an inference faster than its period, so the measured period is
+ * the longer of the period and the turnaround time. The throughput actually achieved is
+ * counted from the completion times by a {@link RateMeter}.
+ *
+ * <p>Loading a model and compiling its delegate is kept apart from the inferences, as is how
+ * often a pooled classifier was reused instead. Loads whose delegate was initialized from its
+ * compilation cache before are warm; the others, including every CPU load, are cold.
+ *
+ * <p>Averages hide the tail, so each stage also goes into a histogram of its {@link
+ * StageLatencies}.
+ *
+ * <p>Written by the classifier thread only; other threads may read it at any time.
+ */
+public final class InferenceStats {
+    private volatile long count;
+    private volatile long lastPreprocessNanos;
+    private volatile long lastInvokeNanos;
+    private volatile long lastPostprocessNanos;
+    private volatile long lastMeasuredPeriodNanos;
+    private volatile long totalPreprocessNanos;
+    private volatile long totalInvokeNanos;
+    private volatile long totalPostprocessNanos;
+    private volatile long totalMeasuredPeriodNanos;
+    private volatile long loads;
+    private volatile long reuses;
+    private volatile long lastLoadNanos;
+    private volatile long totalLoadNanos;
+    private volatile long warmLoads;
+    private volatile long totalWarmLoadNanos;
+    private final StageLatencies latencies = new StageLatencies();
+    private final RateMeter completions = new RateMeter(System.nanoTime());
+
+    /**
+     * Records one inference run by a task with a period of {@code periodMs}, which finished at
+     * {@code finishedNanos} of {@link System#nanoTime()}.
+     */
+    public void record(long preprocessNanos, long invokeNanos, long postprocessNanos,
+                       long periodMs, long finishedNanos) {
+        long turnAround = preprocessNanos + invokeNanos + postprocessNanos;
+        long measuredPeriod = Math.max(TimeUnit.MILLISECONDS.toNanos(periodMs), turnAround);
+        lastPreprocessNanos = preprocessNanos;
+        lastInvokeNanos = invokeNanos;
+        lastPostprocessNanos = postprocessNanos;
+        lastMeasuredPeriodNanos = measuredPeriod;
+        totalPreprocessNanos += preprocessNanos;
+        totalInvokeNanos += invokeNanos;
+        totalPostprocessNanos += postprocessNanos;
+        totalMeasuredPeriodNanos += measuredPeriod;
+        count++;
+        latencies.record(preprocessNanos, invokeNanos, postprocessNanos);
+        completions.mark(finishedNanos);
+    }
+
+    /** Records loading a classifier, which took {@code loadNanos}. */
+    public void recordLoad(long loadNanos, boolean warm) {
+        lastLoadNanos = loadNanos;
+        totalLoadNanos += loadNanos;
+        if (warm) {
+            totalWarmLoadNanos += loadNanos;
+            warmLoads++;
+        }
+        loads++;
+    }
+
+    /** Records switching to a classifier that was already loaded. */
+    public void recordReuse() {
+        reuses++;
+    }
+
+    public void reset() {
+        count = 0;
+        lastPreprocessNanos = 0;
+        lastInvokeNanos = 0;
+        lastPostprocessNanos = 0;
+        lastMeasuredPeriodNanos = 0;
+        totalPreprocessNanos = 0;
+        totalInvokeNanos = 0;
+        totalPostprocessNanos = 0;
+        totalMeasuredPeriodNanos = 0;
+        loads = 0;
+        reuses = 0;
+        lastLoadNanos = 0;
+        totalLoadNanos = 0;
+        warmLoads = 0;
+        totalWarmLoadNanos = 0;
+        latencies.reset();
+        completions.reset(System.nanoTime());
+    }
+
+    public StageLatencies getLatencies() {
+        return latencies;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getLastPreprocessNanos() {
+        return lastPreprocessNanos;
+    }
+
+    public long getLastInvokeNanos() {
+        return lastInvokeNanos;
+    }
+
+    public long getLastPostprocessNanos() {
+        return lastPostprocessNanos;
+    }
+
+    public long getLastTurnAroundNanos() {
+        return lastPreprocessNanos + lastInvokeNanos + lastPostprocessNanos;
+    }
+
+    public long getAvgPreprocessNanos() {
+        return totalPreprocessNanos / Math.max(1, count);
+    }
+
+    public long getAvgInvokeNanos() {
+        return totalInvokeNanos / Math.max(1, count);
+    }
+
+    public long getAvgPostprocessNanos() {
+        return totalPostprocessNanos / Math.max(1, count);
+    }
+
+    public long getAvgTurnAroundNanos() {
+        return (totalPreprocessNanos + totalInvokeNanos + totalPostprocessNanos)
+                / Math.max(1, count);
+    }
+
+    public long getMeasuredPeriodNanos() {
+        return lastMeasuredPeriodNanos;
+    }
+
+    public long getAvgMeasuredPeriodNanos() {
+        return totalMeasuredPeriodNanos / Math.max(1, count);
+    }
+
+    /** Inferences per second the last measured period allows; 0 before the first. */
+    public double getPeriodThroughput() {
+        long period = lastMeasuredPeriodNanos;
+        return period == 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / (double) period;
+    }
+
+    /** Completed inferences over time, since the last reset. */
+    public RateMeter getCompletions() {
+        return completions;
+    }
+
+    public long getLoads() {
+        return loads;
+    }
+
+    public long getReuses() {
+        return reuses;
+    }
+
+    public long getLastLoadNanos() {
+        return lastLoadNanos;
+    }
+
+    public long getAvgLoadNanos() {
+        return totalLoadNanos / Math.max(1, loads);
+    }
+
+    public long getWarmLoads() {
+        return warmLoads;
+    }
+
+    public long getAvgColdLoadNanos() {
+        return (totalLoadNanos - totalWarmLoadNanos) / Math.max(1, loads - warmLoads);
+    }
+
+    public long getAvgWarmLoadNanos() {
+        return totalWarmLoadNanos / Math.max(1, warmLoads);
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2022 The TensorFlow Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *             http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tensorflow.lite.examples.imageclassification
+
+import org.tensorflow.lite.DataType
+import org.tensorflow.lite.Delegate
+import org.tensorflow.lite.Interpreter
+import org.tensorflow.lite.examples.imageclassification.pool.DelegateCache
+import org.tensorflow.lite.examples.imageclassification.scheduler.Accelerator
+import org.tensorflow.lite.gpu.GpuDelegate
+import org.tensorflow.lite.nnapi.NnApiDelegate
+import org.tensorflow.lite.support.image.TensorImage
+import org.tensorflow.lite.support.label.Category
+import org.tensorflow.lite.support.metadata.MetadataExtractor
+import org.tensorflow.lite.support.metadata.schema.AssociatedFileType
+import org.tensorflow.lite.task.vision.classifier.Classifications
+import java.io.Closeable
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+
+/**
+ * Classifies with a plain interpreter and a GPU or NNAPI delegate, for the delegates whose
+ * compiled model is serialized into a [DelegateCache.Entry]. The Task API's BaseOptions take no
+ * serialization directory or model token, so the Task classifier is only used on the CPU.
+ *
+ * Labels come from the model's metadata and scores are dequantized like the Task API does, so
+ * both return the same classifications.
+ */
+internal class InterpreterClassifier(
+    model: ByteBuffer,
+    accelerator: Accelerator,
+    threads: Int,
+    cache: DelegateCache.Entry?,
+    private val maxResults: Int
+) : ModelClassifier {
+    private val delegate: Delegate = createDelegate(accelerator, cache)
+    private val interpreter: Interpreter
+    private val labels: List<String>
+    private val output: ByteBuffer
+    private val outputType: DataType
+    private val scale: Float
+    private val zeroPoint: Int
+    private val scores: FloatArray
+    // Indices of the best scores so far, the best first; preallocated, as it runs every frame
+    private val top = IntArray(maxResults)
+
+    init {
+        try {
+            interpreter = Interpreter(
+                model, Interpreter.Options().addDelegate(delegate).setNumThreads(threads)
+            )
+        } catch (e: RuntimeException) {
+            closeDelegate()
+            throw e
+        }
+        try {
+            val tensor = interpreter.getOutputTensor(0)
+            outputType = tensor.dataType()
+            scale = tensor.quantizationParams().scale
+            zeroPoint = tensor.quantizationParams().zeroPoint
+            scores = FloatArray(tensor.numElements())
+            output = ByteBuffer.allocateDirect(tensor.numBytes()).order(ByteOrder.nativeOrder())
+            labels = readLabels(model)
+        } catch (e: Exception) {
+            close()
+            throw e
+        }
+    }
+
+    override fun classify(image: TensorImage): List<Classifications> {
+        output.rewind()
+        interpreter.run(image.buffer, output)
+        output.rewind()
+        for (i in scores.indices) {
+            scores[i] = when (outputType) {
+                DataType.UINT8 -> scale * ((output.get().toInt() and 0xff) - zeroPoint)
+                DataType.INT8 -> scale * (output.get() - zeroPoint)
+                else -> output.float
+            }
+        }
+        val count = selectTop()
+        val categories = ArrayList<Category>(count)
+        for (i in 0 until count) {
+            val index = top[i]
+            val label = labels.getOrElse(index) { index.toString() }
+            categories.add(Category.create(label, label, scores[index], index))
+        }
+        return listOf(Classifications.create(categories, 0))
+    }
+
+    /**
+     * Fills [top] with the indices of the highest scores, the best first, by insertion into the
+     * few kept; ties keep the lower index first. Returns how many were kept.
+     */
+    private fun selectTop(): Int {
+        if (top.isEmpty()) return 0
+        var count = 0
+        for (i in scores.indices) {
+            val score = scores[i]
+            if (count == top.size && score <= scores[top[count - 1]]) continue
+            var slot = if (count < top.size) count++ else count - 1
+            while (slot > 0 && score > scores[top[slot - 1]]) {
+                top[slot] = top[slot - 1]
+                slot--
+            }
+            top[slot] = i
+        }
+        return count
+    }
+
+    override fun close() {
+        // The delegate must outlive the interpreter using it
+        interpreter.close()
+        closeDelegate()
+    }
+
+    private fun closeDelegate() {
+        // Both delegates hold native resources until closed
+        (delegate as Closeable).close()
+    }
+
+    companion object {
+        private fun createDelegate(
+            accelerator: Accelerator, cache: DelegateCache.Entry?
+        ): Delegate {
+            val directory = cache?.directory?.absolutePath
+            return when (accelerator) {
+                Accelerator.GPU -> {
+                    val options = GpuDelegate.Options()
+                    if (cache != null) options.setSerializationParams(directory, cache.token)
+                    GpuDelegate(options)
+                }
+                Accelerator.NPU -> {
+                    val options = NnApiDelegate.Options()
+                    if (cache != null) {
+                        options.setCacheDir(directory)
+                        options.setModelToken(cache.token)
+                    }
+                    NnApiDelegate(options)
+                }
+                Accelerator.CPU -> throw IllegalArgumentException("The CPU needs no delegate")
+            }
+        }
+
+        /** Labels of the output's classes, from the file the metadata attaches to the tensor. */
+        private fun readLabels(model: ByteBuffer): List<String> {
+            val metadata = MetadataExtractor(model.duplicate())
+            val tensor = metadata.getOutputTensorMetadata(0)
+            for (i in 0 until tensor.associatedFilesLength()) {
+                val file = tensor.associatedFiles(i)
+                if (file.type() != AssociatedFileType.TENSOR_AXIS_LABELS) continue
+                return metadata.getAssociatedFile(file.name()).bufferedReader().use {
+                    it.readLines().filter(String::isNotBlank)
+                }
+            }
+            throw IOException("The model has no labels")
+        }
+    }
+}
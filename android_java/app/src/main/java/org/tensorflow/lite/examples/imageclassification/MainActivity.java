@@ -25,6 +25,11 @@ import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
 import org.tensorflow.lite.examples.imageclassification.databinding.ActivityMainBinding;
+import org.tensorflow.lite.examples.imageclassification.experiment.ExperimentPlan;
+import org.tensorflow.lite.examples.imageclassification.experiment.ExperimentRunner;
+import org.tensorflow.lite.examples.imageclassification.governor.ThermalGovernor;
+import org.tensorflow.lite.examples.imageclassification.telemetry.SamplingScheduler;
+import org.tensorflow.lite.examples.imageclassification.telemetry.SessionClock;
 
 import java.io.IOException;
 import java.util.Objects;
@@ -33,18 +38,14 @@ import java.util.Objects;
 TODO: General Functionality
     - Start/Stop classification
     - Add model for classification
-
-TODO: Experiment specification
-    - runTestConfiguration
-    - setTaskToDelegate
-    - setTaskPeriod
  */
 
 /** Entrypoint for app */
 public class MainActivity extends AppCompatActivity {
     PFManager pfManager;
     DataProcessor dataProcessor;
-    String currentThermalStatus = "None";
+    SamplingScheduler samplingScheduler;
+    SessionClock sessionClock;
     String currentFolder;
 
 
@@ -62,7 +63,11 @@ public class MainActivity extends AppCompatActivity {
         }
 
         currentFolder = Objects.requireNonNull(getExternalFilesDir(null)).getAbsolutePath();
+        // One clock for every telemetry stream
+        sessionClock = new SessionClock();
+        samplingScheduler = new SamplingScheduler(BuildConfig.SAMPLING_PERIOD_MS);
         dataProcessor = new DataProcessor(this);
+        samplingScheduler.start();
 
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
             try {
@@ -100,6 +105,40 @@ public class MainActivity extends AppCompatActivity {
         super.onPause();
     }
 
+    @Override
+    protected void onDestroy() {
+        // Stop ticking, then flush any telemetry still queued for the writer threads
+        if (samplingScheduler != null) {
+            samplingScheduler.close();
+        }
+        if (dataProcessor != null) {
+            dataProcessor.close();
+        }
+
+        super.onDestroy();
+    }
+
+    public SamplingScheduler getSamplingScheduler() {
+        return samplingScheduler;
+    }
+
+    public SessionClock getSessionClock() {
+        return sessionClock;
+    }
+
+    public ThermalGovernor getThermalGovernor() {
+        return dataProcessor.thermalGovernor;
+    }
+
+    public ExperimentRunner getExperimentRunner() {
+        return dataProcessor.experimentRunner;
+    }
+
+    /** The experiment plan to run in test mode, or null if there is none. */
+    public ExperimentPlan loadExperimentPlan() {
+        return dataProcessor.loadExperimentPlan();
+    }
+
     @Override
     public void onBackPressed() {
         if (Build.VERSION.SDK_INT == Build.VERSION_CODES.Q) {
@@ -22,6 +22,8 @@ import android.os.PowerManager;
 
 import androidx.annotation.RequiresApi;
 
+import org.tensorflow.lite.examples.imageclassification.telemetry.ThermalStatus;
+
 import java.io.IOException;
 
 // A manager class that managers PF APIs in Java code.
@@ -36,15 +38,10 @@ public class PFManager implements PowerManager.OnThermalStatusChangedListener {
         dataProcessor = activity.dataProcessor;
     }
 
-    // Thermal status change listener.
+    // Thermal status change listener. Only queues the transition; sampling happens on the
+    // sampler thread, so the PowerManager callback thread is never blocked.
     public void onThermalStatusChanged(int i) {
-        try {
-            System.out.println("Thermal Status: " + i);
-            mainActivity.currentThermalStatus = getThermalStatusName(i);
-            dataProcessor.processDataCollection();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        dataProcessor.onThermalStatusChanged(ThermalStatus.fromCode(i));
     }
 
     public boolean registerListener(Context context) {
@@ -73,32 +70,4 @@ public class PFManager implements PowerManager.OnThermalStatusChangedListener {
         }
     }
 
-    private String getThermalStatusName(int status) {
-        String currentStatus = "Unknown";
-        switch (status) {
-            case PowerManager.THERMAL_STATUS_NONE:
-                currentStatus = "None";
-                break;
-            case PowerManager.THERMAL_STATUS_LIGHT:
-                currentStatus = "Light";
-                break;
-            case PowerManager.THERMAL_STATUS_MODERATE:
-                currentStatus = "Moderate";
-                break;
-            case PowerManager.THERMAL_STATUS_SEVERE:
-                currentStatus = "Severe";
-                break;
-            case PowerManager.THERMAL_STATUS_CRITICAL:
-                currentStatus = "Critical";
-                break;
-            case PowerManager.THERMAL_STATUS_EMERGENCY:
-                currentStatus = "Emergency";
-                break;
-            case PowerManager.THERMAL_STATUS_SHUTDOWN:
-                currentStatus = "Shutdown";
-                break;
-        }
-        return currentStatus;
-    }
-
 }
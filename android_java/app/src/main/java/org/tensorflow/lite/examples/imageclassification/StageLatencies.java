@@ -0,0 +1,109 @@
+package org.tensorflow.lite.examples.imageclassification;
+
+import org.tensorflow.lite.examples.imageclassification.telemetry.LatencyHistogram;
+import org.tensorflow.lite.examples.imageclassification.telemetry.TelemetryRecord;
+import org.tensorflow.lite.examples.imageclassification.telemetry.TelemetrySchema;
+
+/**
+ * Latency histograms of each inference stage of one classifier, so the tail that decides
+ * deadline misses is not averaged away.
+ *
+ * <p>The classifier thread records; the sampling thread calls {@link #sample()} once per tick and
+ * reads the percentiles over the last {@link #WINDOW_TICKS} ticks and since the last reset.
+ */
+public final class StageLatencies {
+    public static final int PREPROCESS = 0;
+    public static final int INVOKE = 1;
+    public static final int POSTPROCESS = 2;
+    public static final int TURN_AROUND = 3;
+    /** Ticks in the sliding window; ten seconds at the default sampling period. */
+    public static final int WINDOW_TICKS = 10;
+
+    private static final String[] STAGE_NAMES = {
+            "preprocess", "invoke", "postprocess", "turnAround"};
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"P50", "P90", "P99", "P999"};
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[STAGE_NAMES.length];
+    private final LatencyHistogram.Window[] windows =
+            new LatencyHistogram.Window[STAGE_NAMES.length];
+    private final LatencyHistogram.Snapshot[] cumulative =
+            new LatencyHistogram.Snapshot[STAGE_NAMES.length];
+
+    public StageLatencies() {
+        for (int stage = 0; stage < STAGE_NAMES.length; stage++) {
+            histograms[stage] = new LatencyHistogram();
+            windows[stage] = new LatencyHistogram.Window(histograms[stage], WINDOW_TICKS);
+            cumulative[stage] = new LatencyHistogram.Snapshot();
+        }
+    }
+
+    /** Appends the window and cumulative percentiles of every stage to {@code schema}. */
+    public static TelemetrySchema.Builder addColumns(TelemetrySchema.Builder schema) {
+        for (String stage : STAGE_NAMES) {
+            addSnapshotColumns(schema, stage + "Window");
+            addSnapshotColumns(schema, stage + "Cumulative");
+        }
+        return schema;
+    }
+
+    /** Appends the columns of one snapshot, named e.g. {@code <prefix>P99Nanos}. */
+    public static TelemetrySchema.Builder addSnapshotColumns(TelemetrySchema.Builder schema,
+                                                             String prefix) {
+        for (String percentile : PERCENTILE_NAMES) {
+            schema.addLong(prefix + percentile + "Nanos");
+        }
+        return schema.addLong(prefix + "MaxNanos");
+    }
+
+    /** Writes the percentiles and maximum of {@code snapshot} from {@code column} on. */
+    public static int putSnapshot(TelemetryRecord record, int column,
+                                  LatencyHistogram.Snapshot snapshot) {
+        for (double percentile : PERCENTILES) {
+            record.set(column++, snapshot.percentileNanos(percentile));
+        }
+        record.set(column++, snapshot.getMaxNanos());
+        return column;
+    }
+
+    /** Records the stages of one inference; allocation free. */
+    public void record(long preprocessNanos, long invokeNanos, long postprocessNanos) {
+        histograms[PREPROCESS].recordNanos(preprocessNanos);
+        histograms[INVOKE].recordNanos(invokeNanos);
+        histograms[POSTPROCESS].recordNanos(postprocessNanos);
+        histograms[TURN_AROUND].recordNanos(preprocessNanos + invokeNanos + postprocessNanos);
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    /** Advances the windows and snapshots the histograms; once per tick, on one thread. */
+    public void sample() {
+        for (int stage = 0; stage < STAGE_NAMES.length; stage++) {
+            windows[stage].tick();
+            histograms[stage].snapshot(cumulative[stage]);
+        }
+    }
+
+    /** {@code stage}'s latencies over the window as of the last {@link #sample()}. */
+    public LatencyHistogram.Snapshot getWindow(int stage) {
+        return windows[stage].get();
+    }
+
+    /** {@code stage}'s latencies since the last reset, as of the last {@link #sample()}. */
+    public LatencyHistogram.Snapshot getCumulative(int stage) {
+        return cumulative[stage];
+    }
+
+    /** Writes the columns of {@link #addColumns} from {@code column} on; returns the next. */
+    public int put(TelemetryRecord record, int column) {
+        for (int stage = 0; stage < STAGE_NAMES.length; stage++) {
+            column = putSnapshot(record, column, getWindow(stage));
+            column = putSnapshot(record, column, getCumulative(stage));
+        }
+        return column;
+    }
+}
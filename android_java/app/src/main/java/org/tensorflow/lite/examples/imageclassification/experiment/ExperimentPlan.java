@@ -0,0 +1,275 @@
+package org.tensorflow.lite.examples.imageclassification.experiment;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.tensorflow.lite.examples.imageclassification.scheduler.Accelerator;
+
+/**
+ * Phases of an experiment, run back to back by an {@link ExperimentRunner}.
+ *
+ * <p>Each phase runs a set of classifier tasks for a warmup and then a measured duration. Before
+ * a phase starts, the runner waits until the hottest thermal zone is at or below the phase's
+ * cooldown temperature, or until the cooldown timeout passes. Plans are JSON, read with the
+ * platform's {@code org.json}:
+ * <pre>
+ * {"name": "sweep", "cooldownTemperatureC": 40, "cooldownTimeoutMs": 600000,
+ *  "phases": [{"id": "1a", "warmupMs": 30000, "durationMs": 240000, "tasks": [
+ *      {"model": "mobilenetv1", "delegate": "CPU", "threads": 2, "periodMs": 30}]}]}
+ * </pre>
+ * or properties, with tasks written {@code model:delegate:threads:periodMs}:
+ * <pre>
+ * name = sweep
+ * cooldownTemperatureC = 40
+ * phases = 1a
+ * phase.1a.warmupMs = 30000
+ * phase.1a.durationMs = 240000
+ * phase.1a.tasks = mobilenetv1:CPU:2:30, efficientnet-lite0:GPU:2:40
+ * </pre>
+ * The cooldown settings can also be given per phase. A cooldown temperature of 0 disables the
+ * gate.
+ */
+public final class ExperimentPlan {
+    public static final long DEFAULT_COOLDOWN_TIMEOUT_MS = 15 * 60 * 1000;
+
+    private final String name;
+    private final List<Phase> phases;
+
+    public ExperimentPlan(String name, List<Phase> phases) {
+        if (phases.isEmpty()) throw new IllegalArgumentException("plan has no phases");
+        Set<String> ids = new HashSet<>();
+        for (Phase phase : phases) {
+            if (!ids.add(phase.id)) {
+                throw new IllegalArgumentException("duplicate phase " + phase.id);
+            }
+        }
+        this.name = name;
+        this.phases = Collections.unmodifiableList(new ArrayList<>(phases));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Phase> getPhases() {
+        return phases;
+    }
+
+    /** Loads a {@code .json} plan, or a properties plan for any other extension. */
+    public static ExperimentPlan load(File file) throws IOException {
+        try (Reader reader = new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8)) {
+            return file.getName().endsWith(".json") ? parseJson(reader) : parseProperties(reader);
+        }
+    }
+
+    public static ExperimentPlan parseJson(String json) {
+        try {
+            return parseJson(new StringReader(json));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static ExperimentPlan parseJson(Reader json) throws IOException {
+        StringBuilder text = new StringBuilder();
+        BufferedReader reader = new BufferedReader(json);
+        char[] buffer = new char[4096];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            text.append(buffer, 0, read);
+        }
+        JSONObject plan;
+        try {
+            plan = new JSONObject(text.toString());
+        } catch (JSONException e) {
+            throw new IllegalArgumentException("plan is not a JSON object", e);
+        }
+        float cooldownC = (float) number(plan, "cooldownTemperatureC", 0);
+        long timeoutMs = integer(plan, "cooldownTimeoutMs", DEFAULT_COOLDOWN_TIMEOUT_MS);
+
+        List<Phase> phases = new ArrayList<>();
+        JSONArray phaseValues = list(plan.opt("phases"), "phases");
+        for (int i = 0; i < phaseValues.length(); i++) {
+            JSONObject phase = object(phaseValues.opt(i), "phase");
+            String id = text(phase, "id");
+            List<TaskSpec> tasks = new ArrayList<>();
+            JSONArray taskValues = list(phase.opt("tasks"), "phase " + id + " tasks");
+            for (int j = 0; j < taskValues.length(); j++) {
+                JSONObject task = object(taskValues.opt(j), "task");
+                tasks.add(new TaskSpec(text(task, "model"),
+                        Accelerator.fromName(text(task, "delegate")),
+                        (int) integer(task, "threads", -1),
+                        integer(task, "periodMs", -1)));
+            }
+            phases.add(new Phase(id,
+                    integer(phase, "warmupMs", 0),
+                    integer(phase, "durationMs", -1),
+                    (float) number(phase, "cooldownTemperatureC", cooldownC),
+                    integer(phase, "cooldownTimeoutMs", timeoutMs),
+                    tasks));
+        }
+        return new ExperimentPlan(plan.optString("name", ""), phases);
+    }
+
+    public static ExperimentPlan parseProperties(Reader reader) throws IOException {
+        Properties plan = new Properties();
+        plan.load(reader);
+        float cooldownC = Float.parseFloat(plan.getProperty("cooldownTemperatureC", "0"));
+        long timeoutMs = Long.parseLong(plan.getProperty(
+                "cooldownTimeoutMs", String.valueOf(DEFAULT_COOLDOWN_TIMEOUT_MS)));
+
+        List<Phase> phases = new ArrayList<>();
+        for (String id : split(required(plan, "phases"))) {
+            String prefix = "phase." + id + ".";
+            List<TaskSpec> tasks = new ArrayList<>();
+            for (String task : split(required(plan, prefix + "tasks"))) {
+                tasks.add(TaskSpec.parse(task));
+            }
+            phases.add(new Phase(id,
+                    Long.parseLong(plan.getProperty(prefix + "warmupMs", "0")),
+                    Long.parseLong(required(plan, prefix + "durationMs")),
+                    Float.parseFloat(plan.getProperty(
+                            prefix + "cooldownTemperatureC", String.valueOf(cooldownC))),
+                    Long.parseLong(plan.getProperty(
+                            prefix + "cooldownTimeoutMs", String.valueOf(timeoutMs))),
+                    tasks));
+        }
+        return new ExperimentPlan(plan.getProperty("name", ""), phases);
+    }
+
+    private static String required(Properties properties, String key) {
+        String value = properties.getProperty(key);
+        if (value == null) throw new IllegalArgumentException("missing " + key);
+        return value;
+    }
+
+    private static List<String> split(String list) {
+        List<String> items = new ArrayList<>();
+        for (String item : list.split(",")) {
+            if (!item.trim().isEmpty()) items.add(item.trim());
+        }
+        return items;
+    }
+
+    private static JSONObject object(Object value, String what) {
+        if (!(value instanceof JSONObject)) {
+            throw new IllegalArgumentException(what + " is not an object");
+        }
+        return (JSONObject) value;
+    }
+
+    private static JSONArray list(Object value, String what) {
+        if (!(value instanceof JSONArray)) {
+            throw new IllegalArgumentException(what + " is not a list");
+        }
+        return (JSONArray) value;
+    }
+
+    private static String text(JSONObject object, String key) {
+        Object value = object.opt(key);
+        if (!(value instanceof String)) throw new IllegalArgumentException("missing " + key);
+        return (String) value;
+    }
+
+    private static double number(JSONObject object, String key, double fallback) {
+        Object value = object.opt(key);
+        if (value == null) return fallback;
+        // Integer, Long or Double, depending on how the number was written
+        if (!(value instanceof Number)) {
+            throw new IllegalArgumentException(key + " is not a number");
+        }
+        return ((Number) value).doubleValue();
+    }
+
+    /** An integral number; a negative fallback marks the key as required. */
+    private static long integer(JSONObject object, String key, long fallback) {
+        if (fallback < 0 && !object.has(key)) {
+            throw new IllegalArgumentException("missing " + key);
+        }
+        double value = number(object, key, fallback);
+        if (value != Math.rint(value)) {
+            throw new IllegalArgumentException(key + " is not a whole number");
+        }
+        return (long) value;
+    }
+
+    /** One configuration of classifier tasks, measured after a warmup. */
+    public static final class Phase {
+        public final String id;
+        public final long warmupMs;
+        public final long durationMs;
+        /** Hottest zone temperature to wait for before starting; 0 starts right away. */
+        public final float cooldownTemperatureC;
+        /** Longest wait for the cooldown temperature; the phase starts regardless after it. */
+        public final long cooldownTimeoutMs;
+        public final List<TaskSpec> tasks;
+
+        public Phase(String id, long warmupMs, long durationMs, float cooldownTemperatureC,
+                     long cooldownTimeoutMs, List<TaskSpec> tasks) {
+            if (id.isEmpty()) throw new IllegalArgumentException("phase without an id");
+            if (warmupMs < 0 || durationMs <= 0) {
+                throw new IllegalArgumentException("phase " + id + " needs a positive duration");
+            }
+            if (tasks.isEmpty()) {
+                throw new IllegalArgumentException("phase " + id + " has no tasks");
+            }
+            this.id = id;
+            this.warmupMs = warmupMs;
+            this.durationMs = durationMs;
+            this.cooldownTemperatureC = cooldownTemperatureC;
+            this.cooldownTimeoutMs = cooldownTimeoutMs;
+            this.tasks = Collections.unmodifiableList(new ArrayList<>(tasks));
+        }
+    }
+
+    /** One classifier: a model on a delegate with a thread count and task period. */
+    public static final class TaskSpec {
+        public final String model;
+        public final Accelerator delegate;
+        public final int threads;
+        /** 0 runs unpaced. */
+        public final long periodMs;
+
+        public TaskSpec(String model, Accelerator delegate, int threads, long periodMs) {
+            if (model.isEmpty()) throw new IllegalArgumentException("task without a model");
+            if (threads < 1) throw new IllegalArgumentException("threads must be at least 1");
+            if (periodMs < 0) throw new IllegalArgumentException("period must not be negative");
+            this.model = model;
+            this.delegate = delegate;
+            this.threads = threads;
+            this.periodMs = periodMs;
+        }
+
+        /** Parses {@code model:delegate:threads:periodMs}. */
+        public static TaskSpec parse(String spec) {
+            String[] fields = spec.trim().split("\\s*:\\s*");
+            if (fields.length != 4) {
+                throw new IllegalArgumentException(
+                        "expected model:delegate:threads:periodMs but got " + spec);
+            }
+            return new TaskSpec(fields[0], Accelerator.fromName(fields[1]),
+                    Integer.parseInt(fields[2]), Long.parseLong(fields[3]));
+        }
+
+        @Override
+        public String toString() {
+            return model + ":" + delegate + ":" + threads + ":" + periodMs;
+        }
+    }
+}
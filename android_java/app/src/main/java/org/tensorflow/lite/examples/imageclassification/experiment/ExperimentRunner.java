@@ -0,0 +1,176 @@
+package org.tensorflow.lite.examples.imageclassification.experiment;
+
+import java.util.concurrent.TimeUnit;
+
+import org.tensorflow.lite.examples.imageclassification.telemetry.TelemetryRecord;
+import org.tensorflow.lite.examples.imageclassification.telemetry.TelemetrySchema;
+import org.tensorflow.lite.examples.imageclassification.telemetry.TelemetrySink;
+
+/**
+ * Runs the phases of an {@link ExperimentPlan} back to back, driven by the thermal readings of
+ * the sampling ticks.
+ *
+ * <p>Each phase waits in cooldown until the hottest zone reaches the phase's cooldown temperature
+ * or the cooldown times out, then warms up and is measured for its duration. The
+ * {@link Listener} starts and stops the tasks; the runner only decides when. The current phase and
+ * stage can be read from any thread to tag telemetry rows, and every transition is written to
+ * the transition log.
+ */
+public class ExperimentRunner {
+    /** Where the runner is in the current phase. */
+    public enum Stage {
+        IDLE("idle"),
+        COOLDOWN("cooldown"),
+        WARMUP("warmup"),
+        MEASURE("measure"),
+        DONE("done");
+
+        private final String displayName;
+
+        Stage(String displayName) {
+            this.displayName = displayName;
+        }
+
+        /** Name written to the telemetry logs, e.g. "warmup". */
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    /** Starts and stops the tasks of each phase. Called with the runner locked; must not block. */
+    public interface Listener {
+        void onPhaseStart(ExperimentPlan.Phase phase);
+
+        /** The warmup is over; what runs from here on is measured. */
+        void onMeasureStart(ExperimentPlan.Phase phase);
+
+        void onPhaseEnd(ExperimentPlan.Phase phase);
+
+        void onFinished(ExperimentPlan plan);
+    }
+
+    private final TelemetrySink transitions;
+
+    private ExperimentPlan plan;
+    private Listener listener;
+    private int phaseIndex;
+    private long stageSinceNanos;
+    private float lastTemperatureC;
+    private volatile Stage stage = Stage.IDLE;
+    private volatile String phaseId = "";
+
+    /** {@code transitions} must use {@link #addTransitionColumns}; it may be null. */
+    public ExperimentRunner(TelemetrySink transitions) {
+        this.transitions = transitions;
+    }
+
+    /** Appends the transition log columns to {@code schema}. */
+    public static TelemetrySchema.Builder addTransitionColumns(TelemetrySchema.Builder schema) {
+        return schema
+                .addLong("sessionNanos")
+                .addText("plan")
+                .addText("phase")
+                .addText("stage")
+                .addFloat("maxTemperature")
+                .addLong("previousStageNanos");
+    }
+
+    public Stage getStage() {
+        return stage;
+    }
+
+    /** Id of the phase running or cooling down for, or empty outside an experiment. */
+    public String getPhaseId() {
+        return phaseId;
+    }
+
+    public synchronized boolean isRunning() {
+        return stage != Stage.IDLE && stage != Stage.DONE;
+    }
+
+    /** Starts {@code plan} at its first phase, replacing any experiment still running. */
+    public synchronized void start(ExperimentPlan plan, Listener listener, long sessionNanos) {
+        stop(sessionNanos);
+        this.plan = plan;
+        this.listener = listener;
+        phaseIndex = 0;
+        stageSinceNanos = sessionNanos;
+        enter(Stage.COOLDOWN, sessionNanos);
+        // A phase without a cooldown gate need not wait for the next reading
+        step(sessionNanos);
+    }
+
+    /** Ends the running phase, if any, without finishing the plan. */
+    public synchronized void stop(long sessionNanos) {
+        if (!isRunning()) return;
+        if (stage == Stage.WARMUP || stage == Stage.MEASURE) {
+            listener.onPhaseEnd(currentPhase());
+        }
+        enter(Stage.IDLE, sessionNanos);
+    }
+
+    /** Feeds one thermal reading and moves through as many stages as it allows. */
+    public synchronized void update(long sessionNanos, float maxTemperatureC) {
+        lastTemperatureC = maxTemperatureC;
+        if (isRunning()) step(sessionNanos);
+    }
+
+    private void step(long sessionNanos) {
+        while (true) {
+            ExperimentPlan.Phase phase = currentPhase();
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(sessionNanos - stageSinceNanos);
+            switch (stage) {
+                case COOLDOWN:
+                    if (!isCool(phase) && elapsedMs < phase.cooldownTimeoutMs) return;
+                    listener.onPhaseStart(phase);
+                    enter(Stage.WARMUP, sessionNanos);
+                    break;
+                case WARMUP:
+                    if (elapsedMs < phase.warmupMs) return;
+                    listener.onMeasureStart(phase);
+                    enter(Stage.MEASURE, sessionNanos);
+                    break;
+                case MEASURE:
+                    if (elapsedMs < phase.durationMs) return;
+                    listener.onPhaseEnd(phase);
+                    if (++phaseIndex < plan.getPhases().size()) {
+                        enter(Stage.COOLDOWN, sessionNanos);
+                    } else {
+                        phaseIndex--;
+                        enter(Stage.DONE, sessionNanos);
+                        listener.onFinished(plan);
+                        return;
+                    }
+                    break;
+                default:
+                    return;
+            }
+        }
+    }
+
+    private boolean isCool(ExperimentPlan.Phase phase) {
+        // Unreadable zones report a negative temperature and never hold a phase back
+        return phase.cooldownTemperatureC <= 0 || lastTemperatureC <= phase.cooldownTemperatureC;
+    }
+
+    private ExperimentPlan.Phase currentPhase() {
+        return plan.getPhases().get(phaseIndex);
+    }
+
+    private void enter(Stage next, long sessionNanos) {
+        long previousStageNanos = sessionNanos - stageSinceNanos;
+        stage = next;
+        stageSinceNanos = sessionNanos;
+        phaseId = next == Stage.IDLE || next == Stage.DONE ? "" : currentPhase().id;
+        if (transitions == null) return;
+        TelemetryRecord record = transitions.claim();
+        if (record == null) return;
+        record.set(0, sessionNanos)
+                .set(1, plan.getName())
+                .set(2, currentPhase().id)
+                .set(3, next.getDisplayName())
+                .set(4, lastTemperatureC)
+                .set(5, previousStageNanos);
+        transitions.publish(record);
+    }
+}
@@ -1,8 +1,51 @@
 package org.tensorflow.lite.examples.imageclassification.fragments
 
 import android.graphics.Bitmap
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
 
-class BitmapUpdaterApi {
-    var latestBitmap : Bitmap? = null
-    var latestImageRotation: Int = 0
-}
\ No newline at end of file
+/**
+ * Hands camera frames to the classifiers through a [FrameRing] of reusable bitmaps, so the camera
+ * never overwrites a frame a classifier is still reading and neither side waits on a lock.
+ */
+class BitmapUpdaterApi(slots: Int = DEFAULT_SLOTS) : FrameSink<Bitmap> {
+    private val ring = FrameRing<Bitmap>(slots)
+    private val latestSequence = MutableStateFlow(0L)
+
+    /** Sequence of the newest frame; collectors that fall behind skip straight to it. */
+    val frames: StateFlow<Long>
+        get() = latestSequence
+
+    /** Frames the camera has published so far. */
+    val publishedCount: Long
+        get() = ring.publishedCount
+
+    /** Frames the camera dropped because every bitmap was still in use. */
+    val dropCount: Long
+        get() = ring.dropCount
+
+    /** A free bitmap slot to copy the next frame into, or null to drop the frame. */
+    override fun claim(): FrameRing.Slot<Bitmap>? = ring.claim()
+
+    /** Gives back a claimed slot that was not filled. */
+    override fun abort(slot: FrameRing.Slot<Bitmap>) = ring.abort(slot)
+
+    /** Publishes a filled slot as the next frame. */
+    override fun publish(slot: FrameRing.Slot<Bitmap>, rotation: Int) {
+        ring.publish(slot, rotation)
+        latestSequence.value = slot.sequence
+    }
+
+    /** Waits for a classifier to take the newest frame, for replays that are not paced. */
+    override fun awaitAcquired() = ring.awaitAcquired()
+
+    /** The newest frame, held until [release]d, or null if none was published yet. */
+    fun acquireLatest(): FrameRing.Slot<Bitmap>? = ring.acquireLatest()
+
+    fun release(slot: FrameRing.Slot<Bitmap>) = ring.release(slot)
+
+    companion object {
+        // Up to three classifiers each holding a frame, plus the latest and one being written
+        const val DEFAULT_SLOTS = 5
+    }
+}
@@ -21,7 +21,6 @@ import android.content.res.Configuration;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.os.Bundle;
-import android.os.SystemClock;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -45,25 +44,52 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.google.common.util.concurrent.ListenableFuture;
 
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.PrintWriter;
-import java.text.SimpleDateFormat;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Date;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
-import java.util.Timer;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.io.File;
 
 import org.tensorflow.lite.examples.imageclassification.ImageClassifierHelperKotlin;
+import org.tensorflow.lite.examples.imageclassification.InferenceStats;
+import org.tensorflow.lite.examples.imageclassification.MainActivity;
+import org.tensorflow.lite.examples.imageclassification.BuildConfig;
 import org.tensorflow.lite.examples.imageclassification.R;
+import org.tensorflow.lite.examples.imageclassification.StageLatencies;
 import org.tensorflow.lite.examples.imageclassification.databinding.FragmentCameraBinding;
+import org.tensorflow.lite.examples.imageclassification.experiment.ExperimentPlan;
+import org.tensorflow.lite.examples.imageclassification.experiment.ExperimentRunner;
+import org.tensorflow.lite.examples.imageclassification.governor.ThermalGovernor;
+import org.tensorflow.lite.examples.imageclassification.replay.BitmapFrames;
+import org.tensorflow.lite.examples.imageclassification.replay.FrameFile;
+import org.tensorflow.lite.examples.imageclassification.replay.FrameReplayer;
+import org.tensorflow.lite.examples.imageclassification.scheduler.Accelerator;
+import org.tensorflow.lite.examples.imageclassification.scheduler.PeriodicPacer;
+import org.tensorflow.lite.examples.imageclassification.scheduler.PeriodicTask;
+import org.tensorflow.lite.examples.imageclassification.scheduler.StandardPolicy;
+import org.tensorflow.lite.examples.imageclassification.scheduler.TaskScheduler;
+import org.tensorflow.lite.examples.imageclassification.telemetry.LatencyHistogram;
+import org.tensorflow.lite.examples.imageclassification.telemetry.RateMeter;
+import org.tensorflow.lite.examples.imageclassification.telemetry.SamplingScheduler;
+import org.tensorflow.lite.examples.imageclassification.telemetry.SessionClock;
+import org.tensorflow.lite.examples.imageclassification.telemetry.TelemetryFormat;
+import org.tensorflow.lite.examples.imageclassification.telemetry.TelemetryRecord;
+import org.tensorflow.lite.examples.imageclassification.telemetry.TelemetrySchema;
+import org.tensorflow.lite.examples.imageclassification.telemetry.TelemetrySink;
+import org.tensorflow.lite.examples.imageclassification.trace.FrameStage;
+import org.tensorflow.lite.examples.imageclassification.trace.FrameTracer;
+import org.tensorflow.lite.examples.imageclassification.trace.TraceBuffer;
 import org.tensorflow.lite.task.vision.classifier.Classifications;
 
 /**
@@ -72,27 +98,40 @@ import org.tensorflow.lite.task.vision.classifier.Classifications;
 public class CameraFragment extends Fragment
         implements ImageClassifierHelperKotlin.ClassifierListener {
     private static final String TAG = "Image Classifier";
+    // Inferences measured per task before the scheduler decides on admitting it
+    private static final int PROFILE_RUNS = 5;
+    private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // Views created in this process, so a recreated view gets files of its own
+    private static final AtomicInteger viewCount = new AtomicInteger();
 
     private FragmentCameraBinding fragmentCameraBinding;
     private BitmapUpdaterApi bitmapUpdaterApi;
     private DynamicBitmapSource source;
     private ImageClassifierHelperKotlin imageClassifierHelper;
-    private ArrayList<ImageClassifierHelperKotlin> imageClassifierHelpers;
+    // Replaced whole on the UI thread, never modified, since the sampler thread iterates it
+    private volatile List<ImageClassifierHelperKotlin> imageClassifierHelpers;
     private boolean imageClassifierStatus = false;
     private boolean testStatus = false;
-    private Bitmap bitmapBuffer;
     private ClassificationResultAdapter classificationResultsAdapter;
     private ImageAnalysis imageAnalyzer;
     private ProcessCameraProvider cameraProvider;
     private final Object task = new Object();
 
-    private SimpleDateFormat dateFormat;
     private String fileSeries;
     private final String throughputFileName = "Throughput_Measurements";
-    private Timer t;
-    private Long startTime;
-    private Long testStartTime;
+    private final String frameTraceFileName = "Frame_Trace";
+    private TelemetrySink throughputSink;
+    // Turnaround times of all classifiers merged, filled on the sampling thread
+    private final LatencyHistogram.Snapshot allTurnAroundWindow = new LatencyHistogram.Snapshot();
+    private final LatencyHistogram.Snapshot allTurnAroundCumulative =
+            new LatencyHistogram.Snapshot();
+    private final SamplingScheduler.Task samplingTask = this::processDataCollection;
+    private SessionClock sessionClock;
+    private ExperimentRunner experimentRunner;
+    private final ExperimentRunner.Listener experimentListener = new ExperimentListener();
     private List<String> periodOptions;
+    // Set while classifiers are dispatched by a scheduler instead of their own loops
+    private TaskScheduler taskScheduler;
 
     /**
      * Blocking camera operations are performed using this executor
@@ -125,14 +164,40 @@ public class CameraFragment extends Fragment
     public void onDestroyView() {
         super.onDestroyView();
 
-        // Shut down our background executor
-        cameraExecutor.shutdown();
+        // Shut down our background executor; interrupting it ends a replay
+        if (BuildConfig.REPLAY_FRAMES.isEmpty()) {
+            cameraExecutor.shutdown();
+        } else {
+            cameraExecutor.shutdownNow();
+        }
         synchronized (task) {
-            imageClassifierHelper.clearImageClassifier();
+            // Stops the scheduler's lanes before the classifiers they dispatch go away
+            pauseImageClassifiers();
+            imageClassifierHelper.close();
             for (ImageClassifierHelperKotlin currClassifier : imageClassifierHelpers) {
-                currClassifier.clearImageClassifier();
+                currClassifier.close();
             }
         }
+        experimentRunner.stop(sessionClock.nanos());
+        getSamplingScheduler().remove(samplingTask);
+        throughputSink.close();
+        writeFrameTrace();
+    }
+
+    /** Writes the frames traced since the view was created, if tracing is on. */
+    private void writeFrameTrace() {
+        TraceBuffer trace = FrameTracer.stop();
+        if (trace == null) {
+            return;
+        }
+        File file = new File(requireContext().getExternalFilesDir(null),
+                frameTraceFileName + fileSeries + ".json");
+        try (Writer out = new BufferedWriter(new FileWriter(file))) {
+            // Opens in chrome://tracing or ui.perfetto.dev, on the telemetry logs' session time
+            trace.writeChromeTrace(out, sessionClock.getStartNanos());
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
     }
 
     @Override
@@ -156,8 +221,7 @@ public class CameraFragment extends Fragment
                 source,
                 0,
                 periodOptions);
-        imageClassifierHelpers = new ArrayList<>();
-        imageClassifierHelpers.add(imageClassifierHelper);
+        imageClassifierHelpers = Collections.singletonList(imageClassifierHelper);
 
         // setup result adapter
         classificationResultsAdapter = new ClassificationResultAdapter();
@@ -169,60 +233,103 @@ public class CameraFragment extends Fragment
                 .setLayoutManager(new LinearLayoutManager(requireContext()));
 
 
-        // Set up the camera and its use cases
-        fragmentCameraBinding.viewFinder.post(this::setUpCamera);
+        if (BuildConfig.REPLAY_FRAMES.isEmpty()) {
+            // Set up the camera and its use cases
+            fragmentCameraBinding.viewFinder.post(this::setUpCamera);
+        } else {
+            // Recorded frames stand in for the camera, on the thread that would analyze them
+            File recording = new File(requireContext().getExternalFilesDir(null),
+                    BuildConfig.REPLAY_FRAMES);
+            File cacheDir = requireContext().getCacheDir();
+            cameraExecutor.execute(() -> replayFrames(recording, cacheDir));
+        }
 
         // Attach listeners to UI control widgets
         initBottomSheetControls();
 
-        dateFormat = new SimpleDateFormat("HH:mm:ss");
-        fileSeries = dateFormat.format(new Date());
-        String[] timeValues = fileSeries.split(":");
-        startTime = Long.parseLong(timeValues[0]) * 3600 +
-                Long.parseLong(timeValues[1]) * 60 +
-                Long.parseLong(timeValues[2]);
+        sessionClock = ((MainActivity) requireActivity()).getSessionClock();
+        experimentRunner = ((MainActivity) requireActivity()).getExperimentRunner();
+        // Same series as DataProcessor's files, from the session start; the sinks truncate, so a
+        // recreated view must not reuse the first view's names
+        int view = viewCount.incrementAndGet();
+        fileSeries = sessionClock.format("HH:mm:ss") + (view > 1 ? "-" + view : "");
+        if (BuildConfig.FRAME_TRACING) {
+            FrameTracer.start(FrameTracer.DEFAULT_CAPACITY);
+        }
         // Create file for data collection
         String currentFolder = Objects.requireNonNull(requireContext()
                 .getExternalFilesDir(null)).getAbsolutePath();
-        String FILEPATH = currentFolder + File.separator + throughputFileName + fileSeries + ".csv";
-        try (PrintWriter writer = new PrintWriter(new FileOutputStream(FILEPATH, false))) {
-            String sb = "time" +
-                    ',' +
-                    "relativeTime" +
-                    ',' +
-                    "modelIndex" +
-                    ',' +
-                    "model" +
-                    ',' +
-                    "delegate" +
-                    ',' +
-                    "throughput" +
-                    ',' +
-                    "avgThroughput" +
-                    ',' +
-                    "turnAroundTime" +
-                    ',' +
-                    "idleTime" +
-                    ',' +
-                    "avgMeasuredPeriod" +
-                    ',' +
-                    "measuredPeriod" +
-                    ',' +
-                    "targetPeriod" +
-                    '\n';
-            writer.write(sb);
-            System.out.println("Creating " + throughputFileName + " done!");
-        } catch (FileNotFoundException e) {
-            System.out.println(e.getMessage());
+        TelemetryFormat format = TelemetryFormat.fromName(BuildConfig.TELEMETRY_FORMAT);
+        String FILEPATH = currentFolder + File.separator + throughputFileName + fileSeries +
+                format.extension();
+        TelemetrySchema.Builder throughputColumns = sessionClock.addAnchor(
+                new TelemetrySchema.Builder())
+                .addLong("sessionNanos")
+                .addLong("tick")
+                .addLong("latenessNanos")
+                .addLong("modelIndex")
+                .addText("model")
+                .addText("delegate")
+                // Inferences per second over the last second and since collection started
+                .addFloat("throughput")
+                .addFloat("avgThroughput")
+                .addLong("turnAroundTime")
+                .addLong("idleTime")
+                .addLong("avgMeasuredPeriod")
+                .addLong("measuredPeriod")
+                .addLong("targetPeriod")
+                .addLong("framesPublished")
+                .addLong("framesProcessed")
+                .addLong("framesSkipped")
+                .addLong("framesReused")
+                .addLong("framesDropped")
+                .addLong("avgPreprocessNanos")
+                .addLong("avgInvokeNanos")
+                .addLong("avgPostprocessNanos")
+                .addLong("avgReleaseJitterNanos")
+                .addLong("maxReleaseJitterNanos")
+                .addLong("avgResponseNanos")
+                .addLong("maxResponseNanos")
+                .addLong("deadlineMisses")
+                .addLong("skippedReleases")
+                .addText("scheduling")
+                .addText("phase")
+                .addText("stage")
+                .addLong("classifierLoads")
+                .addLong("classifierReuses")
+                .addLong("lastLoadNanos")
+                .addLong("avgLoadNanos")
+                .addLong("modelRefs")
+                .addLong("mappedModelBytes")
+                .addLong("warmLoads")
+                .addLong("avgColdLoadNanos")
+                .addLong("avgWarmLoadNanos")
+                .addFloat("rate1s")
+                .addFloat("rate10s")
+                .addFloat("rate60s")
+                .addLong("completions10s")
+                .addLong("completions60s");
+        StageLatencies.addColumns(throughputColumns);
+        StageLatencies.addSnapshotColumns(throughputColumns, "allTurnAroundWindow");
+        StageLatencies.addSnapshotColumns(throughputColumns, "allTurnAroundCumulative");
+        TelemetrySchema throughputSchema = throughputColumns.build();
+        // Rows are written by a background thread over one long-lived channel
+        try {
+            throughputSink = new TelemetrySink(
+                    new File(FILEPATH), throughputSchema, format.newEncoder());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
     }
 
     @Override
     public void onConfigurationChanged(@NonNull Configuration newConfig) {
         super.onConfigurationChanged(newConfig);
-        imageAnalyzer.setTargetRotation(
-                fragmentCameraBinding.viewFinder.getDisplay().getRotation()
-        );
+        if (imageAnalyzer != null) {
+            imageAnalyzer.setTargetRotation(
+                    fragmentCameraBinding.viewFinder.getDisplay().getRotation()
+            );
+        }
     }
 
     private void initBottomSheetControls() {
@@ -265,7 +372,7 @@ public class CameraFragment extends Fragment
         fragmentCameraBinding.bottomSheetLayout.maxResultsPlus
                 .setOnClickListener(view -> {
                     int maxResults = imageClassifierHelper.getMaxResults();
-                    if (maxResults < 3) {
+                    if (maxResults < ImageClassifierHelperKotlin.MAX_RESULTS) {
                         imageClassifierHelper.setMaxResults(maxResults + 1);
                         classificationResultsAdapter.updateAdapterSize(
                                 imageClassifierHelper.getMaxResults()
@@ -361,15 +468,25 @@ public class CameraFragment extends Fragment
                 .setOnClickListener(view -> {
                     imageClassifierStatus = !imageClassifierStatus;
                     if (imageClassifierStatus) {
-                        testStartTime = SystemClock.uptimeMillis();
-                        configureImageClassifiers();
+                        ExperimentPlan plan = testStatus
+                                ? ((MainActivity) requireActivity()).loadExperimentPlan() : null;
                         source.startStream();
-                        runImageClassifiers();
+                        if (plan != null) {
+                            // Each phase configures and starts its own classifiers
+                            experimentRunner.start(plan, experimentListener, sessionClock.nanos());
+                        } else {
+                            if (testStatus) {
+                                onError("No valid experiment plan, running the selected model");
+                            }
+                            configureImageClassifiers();
+                            runImageClassifiers();
+                        }
                         timedDataCollection();
 
                     } else {
                         synchronized (task) {
-                            t.cancel();
+                            getSamplingScheduler().remove(samplingTask);
+                            experimentRunner.stop(sessionClock.nanos());
                             pauseImageClassifiers();
                             source.pauseStream();
                         }
@@ -382,10 +499,8 @@ public class CameraFragment extends Fragment
                 .setOnClickListener(view -> {
                     testStatus = !testStatus;
                     if (!testStatus) {
-                        for (ImageClassifierHelperKotlin currClassifier : imageClassifierHelpers) {
-                            currClassifier.clearImageClassifier();
-                        }
-                        imageClassifierHelpers.clear();
+                        imageClassifierHelper.clearImageClassifier();
+                        replaceImageClassifiers(Collections.emptyList());
                     }
                     updateControlsUi();
                 });
@@ -412,9 +527,9 @@ public class CameraFragment extends Fragment
                 (R.string.label_active) : (R.string.label_inactive));
         fragmentCameraBinding.bottomSheetLayout.testToggleButton
                 .setText(testButtonText);
-        // Needs to be cleared instead of reinitialized because the GPU
-        // delegate needs to be initialized on the thread using it when
-        // applicable
+        // Handed back to the pool rather than rebuilt here: the next
+        // classification leases one for the new settings on its own thread,
+        // which the GPU delegate needs
         synchronized (task) {
             imageClassifierHelper.clearImageClassifier();
         }
@@ -464,15 +579,7 @@ public class CameraFragment extends Fragment
 
 
         // The analyzer can then be assigned to the instance
-        imageAnalyzer.setAnalyzer(cameraExecutor, image -> {
-            if (bitmapBuffer == null) {
-                bitmapBuffer = Bitmap.createBitmap(
-                        image.getWidth(),
-                        image.getHeight(),
-                        Bitmap.Config.ARGB_8888);
-            }
-            updateImage(image);
-        });
+        imageAnalyzer.setAnalyzer(cameraExecutor, this::updateImage);
 
         // Must unbind the use-cases before rebinding them
         cameraProvider.unbindAll();
@@ -496,197 +603,315 @@ public class CameraFragment extends Fragment
         }
     }
 
+    /**
+     * Publishes the frames of {@code recording} to the classifiers, as the camera analyzer would,
+     * until the executor is shut down. A directory of images is recorded into a frame file first.
+     */
+    private void replayFrames(File recording, File cacheDir) {
+        FrameFile frames;
+        try {
+            if (recording.isDirectory()) {
+                File recorded = new File(cacheDir, "replay" + FrameFile.EXTENSION);
+                BitmapFrames.record(recording, recorded);
+                recording = recorded;
+            }
+            frames = FrameFile.open(recording);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot replay " + recording, e);
+            return;
+        }
+        FrameReplayer<Bitmap> replayer = new FrameReplayer<>(bitmapUpdaterApi,
+                new BitmapFrames(frames), frames.getFrameCount(), frames.getRotation());
+        if (BuildConfig.REPLAY_FPS > 0) {
+            replayer.setPeriodNanos(SECOND_NANOS / BuildConfig.REPLAY_FPS);
+        }
+        replayer.run();
+    }
+
     private void updateImage(@NonNull ImageProxy image) {
-        // Copy out RGB bits to the shared bitmap buffer
-        bitmapBuffer.copyPixelsFromBuffer(image.getPlanes()[0].getBuffer());
+        boolean traced = FrameTracer.isEnabled();
+        long deliveredNanos = traced ? System.nanoTime() : 0;
+        FrameRing.Slot<Bitmap> slot = bitmapUpdaterApi.claim();
+        if (slot == null) {
+            // Every bitmap is still being classified; drop the frame rather than wait
+            image.close();
+            return;
+        }
+        Bitmap bitmap = slot.getBuffer();
+        if (bitmap == null
+                || bitmap.getWidth() != image.getWidth()
+                || bitmap.getHeight() != image.getHeight()) {
+            // Slots keep their bitmap, so this only allocates on first use or a size change
+            bitmap = Bitmap.createBitmap(
+                    image.getWidth(),
+                    image.getHeight(),
+                    Bitmap.Config.ARGB_8888);
+            slot.setBuffer(bitmap);
+        }
+        // Copy out RGB bits into a bitmap no classifier is reading
+        long copyNanos = 0;
+        if (traced) {
+            FrameTracer.beginSection(FrameStage.COPY);
+            copyNanos = System.nanoTime();
+        }
+        try {
+            bitmap.copyPixelsFromBuffer(image.getPlanes()[0].getBuffer());
+        } finally {
+            if (traced) {
+                FrameTracer.endSection();
+            }
+        }
+        long copiedNanos = traced ? System.nanoTime() : 0;
 
         int imageRotation = image.getImageInfo().getRotationDegrees();
         image.close();
-        synchronized (task) {
-            // Pass Bitmap and rotation to the image classifier helper for
-            // processing and classification
-            bitmapUpdaterApi.setLatestBitmap(bitmapBuffer);
-            bitmapUpdaterApi.setLatestImageRotation(imageRotation);
+        if (traced) {
+            // The producer publishes in order, so this is the sequence the frame gets
+            long frame = bitmapUpdaterApi.getPublishedCount() + 1;
+            long publishNanos = System.nanoTime();
+            FrameTracer.span(FrameStage.COPY, frame, copyNanos, copiedNanos);
+            FrameTracer.span(FrameStage.ANALYZE, frame, deliveredNanos, publishNanos);
+            slot.setPublishNanos(publishNanos);
+        } else {
+            slot.setPublishNanos(0);
         }
+        // Wakes the classifiers waiting for a newer frame
+        bitmapUpdaterApi.publish(slot, imageRotation);
     }
 
     private void configureImageClassifiers() {
-        imageClassifierHelpers.clear();
-        imageClassifierHelpers.add(imageClassifierHelper);
-        if (testStatus) {
-//            for (int i = 0; i < 2; i++) {
-//                ImageClassifierHelperKotlin currClassifier = new ImageClassifierHelperKotlin(
-//                        requireContext(),
-//                        this,
-//                        source,
-//                        1 + i);
-//                currClassifier.setCurrentDelegate(imageClassifierHelper.getCurrentDelegateNum());
-//                currClassifier.setCurrentModel(0);
-//                currClassifier.setCurrentPeriod(imageClassifierHelper.getCurrentTaskPeriod());
-//                imageClassifierHelpers.add(currClassifier);
-//            }
-
-            // 3 - 5 - 7 = 30ms 40ms 50ms
-            // 0 - 1 - 2 = cpu, gpu, npu
-            // 0 - 1 - 2 = mobilenet, efficientnet0, efficientnet1
-            // Test 1a:
-            //        model 1 : mobilenet, cpu, 30ms
-            //        model 2 : efficientnet0, gpu, 40ms
-            //        model 3 : efficientnet1, npu, 50ms
-            // Test 1b:
-            //        model 1 : mobilenet, cpu, 50ms
-            //        model 2 : efficientnet0, gpu, 30ms
-            //        model 3 : efficientnet1, npu, 40ms
-            // Test 1c:
-            //        model 1 : mobilenet, cpu, 40ms
-            //        model 2 : efficientnet0, gpu, 50ms
-            //        model 3 : efficientnet1, npu, 30ms
-
-            // Test 2a:
-            //        model 1 : mobilenet, cpu, 30ms
-            //        model 2 : efficientnet0, gpu, 30ms
-            //        model 3 : efficientnet1, gpu, 30ms
-            // Test 2b:
-            //        model 1 : mobilenet, cpu, 40ms
-            //        model 2 : efficientnet0, npu, 40ms
-            //        model 3 : efficientnet1, npu, 40ms
-
-            ImageClassifierHelperKotlin classifier1 = new ImageClassifierHelperKotlin(
-                    requireContext(),
-                    this,
-                    source,
-                    1,
-                    periodOptions);
-            ImageClassifierHelperKotlin classifier2 = new ImageClassifierHelperKotlin(
+        replaceImageClassifiers(Collections.singletonList(imageClassifierHelper));
+    }
+
+    /** Replaces the classifiers with one per task of {@code phase}. */
+    private void configureImageClassifiers(ExperimentPlan.Phase phase) {
+        List<ImageClassifierHelperKotlin> classifiers = new ArrayList<>();
+        for (ExperimentPlan.TaskSpec spec : phase.tasks) {
+            ImageClassifierHelperKotlin classifier = new ImageClassifierHelperKotlin(
                     requireContext(),
                     this,
                     source,
-                    2,
+                    classifiers.size(),
                     periodOptions);
-//            ImageClassifierHelperKotlin classifier3 = new ImageClassifierHelperKotlin(
-//                    requireContext(),
-//                    this,
-//                    source,
-//                    3);
-//
-            int mainICDelegate = imageClassifierHelper.getCurrentDelegateNum();
-            int mainICPeriod = imageClassifierHelper.getCurrentTaskPeriod();
-            String mainICDelegateName = imageClassifierHelper.getCurrentModel();
-
-            classifier1.setCurrentDelegate(2);
-            classifier1.setCurrentModel(1);
-            classifier1.setCurrentPeriod(8);
-
-            classifier2.setCurrentDelegate(2);
-            classifier2.setCurrentModel(2);
-            classifier2.setCurrentPeriod(8);
-
-//            classifier3.setCurrentDelegate(imageClassifierHelper.getCurrentDelegateNum());
-//            classifier3.setCurrentModel(0);
-//            classifier3.setCurrentPeriod(imageClassifierHelper.getCurrentTaskPeriod());
-
-            imageClassifierHelpers.add(classifier1);
-            imageClassifierHelpers.add(classifier2);
+            try {
+                classifier.setCurrentModel(spec.model);
+            } catch (IllegalArgumentException e) {
+                onError("Phase " + phase.id + ": " + e.getMessage());
+                continue;
+            }
+            classifier.setCurrentDelegate(spec.delegate);
+            classifier.setPeriodMs(spec.periodMs);
+            classifier.setThreads(spec.threads);
+            classifiers.add(classifier);
         }
+        replaceImageClassifiers(classifiers);
+    }
 
+    /**
+     * Publishes {@code classifiers} in one step, so the sampler's rows never mix two phases, and
+     * closes the test classifiers they replace.
+     */
+    private void replaceImageClassifiers(List<ImageClassifierHelperKotlin> classifiers) {
+        List<ImageClassifierHelperKotlin> previous = imageClassifierHelpers;
+        imageClassifierHelpers = Collections.unmodifiableList(classifiers);
+        for (ImageClassifierHelperKotlin currClassifier : previous) {
+            if (currClassifier != imageClassifierHelper) {
+                // Replaced for good, which also ends its GPU thread
+                currClassifier.close();
+            }
+        }
     }
 
     private void runImageClassifiers() {
+        ThermalGovernor governor = ((MainActivity) requireActivity()).getThermalGovernor();
+        ClassifierBackend backend = new ClassifierBackend();
+        if (!"NONE".equals(BuildConfig.SCHEDULER_POLICY)) {
+            taskScheduler = new TaskScheduler(
+                    StandardPolicy.fromName(BuildConfig.SCHEDULER_POLICY), backend);
+        }
         for (ImageClassifierHelperKotlin currClassifier : imageClassifierHelpers) {
-            currClassifier.startCollect();
+            // Periods and threads chosen in the UI are what the governor restores to
+            governor.register(currClassifier);
+            long periodNanos = TimeUnit.MILLISECONDS.toNanos(currClassifier.getTaskPeriod());
+            if (taskScheduler == null || periodNanos <= 0) {
+                // Unpaced classifiers have no period to schedule, so they run on their own
+                currClassifier.startCollect();
+                continue;
+            }
+            PeriodicTask task = new PeriodicTask(currClassifier.getIndex(),
+                    currClassifier.getCurrentModel(),
+                    Accelerator.fromName(currClassifier.getCurrentDelegate()),
+                    periodNanos, periodNanos, currClassifier.getPacer());
+            backend.put(task, currClassifier);
+            currClassifier.getStats().reset();
+            currClassifier.setScheduledTask(taskScheduler, task);
+            // Profiling runs on the accelerator's thread; the decision shows up in the log
+            taskScheduler.admit(task, PROFILE_RUNS);
         }
     }
 
     private void pauseImageClassifiers() {
+        ThermalGovernor governor = ((MainActivity) requireActivity()).getThermalGovernor();
+        if (taskScheduler != null) {
+            taskScheduler.close();
+            taskScheduler = null;
+        }
         for (ImageClassifierHelperKotlin currClassifier : imageClassifierHelpers) {
             currClassifier.pauseCollect();
+            currClassifier.setScheduledTask(null, null);
+            governor.unregister(currClassifier);
         }
     }
 
+    /** How a classifier is dispatched: independently or by its scheduler's admission state. */
+    private static String schedulingOf(ImageClassifierHelperKotlin classifier) {
+        PeriodicTask task = classifier.getScheduledTask();
+        if (task == null) {
+            return "independent";
+        }
+        return task.getState().name().toLowerCase(Locale.US);
+    }
+
     private void timedDataCollection() {
-        // Create a timer to periodically collect data
-        t = new Timer();
-        t.scheduleAtFixedRate(
-                new java.util.TimerTask() {
-                    @Override
-                    public void run() {
-                        processDataCollection();
-                    }
-                },
-                0,
-                1000
-        );
+        // Sampled on the activity's scheduler, on the same ticks as the system telemetry
+        getSamplingScheduler().add(samplingTask);
     }
 
-    private void processDataCollection() {
-        // Get current folder and path
-        String currentFolder = Objects.requireNonNull(requireContext()
-                .getExternalFilesDir(null)).getAbsolutePath();
-        String FILEPATH = currentFolder + File.separator + throughputFileName + fileSeries + ".csv";
+    private SamplingScheduler getSamplingScheduler() {
+        return ((MainActivity) requireActivity()).getSamplingScheduler();
+    }
 
-        for (ImageClassifierHelperKotlin currClassifier : imageClassifierHelpers) {
-            long throughput = currClassifier.getCurrentThroughput();
-            long avgThroughput = currClassifier.calculateAverageThroughput();
+    private void processDataCollection(SamplingScheduler.Tick tick) {
+        // One set of classifiers for the whole tick, even if a phase starts meanwhile
+        List<ImageClassifierHelperKotlin> classifiers = imageClassifierHelpers;
+        long sessionNanos = sessionClock.toSessionNanos(tick.getSampleNanos());
+        String phase = experimentRunner.getPhaseId();
+        String stage = experimentRunner.getStage().getDisplayName();
+
+        allTurnAroundWindow.clear();
+        allTurnAroundCumulative.clear();
+        for (ImageClassifierHelperKotlin currClassifier : classifiers) {
+            StageLatencies latencies = currClassifier.getStats().getLatencies();
+            latencies.sample();
+            allTurnAroundWindow.add(latencies.getWindow(StageLatencies.TURN_AROUND));
+            allTurnAroundCumulative.add(latencies.getCumulative(StageLatencies.TURN_AROUND));
+        }
+
+        for (ImageClassifierHelperKotlin currClassifier : classifiers) {
             long turnAroundTime = currClassifier.calculateAvgTAT();
             long period = currClassifier.getTaskPeriod();
             long averageMeasuredPeriod = currClassifier.getAvgMeasuredPeriod();
             long measuredPeriod = currClassifier.getMeasuredPeriod();
             long idleTime = max(0, period - turnAroundTime);
-
-            // Write throughput to file
-            try (PrintWriter writer = new PrintWriter(new FileOutputStream(FILEPATH, true))) {
-                dateFormat = new SimpleDateFormat("HH:mm:ss:SSS");
-                String currTime = dateFormat.format(new Date());
-                String relativeTime = getRelativeTime(currTime);
-                String sb = currTime +
-                        ',' +
-                        relativeTime +
-                        ',' +
-                        currClassifier.getIndex() +
-                        ',' +
-                        currClassifier.getCurrentModel() +
-                        ',' +
-                        currClassifier.getCurrentDelegate() +
-                        ',' +
-                        throughput +
-                        ',' +
-                        avgThroughput +
-                        ',' +
-                        turnAroundTime +
-                        ',' +
-                        idleTime +
-                        ',' +
-                        averageMeasuredPeriod +
-                        ',' +
-                        measuredPeriod +
-                        ',' +
-                        period +
-                        '\n';
-                writer.write(sb);
-                System.out.println("Writing to " + throughputFileName + " done! Models: " + imageClassifierHelpers.size());
-            } catch (FileNotFoundException e) {
-                System.out.println(e.getMessage());
+            FrameStats frameStats = currClassifier.getFrameStats();
+            InferenceStats stats = currClassifier.getStats();
+            PeriodicPacer pacer = currClassifier.getPacer();
+            // Rates as of the tick, so every classifier's row covers the same time
+            RateMeter completions = stats.getCompletions();
+            long now = tick.getSampleNanos();
+
+            // Queue throughput row for the writer thread
+            TelemetryRecord record = throughputSink.claim();
+            if (record == null) {
+                continue;
             }
+            int column = 0;
+            record.set(column++, sessionNanos);
+            record.set(column++, tick.getSequence());
+            record.set(column++, tick.getLatenessNanos());
+            record.set(column++, currClassifier.getIndex());
+            record.set(column++, currClassifier.getCurrentModel());
+            record.set(column++, currClassifier.getCurrentDelegate());
+            record.set(column++, (float) completions.getWindowRate(SECOND_NANOS, now));
+            record.set(column++, (float) completions.getMeanRate(now));
+            record.set(column++, turnAroundTime);
+            record.set(column++, idleTime);
+            record.set(column++, averageMeasuredPeriod);
+            record.set(column++, measuredPeriod);
+            record.set(column++, period);
+            record.set(column++, source.getPublishedCount());
+            record.set(column++, frameStats.getProcessed());
+            record.set(column++, frameStats.getSkipped());
+            record.set(column++, frameStats.getReused());
+            record.set(column++, source.getDropCount());
+            record.set(column++, stats.getAvgPreprocessNanos());
+            record.set(column++, stats.getAvgInvokeNanos());
+            record.set(column++, stats.getAvgPostprocessNanos());
+            record.set(column++, pacer.getAvgJitterNanos());
+            record.set(column++, pacer.getMaxJitterNanos());
+            record.set(column++, pacer.getAvgResponseNanos());
+            record.set(column++, pacer.getMaxResponseNanos());
+            record.set(column++, pacer.getDeadlineMisses());
+            record.set(column++, pacer.getSkippedReleases());
+            record.set(column++, schedulingOf(currClassifier));
+            record.set(column++, phase);
+            record.set(column++, stage);
+            record.set(column++, stats.getLoads());
+            record.set(column++, stats.getReuses());
+            record.set(column++, stats.getLastLoadNanos());
+            record.set(column++, stats.getAvgLoadNanos());
+            record.set(column++, currClassifier.getModelRefCount());
+            record.set(column++, currClassifier.getMappedModelBytes());
+            record.set(column++, stats.getWarmLoads());
+            record.set(column++, stats.getAvgColdLoadNanos());
+            record.set(column++, stats.getAvgWarmLoadNanos());
+            record.set(column++, (float) completions.getMovingRate(RateMeter.ONE_SECOND, now));
+            record.set(column++, (float) completions.getMovingRate(RateMeter.TEN_SECONDS, now));
+            record.set(column++, (float) completions.getMovingRate(RateMeter.ONE_MINUTE, now));
+            record.set(column++, completions.getWindowCount(10 * SECOND_NANOS, now));
+            record.set(column++, completions.getWindowCount(60 * SECOND_NANOS, now));
+            column = stats.getLatencies().put(record, column);
+            column = StageLatencies.putSnapshot(record, column, allTurnAroundWindow);
+            StageLatencies.putSnapshot(record, column, allTurnAroundCumulative);
+            throughputSink.publish(record);
         }
+    }
 
-        long elapsedTimeMS = SystemClock.uptimeMillis() - testStartTime;
-        long elapsedTimeS = elapsedTimeMS / 1000;
-        long elapsedTimeMin = elapsedTimeS / 60;
+    /**
+     * Carries out the runner's phase changes on the UI thread, where the classifiers are
+     * configured.
+     */
+    private final class ExperimentListener implements ExperimentRunner.Listener {
+        @Override
+        public void onPhaseStart(ExperimentPlan.Phase phase) {
+            post(() -> {
+                configureImageClassifiers(phase);
+                runImageClassifiers();
+            });
+        }
 
-        if (elapsedTimeMin > 4) {
-            Button toggleButton = (Button) fragmentCameraBinding.bottomSheetLayout.stateToggleButton;
-            requireActivity().runOnUiThread(toggleButton::callOnClick);
+        @Override
+        public void onMeasureStart(ExperimentPlan.Phase phase) {
+            post(() -> {
+                for (ImageClassifierHelperKotlin currClassifier : imageClassifierHelpers) {
+                    // Averages cover the measured part only; a record racing the reset is lost
+                    currClassifier.getStats().reset();
+                }
+            });
+        }
+
+        @Override
+        public void onPhaseEnd(ExperimentPlan.Phase phase) {
+            post(CameraFragment.this::pauseImageClassifiers);
         }
-    }
 
-    private String getRelativeTime(String currTime) {
-        String[] timeValues = currTime.split(":");
-        Long currTimeLong = Long.parseLong(timeValues[0]) * 3600 +
-                Long.parseLong(timeValues[1]) * 60 +
-                Long.parseLong(timeValues[2]) +
-                Long.parseLong(timeValues[3]) / 1000;
-        long relativeTime = currTimeLong - startTime;
-        return Long.toString(relativeTime);
+        @Override
+        public void onFinished(ExperimentPlan plan) {
+            post(() -> {
+                if (imageClassifierStatus) {
+                    Button toggleButton =
+                            (Button) fragmentCameraBinding.bottomSheetLayout.stateToggleButton;
+                    toggleButton.callOnClick();
+                }
+            });
+        }
+
+        private void post(Runnable action) {
+            fragmentCameraBinding.getRoot().post(() -> {
+                // The runner may still report after the fragment went away
+                if (isAdded()) action.run();
+            });
+        }
     }
 
     @Override
@@ -698,13 +923,18 @@ public class CameraFragment extends Fragment
     }
 
     @Override
-    public void onResults(List<? extends Classifications> results, long inferenceTime, int modelIndex) {
+    public void onResults(List<? extends Classifications> results, long inferenceTime,
+                          int modelIndex, long frame) {
+        long postedNanos = FrameTracer.isEnabled() ? System.nanoTime() : 0;
         requireActivity().runOnUiThread(() -> {
             if (modelIndex == 0 & results != null) {
                 classificationResultsAdapter.updateResults(results.get(0).getCategories());
                 fragmentCameraBinding.bottomSheetLayout.inferenceTimeVal
                         .setText(String.format(Locale.US, "%d ms", inferenceTime));
             }
+            if (postedNanos != 0) {
+                FrameTracer.span(FrameStage.UI, frame, postedNanos, System.nanoTime());
+            }
         });
     }
 
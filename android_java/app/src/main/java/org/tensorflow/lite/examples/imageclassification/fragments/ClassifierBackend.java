@@ -0,0 +1,26 @@
+package org.tensorflow.lite.examples.imageclassification.fragments;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.tensorflow.lite.examples.imageclassification.ImageClassifierHelperKotlin;
+import org.tensorflow.lite.examples.imageclassification.scheduler.InferenceBackend;
+import org.tensorflow.lite.examples.imageclassification.scheduler.PeriodicTask;
+
+/** Runs scheduled tasks on the classifier helpers they were created for. */
+class ClassifierBackend implements InferenceBackend {
+    private final Map<PeriodicTask, ImageClassifierHelperKotlin> helpers =
+            new ConcurrentHashMap<>();
+
+    void put(PeriodicTask task, ImageClassifierHelperKotlin helper) {
+        helpers.put(task, helper);
+    }
+
+    @Override
+    public void infer(PeriodicTask task) {
+        ImageClassifierHelperKotlin helper = helpers.get(task);
+        if (helper != null) {
+            helper.classifyLatest();
+        }
+    }
+}
@@ -1,29 +1,36 @@
 package org.tensorflow.lite.examples.imageclassification.fragments
 
 import android.graphics.Bitmap
-import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.Flow
-import kotlinx.coroutines.flow.flow
-import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.flow.filter
 
 class DynamicBitmapSource(private val bitmapUpdaterApi: BitmapUpdaterApi) {
+    @Volatile
     private var run = false
-    lateinit var bitmapStream: Flow<BitmapUpdaterApi?>
-
-    private fun runStream() {
-        bitmapStream = flow {
-            while (run) {
-                emit(bitmapUpdaterApi);
-            }
-        }.flowOn(Dispatchers.Default)
-    }
+
+    // Collectors suspend until the camera publishes a newer frame. The latest value is
+    // conflated, so a slow collector gets the newest frame rather than a backlog.
+    val bitmapStream: Flow<Long> = bitmapUpdaterApi.frames
+        .filter { it > 0 && run }
+
+    /** Frames the camera has published so far. */
+    val publishedCount: Long
+        get() = bitmapUpdaterApi.publishedCount
+
+    /** Frames the camera dropped because every bitmap was still in use. */
+    val dropCount: Long
+        get() = bitmapUpdaterApi.dropCount
+
+    /** The newest frame, held until [release]d so the camera cannot overwrite it. */
+    fun acquireLatest(): FrameRing.Slot<Bitmap>? = bitmapUpdaterApi.acquireLatest()
+
+    fun release(slot: FrameRing.Slot<Bitmap>) = bitmapUpdaterApi.release(slot)
 
     fun startStream() {
         run = true
-        runStream()
     }
 
     fun pauseStream() {
         run = false
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,175 @@
+package org.tensorflow.lite.examples.imageclassification.fragments;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free handoff of frames from one producer to any number of consumers through a fixed set
+ * of reusable, reference counted buffers.
+ *
+ * <p>The producer {@link #claim()}s a buffer nobody references, fills it, and
+ * {@link #publish(Slot, int)}es it as the latest frame. Consumers {@link #acquireLatest()} the
+ * latest frame, which keeps it from being overwritten, and {@link #release(Slot)} it when done.
+ * A published buffer is never written again until every reference to it is gone, so consumers
+ * always read complete frames. The producer never waits for a buffer: if every buffer is still
+ * referenced it drops the frame. An unpaced producer may {@link #awaitAcquired()} instead, to
+ * publish no faster than consumers take frames. With {@code c} consumers holding one frame each, {@code c + 2} slots are
+ * enough for the producer to always find a free buffer.
+ */
+public final class FrameRing<T> implements FrameSink<T> {
+    private static final int WRITING = -1;
+
+    /** A reusable frame buffer and the metadata of the frame it currently holds. */
+    public static final class Slot<T> {
+        // -1 while the producer writes, otherwise the number of references
+        private final AtomicInteger refs = new AtomicInteger();
+        private T buffer;
+        private long sequence;
+        private int rotation;
+        private long publishNanos;
+
+        public T getBuffer() {
+            return buffer;
+        }
+
+        /** Sets the buffer, e.g. on first use. Only valid while claimed by the producer. */
+        public void setBuffer(T buffer) {
+            this.buffer = buffer;
+        }
+
+        /** Position of the frame in the sequence of published frames, starting at 1. */
+        public long getSequence() {
+            return sequence;
+        }
+
+        public int getRotation() {
+            return rotation;
+        }
+
+        /** When the frame was published, if the producer set it; 0 otherwise. */
+        public long getPublishNanos() {
+            return publishNanos;
+        }
+
+        /** Sets when the frame is published, for tracing. Only valid while claimed. */
+        public void setPublishNanos(long publishNanos) {
+            this.publishNanos = publishNanos;
+        }
+    }
+
+    private final Slot<T>[] slots;
+    private final AtomicReference<Slot<T>> latest = new AtomicReference<>();
+    private final AtomicLong dropCount = new AtomicLong();
+    // Sequence of the newest frame any consumer acquired
+    private final AtomicLong acquiredSequence = new AtomicLong();
+    private volatile long publishedCount;
+    // The producer while it waits in awaitAcquired
+    private volatile Thread waiter;
+    private int cursor;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public FrameRing(int size) {
+        if (size < 2) throw new IllegalArgumentException("a frame ring needs at least 2 slots");
+        slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot<>();
+        }
+    }
+
+    public int size() {
+        return slots.length;
+    }
+
+    /**
+     * Claims an unreferenced buffer to write the next frame into, or returns null and counts a
+     * dropped frame if every buffer is in use. Producer thread only.
+     */
+    @Override
+    public Slot<T> claim() {
+        for (int i = 0; i < slots.length; i++) {
+            int index = (cursor + i) % slots.length;
+            Slot<T> slot = slots[index];
+            if (slot.refs.compareAndSet(0, WRITING)) {
+                cursor = (index + 1) % slots.length;
+                return slot;
+            }
+        }
+        dropCount.incrementAndGet();
+        return null;
+    }
+
+    /** Gives back a claimed buffer without publishing it. Producer thread only. */
+    @Override
+    public void abort(Slot<T> slot) {
+        slot.refs.set(0);
+    }
+
+    /** Makes a claimed, filled buffer the latest frame. Producer thread only. */
+    @Override
+    public void publish(Slot<T> slot, int rotation) {
+        slot.rotation = rotation;
+        slot.sequence = ++publishedCount;
+        // The ring holds one reference to the latest frame until a newer one replaces it
+        slot.refs.set(1);
+        Slot<T> previous = latest.getAndSet(slot);
+        if (previous != null) release(previous);
+    }
+
+    /**
+     * Takes a reference to the latest frame, or returns null if nothing was published yet. The
+     * caller must {@link #release(Slot)} it.
+     */
+    public Slot<T> acquireLatest() {
+        while (true) {
+            Slot<T> slot = latest.get();
+            if (slot == null) return null;
+            int refs = slot.refs.get();
+            // A count of 0 or less means the slot was just replaced; read latest again
+            if (refs > 0 && slot.refs.compareAndSet(refs, refs + 1)) {
+                onAcquired(slot.sequence);
+                return slot;
+            }
+        }
+    }
+
+    private void onAcquired(long sequence) {
+        long seen;
+        while ((seen = acquiredSequence.get()) < sequence
+                && !acquiredSequence.compareAndSet(seen, sequence)) {
+            // Another consumer moved it; retry against its value
+        }
+        Thread producer = waiter;
+        if (producer != null) LockSupport.unpark(producer);
+    }
+
+    /** Parks until the latest frame was acquired. Producer thread only. */
+    @Override
+    public void awaitAcquired() {
+        if (acquiredSequence.get() >= publishedCount) return;
+        Thread current = Thread.currentThread();
+        // Set before checking again, so a consumer acquiring in between sees the waiter
+        waiter = current;
+        try {
+            while (acquiredSequence.get() < publishedCount && !current.isInterrupted()) {
+                LockSupport.park(this);
+            }
+        } finally {
+            waiter = null;
+        }
+    }
+
+    public void release(Slot<T> slot) {
+        slot.refs.decrementAndGet();
+    }
+
+    public long getPublishedCount() {
+        return publishedCount;
+    }
+
+    /** Frames the producer dropped because no buffer was free. */
+    public long getDropCount() {
+        return dropCount.get();
+    }
+}
@@ -0,0 +1,23 @@
+package org.tensorflow.lite.examples.imageclassification.fragments;
+
+/**
+ * Where a frame producer, the camera analyzer or a replay, writes frames for the classifiers:
+ * it claims a free buffer, fills it and publishes it as the latest frame. One producer thread
+ * only.
+ */
+public interface FrameSink<T> {
+    /** A free buffer to write the next frame into, or null to drop the frame. */
+    FrameRing.Slot<T> claim();
+
+    /** Gives back a claimed buffer without publishing it. */
+    void abort(FrameRing.Slot<T> slot);
+
+    /** Publishes a claimed, filled buffer as the next frame. */
+    void publish(FrameRing.Slot<T> slot, int rotation);
+
+    /**
+     * Parks until a consumer acquired the latest published frame, or the thread is interrupted.
+     * Returns right away if nothing was published yet.
+     */
+    void awaitAcquired();
+}
@@ -0,0 +1,46 @@
+package org.tensorflow.lite.examples.imageclassification.fragments;
+
+/**
+ * Per-consumer frame accounting against the published frame sequence. Frames that were
+ * published but never seen by the consumer are skipped; frames it processed more than once are
+ * reused. Written by the consuming thread only, read from any thread.
+ */
+public final class FrameStats {
+    private volatile long lastSequence;
+    private volatile long processed;
+    private volatile long skipped;
+    private volatile long reused;
+
+    /** Records that the consumer is about to process frame {@code sequence}. */
+    public void onFrame(long sequence) {
+        long last = lastSequence;
+        if (sequence == last) {
+            reused++;
+        } else if (last > 0 && sequence > last + 1) {
+            skipped += sequence - last - 1;
+        }
+        lastSequence = sequence;
+        processed++;
+    }
+
+    /** Forgets the last frame, e.g. when the consumer is paused. Totals are kept. */
+    public void reset() {
+        lastSequence = 0;
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public long getReused() {
+        return reused;
+    }
+}
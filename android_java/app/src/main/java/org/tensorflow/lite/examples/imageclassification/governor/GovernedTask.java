@@ -0,0 +1,16 @@
+package org.tensorflow.lite.examples.imageclassification.governor;
+
+/** A periodic classifier task whose period and thread count a {@link ThermalGovernor} adjusts. */
+public interface GovernedTask {
+    /** Identifies the task in the decision log. */
+    int getIndex();
+
+    long getPeriodMs();
+
+    void setPeriodMs(long periodMs);
+
+    int getThreads();
+
+    /** Applied the next time the task sets up its interpreter. */
+    void setThreads(int threads);
+}
@@ -0,0 +1,163 @@
+package org.tensorflow.lite.examples.imageclassification.governor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.tensorflow.lite.examples.imageclassification.telemetry.TelemetryRecord;
+import org.tensorflow.lite.examples.imageclassification.telemetry.TelemetrySchema;
+import org.tensorflow.lite.examples.imageclassification.telemetry.TelemetrySink;
+import org.tensorflow.lite.examples.imageclassification.telemetry.ThermalStatus;
+
+/**
+ * Stretches and restores classifier task periods, and caps their threads, as the device heats up
+ * and cools down, following a {@link ThermalPolicy}.
+ *
+ * <p>Each {@link #update} moves up to the highest level the thermal status or hottest zone
+ * reaches right away. It steps down only once the current level has been held for the policy's
+ * dwell time and the temperature is below the level by the hysteresis margin, so the period does
+ * not oscillate around a threshold. Task settings are always derived from the values the task had
+ * when it was registered, and every change is written to the decision log.
+ */
+public class ThermalGovernor {
+    private final ThermalPolicy policy;
+    private final TelemetrySink decisions;
+    private final List<Entry> tasks = new ArrayList<>();
+    private final long minDwellNanos;
+
+    private int level;
+    private long levelSinceNanos;
+    private ThermalStatus lastStatus = ThermalStatus.NONE;
+    private float lastTemperatureC;
+    private long lastNanos;
+    private long decisionCount;
+
+    /** {@code decisions} must use {@link #addDecisionColumns}; it may be null. */
+    public ThermalGovernor(ThermalPolicy policy, TelemetrySink decisions) {
+        this.policy = policy;
+        this.decisions = decisions;
+        this.minDwellNanos = TimeUnit.MILLISECONDS.toNanos(policy.getMinDwellMs());
+    }
+
+    /** Appends the decision log columns to {@code schema}. */
+    public static TelemetrySchema.Builder addDecisionColumns(TelemetrySchema.Builder schema) {
+        return schema
+                .addLong("sessionNanos")
+                .addText("thermalStatus")
+                .addFloat("maxTemperature")
+                .addText("previousLevel")
+                .addText("level")
+                .addLong("taskIndex")
+                .addLong("periodMs")
+                .addLong("threads");
+    }
+
+    public ThermalPolicy getPolicy() {
+        return policy;
+    }
+
+    public synchronized int getLevel() {
+        return level;
+    }
+
+    /** Rows written to the decision log so far. */
+    public synchronized long getDecisionCount() {
+        return decisionCount;
+    }
+
+    /**
+     * Puts {@code task} under the governor, taking its current period and threads as its
+     * unthrottled settings, and applies the current level to it. Registering a task again
+     * re-reads those settings.
+     */
+    public synchronized void register(GovernedTask task) {
+        unregister(task);
+        Entry entry = new Entry(task);
+        tasks.add(entry);
+        apply(entry, level, level);
+    }
+
+    /** Restores the unthrottled settings of {@code task} and stops governing it. */
+    public synchronized void unregister(GovernedTask task) {
+        for (int i = 0; i < tasks.size(); i++) {
+            Entry entry = tasks.get(i);
+            if (entry.task == task) {
+                tasks.remove(i);
+                apply(entry, level, 0);
+                return;
+            }
+        }
+    }
+
+    /** Feeds one thermal reading; returns the level now in force. */
+    public synchronized int update(long sessionNanos, ThermalStatus status, float maxTemperatureC) {
+        lastNanos = sessionNanos;
+        lastStatus = status;
+        lastTemperatureC = maxTemperatureC;
+
+        int target = highestReached(status, maxTemperatureC, 0f);
+        if (target < level) {
+            boolean dwelt = sessionNanos - levelSinceNanos >= minDwellNanos;
+            if (!dwelt || policy.get(level).isReachedBy(
+                    status, maxTemperatureC, policy.getHysteresisC())) {
+                return level;
+            }
+            target = highestReached(status, maxTemperatureC, policy.getHysteresisC());
+        }
+        if (target != level) {
+            int previous = level;
+            level = target;
+            levelSinceNanos = sessionNanos;
+            log(previous, -1, 0, 0);
+            for (Entry entry : tasks) {
+                apply(entry, previous, level);
+            }
+        }
+        return level;
+    }
+
+    private int highestReached(ThermalStatus status, float temperatureC, float marginC) {
+        for (int i = policy.size() - 1; i > 0; i--) {
+            if (policy.get(i).isReachedBy(status, temperatureC, marginC)) return i;
+        }
+        return 0;
+    }
+
+    private void apply(Entry entry, int previous, int next) {
+        ThermalPolicy.Level settings = policy.get(next);
+        long period = settings.periodFor(entry.basePeriodMs);
+        int threads = settings.threadsFor(entry.baseThreads);
+        if (period == entry.task.getPeriodMs() && threads == entry.task.getThreads()) return;
+        entry.task.setPeriodMs(period);
+        if (threads != entry.task.getThreads()) entry.task.setThreads(threads);
+        log(previous, entry.task.getIndex(), period, threads);
+    }
+
+    private void log(int previous, int taskIndex, long period, int threads) {
+        decisionCount++;
+        if (decisions == null) return;
+        TelemetryRecord record = decisions.claim();
+        if (record == null) return;
+        record.set(0, lastNanos)
+                .set(1, lastStatus.getDisplayName())
+                .set(2, lastTemperatureC)
+                .set(3, policy.get(previous).name)
+                .set(4, policy.get(level).name)
+                .set(5, taskIndex)
+                .set(6, period)
+                .set(7, threads);
+        decisions.publish(record);
+    }
+
+    private static final class Entry {
+        final GovernedTask task;
+        final long basePeriodMs;
+        final int baseThreads;
+
+        Entry(GovernedTask task) {
+            this.task = task;
+            this.basePeriodMs = task.getPeriodMs();
+            this.baseThreads = task.getThreads();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.tensorflow.lite.examples.imageclassification.governor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.tensorflow.lite.examples.imageclassification.telemetry.ThermalStatus;
+
+/**
+ * Ordered table of throttling levels for a {@link ThermalGovernor}.
+ *
+ * <p>A level applies once the thermal status reaches its status or the hottest zone reaches its
+ * temperature. Each level stretches task periods by a factor, with an optional floor, and can
+ * cap interpreter threads. Tables are written one level per line, mildest first:
+ * <pre>
+ * # name, status, temperatureC, periodScale, minPeriodMs, maxThreads (0 = no cap)
+ * hot, MODERATE, 55, 1.5, 20, 0
+ * </pre>
+ */
+public final class ThermalPolicy {
+    public static final String DEFAULT_TABLE =
+            "# name, status, temperatureC, periodScale, minPeriodMs, maxThreads\n"
+                    + "nominal, NONE, 0, 1.0, 0, 0\n"
+                    + "warm, LIGHT, 50, 1.25, 0, 0\n"
+                    + "hot, MODERATE, 58, 1.5, 20, 0\n"
+                    + "severe, SEVERE, 66, 2.0, 40, 2\n"
+                    + "critical, CRITICAL, 74, 4.0, 100, 1\n";
+    public static final float DEFAULT_HYSTERESIS_C = 3f;
+    public static final long DEFAULT_MIN_DWELL_MS = 10000;
+
+    private final Level[] levels;
+    private final float hysteresisC;
+    private final long minDwellMs;
+
+    public ThermalPolicy(List<Level> levels, float hysteresisC, long minDwellMs) {
+        if (levels.isEmpty()) throw new IllegalArgumentException("policy has no levels");
+        this.levels = levels.toArray(new Level[0]);
+        for (int i = 1; i < this.levels.length; i++) {
+            if (this.levels[i].status.getCode() < this.levels[i - 1].status.getCode()
+                    || this.levels[i].temperatureC < this.levels[i - 1].temperatureC) {
+                throw new IllegalArgumentException(
+                        "levels must be ordered mildest first: " + this.levels[i].name);
+            }
+        }
+        this.hysteresisC = hysteresisC;
+        this.minDwellMs = minDwellMs;
+    }
+
+    public static ThermalPolicy defaultPolicy() {
+        return parse(DEFAULT_TABLE);
+    }
+
+    public static ThermalPolicy parse(String table) {
+        try {
+            return parse(new StringReader(table));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** Parses a table; blank lines and lines starting with '#' are skipped. */
+    public static ThermalPolicy parse(Reader table) throws IOException {
+        List<Level> levels = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(table);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] fields = line.split("\\s*,\\s*");
+            if (fields.length != 6) {
+                throw new IllegalArgumentException(
+                        "line " + lineNumber + ": expected 6 fields but got " + fields.length);
+            }
+            try {
+                levels.add(new Level(fields[0],
+                        ThermalStatus.valueOf(fields[1].toUpperCase(Locale.US)),
+                        Float.parseFloat(fields[2]),
+                        Float.parseFloat(fields[3]),
+                        Long.parseLong(fields[4]),
+                        Integer.parseInt(fields[5])));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        return new ThermalPolicy(levels, DEFAULT_HYSTERESIS_C, DEFAULT_MIN_DWELL_MS);
+    }
+
+    public int size() {
+        return levels.length;
+    }
+
+    public Level get(int level) {
+        return levels[level];
+    }
+
+    /** Degrees below a level's temperature the hottest zone must fall before leaving it. */
+    public float getHysteresisC() {
+        return hysteresisC;
+    }
+
+    /** Time a level is held at least before stepping down from it. */
+    public long getMinDwellMs() {
+        return minDwellMs;
+    }
+
+    /** One row of the table. */
+    public static final class Level {
+        public final String name;
+        public final ThermalStatus status;
+        public final float temperatureC;
+        public final float periodScale;
+        public final long minPeriodMs;
+        /** Interpreter thread cap, or 0 for none. */
+        public final int maxThreads;
+
+        public Level(String name, ThermalStatus status, float temperatureC, float periodScale,
+                     long minPeriodMs, int maxThreads) {
+            if (periodScale < 1f) throw new IllegalArgumentException("periodScale below 1");
+            this.name = name;
+            this.status = status;
+            this.temperatureC = temperatureC;
+            this.periodScale = periodScale;
+            this.minPeriodMs = minPeriodMs;
+            this.maxThreads = maxThreads;
+        }
+
+        /**
+         * Whether the level applies. {@code marginC} lowers the temperature threshold, which is
+         * how hysteresis holds a level on the way down. An unknown status never matches.
+         */
+        public boolean isReachedBy(ThermalStatus currentStatus, float temperatureC, float marginC) {
+            return currentStatus.getCode() >= status.getCode()
+                    || temperatureC >= this.temperatureC - marginC;
+        }
+
+        /** Period for a task whose unthrottled period is {@code basePeriodMs}. */
+        public long periodFor(long basePeriodMs) {
+            return Math.max(minPeriodMs, (long) Math.ceil(basePeriodMs * periodScale));
+        }
+
+        /** Threads for a task that would otherwise use {@code baseThreads}. */
+        public int threadsFor(int baseThreads) {
+            return maxThreads > 0 ? Math.min(baseThreads, maxThreads) : baseThreads;
+        }
+    }
+}
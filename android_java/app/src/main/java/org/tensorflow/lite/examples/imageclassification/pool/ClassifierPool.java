@@ -0,0 +1,259 @@
+package org.tensorflow.lite.examples.imageclassification.pool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.tensorflow.lite.examples.imageclassification.scheduler.Accelerator;
+
+/**
+ * Initialized classifiers kept for reuse, so switching back to a configuration does not reload
+ * the model and recompile its delegate.
+ *
+ * <p>Classifiers are leased exclusively and handed back with {@link #release}. Idle ones are
+ * kept in least recently released order and closed, oldest first, whenever the estimated memory
+ * of all classifiers exceeds the budget. Leased classifiers are never evicted, so the budget can
+ * be exceeded while they are in use.
+ *
+ * <p>A {@link Key} may name an owner, the executor of the one thread a delegate works on; such a
+ * classifier is only handed to that owner again. It is evicted like any other, but closed on its
+ * owner's thread, after whatever the owner is running.
+ */
+public class ClassifierPool<T extends Closeable> {
+    public static final long DEFAULT_BUDGET_BYTES = 64L << 20;
+
+    /** Creates classifiers on a miss. */
+    public interface Loader<T> {
+        /** Loads a classifier for {@code key}; called on the acquiring thread. */
+        T load(Key key) throws IOException;
+
+        /** Estimated memory a classifier for {@code key} holds. */
+        long sizeOf(Key key);
+    }
+
+    private final Loader<T> loader;
+    private final long budgetBytes;
+    // Oldest release first
+    private final List<Lease<T>> idle = new ArrayList<>();
+    private long generation;
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long totalLoadNanos;
+
+    public ClassifierPool(Loader<T> loader, long budgetBytes) {
+        this.loader = loader;
+        this.budgetBytes = budgetBytes;
+    }
+
+    /** Leases an idle classifier for {@code key}, or loads one. */
+    public Lease<T> acquire(Key key) throws IOException {
+        long leaseGeneration;
+        synchronized (this) {
+            for (int i = idle.size() - 1; i >= 0; i--) {
+                Lease<T> lease = idle.get(i);
+                if (lease.key.equals(key)) {
+                    idle.remove(i);
+                    hits++;
+                    lease.reused = true;
+                    return lease;
+                }
+            }
+            misses++;
+            leaseGeneration = generation;
+        }
+
+        // Loading can take seconds, so other threads keep using the pool meanwhile
+        long start = System.nanoTime();
+        T instance = loader.load(key);
+        long loadNanos = System.nanoTime() - start;
+        Lease<T> lease = new Lease<>(key, instance, loader.sizeOf(key), leaseGeneration);
+        lease.loadNanos = loadNanos;
+
+        List<Lease<T>> evicted = new ArrayList<>();
+        synchronized (this) {
+            totalLoadNanos += loadNanos;
+            bytes += lease.bytes;
+            while (bytes > budgetBytes && !idle.isEmpty()) {
+                Lease<T> oldest = idle.remove(0);
+                bytes -= oldest.bytes;
+                evictions++;
+                evicted.add(oldest);
+            }
+        }
+        for (Lease<T> oldest : evicted) {
+            close(oldest);
+        }
+        return lease;
+    }
+
+    /** Hands a classifier back for reuse. */
+    public void release(Lease<T> lease) {
+        synchronized (this) {
+            if (lease.generation == generation) {
+                idle.add(lease);
+                return;
+            }
+            // Leased before a clear
+            bytes -= lease.bytes;
+        }
+        close(lease);
+    }
+
+    /** Closes every idle classifier; leased ones are closed when they are released. */
+    public void clear() {
+        List<Lease<T>> cleared;
+        synchronized (this) {
+            generation++;
+            cleared = new ArrayList<>(idle);
+            idle.clear();
+            for (Lease<T> lease : cleared) {
+                bytes -= lease.bytes;
+            }
+        }
+        for (Lease<T> lease : cleared) {
+            close(lease);
+        }
+    }
+
+    /**
+     * Closes the idle classifiers of {@code owner}, e.g. from its last task before it shuts down.
+     * Once the owner rejects tasks, they are closed on the calling thread.
+     */
+    public void clear(Executor owner) {
+        List<Lease<T>> cleared = new ArrayList<>();
+        synchronized (this) {
+            for (int i = idle.size() - 1; i >= 0; i--) {
+                if (idle.get(i).key.owner == owner) {
+                    Lease<T> lease = idle.remove(i);
+                    bytes -= lease.bytes;
+                    cleared.add(lease);
+                }
+            }
+        }
+        for (Lease<T> lease : cleared) {
+            close(lease);
+        }
+    }
+
+    // Never under the lock, since an owner's executor may run the close right away
+    private void close(Lease<T> lease) {
+        Executor owner = lease.key.owner;
+        if (owner != null) {
+            try {
+                owner.execute(() -> closeNow(lease));
+                return;
+            } catch (RejectedExecutionException e) {
+                // The owner has stopped, so nothing runs on its thread any more
+            }
+        }
+        closeNow(lease);
+    }
+
+    private void closeNow(Lease<T> lease) {
+        try {
+            lease.instance.close();
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getTotalLoadNanos() {
+        return totalLoadNanos;
+    }
+
+    /** Estimated memory of the idle and leased classifiers. */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    /** Configuration a classifier was built for. */
+    public static final class Key {
+        public final String model;
+        public final Accelerator accelerator;
+        public final int threads;
+        /** Executor of the thread the classifier is bound to, or null if any thread may use it. */
+        public final Executor owner;
+
+        public Key(String model, Accelerator accelerator, int threads, Executor owner) {
+            this.model = model;
+            this.accelerator = accelerator;
+            this.threads = threads;
+            this.owner = owner;
+        }
+
+        /** Equality with a key of these fields, without allocating one. */
+        public boolean matches(String model, Accelerator accelerator, int threads,
+                               Executor owner) {
+            return this.model.equals(model) && this.accelerator == accelerator
+                    && this.threads == threads && this.owner == owner;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return matches(other.model, other.accelerator, other.threads, other.owner);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = model.hashCode();
+            result = 31 * result + accelerator.hashCode();
+            result = 31 * result + threads;
+            return 31 * result + System.identityHashCode(owner);
+        }
+
+        @Override
+        public String toString() {
+            return model + "@" + accelerator + "x" + threads + (owner != null ? " owned" : "");
+        }
+    }
+
+    /** A classifier leased from the pool. */
+    public static final class Lease<T> {
+        public final Key key;
+        public final T instance;
+        final long bytes;
+        final long generation;
+        volatile long loadNanos;
+        volatile boolean reused;
+
+        Lease(Key key, T instance, long bytes, long generation) {
+            this.key = key;
+            this.instance = instance;
+            this.bytes = bytes;
+            this.generation = generation;
+        }
+
+        /** Time it took to load the model and compile its delegate. */
+        public long getLoadNanos() {
+            return loadNanos;
+        }
+
+        /** Whether the last {@link ClassifierPool#acquire} reused this classifier. */
+        public boolean isReused() {
+            return reused;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package org.tensorflow.lite.examples.imageclassification.pool;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.Properties;
+
+import org.tensorflow.lite.examples.imageclassification.scheduler.Accelerator;
+
+/**
+ * Delegate compilation caches kept in app storage across runs, one directory per model,
+ * delegate and options.
+ *
+ * <p>Each model directory remembers the SHA-256 of the model it was built for; opening it for a
+ * model with another hash deletes everything cached for the old one. An {@link Entry} hands out
+ * the directory and a model token for the delegate's serialization, and records how long each
+ * initialization took, so the first (cold) start of a configuration can be told apart from the
+ * later (warm) ones.
+ */
+public class DelegateCache {
+    private static final String MODEL_FILE = "model.properties";
+    private static final String INIT_FILE = "init.properties";
+
+    private final File root;
+    private long invalidations;
+
+    public DelegateCache(File root) {
+        this.root = root;
+    }
+
+    /** SHA-256 of the remaining bytes of {@code buffer}, in hex; its position is left as is. */
+    public static String sha256(ByteBuffer buffer) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        digest.update(buffer.duplicate());
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format(Locale.US, "%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Opens the cache of {@code model} with the hash {@code modelHash} on {@code accelerator},
+     * built with {@code options}, e.g. "threads=2". Creates it if needed.
+     */
+    public synchronized Entry open(String model, String modelHash, Accelerator accelerator,
+                                   String options) throws IOException {
+        File modelDir = new File(root, fileName(model));
+        File modelFile = new File(modelDir, MODEL_FILE);
+        String cachedHash = read(modelFile).getProperty("sha256");
+        if (!modelHash.equals(cachedHash)) {
+            if (cachedHash != null) {
+                // The model changed under the same name: nothing compiled for it applies
+                invalidations++;
+            }
+            delete(modelDir);
+            mkdirs(modelDir);
+            Properties properties = new Properties();
+            properties.setProperty("model", model);
+            properties.setProperty("sha256", modelHash);
+            write(modelFile, properties);
+        }
+        String name = accelerator.name().toLowerCase(Locale.US) + "-" + fileName(options);
+        File directory = new File(modelDir, name);
+        mkdirs(directory);
+        return new Entry(directory, modelHash.substring(0, 16) + "-" + name);
+    }
+
+    /** How often a cached model was found to have changed and its caches were deleted. */
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    private static String fileName(String text) {
+        return text.replaceAll("[^A-Za-z0-9._=-]", "_");
+    }
+
+    private static void mkdirs(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static Properties read(File file) throws IOException {
+        Properties properties = new Properties();
+        if (!file.isFile()) return properties;
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        }
+        return properties;
+    }
+
+    private static void write(File file, Properties properties) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            properties.store(out, null);
+        }
+    }
+
+    private static long getLong(Properties properties, String name) {
+        return Long.parseLong(properties.getProperty(name, "0"));
+    }
+
+    /** The cache of one model, delegate and options. */
+    public final class Entry {
+        /** Where the delegate may serialize its compiled model. */
+        public final File directory;
+        /** Names the compiled model within {@link #directory}; changes with the model. */
+        public final String token;
+
+        Entry(File directory, String token) {
+            this.directory = directory;
+            this.token = token;
+        }
+
+        /** Whether a delegate was initialized from this cache before. */
+        public boolean isWarm() {
+            synchronized (DelegateCache.this) {
+                return new File(directory, INIT_FILE).isFile();
+            }
+        }
+
+        /**
+         * Records an initialization that took {@code initNanos} and returns whether it was a
+         * warm start.
+         */
+        public boolean recordInit(long initNanos) throws IOException {
+            synchronized (DelegateCache.this) {
+                File file = new File(directory, INIT_FILE);
+                Properties properties = read(file);
+                boolean warm = properties.getProperty("coldNanos") != null;
+                if (warm) {
+                    properties.setProperty("warmInits",
+                            Long.toString(getLong(properties, "warmInits") + 1));
+                    properties.setProperty("totalWarmNanos",
+                            Long.toString(getLong(properties, "totalWarmNanos") + initNanos));
+                } else {
+                    properties.setProperty("coldNanos", Long.toString(initNanos));
+                }
+                properties.setProperty("lastNanos", Long.toString(initNanos));
+                write(file, properties);
+                return warm;
+            }
+        }
+
+        /** Time of the first initialization, or 0 if there was none. */
+        public long getColdNanos() throws IOException {
+            synchronized (DelegateCache.this) {
+                return getLong(read(new File(directory, INIT_FILE)), "coldNanos");
+            }
+        }
+
+        /** Mean time of the initializations after the first, or 0 if there were none. */
+        public long getAvgWarmNanos() throws IOException {
+            synchronized (DelegateCache.this) {
+                Properties properties = read(new File(directory, INIT_FILE));
+                long warmInits = getLong(properties, "warmInits");
+                return warmInits == 0 ? 0 : getLong(properties, "totalWarmNanos") / warmInits;
+            }
+        }
+    }
+}
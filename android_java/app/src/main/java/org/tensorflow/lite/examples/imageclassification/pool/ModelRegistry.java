@@ -0,0 +1,142 @@
+package org.tensorflow.lite.examples.imageclassification.pool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Model files mapped into memory once and shared by every classifier built from them.
+ *
+ * <p>Interpreters read their weights straight from the buffer they were created with, so a
+ * classifier built from a shared mapping costs no copy of the model. Each {@link Model} handed
+ * out counts as a reference; the mapping is dropped once the last one is closed and the
+ * classifiers using it are gone, since the buffer must outlive every interpreter reading it.
+ */
+public class ModelRegistry {
+    /** Maps a model file read-only; called at most once per model while it is referenced. */
+    public interface Mapper {
+        MappedByteBuffer map(String model) throws IOException;
+    }
+
+    private final Mapper mapper;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private long mappedBytes;
+    private long maps;
+
+    public ModelRegistry(Mapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /** Maps {@code length} bytes of {@code channel} from {@code offset}, read-only. */
+    public static MappedByteBuffer map(FileChannel channel, long offset, long length)
+            throws IOException {
+        // The mapping stays valid after the channel is closed
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    }
+
+    /** References {@code model}, mapping it if no one else does. Close the result when done. */
+    public Model acquire(String model) throws IOException {
+        synchronized (this) {
+            Entry entry = entries.get(model);
+            if (entry != null) {
+                entry.refs++;
+                return new Model(this, model, entry);
+            }
+        }
+        // Mapped outside the lock; two threads racing for a new model keep the first mapping
+        MappedByteBuffer buffer = mapper.map(model);
+        synchronized (this) {
+            Entry entry = entries.get(model);
+            if (entry == null) {
+                entry = new Entry(buffer);
+                entries.put(model, entry);
+                mappedBytes += buffer.capacity();
+                maps++;
+            }
+            entry.refs++;
+            return new Model(this, model, entry);
+        }
+    }
+
+    private synchronized void release(String model) {
+        Entry entry = entries.get(model);
+        if (entry == null || --entry.refs > 0) return;
+        // Unmapped once the buffer is collected
+        entries.remove(model);
+        mappedBytes -= entry.buffer.capacity();
+    }
+
+    /** Bytes of all model files mapped right now. */
+    public synchronized long getMappedBytes() {
+        return mappedBytes;
+    }
+
+    /** How often a model file was mapped; more than the models used means one was remapped. */
+    public synchronized long getMapCount() {
+        return maps;
+    }
+
+    /** Open references to {@code model}; 0 if it is not mapped. */
+    public synchronized int getRefCount(String model) {
+        Entry entry = entries.get(model);
+        return entry != null ? entry.refs : 0;
+    }
+
+    /** Open references per mapped model, by model name. */
+    public synchronized Map<String, Integer> getRefCounts() {
+        Map<String, Integer> refs = new TreeMap<>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            refs.put(entry.getKey(), entry.getValue().refs);
+        }
+        return refs;
+    }
+
+    private static final class Entry {
+        final MappedByteBuffer buffer;
+        int refs;
+        private String sha256;
+
+        Entry(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        synchronized String sha256() {
+            if (sha256 == null) sha256 = DelegateCache.sha256(buffer);
+            return sha256;
+        }
+    }
+
+    /** One reference to a mapped model. */
+    public static final class Model implements Closeable {
+        public final String name;
+        /** Shared with every other reference; read-only, so never written or repositioned. */
+        public final MappedByteBuffer buffer;
+        private final ModelRegistry registry;
+        private final Entry entry;
+        private boolean closed;
+
+        Model(ModelRegistry registry, String name, Entry entry) {
+            this.registry = registry;
+            this.name = name;
+            this.entry = entry;
+            this.buffer = entry.buffer;
+        }
+
+        /** SHA-256 of the model file, hashed once per mapping. */
+        public String getSha256() {
+            return entry.sha256();
+        }
+
+        /** Drops this reference; only call once nothing reads the buffer through it any more. */
+        @Override
+        public synchronized void close() {
+            if (closed) return;
+            closed = true;
+            registry.release(name);
+        }
+    }
+}
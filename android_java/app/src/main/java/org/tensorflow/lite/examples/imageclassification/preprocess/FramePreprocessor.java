@@ -0,0 +1,233 @@
+package org.tensorflow.lite.examples.imageclassification.preprocess;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Turns camera frames into model input in one pass: rotation, bilinear resize and conversion to
+ * the input tensor's type happen together, straight into a preallocated direct buffer.
+ *
+ * <p>The sampling positions for each rotation are computed once per frame size and cached, and
+ * the value conversion is a 256-entry table, so {@link #process(int[], int, int, int)} does not
+ * allocate. Frames are ARGB pixels as returned by {@code Bitmap.getPixels()}; output is packed
+ * RGB in row-major order, as expected for an input of shape {@code [1, height, width, 3]}.
+ */
+public final class FramePreprocessor {
+    /** Element type of the input tensor. */
+    public enum OutputType {
+        UINT8(1),
+        FLOAT32(4);
+
+        private final int bytes;
+
+        OutputType(int bytes) {
+            this.bytes = bytes;
+        }
+
+        public int bytes() {
+            return bytes;
+        }
+    }
+
+    private static final int CHANNELS = 3;
+    // Bilinear weights are fixed point with this many fractional bits
+    private static final int WEIGHT_BITS = 8;
+    private static final int WEIGHT_ONE = 1 << WEIGHT_BITS;
+
+    private final int width;
+    private final int height;
+    private final OutputType type;
+    private final ByteBuffer output;
+    private final byte[] byteTable = new byte[256];
+    private final float[] floatTable = new float[256];
+    private final Sampling[] samplings = new Sampling[4];
+
+    private int sourceWidth;
+    private int sourceHeight;
+
+    /** Raw 0-255 values, for quantized models that take pixels as they are. */
+    public FramePreprocessor(int width, int height) {
+        this(width, height, OutputType.UINT8, 0f, 1f, 1f, 0);
+    }
+
+    /** {@code (value - mean) / std} as floats, for float models. */
+    public FramePreprocessor(int width, int height, float mean, float std) {
+        this(width, height, OutputType.FLOAT32, mean, std, 1f, 0);
+    }
+
+    /**
+     * {@code (value - mean) / std} quantized with {@code scale} and {@code zeroPoint}, for
+     * quantized models whose input is not raw pixels.
+     */
+    public FramePreprocessor(int width, int height, float mean, float std, float scale,
+                             int zeroPoint) {
+        this(width, height, OutputType.UINT8, mean, std, scale, zeroPoint);
+    }
+
+    private FramePreprocessor(int width, int height, OutputType type, float mean, float std,
+                              float scale, int zeroPoint) {
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("empty input size");
+        if (std == 0f || scale == 0f) throw new IllegalArgumentException("zero std or scale");
+        this.width = width;
+        this.height = height;
+        this.type = type;
+        output = ByteBuffer.allocateDirect(width * height * CHANNELS * type.bytes())
+                .order(ByteOrder.nativeOrder());
+        for (int value = 0; value < 256; value++) {
+            float normalized = (value - mean) / std;
+            floatTable[value] = normalized;
+            int quantized = Math.round(normalized / scale) + zeroPoint;
+            byteTable[value] = (byte) Math.max(0, Math.min(255, quantized));
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public OutputType getOutputType() {
+        return type;
+    }
+
+    /** Buffer the input is written to; its contents change with every {@link #process}. */
+    public ByteBuffer getOutput() {
+        return output;
+    }
+
+    /**
+     * Rotates the {@code sourceWidth x sourceHeight} frame clockwise by {@code rotationDegrees}
+     * (a multiple of 90), resizes it to the input size and writes it to {@link #getOutput()}.
+     */
+    public ByteBuffer process(int[] argb, int sourceWidth, int sourceHeight, int rotationDegrees) {
+        if (argb.length < sourceWidth * sourceHeight) {
+            throw new IllegalArgumentException("frame has fewer pixels than its size");
+        }
+        if (sourceWidth != this.sourceWidth || sourceHeight != this.sourceHeight) {
+            // Cached sampling positions are only valid for one frame size
+            this.sourceWidth = sourceWidth;
+            this.sourceHeight = sourceHeight;
+            for (int i = 0; i < samplings.length; i++) {
+                samplings[i] = null;
+            }
+        }
+        int quarter = quarterTurns(rotationDegrees);
+        Sampling sampling = samplings[quarter];
+        if (sampling == null) {
+            sampling = new Sampling(quarter, sourceWidth, sourceHeight, width, height);
+            samplings[quarter] = sampling;
+        }
+
+        int position = 0;
+        for (int y = 0; y < height; y++) {
+            int row0 = sampling.row0[y];
+            int row1 = sampling.row1[y];
+            int wy = sampling.rowWeight[y];
+            for (int x = 0; x < width; x++) {
+                int col0 = sampling.col0[x];
+                int col1 = sampling.col1[x];
+                int wx = sampling.colWeight[x];
+                int p00 = argb[row0 + col0];
+                int p01 = argb[row0 + col1];
+                int p10 = argb[row1 + col0];
+                int p11 = argb[row1 + col1];
+                for (int shift = 16; shift >= 0; shift -= 8) {
+                    int top = lerp((p00 >> shift) & 0xff, (p01 >> shift) & 0xff, wx);
+                    int bottom = lerp((p10 >> shift) & 0xff, (p11 >> shift) & 0xff, wx);
+                    int value = lerp(top, bottom, wy);
+                    if (type == OutputType.UINT8) {
+                        output.put(position, byteTable[value]);
+                        position++;
+                    } else {
+                        output.putFloat(position, floatTable[value]);
+                        position += 4;
+                    }
+                }
+            }
+        }
+        output.rewind();
+        return output;
+    }
+
+    private static int lerp(int a, int b, int weight) {
+        return (a * (WEIGHT_ONE - weight) + b * weight + WEIGHT_ONE / 2) >> WEIGHT_BITS;
+    }
+
+    private static int quarterTurns(int rotationDegrees) {
+        int degrees = ((rotationDegrees % 360) + 360) % 360;
+        if (degrees % 90 != 0) {
+            throw new IllegalArgumentException("rotation must be a multiple of 90: "
+                    + rotationDegrees);
+        }
+        return degrees / 90;
+    }
+
+    /**
+     * Source offsets and weights for one rotation. Rotating maps the rotated image's x and y
+     * axes onto source strides, so the index of a sample splits into a column and a row part.
+     */
+    private static final class Sampling {
+        final int[] col0;
+        final int[] col1;
+        final int[] colWeight;
+        final int[] row0;
+        final int[] row1;
+        final int[] rowWeight;
+
+        Sampling(int quarter, int sourceWidth, int sourceHeight, int width, int height) {
+            boolean swap = quarter % 2 == 1;
+            int rotatedWidth = swap ? sourceHeight : sourceWidth;
+            int rotatedHeight = swap ? sourceWidth : sourceHeight;
+            // Source index of rotated pixel (x, y) is base + x * xStride + y * yStride
+            int base;
+            int xStride;
+            int yStride;
+            switch (quarter) {
+                case 1:
+                    base = (sourceHeight - 1) * sourceWidth;
+                    xStride = -sourceWidth;
+                    yStride = 1;
+                    break;
+                case 2:
+                    base = sourceHeight * sourceWidth - 1;
+                    xStride = -1;
+                    yStride = -sourceWidth;
+                    break;
+                case 3:
+                    base = sourceWidth - 1;
+                    xStride = sourceWidth;
+                    yStride = -1;
+                    break;
+                default:
+                    base = 0;
+                    xStride = 1;
+                    yStride = sourceWidth;
+            }
+            col0 = new int[width];
+            col1 = new int[width];
+            colWeight = new int[width];
+            fill(rotatedWidth, width, xStride, base, col0, col1, colWeight);
+            row0 = new int[height];
+            row1 = new int[height];
+            rowWeight = new int[height];
+            fill(rotatedHeight, height, yStride, 0, row0, row1, rowWeight);
+        }
+
+        private static void fill(int sourceSize, int size, int stride, int base,
+                                 int[] first, int[] second, int[] weight) {
+            float step = (float) sourceSize / size;
+            for (int i = 0; i < size; i++) {
+                // Sample at pixel centres, as a bilinear resize does
+                float position = Math.max(0f, (i + 0.5f) * step - 0.5f);
+                int lower = Math.min((int) position, sourceSize - 1);
+                int upper = Math.min(lower + 1, sourceSize - 1);
+                first[i] = base + lower * stride;
+                second[i] = base + upper * stride;
+                weight[i] = Math.round((position - lower) * WEIGHT_ONE);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.tensorflow.lite.examples.imageclassification.preprocess;
+
+import android.graphics.Bitmap;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.schema.TensorType;
+import org.tensorflow.lite.support.image.ColorSpaceType;
+import org.tensorflow.lite.support.image.TensorImage;
+import org.tensorflow.lite.support.metadata.MetadataExtractor;
+import org.tensorflow.lite.support.metadata.schema.NormalizationOptions;
+import org.tensorflow.lite.support.metadata.schema.ProcessUnit;
+import org.tensorflow.lite.support.metadata.schema.ProcessUnitOptions;
+import org.tensorflow.lite.support.metadata.schema.TensorMetadata;
+import org.tensorflow.lite.support.tensorbuffer.TensorBuffer;
+
+/**
+ * Reusable input of one model: a {@link TensorImage} that wraps the output buffer of a
+ * {@link FramePreprocessor}, so every frame is written into the same memory the classifier reads.
+ */
+public final class ModelInput {
+    private final FramePreprocessor preprocessor;
+    private final TensorImage tensorImage;
+    private int[] pixels = new int[0];
+
+    public ModelInput(FramePreprocessor preprocessor) {
+        this.preprocessor = preprocessor;
+        DataType dataType = preprocessor.getOutputType() == FramePreprocessor.OutputType.UINT8
+                ? DataType.UINT8
+                : DataType.FLOAT32;
+        TensorBuffer buffer = TensorBuffer.createDynamic(dataType);
+        // Wraps the preprocessor's buffer without copying it
+        buffer.loadBuffer(preprocessor.getOutput(),
+                new int[] {1, preprocessor.getHeight(), preprocessor.getWidth(), 3});
+        tensorImage = new TensorImage(dataType);
+        tensorImage.load(buffer, ColorSpaceType.RGB);
+    }
+
+    /**
+     * Input for {@code model}, sized and typed like its first input tensor, which must be an RGB
+     * image of shape {@code [1, height, width, 3]}. Quantized inputs take raw pixels, as the
+     * quantization folds in the normalization; float inputs are normalized with the mean and
+     * std of the model's metadata, if it has any.
+     */
+    public static ModelInput forModel(ByteBuffer model) {
+        // The buffer may be shared with interpreters, so its position must not move
+        MetadataExtractor metadata = new MetadataExtractor(model.duplicate());
+        int[] shape = metadata.getInputTensorShape(0);
+        if (shape.length != 4 || shape[0] != 1 || shape[3] != 3) {
+            throw new IllegalArgumentException("Not an RGB image input: " + Arrays.toString(shape));
+        }
+        int height = shape[1];
+        int width = shape[2];
+        byte type = metadata.getInputTensorType(0);
+        switch (type) {
+            case TensorType.UINT8:
+                return new ModelInput(new FramePreprocessor(width, height));
+            case TensorType.FLOAT32:
+                float[] normalization = normalizationOf(metadata);
+                return new ModelInput(
+                        new FramePreprocessor(width, height, normalization[0], normalization[1]));
+            default:
+                throw new IllegalArgumentException(
+                        "Unsupported input type " + TensorType.name(type));
+        }
+    }
+
+    /** Mean and std of the input's normalization, or the identity if the metadata has none. */
+    private static float[] normalizationOf(MetadataExtractor metadata) {
+        TensorMetadata tensor = metadata.hasMetadata() ? metadata.getInputTensorMetadata(0) : null;
+        for (int i = 0; tensor != null && i < tensor.processUnitsLength(); i++) {
+            ProcessUnit unit = tensor.processUnits(i);
+            if (unit.optionsType() != ProcessUnitOptions.NormalizationOptions) continue;
+            NormalizationOptions options =
+                    (NormalizationOptions) unit.options(new NormalizationOptions());
+            // One value for all channels, or one per channel; the preprocessor takes one
+            return new float[] {options.mean(0), options.std(0)};
+        }
+        return new float[] {0f, 1f};
+    }
+
+    public FramePreprocessor getPreprocessor() {
+        return preprocessor;
+    }
+
+    /**
+     * Rotates and resizes {@code frame} into the model input. The returned image is reused and
+     * only valid until the next call.
+     */
+    public TensorImage process(Bitmap frame, int rotationDegrees) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        if (pixels.length < width * height) {
+            pixels = new int[width * height];
+        }
+        frame.getPixels(pixels, 0, width, 0, 0, width, height);
+        preprocessor.process(pixels, width, height, rotationDegrees);
+        return tensorImage;
+    }
+}
@@ -0,0 +1,74 @@
+package org.tensorflow.lite.examples.imageclassification.replay;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Replays a {@link FrameFile} into the bitmaps the classifiers read, and records directories of
+ * images into frame files.
+ */
+public final class BitmapFrames implements FrameReplayer.FrameReader<Bitmap> {
+    private final FrameFile file;
+    private final ByteBuffer view;
+
+    public BitmapFrames(FrameFile file) {
+        this.file = file;
+        this.view = file.newView();
+    }
+
+    @Override
+    public Bitmap read(int index, Bitmap bitmap) {
+        if (bitmap == null
+                || bitmap.getWidth() != file.getWidth()
+                || bitmap.getHeight() != file.getHeight()) {
+            // Slots keep their bitmap, so this only allocates on first use
+            bitmap = Bitmap.createBitmap(
+                    file.getWidth(), file.getHeight(), Bitmap.Config.ARGB_8888);
+        }
+        // The same copy the camera analyzer makes from an RGBA_8888 image
+        bitmap.copyPixelsFromBuffer(file.select(view, index));
+        return bitmap;
+    }
+
+    /**
+     * Records the images in {@code directory}, in name order, as the upright frames of a new
+     * {@code frameFile}. Images are scaled to the size of the first; other files are skipped.
+     */
+    public static void record(File directory, File frameFile) throws IOException {
+        File[] images = directory.listFiles();
+        if (images == null) throw new IOException("cannot list " + directory);
+        Arrays.sort(images);
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        FrameFile.Writer writer = null;
+        ByteBuffer pixels = null;
+        try {
+            for (File image : images) {
+                Bitmap decoded = BitmapFactory.decodeFile(image.getPath(), options);
+                if (decoded == null) continue;
+                if (writer == null) {
+                    writer = new FrameFile.Writer(
+                            frameFile, decoded.getWidth(), decoded.getHeight(), 0);
+                    pixels = ByteBuffer.allocateDirect(decoded.getByteCount());
+                }
+                // Returns the decoded bitmap itself if it already has the size
+                Bitmap frame = Bitmap.createScaledBitmap(
+                        decoded, writer.getWidth(), writer.getHeight(), true);
+                pixels.clear();
+                frame.copyPixelsToBuffer(pixels);
+                pixels.flip();
+                writer.append(pixels);
+                decoded.recycle();
+                frame.recycle();
+            }
+        } finally {
+            if (writer != null) writer.close();
+        }
+        if (writer == null) throw new IOException("no images in " + directory);
+    }
+}
@@ -0,0 +1,204 @@
+package org.tensorflow.lite.examples.imageclassification.replay;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A recording of raw RGBA frames, memory-mapped for replay.
+ *
+ * <pre>
+ * header: i32 magic "RGBF", i32 version, i32 width, i32 height, i32 rotation (little-endian)
+ * frame:  width * height * 4 bytes, R, G, B, A per pixel, rows top to bottom
+ * </pre>
+ * Frames are laid out like an RGBA_8888 camera image, so a frame is copied into a bitmap as it
+ * is. The frame count follows from the file size, so a recording cut short still replays up to
+ * its last complete frame. Reads do not allocate and the mapping is shared by every reader.
+ */
+public final class FrameFile {
+    public static final String EXTENSION = ".rgba";
+    public static final int MAGIC = 0x46424752;
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 20;
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final MappedByteBuffer mapped;
+    private final int width;
+    private final int height;
+    private final int rotation;
+    private final int frameBytes;
+    private final int frameCount;
+
+    private FrameFile(MappedByteBuffer mapped, int width, int height, int rotation,
+                      int frameCount) {
+        this.mapped = mapped;
+        this.width = width;
+        this.height = height;
+        this.rotation = rotation;
+        this.frameBytes = width * height * BYTES_PER_PIXEL;
+        this.frameCount = frameCount;
+    }
+
+    /** Maps {@code file}; throws if it is not a frame file or holds no complete frame. */
+    public static FrameFile open(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            if (size < HEADER_BYTES) throw new IOException(file + " is not a frame file");
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (mapped.getInt(0) != MAGIC) throw new IOException(file + " is not a frame file");
+            if (mapped.getInt(4) != VERSION) {
+                throw new IOException(file + " has unknown version " + mapped.getInt(4));
+            }
+            int width = mapped.getInt(8);
+            int height = mapped.getInt(12);
+            if (width <= 0 || height <= 0) throw new IOException(file + " has no frame size");
+            long frameBytes = (long) width * height * BYTES_PER_PIXEL;
+            long frameCount = (size - HEADER_BYTES) / frameBytes;
+            if (frameCount == 0) throw new IOException(file + " holds no complete frame");
+            return new FrameFile(mapped, width, height, mapped.getInt(16), (int) frameCount);
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /** Clockwise rotation that turns the frames upright, as reported by the camera. */
+    public int getRotation() {
+        return rotation;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    public int getFrameBytes() {
+        return frameBytes;
+    }
+
+    /** A view of the mapping for one thread to read frames through with {@link #select}. */
+    public ByteBuffer newView() {
+        return mapped.duplicate();
+    }
+
+    /** Narrows {@code view} to frame {@code index}, so its remaining bytes are the pixels. */
+    public ByteBuffer select(ByteBuffer view, int index) {
+        int start = offset(index);
+        view.limit(start + frameBytes);
+        view.position(start);
+        return view;
+    }
+
+    /** Copies frame {@code index} into {@code argb} as the ARGB ints of a bitmap's pixels. */
+    public void readArgb(int index, int[] argb) {
+        if (argb.length < width * height) {
+            throw new IllegalArgumentException("buffer has fewer pixels than a frame");
+        }
+        int position = offset(index);
+        for (int i = 0; i < width * height; i++, position += BYTES_PER_PIXEL) {
+            argb[i] = swapRedBlue(mapped.getInt(position));
+        }
+    }
+
+    // Converts between ARGB ints and RGBA bytes as little-endian ints, 0xAABBGGRR
+    private static int swapRedBlue(int pixel) {
+        return (pixel & 0xff00ff00) | ((pixel & 0xff) << 16) | ((pixel >> 16) & 0xff);
+    }
+
+    private int offset(int index) {
+        if (index < 0 || index >= frameCount) {
+            throw new IndexOutOfBoundsException("frame " + index + " of " + frameCount);
+        }
+        return HEADER_BYTES + index * frameBytes;
+    }
+
+    /** Records frames into a new frame file, one {@link #append} per frame. */
+    public static final class Writer implements Closeable {
+        private final FileChannel channel;
+        private final int width;
+        private final int height;
+        private final int frameBytes;
+        private ByteBuffer converted;
+        private int frameCount;
+
+        public Writer(File file, int width, int height, int rotation) throws IOException {
+            if (width <= 0 || height <= 0) throw new IllegalArgumentException("empty frame size");
+            this.width = width;
+            this.height = height;
+            this.frameBytes = width * height * BYTES_PER_PIXEL;
+            channel = new FileOutputStream(file).getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).putInt(rotation);
+            header.flip();
+            try {
+                write(header);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public int getFrameCount() {
+            return frameCount;
+        }
+
+        /** Appends the RGBA bytes remaining in {@code rgba}, exactly one frame of them. */
+        public void append(ByteBuffer rgba) throws IOException {
+            if (rgba.remaining() != frameBytes) {
+                throw new IllegalArgumentException(
+                        rgba.remaining() + " bytes for a frame of " + frameBytes);
+            }
+            write(rgba);
+            frameCount++;
+        }
+
+        /** Appends a frame of ARGB ints, as from {@code Bitmap.getPixels()}. */
+        public void appendArgb(int[] argb) throws IOException {
+            if (argb.length < width * height) {
+                throw new IllegalArgumentException("frame has fewer pixels than its size");
+            }
+            if (converted == null) {
+                converted = ByteBuffer.allocateDirect(frameBytes)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+            }
+            converted.clear();
+            for (int i = 0; i < width * height; i++) {
+                converted.putInt(swapRedBlue(argb[i]));
+            }
+            converted.flip();
+            append(converted);
+        }
+
+        private void write(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.tensorflow.lite.examples.imageclassification.replay;
+
+import java.util.concurrent.locks.LockSupport;
+import org.tensorflow.lite.examples.imageclassification.fragments.FrameRing;
+import org.tensorflow.lite.examples.imageclassification.fragments.FrameSink;
+
+/**
+ * Plays a recording into a {@link FrameSink} in place of the camera, so experiments are
+ * reproducible and run without one.
+ *
+ * <p>Frames are published in order, looping over the recording, either every period or as fast
+ * as the classifiers take them. Periodic frames are due on an absolute schedule, so a late frame
+ * does not delay the ones after it. Unpaced frames wait for the previous one to be acquired, so
+ * none is skipped and the replay does not spin while nobody classifies. As with the camera, a
+ * frame is dropped if every buffer is in use. {@link #run()} produces the frames on the calling thread and returns after the last loop,
+ * or once the thread is interrupted.
+ */
+public final class FrameReplayer<T> implements Runnable {
+    /** Copies frames of a recording into frame buffers. */
+    public interface FrameReader<T> {
+        /**
+         * Writes frame {@code index} into {@code buffer}, or into a new buffer if it is null or
+         * of another size. Returns the buffer written.
+         */
+        T read(int index, T buffer);
+    }
+
+    private final FrameSink<T> sink;
+    private final FrameReader<T> reader;
+    private final int frameCount;
+    private final int rotation;
+    private long periodNanos;
+    private int loops;
+    private volatile long replayedCount;
+
+    /** Replays {@code frameCount} frames of {@code reader}, captured at {@code rotation}. */
+    public FrameReplayer(FrameSink<T> sink, FrameReader<T> reader, int frameCount, int rotation) {
+        if (frameCount <= 0) throw new IllegalArgumentException("nothing to replay");
+        this.sink = sink;
+        this.reader = reader;
+        this.frameCount = frameCount;
+        this.rotation = rotation;
+    }
+
+    /**
+     * Publishes a frame every {@code periodNanos}; 0, the default, for as fast as the sink's
+     * consumers acquire them.
+     */
+    public FrameReplayer<T> setPeriodNanos(long periodNanos) {
+        if (periodNanos < 0) throw new IllegalArgumentException("negative period");
+        this.periodNanos = periodNanos;
+        return this;
+    }
+
+    /** Plays the recording {@code loops} times; 0, the default, to loop until interrupted. */
+    public FrameReplayer<T> setLoops(int loops) {
+        if (loops < 0) throw new IllegalArgumentException("negative loops");
+        this.loops = loops;
+        return this;
+    }
+
+    /** Frames published so far, not counting dropped ones. */
+    public long getReplayedCount() {
+        return replayedCount;
+    }
+
+    @Override
+    public void run() {
+        long frames = loops == 0 ? Long.MAX_VALUE : (long) loops * frameCount;
+        long due = System.nanoTime();
+        for (long n = 0; n < frames; n++) {
+            if (periodNanos > 0) {
+                for (long wait = due - System.nanoTime(); wait > 0;
+                     wait = due - System.nanoTime()) {
+                    LockSupport.parkNanos(this, wait);
+                    if (Thread.currentThread().isInterrupted()) return;
+                }
+                due += periodNanos;
+            } else {
+                sink.awaitAcquired();
+            }
+            if (Thread.currentThread().isInterrupted()) return;
+
+            FrameRing.Slot<T> slot = sink.claim();
+            if (slot == null) continue;
+            try {
+                slot.setBuffer(reader.read((int) (n % frameCount), slot.getBuffer()));
+            } catch (RuntimeException e) {
+                sink.abort(slot);
+                throw e;
+            }
+            slot.setPublishNanos(System.nanoTime());
+            sink.publish(slot, rotation);
+            replayedCount++;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.tensorflow.lite.examples.imageclassification.replay;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.tensorflow.lite.examples.imageclassification.fragments.FrameRing;
+import org.tensorflow.lite.examples.imageclassification.preprocess.FramePreprocessor;
+import org.tensorflow.lite.examples.imageclassification.scheduler.InferenceBackend;
+import org.tensorflow.lite.examples.imageclassification.scheduler.PeriodicTask;
+
+/**
+ * Runs classification tasks on replayed frames on the JVM. Each job takes the latest frame, turns
+ * it into its model's input like the app does, and hands the inference to a stub classifier such
+ * as a {@code SimulatedBackend}. With a {@link FrameReplayer} feeding the frames and a
+ * {@code TaskScheduler} releasing the jobs, a multi-model experiment runs on a host the same way
+ * every time.
+ */
+public class ReplayBackend implements InferenceBackend {
+    public static final int DEFAULT_INPUT_SIZE = 224;
+
+    private final FrameRing<int[]> frames;
+    private final int frameWidth;
+    private final int frameHeight;
+    private final InferenceBackend classifier;
+    private final Map<String, Integer> inputSizes = new ConcurrentHashMap<>();
+    // One per task, since a task runs one job at a time but tasks run in parallel
+    private final Map<Integer, FramePreprocessor> inputs = new ConcurrentHashMap<>();
+    private final AtomicLong classifiedFrames = new AtomicLong();
+    private final AtomicLong missingFrames = new AtomicLong();
+
+    /** Classifies the {@code frameWidth x frameHeight} ARGB frames of {@code frames}. */
+    public ReplayBackend(FrameRing<int[]> frames, int frameWidth, int frameHeight,
+                         InferenceBackend classifier) {
+        this.frames = frames;
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.classifier = classifier;
+    }
+
+    /** Sets the square input size of {@code model}; {@link #DEFAULT_INPUT_SIZE} otherwise. */
+    public ReplayBackend setInputSize(String model, int size) {
+        inputSizes.put(model, size);
+        return this;
+    }
+
+    @Override
+    public void infer(PeriodicTask task) throws InterruptedException {
+        FrameRing.Slot<int[]> frame = frames.acquireLatest();
+        if (frame == null) {
+            // Nothing replayed yet; the job still runs so its timing is not skewed
+            missingFrames.incrementAndGet();
+        } else {
+            try {
+                inputFor(task).process(
+                        frame.getBuffer(), frameWidth, frameHeight, frame.getRotation());
+            } finally {
+                frames.release(frame);
+            }
+            classifiedFrames.incrementAndGet();
+        }
+        classifier.infer(task);
+    }
+
+    private FramePreprocessor inputFor(PeriodicTask task) {
+        FramePreprocessor input = inputs.get(task.getId());
+        if (input == null) {
+            Integer size = inputSizes.get(task.getModel());
+            int side = size != null ? size : DEFAULT_INPUT_SIZE;
+            input = new FramePreprocessor(side, side);
+            inputs.put(task.getId(), input);
+        }
+        return input;
+    }
+
+    /** Jobs that classified a replayed frame. */
+    public long getClassifiedFrames() {
+        return classifiedFrames.get();
+    }
+
+    /** Jobs that ran before any frame was replayed. */
+    public long getMissingFrames() {
+        return missingFrames.get();
+    }
+}
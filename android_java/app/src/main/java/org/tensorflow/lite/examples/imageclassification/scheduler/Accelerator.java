@@ -0,0 +1,16 @@
+package org.tensorflow.lite.examples.imageclassification.scheduler;
+
+/** Hardware an inference runs on; each has its own run queue. */
+public enum Accelerator {
+    CPU,
+    GPU,
+    NPU;
+
+    /** Accelerator of a delegate name as shown in the UI and logs, e.g. "GPU". */
+    public static Accelerator fromName(String name) {
+        for (Accelerator accelerator : values()) {
+            if (accelerator.name().equalsIgnoreCase(name)) return accelerator;
+        }
+        throw new IllegalArgumentException("Unknown accelerator " + name);
+    }
+}
@@ -0,0 +1,6 @@
+package org.tensorflow.lite.examples.imageclassification.scheduler;
+
+/** Runs one inference of a task; called on the task's accelerator thread. */
+public interface InferenceBackend {
+    void infer(PeriodicTask task) throws InterruptedException;
+}
@@ -0,0 +1,34 @@
+package org.tensorflow.lite.examples.imageclassification.scheduler;
+
+/** One release of a {@link PeriodicTask}, waiting in or taken from a run queue. */
+public final class Job {
+    private final PeriodicTask task;
+    private final long releaseNanos;
+    private final long deadlineNanos;
+    private final long order;
+
+    public Job(PeriodicTask task, long releaseNanos, long order) {
+        this.task = task;
+        this.releaseNanos = releaseNanos;
+        this.deadlineNanos = releaseNanos + task.getDeadlineNanos();
+        this.order = order;
+    }
+
+    public PeriodicTask getTask() {
+        return task;
+    }
+
+    public long getReleaseNanos() {
+        return releaseNanos;
+    }
+
+    /** Absolute deadline on the {@link System#nanoTime()} clock. */
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    /** Position among all jobs released by the scheduler, used to break ties. */
+    public long getOrder() {
+        return order;
+    }
+}
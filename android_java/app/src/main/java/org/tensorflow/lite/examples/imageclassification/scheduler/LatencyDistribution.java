@@ -0,0 +1,72 @@
+package org.tensorflow.lite.examples.imageclassification.scheduler;
+
+import java.util.Locale;
+import java.util.Random;
+
+/** Distribution of simulated inference latencies. */
+public interface LatencyDistribution {
+    long sampleNanos(Random random);
+
+    static LatencyDistribution constant(final long nanos) {
+        return random -> nanos;
+    }
+
+    /** Uniform between {@code minNanos} and {@code maxNanos}. */
+    static LatencyDistribution uniform(final long minNanos, final long maxNanos) {
+        if (maxNanos < minNanos) throw new IllegalArgumentException("max below min");
+        return random -> minNanos + (long) (random.nextDouble() * (maxNanos - minNanos));
+    }
+
+    /** Normal, cut off at 0. */
+    static LatencyDistribution normal(final long meanNanos, final long stdNanos) {
+        return random -> Math.max(0, Math.round(meanNanos + random.nextGaussian() * stdNanos));
+    }
+
+    /**
+     * Log-normal with the given median, which gives the long right tail inference latencies
+     * tend to have. {@code sigma} is the standard deviation of the logarithm.
+     */
+    static LatencyDistribution logNormal(final long medianNanos, final double sigma) {
+        return random -> Math.round(medianNanos * Math.exp(random.nextGaussian() * sigma));
+    }
+
+    /**
+     * Parses {@code constant:T}, {@code uniform:MIN:MAX}, {@code normal:MEAN:STD} or
+     * {@code lognormal:MEDIAN:SIGMA}, where times take a unit of ns, us, ms or s, e.g.
+     * {@code normal:20ms:2ms}.
+     */
+    static LatencyDistribution parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        String kind = parts[0].toLowerCase(Locale.US);
+        int arguments = kind.equals("constant") ? 1 : 2;
+        if (parts.length != arguments + 1) {
+            throw new IllegalArgumentException("Bad latency distribution " + spec);
+        }
+        switch (kind) {
+            case "constant":
+                return constant(parseNanos(parts[1]));
+            case "uniform":
+                return uniform(parseNanos(parts[1]), parseNanos(parts[2]));
+            case "normal":
+                return normal(parseNanos(parts[1]), parseNanos(parts[2]));
+            case "lognormal":
+                return logNormal(parseNanos(parts[1]), Double.parseDouble(parts[2]));
+            default:
+                throw new IllegalArgumentException("Bad latency distribution " + spec);
+        }
+    }
+
+    /** Parses a duration such as {@code 250us} or {@code 20ms} into nanoseconds. */
+    static long parseNanos(String value) {
+        String text = value.trim().toLowerCase(Locale.US);
+        String[] units = {"ns", "us", "ms", "s"};
+        long[] scales = {1L, 1000L, 1000000L, 1000000000L};
+        for (int i = 0; i < units.length; i++) {
+            if (text.endsWith(units[i])) {
+                String number = text.substring(0, text.length() - units[i].length());
+                return Math.round(Double.parseDouble(number) * scales[i]);
+            }
+        }
+        throw new IllegalArgumentException("Duration needs a unit: " + value);
+    }
+}
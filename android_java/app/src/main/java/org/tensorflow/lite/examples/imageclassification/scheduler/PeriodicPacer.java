@@ -0,0 +1,167 @@
+package org.tensorflow.lite.examples.imageclassification.scheduler;
+
+/**
+ * Release timeline of a periodic task, as in a periodic real-time task model.
+ *
+ * <p>Job {@code k} is released at {@code origin + k * period} on the {@link System#nanoTime()}
+ * clock, however long earlier jobs took, so pacing never drifts. A job that overruns makes the
+ * releases it covered late, not queued: the next job is released at the latest grid point
+ * already passed and the ones before it are counted as skipped.
+ *
+ * <p>The caller waits {@link #delayNanos(long)} (suspending rather than blocking), then brackets
+ * the job with {@link #onStart(long)} and {@link #onFinish(long)}. For each job this records the
+ * release jitter (start minus release), the response time (finish minus release) and whether
+ * the deadline was missed. The relative deadline is the period unless set shorter. A period of 0
+ * releases every job as soon as the previous one finishes and has no deadline.
+ *
+ * <p>Driven by one thread; the statistics can be read from any thread.
+ */
+public final class PeriodicPacer {
+    private long periodNanos;
+    private long deadlineNanos;
+    private long origin;
+    private long release;
+    private long index;
+    private boolean started;
+
+    private volatile long jobs;
+    private volatile long deadlineMisses;
+    private volatile long skippedReleases;
+    private volatile long lastJitterNanos;
+    private volatile long maxJitterNanos;
+    private volatile long totalJitterNanos;
+    private volatile long lastResponseNanos;
+    private volatile long maxResponseNanos;
+    private volatile long totalResponseNanos;
+
+    public PeriodicPacer(long periodNanos) {
+        setPeriodNanos(periodNanos);
+    }
+
+    public long getPeriodNanos() {
+        return periodNanos;
+    }
+
+    /**
+     * Changes the period from the next release on, which keeps its time; later releases follow
+     * the new period from there.
+     */
+    public void setPeriodNanos(long periodNanos) {
+        if (periodNanos < 0) throw new IllegalArgumentException("negative period");
+        if (periodNanos == this.periodNanos) return;
+        this.periodNanos = periodNanos;
+        origin = release;
+        index = 0;
+    }
+
+    /** Relative deadline of each job; 0 means the period. */
+    public long getDeadlineNanos() {
+        return deadlineNanos == 0 ? periodNanos : deadlineNanos;
+    }
+
+    public void setDeadlineNanos(long deadlineNanos) {
+        if (deadlineNanos < 0) throw new IllegalArgumentException("negative deadline");
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /** Starts the timeline with the first release at {@code nowNanos}. */
+    public void start(long nowNanos) {
+        origin = nowNanos;
+        release = nowNanos;
+        index = 0;
+        started = true;
+    }
+
+    /** Release time of the next job. */
+    public long getReleaseNanos() {
+        return release;
+    }
+
+    /** How long to wait before the next job may start; 0 if it is already released. */
+    public long delayNanos(long nowNanos) {
+        if (!started) start(nowNanos);
+        return Math.max(0, release - nowNanos);
+    }
+
+    /** The released job starts running. */
+    public void onStart(long nowNanos) {
+        long jitter = Math.max(0, nowNanos - release);
+        lastJitterNanos = jitter;
+        totalJitterNanos += jitter;
+        if (jitter > maxJitterNanos) maxJitterNanos = jitter;
+    }
+
+    /** The job finished; moves on to the next release. */
+    public void onFinish(long nowNanos) {
+        long response = nowNanos - release;
+        lastResponseNanos = response;
+        totalResponseNanos += response;
+        if (response > maxResponseNanos) maxResponseNanos = response;
+        jobs++;
+
+        if (periodNanos == 0) {
+            // Unpaced: the next job is released right away
+            origin = nowNanos;
+            release = nowNanos;
+            index = 0;
+            return;
+        }
+        if (response > getDeadlineNanos()) deadlineMisses++;
+        // Released at the latest grid point already passed, or the next one if none was
+        long next = Math.max(index + 1, (nowNanos - origin) / periodNanos);
+        skippedReleases += next - index - 1;
+        index = next;
+        release = origin + next * periodNanos;
+    }
+
+    public void reset() {
+        started = false;
+        jobs = 0;
+        deadlineMisses = 0;
+        skippedReleases = 0;
+        lastJitterNanos = 0;
+        maxJitterNanos = 0;
+        totalJitterNanos = 0;
+        lastResponseNanos = 0;
+        maxResponseNanos = 0;
+        totalResponseNanos = 0;
+    }
+
+    public long getJobs() {
+        return jobs;
+    }
+
+    /** Jobs that finished after their deadline. */
+    public long getDeadlineMisses() {
+        return deadlineMisses;
+    }
+
+    /** Releases that passed while an earlier job was still running. */
+    public long getSkippedReleases() {
+        return skippedReleases;
+    }
+
+    public long getLastJitterNanos() {
+        return lastJitterNanos;
+    }
+
+    public long getMaxJitterNanos() {
+        return maxJitterNanos;
+    }
+
+    public long getAvgJitterNanos() {
+        return totalJitterNanos / Math.max(1, jobs);
+    }
+
+    public long getLastResponseNanos() {
+        return lastResponseNanos;
+    }
+
+    public long getMaxResponseNanos() {
+        return maxResponseNanos;
+    }
+
+    public long getAvgResponseNanos() {
+        return totalResponseNanos / Math.max(1, jobs);
+    }
+}
@@ -0,0 +1,141 @@
+package org.tensorflow.lite.examples.imageclassification.scheduler;
+
+/**
+ * A periodic classification task: one model on one accelerator, released every period and due
+ * a relative deadline after each release.
+ *
+ * <p>The worst-case execution time (WCET) used for admission starts at a declared estimate and
+ * grows to the longest execution measured since, so admission decisions follow what the
+ * hardware actually does. Release timing and response statistics live in the task's
+ * {@link PeriodicPacer}.
+ *
+ * <p>The period can change after admission through {@link TaskScheduler#setPeriod}, e.g. when a
+ * thermal governor stretches it. A deadline equal to the period follows it.
+ */
+public final class PeriodicTask {
+    /** Where the task is in admission. */
+    public enum State {
+        PENDING,
+        ADMITTED,
+        REJECTED,
+        REMOVED
+    }
+
+    private final int id;
+    private final String model;
+    private final Accelerator accelerator;
+    private final PeriodicPacer pacer;
+
+    private volatile long periodNanos;
+    private volatile long deadlineNanos;
+    private volatile State state = State.PENDING;
+    private volatile long wcetNanos;
+    private volatile long executions;
+    private volatile long totalExecutionNanos;
+
+    /** A task whose deadline is its period. */
+    public PeriodicTask(int id, String model, Accelerator accelerator, long periodNanos) {
+        this(id, model, accelerator, periodNanos, periodNanos, new PeriodicPacer(periodNanos));
+    }
+
+    /**
+     * A task with a constrained deadline ({@code 0 < deadline <= period}) whose timing is
+     * recorded in {@code pacer}, e.g. one a classifier already reports.
+     */
+    public PeriodicTask(int id, String model, Accelerator accelerator, long periodNanos,
+                        long deadlineNanos, PeriodicPacer pacer) {
+        if (periodNanos <= 0) throw new IllegalArgumentException("period must be positive");
+        if (deadlineNanos <= 0 || deadlineNanos > periodNanos) {
+            throw new IllegalArgumentException("deadline must be within the period");
+        }
+        this.id = id;
+        this.model = model;
+        this.accelerator = accelerator;
+        this.periodNanos = periodNanos;
+        this.deadlineNanos = deadlineNanos;
+        this.pacer = pacer;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public Accelerator getAccelerator() {
+        return accelerator;
+    }
+
+    public long getPeriodNanos() {
+        return periodNanos;
+    }
+
+    /** Relative deadline. */
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    /** Called by the task's accelerator thread only. */
+    void setPeriodNanos(long periodNanos) {
+        if (periodNanos <= 0) throw new IllegalArgumentException("period must be positive");
+        // An implicit deadline stays implicit; a constrained one stays within the period
+        deadlineNanos = deadlineNanos == this.periodNanos
+                ? periodNanos : Math.min(deadlineNanos, periodNanos);
+        this.periodNanos = periodNanos;
+    }
+
+    public PeriodicPacer getPacer() {
+        return pacer;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    void setState(State state) {
+        this.state = state;
+    }
+
+    /** WCET used for admission: the declared estimate or the longest execution measured. */
+    public long getWcetNanos() {
+        return wcetNanos;
+    }
+
+    /** Declares a WCET estimate; measurements can only raise it. */
+    public PeriodicTask setWcetNanos(long wcetNanos) {
+        this.wcetNanos = Math.max(this.wcetNanos, wcetNanos);
+        return this;
+    }
+
+    /** Share of its accelerator the task needs at its WCET. */
+    public double getUtilization() {
+        return (double) wcetNanos / periodNanos;
+    }
+
+    /**
+     * Records one execution. Returns true if it raised the WCET. Called by the task's
+     * accelerator thread only.
+     */
+    boolean recordExecution(long executionNanos) {
+        executions++;
+        totalExecutionNanos += executionNanos;
+        if (executionNanos <= wcetNanos) return false;
+        wcetNanos = executionNanos;
+        return true;
+    }
+
+    public long getExecutions() {
+        return executions;
+    }
+
+    public long getAvgExecutionNanos() {
+        return totalExecutionNanos / Math.max(1, executions);
+    }
+
+    @Override
+    public String toString() {
+        return "task " + id + " (" + model + " on " + accelerator + ")";
+    }
+}
@@ -0,0 +1,197 @@
+package org.tensorflow.lite.examples.imageclassification.scheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Admission tests for sporadic tasks with constrained deadlines sharing one non-preemptive
+ * processor, in integer nanoseconds. A job that has started blocks a more urgent one for at most
+ * its execution time minus one tick.
+ *
+ * <p>The tests are exact where the analysis is, and reject when a bound cannot be established
+ * cheaply, so an admitted set is always schedulable at the given WCETs.
+ */
+final class SchedulabilityAnalysis {
+    /** Upper limit on deadlines checked by the EDF demand test before giving up. */
+    static final int MAX_CHECKPOINTS = 100000;
+    private static final int MAX_ITERATIONS = 10000;
+
+    static final Comparator<PeriodicTask> RATE_MONOTONIC = (a, b) -> {
+        int result = Long.compare(a.getPeriodNanos(), b.getPeriodNanos());
+        if (result == 0) result = Long.compare(a.getDeadlineNanos(), b.getDeadlineNanos());
+        return result != 0 ? result : Integer.compare(a.getId(), b.getId());
+    };
+
+    private SchedulabilityAnalysis() {
+    }
+
+    static List<PeriodicTask> byRateMonotonicPriority(List<PeriodicTask> tasks) {
+        List<PeriodicTask> sorted = new ArrayList<>(tasks);
+        Collections.sort(sorted, RATE_MONOTONIC);
+        return sorted;
+    }
+
+    private static boolean fitsDeadlines(List<PeriodicTask> tasks) {
+        double utilization = 0;
+        for (PeriodicTask task : tasks) {
+            if (task.getWcetNanos() > task.getDeadlineNanos()) return false;
+            utilization += task.getUtilization();
+        }
+        return utilization <= 1;
+    }
+
+    private static long blocking(long wcet) {
+        return Math.max(0, wcet - 1);
+    }
+
+    /**
+     * Processor demand test for non-preemptive EDF: at every absolute deadline {@code t} up to
+     * the end of the longest busy period, the demand of jobs due by {@code t} plus blocking by a
+     * job due later must fit in {@code t}.
+     */
+    static boolean isEdfSchedulable(List<PeriodicTask> tasks) {
+        if (tasks.isEmpty()) return true;
+        if (!fitsDeadlines(tasks)) return false;
+
+        double utilization = 0;
+        double slack = 0;
+        long maxDeadline = 0;
+        long maxWcet = 0;
+        for (PeriodicTask task : tasks) {
+            utilization += task.getUtilization();
+            slack += (task.getPeriodNanos() - task.getDeadlineNanos()) * task.getUtilization();
+            maxDeadline = Math.max(maxDeadline, task.getDeadlineNanos());
+            maxWcet = Math.max(maxWcet, task.getWcetNanos());
+        }
+        long bound;
+        if (utilization < 1) {
+            bound = Math.max(maxDeadline, (long) Math.ceil((slack + maxWcet) / (1 - utilization)));
+        } else {
+            bound = hyperperiod(tasks);
+            if (bound < 0) return false;
+        }
+
+        long checkpoints = 0;
+        for (PeriodicTask task : tasks) {
+            if (bound >= task.getDeadlineNanos()) {
+                checkpoints += (bound - task.getDeadlineNanos()) / task.getPeriodNanos() + 1;
+            }
+        }
+        if (checkpoints > MAX_CHECKPOINTS) return false;
+
+        for (PeriodicTask task : tasks) {
+            for (long t = task.getDeadlineNanos(); t <= bound; t += task.getPeriodNanos()) {
+                long demand = 0;
+                long blocking = 0;
+                for (PeriodicTask other : tasks) {
+                    long deadline = other.getDeadlineNanos();
+                    if (deadline <= t) {
+                        demand += ((t - deadline) / other.getPeriodNanos() + 1)
+                                * other.getWcetNanos();
+                    } else {
+                        blocking = Math.max(blocking, blocking(other.getWcetNanos()));
+                    }
+                }
+                if (demand + blocking > t) return false;
+            }
+        }
+        return true;
+    }
+
+    /** Least common multiple of the periods, or -1 if it is impractically large. */
+    private static long hyperperiod(List<PeriodicTask> tasks) {
+        long lcm = 1;
+        for (PeriodicTask task : tasks) {
+            long period = task.getPeriodNanos();
+            long gcd = gcd(lcm, period);
+            long factor = period / gcd;
+            if (lcm > Long.MAX_VALUE / factor) return -1;
+            lcm *= factor;
+        }
+        return lcm;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long r = a % b;
+            a = b;
+            b = r;
+        }
+        return a;
+    }
+
+    /**
+     * Response time analysis for non-preemptive fixed priorities, highest priority first in
+     * {@code tasks}. Every job in the level-i busy period is checked, since with blocking the
+     * first job is not necessarily the one that responds slowest.
+     */
+    static boolean isFixedPrioritySchedulable(List<PeriodicTask> tasks) {
+        if (tasks.isEmpty()) return true;
+        if (!fitsDeadlines(tasks)) return false;
+
+        for (int i = 0; i < tasks.size(); i++) {
+            PeriodicTask task = tasks.get(i);
+            long wcet = task.getWcetNanos();
+            long blocking = 0;
+            for (int k = i + 1; k < tasks.size(); k++) {
+                blocking = Math.max(blocking, blocking(tasks.get(k).getWcetNanos()));
+            }
+
+            // Length of the level-i busy period
+            long busy = blocking + wcet;
+            for (int iteration = 0; ; iteration++) {
+                if (iteration == MAX_ITERATIONS) return false;
+                long next = blocking;
+                for (int j = 0; j <= i; j++) {
+                    PeriodicTask other = tasks.get(j);
+                    next += ceilDiv(busy, other.getPeriodNanos()) * other.getWcetNanos();
+                }
+                if (next == busy) break;
+                busy = next;
+            }
+            long jobs = Math.max(1, ceilDiv(busy, task.getPeriodNanos()));
+            if (jobs > MAX_ITERATIONS) return false;
+
+            for (long q = 0; q < jobs; q++) {
+                // Latest start of job q: blocking, earlier jobs of this task and every
+                // higher-priority job released up to that start
+                long start = blocking + q * wcet;
+                for (int iteration = 0; ; iteration++) {
+                    if (iteration == MAX_ITERATIONS) return false;
+                    long next = blocking + q * wcet;
+                    for (int j = 0; j < i; j++) {
+                        PeriodicTask other = tasks.get(j);
+                        next += (start / other.getPeriodNanos() + 1) * other.getWcetNanos();
+                    }
+                    if (next == start) break;
+                    start = next;
+                }
+                long response = start + wcet - q * task.getPeriodNanos();
+                if (response > task.getDeadlineNanos()) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Release-order test. Each task has at most one job pending, so a job waits at most for one
+     * job of every other task.
+     */
+    static boolean isFifoSchedulable(List<PeriodicTask> tasks) {
+        if (!fitsDeadlines(tasks)) return false;
+        long total = 0;
+        for (PeriodicTask task : tasks) {
+            total += task.getWcetNanos();
+        }
+        for (PeriodicTask task : tasks) {
+            if (total > task.getDeadlineNanos()) return false;
+        }
+        return true;
+    }
+
+    private static long ceilDiv(long a, long b) {
+        return (a + b - 1) / b;
+    }
+}
@@ -0,0 +1,16 @@
+package org.tensorflow.lite.examples.imageclassification.scheduler;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Decides which released job an accelerator runs next and which task sets it can take on.
+ * Inferences cannot be preempted, so both assume non-preemptive execution.
+ */
+public interface SchedulingPolicy {
+    /** Order of the released jobs of one accelerator; the first one runs next. */
+    Comparator<Job> getOrder();
+
+    /** Whether {@code tasks}, sharing one accelerator, always meet their deadlines at their WCETs. */
+    boolean isSchedulable(List<PeriodicTask> tasks);
+}
@@ -0,0 +1,53 @@
+package org.tensorflow.lite.examples.imageclassification.scheduler;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Stands in for real inference on the JVM: every call takes a latency drawn from the
+ * distribution configured for the task's model and accelerator. The thread sleeps meanwhile,
+ * like it would while waiting for a GPU or NPU, so simulated accelerators do not compete for
+ * host CPU.
+ */
+public class SimulatedBackend implements InferenceBackend {
+    private final Map<String, LatencyDistribution> latencies = new ConcurrentHashMap<>();
+    private final LatencyDistribution defaultLatency;
+    private final Random random;
+    private final AtomicLong inferences = new AtomicLong();
+
+    /** {@code seed} makes the drawn latencies repeatable for calls made in the same order. */
+    public SimulatedBackend(LatencyDistribution defaultLatency, long seed) {
+        this.defaultLatency = defaultLatency;
+        this.random = new Random(seed);
+    }
+
+    /** Sets the latency of {@code model} on {@code accelerator}. */
+    public SimulatedBackend setLatency(String model, Accelerator accelerator,
+                                       LatencyDistribution latency) {
+        latencies.put(key(model, accelerator), latency);
+        return this;
+    }
+
+    private static String key(String model, Accelerator accelerator) {
+        return model + "@" + accelerator;
+    }
+
+    @Override
+    public void infer(PeriodicTask task) throws InterruptedException {
+        LatencyDistribution latency = latencies.get(key(task.getModel(), task.getAccelerator()));
+        long nanos = (latency != null ? latency : defaultLatency).sampleNanos(random);
+        long end = System.nanoTime() + nanos;
+        for (long left = nanos; left > 0; left = end - System.nanoTime()) {
+            LockSupport.parkNanos(left);
+            if (Thread.interrupted()) throw new InterruptedException();
+        }
+        inferences.incrementAndGet();
+    }
+
+    public long getInferenceCount() {
+        return inferences.get();
+    }
+}
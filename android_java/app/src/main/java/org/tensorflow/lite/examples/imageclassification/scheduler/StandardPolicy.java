@@ -0,0 +1,61 @@
+package org.tensorflow.lite.examples.imageclassification.scheduler;
+
+import java.util.Comparator;
+import java.util.List;
+
+/** The classic uniprocessor policies, each with an admission test for non-preemptive jobs. */
+public enum StandardPolicy implements SchedulingPolicy {
+    /** Earliest absolute deadline first. */
+    EDF {
+        @Override
+        public boolean isSchedulable(List<PeriodicTask> tasks) {
+            return SchedulabilityAnalysis.isEdfSchedulable(tasks);
+        }
+    },
+    /** Fixed priorities, shortest period first. */
+    RATE_MONOTONIC {
+        @Override
+        public boolean isSchedulable(List<PeriodicTask> tasks) {
+            return SchedulabilityAnalysis.isFixedPrioritySchedulable(
+                    SchedulabilityAnalysis.byRateMonotonicPriority(tasks));
+        }
+    },
+    /** Release order. */
+    FIFO {
+        @Override
+        public boolean isSchedulable(List<PeriodicTask> tasks) {
+            return SchedulabilityAnalysis.isFifoSchedulable(tasks);
+        }
+    };
+
+    private static final Comparator<Job> BY_ORDER =
+            (a, b) -> Long.compare(a.getOrder(), b.getOrder());
+
+    @Override
+    public Comparator<Job> getOrder() {
+        switch (this) {
+            case EDF:
+                return (a, b) -> {
+                    int result = Long.compare(a.getDeadlineNanos(), b.getDeadlineNanos());
+                    return result != 0 ? result : BY_ORDER.compare(a, b);
+                };
+            case RATE_MONOTONIC:
+                return (a, b) -> {
+                    int result = SchedulabilityAnalysis.RATE_MONOTONIC.compare(
+                            a.getTask(), b.getTask());
+                    return result != 0 ? result : BY_ORDER.compare(a, b);
+                };
+            default:
+                return BY_ORDER;
+        }
+    }
+
+    /** Policy by name, e.g. "EDF", "RM" or "FIFO". */
+    public static StandardPolicy fromName(String name) {
+        if (name.equalsIgnoreCase("RM")) return RATE_MONOTONIC;
+        for (StandardPolicy policy : values()) {
+            if (policy.name().equalsIgnoreCase(name)) return policy;
+        }
+        throw new IllegalArgumentException("Unknown scheduling policy " + name);
+    }
+}
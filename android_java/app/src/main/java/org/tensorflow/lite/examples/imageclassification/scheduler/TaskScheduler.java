@@ -0,0 +1,271 @@
+package org.tensorflow.lite.examples.imageclassification.scheduler;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dispatches periodic classification tasks under a {@link SchedulingPolicy}.
+ *
+ * <p>Every {@link Accelerator} has its own run queue and thread, so inferences on different
+ * hardware run in parallel while each accelerator runs one job at a time, in policy order, to
+ * completion. Running everything for an accelerator on one thread also keeps delegates on the
+ * thread that created them, which the GPU delegate requires.
+ *
+ * <p>A task is only admitted if the policy's analysis shows its accelerator stays schedulable at
+ * the measured WCETs. Admission can profile the task first, on its accelerator thread, after one
+ * unmeasured warm-up run that absorbs model loading, delegate compilation and JIT. While
+ * tasks run, every new longest execution re-runs the analysis; an accelerator whose admitted set
+ * no longer passes is reported as overloaded.
+ *
+ * <p>A task has at most one job in the system: the next release is scheduled when the previous
+ * job finishes, on the fixed-rate timeline of the task's {@link PeriodicPacer}.
+ */
+public class TaskScheduler implements Closeable {
+    private final SchedulingPolicy policy;
+    private final InferenceBackend backend;
+    private final Map<Accelerator, Lane> lanes = new EnumMap<>(Accelerator.class);
+    private final ScheduledThreadPoolExecutor releaser;
+    private final AtomicLong releaseOrder = new AtomicLong();
+    private volatile boolean closed;
+
+    public TaskScheduler(SchedulingPolicy policy, InferenceBackend backend) {
+        this.policy = policy;
+        this.backend = backend;
+        for (Accelerator accelerator : Accelerator.values()) {
+            lanes.put(accelerator, new Lane(accelerator));
+        }
+        releaser = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "TaskScheduler-releases");
+            thread.setDaemon(true);
+            return thread;
+        });
+        releaser.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    public SchedulingPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Profiles {@code task} with {@code profileRuns} inferences on its accelerator thread, then
+     * admits it if its accelerator stays schedulable, and starts releasing it. The future
+     * completes with the decision, which is also the task's {@link PeriodicTask#getState()}.
+     *
+     * <p>Profiling starts with a warm-up inference that is not measured, as the first run of a
+     * model is no sample of its steady state and would otherwise become a WCET that never drops.
+     */
+    public Future<Boolean> admit(final PeriodicTask task, final int profileRuns) {
+        final Lane lane = lanes.get(task.getAccelerator());
+        FutureTask<Boolean> admission = new FutureTask<>(() -> {
+            if (profileRuns > 0 && !closed) {
+                backend.infer(task);
+            }
+            for (int i = 0; i < profileRuns && !closed; i++) {
+                long start = System.nanoTime();
+                backend.infer(task);
+                task.recordExecution(System.nanoTime() - start);
+            }
+            return lane.admit(task);
+        });
+        lane.control(admission);
+        return admission;
+    }
+
+    /**
+     * Changes the period of {@code task} from its next release on, and re-runs the analysis of
+     * its accelerator, which is reported as overloaded if the new period does not fit. Does
+     * nothing once the scheduler is closed.
+     */
+    public void setPeriod(final PeriodicTask task, final long periodNanos) {
+        if (periodNanos <= 0) throw new IllegalArgumentException("period must be positive");
+        final Lane lane = lanes.get(task.getAccelerator());
+        try {
+            // On the lane thread, which drives the task's pacer
+            lane.control(() -> lane.setPeriod(task, periodNanos));
+        } catch (RejectedExecutionException closedMeanwhile) {
+            // Nothing is released any more
+        }
+    }
+
+    /** Stops releasing {@code task}; a running job of it still completes. */
+    public void remove(PeriodicTask task) {
+        lanes.get(task.getAccelerator()).remove(task);
+    }
+
+    /** Whether the admitted tasks of {@code accelerator} failed the analysis at measured WCETs. */
+    public boolean isOverloaded(Accelerator accelerator) {
+        return lanes.get(accelerator).overloaded;
+    }
+
+    /** Tasks currently admitted on {@code accelerator}. */
+    public List<PeriodicTask> getTasks(Accelerator accelerator) {
+        return lanes.get(accelerator).tasks;
+    }
+
+    private void scheduleRelease(final PeriodicTask task, final Lane lane) {
+        long delay = task.getPacer().delayNanos(System.nanoTime());
+        try {
+            releaser.schedule(() -> lane.release(task), delay, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException closedMeanwhile) {
+            // Nothing to release into any more
+        }
+    }
+
+    /** Stops all releases and accelerator threads; running inferences are interrupted. */
+    @Override
+    public void close() {
+        closed = true;
+        releaser.shutdownNow();
+        for (Lane lane : lanes.values()) {
+            lane.close();
+        }
+    }
+
+    /** Run queue, admitted tasks and thread of one accelerator. */
+    private final class Lane implements Runnable {
+        private final Accelerator accelerator;
+        private final PriorityQueue<Job> queue = new PriorityQueue<>(11, policy.getOrder());
+        private final Queue<Runnable> controls = new ArrayDeque<>();
+        private volatile List<PeriodicTask> tasks = Collections.emptyList();
+        private volatile boolean overloaded;
+        private Thread thread;
+
+        Lane(Accelerator accelerator) {
+            this.accelerator = accelerator;
+        }
+
+        /** Runs {@code control} on this accelerator's thread before the next job. */
+        synchronized void control(Runnable control) {
+            if (closed) throw new RejectedExecutionException("scheduler is closed");
+            if (thread == null) {
+                // Started on first use, so unused accelerators cost no thread
+                thread = new Thread(this, "TaskScheduler-" + accelerator);
+                thread.setDaemon(true);
+                thread.start();
+            }
+            controls.add(control);
+            notifyAll();
+        }
+
+        /** Called on the lane thread after profiling. */
+        boolean admit(PeriodicTask task) {
+            synchronized (this) {
+                List<PeriodicTask> candidate = new ArrayList<>(tasks);
+                candidate.add(task);
+                if (closed || !policy.isSchedulable(candidate)) {
+                    task.setState(PeriodicTask.State.REJECTED);
+                    return false;
+                }
+                tasks = Collections.unmodifiableList(candidate);
+                task.setState(PeriodicTask.State.ADMITTED);
+            }
+            PeriodicPacer pacer = task.getPacer();
+            pacer.reset();
+            pacer.setPeriodNanos(task.getPeriodNanos());
+            pacer.setDeadlineNanos(task.getDeadlineNanos());
+            pacer.start(System.nanoTime());
+            scheduleRelease(task, this);
+            return true;
+        }
+
+        /** Called on the lane thread. */
+        void setPeriod(PeriodicTask task, long periodNanos) {
+            if (periodNanos == task.getPeriodNanos()) return;
+            task.setPeriodNanos(periodNanos);
+            if (task.getState() != PeriodicTask.State.ADMITTED) return;
+            PeriodicPacer pacer = task.getPacer();
+            pacer.setPeriodNanos(periodNanos);
+            pacer.setDeadlineNanos(task.getDeadlineNanos());
+            overloaded = !policy.isSchedulable(tasks);
+        }
+
+        synchronized void remove(PeriodicTask task) {
+            List<PeriodicTask> remaining = new ArrayList<>(tasks);
+            if (!remaining.remove(task)) return;
+            tasks = Collections.unmodifiableList(remaining);
+            task.setState(PeriodicTask.State.REMOVED);
+            for (Iterator<Job> jobs = queue.iterator(); jobs.hasNext(); ) {
+                if (jobs.next().getTask() == task) jobs.remove();
+            }
+        }
+
+        synchronized void release(PeriodicTask task) {
+            if (task.getState() != PeriodicTask.State.ADMITTED) return;
+            queue.add(new Job(task, task.getPacer().getReleaseNanos(),
+                    releaseOrder.getAndIncrement()));
+            notifyAll();
+        }
+
+        synchronized void close() {
+            notifyAll();
+            if (thread != null) thread.interrupt();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    Runnable control;
+                    Job job;
+                    synchronized (this) {
+                        while (!closed && controls.isEmpty() && queue.isEmpty()) {
+                            wait();
+                        }
+                        control = controls.poll();
+                        job = control == null ? queue.poll() : null;
+                    }
+                    if (control != null) {
+                        control.run();
+                    } else if (job != null) {
+                        execute(job);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Closed
+            }
+            synchronized (this) {
+                // Admissions still waiting will never run
+                for (Runnable control : controls) {
+                    if (control instanceof Future) ((Future<?>) control).cancel(false);
+                }
+                controls.clear();
+            }
+        }
+
+        private void execute(Job job) throws InterruptedException {
+            PeriodicTask task = job.getTask();
+            PeriodicPacer pacer = task.getPacer();
+            long start = System.nanoTime();
+            pacer.onStart(start);
+            try {
+                backend.infer(task);
+            } catch (RuntimeException e) {
+                // One failing task must not stop the others
+                System.out.println(e.getMessage());
+            }
+            long finish = System.nanoTime();
+            pacer.onFinish(finish);
+            if (task.recordExecution(finish - start)) {
+                // A longer execution than admitted with; check the set still fits
+                overloaded = !policy.isSchedulable(tasks);
+            }
+            if (task.getState() == PeriodicTask.State.ADMITTED) {
+                scheduleRelease(task, this);
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Writes records as fixed-width little-endian rows after a self-describing header.
+ *
+ * <p>Layout, all little-endian:
+ * <pre>
+ * header: magic "THMT" | u16 version | u16 column count | u32 row size
+ *         u16 property count, per property: u16 key length | key | u16 value length | value
+ *         per column: u8 type | u16 width | u16 name length | name (UTF-8)
+ * row:    LONG as i64, FLOAT as f32, TEXT as width bytes of ASCII padded with 0
+ * </pre>
+ * Rows are append-only, so a truncated file still decodes up to its last complete row.
+ * {@link BinaryTelemetryReader} reads the format back.
+ */
+public class BinaryTelemetryEncoder implements TelemetryEncoder {
+    public static final int MAGIC = 0x544d4854; // "THMT" read as a little-endian int
+    public static final short VERSION = 2;
+    public static final int DEFAULT_TEXT_WIDTH = 32;
+
+    static final byte TYPE_LONG = 0;
+    static final byte TYPE_FLOAT = 1;
+    static final byte TYPE_TEXT = 2;
+
+    private final int textWidth;
+
+    public BinaryTelemetryEncoder() {
+        this(DEFAULT_TEXT_WIDTH);
+    }
+
+    /** Text values longer than {@code textWidth} bytes are truncated. */
+    public BinaryTelemetryEncoder(int textWidth) {
+        this.textWidth = textWidth;
+    }
+
+    /** Bytes per row for {@code schema}. */
+    public int rowSize(TelemetrySchema schema) {
+        int size = 0;
+        for (int i = 0; i < schema.size(); i++) {
+            size += width(schema.getType(i));
+        }
+        return size;
+    }
+
+    private int width(TelemetrySchema.Type type) {
+        switch (type) {
+            case LONG:
+                return 8;
+            case FLOAT:
+                return 4;
+            default:
+                return textWidth;
+        }
+    }
+
+    @Override
+    public void encodeHeader(TelemetrySchema schema, ByteBuffer out) {
+        ByteOrder order = out.order();
+        out.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            out.putInt(MAGIC);
+            out.putShort(VERSION);
+            out.putShort((short) schema.size());
+            out.putInt(rowSize(schema));
+            out.putShort((short) schema.getProperties().size());
+            for (Map.Entry<String, String> property : schema.getProperties().entrySet()) {
+                putString(property.getKey(), out);
+                putString(property.getValue(), out);
+            }
+            for (int i = 0; i < schema.size(); i++) {
+                out.put(typeCode(schema.getType(i)));
+                out.putShort((short) width(schema.getType(i)));
+                putString(schema.getName(i), out);
+            }
+        } finally {
+            out.order(order);
+        }
+    }
+
+    @Override
+    public void encode(TelemetryRecord record, ByteBuffer out) {
+        TelemetrySchema schema = record.getSchema();
+        if (out.remaining() < rowSize(schema)) throw new BufferOverflowException();
+        ByteOrder order = out.order();
+        out.order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < schema.size(); i++) {
+            switch (schema.getType(i)) {
+                case LONG:
+                    out.putLong(record.getLong(i));
+                    break;
+                case FLOAT:
+                    out.putFloat(record.getFloat(i));
+                    break;
+                case TEXT:
+                    putText(record.getText(i), out);
+                    break;
+            }
+        }
+        out.order(order);
+    }
+
+    private static void putString(String value, ByteBuffer out) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    private void putText(String text, ByteBuffer out) {
+        int length = text == null ? 0 : Math.min(text.length(), textWidth);
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            out.put(c < 0x80 ? (byte) c : (byte) '?');
+        }
+        for (int i = length; i < textWidth; i++) {
+            out.put((byte) 0);
+        }
+    }
+
+    static byte typeCode(TelemetrySchema.Type type) {
+        switch (type) {
+            case LONG:
+                return TYPE_LONG;
+            case FLOAT:
+                return TYPE_FLOAT;
+            default:
+                return TYPE_TEXT;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * Reads files written with {@link BinaryTelemetryEncoder}, either row by row, as primitive
+ * column arrays, or converted back to CSV.
+ *
+ * <p>Runs on any JVM; {@link #main(String[])} converts a file from the command line:
+ * {@code java ...BinaryTelemetryReader Raw_Data.bin [Raw_Data.csv]}.
+ */
+public class BinaryTelemetryReader implements Closeable {
+    private final FileChannel channel;
+    private final MappedByteBuffer data;
+    private final TelemetrySchema schema;
+    private final int[] offsets;
+    private final int[] widths;
+    private final int rowSize;
+    private final int rowsStart;
+    private final int rowCount;
+
+    public BinaryTelemetryReader(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        data.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (data.remaining() < 12 || data.getInt() != BinaryTelemetryEncoder.MAGIC) {
+            channel.close();
+            throw new IOException("Not a binary telemetry file: " + file);
+        }
+        short version = data.getShort();
+        if (version < 1 || version > BinaryTelemetryEncoder.VERSION) {
+            channel.close();
+            throw new IOException("Unsupported binary telemetry version " + version);
+        }
+        int columns = data.getShort() & 0xffff;
+        rowSize = data.getInt();
+
+        TelemetrySchema.Builder builder = new TelemetrySchema.Builder();
+        // Version 1 files have no properties
+        int properties = version >= 2 ? data.getShort() & 0xffff : 0;
+        for (int i = 0; i < properties; i++) {
+            builder.putProperty(getString(), getString());
+        }
+        offsets = new int[columns];
+        widths = new int[columns];
+        int offset = 0;
+        for (int i = 0; i < columns; i++) {
+            byte type = data.get();
+            widths[i] = data.getShort() & 0xffff;
+            builder.add(getString(), typeOf(type));
+            offsets[i] = offset;
+            offset += widths[i];
+        }
+        schema = builder.build();
+        rowsStart = data.position();
+        // A partially written last row is ignored
+        rowCount = rowSize == 0 ? 0 : (data.limit() - rowsStart) / rowSize;
+    }
+
+    private String getString() {
+        byte[] bytes = new byte[data.getShort() & 0xffff];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static TelemetrySchema.Type typeOf(byte code) throws IOException {
+        switch (code) {
+            case BinaryTelemetryEncoder.TYPE_LONG:
+                return TelemetrySchema.Type.LONG;
+            case BinaryTelemetryEncoder.TYPE_FLOAT:
+                return TelemetrySchema.Type.FLOAT;
+            case BinaryTelemetryEncoder.TYPE_TEXT:
+                return TelemetrySchema.Type.TEXT;
+            default:
+                throw new IOException("Unknown column type " + code);
+        }
+    }
+
+    public TelemetrySchema getSchema() {
+        return schema;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public long getLong(int row, int column) {
+        return data.getLong(position(row, column));
+    }
+
+    public float getFloat(int row, int column) {
+        return data.getFloat(position(row, column));
+    }
+
+    public String getText(int row, int column) {
+        int start = position(row, column);
+        int length = 0;
+        while (length < widths[column] && data.get(start + length) != 0) length++;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = data.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private int position(int row, int column) {
+        return rowsStart + row * rowSize + offsets[column];
+    }
+
+    /** Every value of a LONG column. */
+    public long[] readLongColumn(int column) {
+        long[] values = new long[rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            values[row] = getLong(row, column);
+        }
+        return values;
+    }
+
+    /** Every value of a FLOAT column. */
+    public float[] readFloatColumn(int column) {
+        float[] values = new float[rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            values[row] = getFloat(row, column);
+        }
+        return values;
+    }
+
+    /** Streams the file as CSV, formatted like {@link CsvTelemetryEncoder} would have. */
+    public void writeCsv(Writer out) throws IOException {
+        for (Map.Entry<String, String> property : schema.getProperties().entrySet()) {
+            out.write("# " + property.getKey() + "=" + property.getValue() + "\n");
+        }
+        for (int i = 0; i < schema.size(); i++) {
+            if (i > 0) out.write(',');
+            out.write(schema.getName(i));
+        }
+        out.write('\n');
+        for (int row = 0; row < rowCount; row++) {
+            for (int i = 0; i < schema.size(); i++) {
+                if (i > 0) out.write(',');
+                switch (schema.getType(i)) {
+                    case LONG:
+                        out.write(Long.toString(getLong(row, i)));
+                        break;
+                    case FLOAT:
+                        out.write(Float.toString(getFloat(row, i)));
+                        break;
+                    case TEXT:
+                        out.write(getText(row, i));
+                        break;
+                }
+            }
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: BinaryTelemetryReader <input.bin> [output.csv]");
+            System.exit(2);
+        }
+        try (BinaryTelemetryReader reader = new BinaryTelemetryReader(new File(args[0]));
+             Writer out = new BufferedWriter(args.length > 1
+                     ? Files.newBufferedWriter(new File(args[1]).toPath(), StandardCharsets.UTF_8)
+                     : new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+            reader.writeCsv(out);
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import java.io.Closeable;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * CPU utilization from procfs jiffy counters.
+ *
+ * <p>Each {@link #sample()} re-reads {@code /proc/stat} (system wide and per core),
+ * {@code /proc/self/stat} and {@code /proc/self/task/<tid>/stat}, and computes utilization from
+ * the deltas against the previous sample. Core and system utilization are percentages of the
+ * core(s); process and thread utilization are percentages of one core, like {@code top}.
+ *
+ * <p>Apps may not read {@code /proc/stat} since Android 8, so process and thread utilization are
+ * taken relative to the elapsed monotonic time rather than to the system's jiffies; only the
+ * system and core figures need {@code /proc/stat}, and stay 0 without it.
+ */
+public class CpuUtilizationSampler implements Closeable {
+    public static final String DEFAULT_ROOT = "/proc";
+    // The kernel keeps at most this many characters of a thread name as its comm
+    public static final int COMM_LENGTH = 15;
+    // USER_HZ, the unit of the jiffies in procfs; 100 on every Android and Linux ABI
+    public static final int DEFAULT_CLOCK_TICKS = 100;
+
+    // /proc/stat is large because of the intr line, but the cpu lines always come first
+    private static final int STAT_CAPACITY = 8192;
+    private static final int TASK_CAPACITY = 512;
+    // Fields of a "cpu" line summed into total time: user nice system idle iowait irq softirq steal
+    private static final int STAT_FIELDS = 8;
+    // utime and stime, counted from the state field that follows the ")" of comm
+    private static final int UTIME_TOKEN = 11;
+    private static final int STIME_TOKEN = 12;
+
+    private final SysfsReader procReader;
+    private final SysfsNode statNode;
+    private final SysfsNode selfNode;
+    private final int maxCores;
+    private final int clockTicks;
+
+    private final long[] prevCoreTotal;
+    private final long[] prevCoreIdle;
+    private final float[] coreUtilization;
+    private long prevTotal = -1;
+    private long prevIdle;
+    private long prevProcess = -1;
+    private long prevSampleNanos = Long.MIN_VALUE;
+    private long lastTotalDelta;
+    private float systemUtilization;
+    private float processUtilization;
+    private int coreCount;
+
+    private final Map<Integer, ThreadStat> threads = new HashMap<>();
+
+    public CpuUtilizationSampler(File procRoot, int maxCores, int clockTicks) {
+        this.procReader = new SysfsReader(procRoot, false);
+        this.statNode = procReader.open("stat", STAT_CAPACITY);
+        this.selfNode = procReader.open("self/stat", TASK_CAPACITY);
+        this.maxCores = maxCores;
+        this.clockTicks = clockTicks;
+        prevCoreTotal = new long[maxCores];
+        prevCoreIdle = new long[maxCores];
+        coreUtilization = new float[maxCores];
+        Arrays.fill(prevCoreTotal, -1);
+    }
+
+    public CpuUtilizationSampler(File procRoot, int maxCores) {
+        this(procRoot, maxCores, DEFAULT_CLOCK_TICKS);
+    }
+
+    public CpuUtilizationSampler() {
+        this(new File(DEFAULT_ROOT), Runtime.getRuntime().availableProcessors());
+    }
+
+    /** Takes a sample and updates all utilization values. */
+    public void sample() {
+        sample(System.nanoTime());
+    }
+
+    /** Takes a sample at {@code nowNanos} on the {@link System#nanoTime()} time base. */
+    public synchronized void sample(long nowNanos) {
+        sampleSystem();
+        // Jiffies the task would have run for on one core, had it been busy throughout
+        long elapsedJiffies = prevSampleNanos == Long.MIN_VALUE
+                ? 0 : (nowNanos - prevSampleNanos) * clockTicks / 1000000000L;
+        prevSampleNanos = nowNanos;
+        sampleProcess(elapsedJiffies);
+        sampleThreads(elapsedJiffies);
+    }
+
+    private void sampleSystem() {
+        if (statNode.read() <= 0) return;
+        ByteBuffer buffer = statNode.buffer();
+        int limit = buffer.limit();
+        long totalDelta = 0;
+        int cores = 0;
+        int line = 0;
+        while (line + 3 < limit && buffer.get(line) == 'c' && buffer.get(line + 1) == 'p'
+                && buffer.get(line + 2) == 'u') {
+            int core = -1;
+            int i = line + 3;
+            if (buffer.get(i) != ' ') {
+                core = (int) SysfsParser.parseLongAt(buffer, i, 0, -1);
+            }
+            while (i < limit && buffer.get(i) != ' ') i++;
+
+            long total = 0;
+            for (int field = 0; field < STAT_FIELDS; field++) {
+                long value = SysfsParser.parseLongAt(buffer, i, field, 0);
+                total += value;
+            }
+            long idle = SysfsParser.parseLongAt(buffer, i, 3, 0)
+                    + SysfsParser.parseLongAt(buffer, i, 4, 0);
+
+            if (core < 0) {
+                if (prevTotal >= 0) {
+                    totalDelta = total - prevTotal;
+                    systemUtilization = busyPercent(totalDelta, idle - prevIdle);
+                }
+                prevTotal = total;
+                prevIdle = idle;
+            } else if (core < maxCores) {
+                if (prevCoreTotal[core] >= 0) {
+                    coreUtilization[core] = busyPercent(
+                            total - prevCoreTotal[core], idle - prevCoreIdle[core]);
+                }
+                prevCoreTotal[core] = total;
+                prevCoreIdle[core] = idle;
+                cores = Math.max(cores, core + 1);
+            }
+
+            while (line < limit && buffer.get(line) != '\n') line++;
+            line++;
+        }
+        coreCount = cores;
+        lastTotalDelta = totalDelta;
+    }
+
+    private void sampleProcess(long elapsedJiffies) {
+        long jiffies = readTaskJiffies(selfNode);
+        if (jiffies < 0) return;
+        if (prevProcess >= 0) {
+            processUtilization = onePercent(jiffies - prevProcess, elapsedJiffies);
+        }
+        prevProcess = jiffies;
+    }
+
+    private void sampleThreads(long elapsedJiffies) {
+        for (ThreadStat thread : threads.values()) {
+            thread.alive = false;
+        }
+        for (String name : procReader.list("self/task")) {
+            int tid;
+            try {
+                tid = Integer.parseInt(name);
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            ThreadStat thread = threads.get(tid);
+            if (thread == null) {
+                thread = new ThreadStat(tid, procReader.open(taskPath(tid), TASK_CAPACITY));
+                threads.put(tid, thread);
+            }
+            long jiffies = readTaskJiffies(thread.node);
+            if (jiffies < 0) continue;
+            thread.alive = true;
+            if (thread.name == null) thread.name = readComm(thread.node);
+            if (thread.prevJiffies >= 0) {
+                thread.utilization = onePercent(jiffies - thread.prevJiffies, elapsedJiffies);
+            }
+            thread.prevJiffies = jiffies;
+        }
+        Iterator<ThreadStat> iterator = threads.values().iterator();
+        while (iterator.hasNext()) {
+            ThreadStat thread = iterator.next();
+            if (!thread.alive) {
+                procReader.release(taskPath(thread.tid));
+                iterator.remove();
+            }
+        }
+    }
+
+    // Returns utime + stime of a task stat file, or -1
+    private static long readTaskJiffies(SysfsNode node) {
+        if (node.read() <= 0) return -1;
+        ByteBuffer buffer = node.buffer();
+        // comm may contain spaces and parentheses, so fields are counted from the last ")"
+        int commEnd = SysfsParser.lastIndexOf(buffer, (byte) ')');
+        if (commEnd < 0) return -1;
+        long utime = SysfsParser.parseLongAt(buffer, commEnd + 1, UTIME_TOKEN, -1);
+        long stime = SysfsParser.parseLongAt(buffer, commEnd + 1, STIME_TOKEN, -1);
+        if (utime < 0 || stime < 0) return -1;
+        return utime + stime;
+    }
+
+    private static String readComm(SysfsNode node) {
+        ByteBuffer buffer = node.buffer();
+        int start = 0;
+        while (start < buffer.limit() && buffer.get(start) != '(') start++;
+        int end = SysfsParser.lastIndexOf(buffer, (byte) ')');
+        if (end <= start) return "";
+        return new String(buffer.array(), start + 1, end - start - 1,
+                StandardCharsets.US_ASCII);
+    }
+
+    private static String taskPath(int tid) {
+        return "self/task/" + tid + "/stat";
+    }
+
+    private static float busyPercent(long totalDelta, long idleDelta) {
+        if (totalDelta <= 0) return 0f;
+        return 100f * (totalDelta - idleDelta) / totalDelta;
+    }
+
+    // Percentage of one core, given the jiffies one core advanced by
+    private static float onePercent(long taskDelta, long elapsedJiffies) {
+        if (elapsedJiffies <= 0) return 0f;
+        return 100f * taskDelta / elapsedJiffies;
+    }
+
+    /** System wide utilization, 0-100. */
+    public synchronized float getSystemUtilization() {
+        return systemUtilization;
+    }
+
+    /** Number of cores seen in the last sample. */
+    public synchronized int getCoreCount() {
+        return coreCount;
+    }
+
+    /** Utilization of {@code core}, 0-100. */
+    public synchronized float getCoreUtilization(int core) {
+        return core < maxCores ? coreUtilization[core] : 0f;
+    }
+
+    /** Utilization of this process as a percentage of one core. */
+    public synchronized float getProcessUtilization() {
+        return processUtilization;
+    }
+
+    /** Jiffies all cores advanced by between the last two samples. */
+    public synchronized long getLastTotalDelta() {
+        return lastTotalDelta;
+    }
+
+    /** Utilization of thread {@code tid} as a percentage of one core, or -1 if unknown. */
+    public synchronized float getThreadUtilization(int tid) {
+        ThreadStat thread = threads.get(tid);
+        return thread == null ? -1f : thread.utilization;
+    }
+
+    /**
+     * Summed utilization of the threads whose name starts with {@code namePrefix}, e.g. the
+     * "Classifier-" threads running inference, as a percentage of one core. A prefix longer than
+     * a comm is cut to {@link #COMM_LENGTH}, like the names it is matched against.
+     */
+    public synchronized float getThreadUtilization(String namePrefix) {
+        if (namePrefix.length() > COMM_LENGTH) namePrefix = namePrefix.substring(0, COMM_LENGTH);
+        float utilization = 0f;
+        for (ThreadStat thread : threads.values()) {
+            if (thread.name != null && thread.name.startsWith(namePrefix)) {
+                utilization += thread.utilization;
+            }
+        }
+        return utilization;
+    }
+
+    /** Snapshot of thread id to name for the threads seen in the last sample. */
+    public synchronized Map<Integer, String> getThreadNames() {
+        Map<Integer, String> names = new HashMap<>();
+        for (ThreadStat thread : threads.values()) {
+            names.put(thread.tid, thread.name);
+        }
+        return names;
+    }
+
+    @Override
+    public synchronized void close() {
+        threads.clear();
+        procReader.close();
+    }
+
+    private static final class ThreadStat {
+        final int tid;
+        final SysfsNode node;
+        String name;
+        long prevJiffies = -1;
+        float utilization;
+        boolean alive;
+
+        ThreadStat(int tid, SysfsNode node) {
+            this.tid = tid;
+            this.node = node;
+        }
+    }
+}
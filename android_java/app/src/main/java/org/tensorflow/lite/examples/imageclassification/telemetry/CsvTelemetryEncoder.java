@@ -0,0 +1,60 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * Writes records as comma separated lines. The header is one {@code # key=value} line per schema
+ * property followed by the column names.
+ */
+public class CsvTelemetryEncoder implements TelemetryEncoder {
+    private final StringBuilder line = new StringBuilder(256);
+
+    @Override
+    public void encodeHeader(TelemetrySchema schema, ByteBuffer out) {
+        line.setLength(0);
+        for (Map.Entry<String, String> property : schema.getProperties().entrySet()) {
+            line.append("# ").append(property.getKey()).append('=')
+                    .append(property.getValue()).append('\n');
+        }
+        for (int i = 0; i < schema.size(); i++) {
+            if (i > 0) line.append(',');
+            line.append(schema.getName(i));
+        }
+        line.append('\n');
+        put(out);
+    }
+
+    @Override
+    public void encode(TelemetryRecord record, ByteBuffer out) {
+        TelemetrySchema schema = record.getSchema();
+        line.setLength(0);
+        for (int i = 0; i < schema.size(); i++) {
+            if (i > 0) line.append(',');
+            switch (schema.getType(i)) {
+                case LONG:
+                    line.append(record.getLong(i));
+                    break;
+                case FLOAT:
+                    line.append(record.getFloat(i));
+                    break;
+                case TEXT:
+                    String text = record.getText(i);
+                    if (text != null) line.append(text);
+                    break;
+            }
+        }
+        line.append('\n');
+        put(out);
+    }
+
+    private void put(ByteBuffer out) {
+        int length = line.length();
+        if (out.remaining() < length) throw new BufferOverflowException();
+        for (int i = 0; i < length; i++) {
+            char c = line.charAt(i);
+            out.put(c < 0x80 ? (byte) c : (byte) '?');
+        }
+    }
+}
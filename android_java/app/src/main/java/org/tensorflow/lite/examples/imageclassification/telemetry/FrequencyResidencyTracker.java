@@ -0,0 +1,181 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tracks how long each cpufreq policy (one per CPU cluster) spends at each frequency.
+ *
+ * <p>Policies are discovered once from {@code cpufreq/policy*}, so any cluster layout works. Each
+ * {@link #sample()} re-reads every {@code stats/time_in_state} file into preallocated arrays and
+ * keeps, per frequency, the time since discovery and the time in the last interval. From the
+ * interval times it derives the cluster's average effective frequency.
+ *
+ * <p>The frequency table is fixed at discovery, so every sample has the same columns. A failed
+ * read keeps the last values, and frequencies missing from a later table keep their times.
+ *
+ * <p>Times are in {@code time_in_state} units, which the kernel reports as 10 ms ticks.
+ */
+public final class FrequencyResidencyTracker {
+    public static final String DEFAULT_CPUFREQ_DIR = "devices/system/cpu/cpufreq";
+    /** Length of one {@code time_in_state} tick in milliseconds. */
+    public static final int TICK_MILLIS = 10;
+    public static final float UNKNOWN_FREQUENCY = -1f;
+
+    // time_in_state files list one "frequency time" pair per line
+    private static final int NODE_CAPACITY = 4096;
+    private static final int MAX_FREQUENCIES = 128;
+
+    private final Policy[] policies;
+    private final long[] values = new long[2 * MAX_FREQUENCIES];
+
+    private FrequencyResidencyTracker(Policy[] policies) {
+        this.policies = policies;
+    }
+
+    /**
+     * Discovers every readable {@code policy<N>} under {@code cpufreqDir} of {@code reader} and
+     * takes the baseline reading that later times are measured from.
+     */
+    public static FrequencyResidencyTracker discover(SysfsReader reader, String cpufreqDir) {
+        List<Policy> policies = new ArrayList<>();
+        long[] values = new long[2 * MAX_FREQUENCIES];
+        for (String name : reader.list(cpufreqDir)) {
+            if (!name.matches("policy[0-9]+")) continue;
+            String path = cpufreqDir + "/" + name + "/";
+            SysfsNode node = reader.open(path + "stats/time_in_state", NODE_CAPACITY);
+            if (!node.isReadable()) {
+                reader.release(path + "stats/time_in_state");
+                continue;
+            }
+            String cpus = reader.open(path + "related_cpus").readLine("");
+            reader.release(path + "related_cpus");
+            Policy policy = new Policy(name, cpus, node);
+            if (!policy.baseline(values)) {
+                reader.release(path + "stats/time_in_state");
+                continue;
+            }
+            policies.add(policy);
+        }
+        return new FrequencyResidencyTracker(policies.toArray(new Policy[0]));
+    }
+
+    public int size() {
+        return policies.length;
+    }
+
+    public Policy get(int index) {
+        return policies[index];
+    }
+
+    /** Re-reads every policy. Does not allocate. */
+    public void sample() {
+        for (Policy policy : policies) {
+            policy.sample(values);
+        }
+    }
+
+    /** One cpufreq policy and its residency counters. */
+    public static final class Policy {
+        public final String name;
+        /** Contents of {@code related_cpus}, e.g. "4 5 6". */
+        public final String cpus;
+        final SysfsNode node;
+
+        // Fixed at discovery, as it sizes the policy's columns
+        private int count;
+        private final long[] frequencies = new long[MAX_FREQUENCIES];
+        private final long[] initial = new long[MAX_FREQUENCIES];
+        private final long[] current = new long[MAX_FREQUENCIES];
+        private final long[] delta = new long[MAX_FREQUENCIES];
+        private long intervalTicks;
+        private float effectiveFrequency = UNKNOWN_FREQUENCY;
+
+        Policy(String name, String cpus, SysfsNode node) {
+            this.name = name;
+            this.cpus = cpus;
+            this.node = node;
+        }
+
+        /** Reads the frequency table, or returns false if the node had none. */
+        boolean baseline(long[] values) {
+            int pairs = node.readLongs(values) / 2;
+            count = Math.min(pairs, MAX_FREQUENCIES);
+            for (int i = 0; i < count; i++) {
+                frequencies[i] = values[2 * i];
+                initial[i] = values[2 * i + 1];
+                current[i] = initial[i];
+                delta[i] = 0;
+            }
+            intervalTicks = 0;
+            effectiveFrequency = UNKNOWN_FREQUENCY;
+            return count > 0;
+        }
+
+        void sample(long[] values) {
+            int pairs = Math.min(node.readLongs(values) / 2, MAX_FREQUENCIES);
+            // A failed read (e.g. the policy is offline) keeps the last values
+            if (pairs == 0) return;
+            long ticks = 0;
+            long weighted = 0;
+            for (int i = 0; i < count; i++) {
+                int pair = indexOf(frequencies[i], values, pairs, i);
+                if (pair < 0) {
+                    // The table changed and lost this frequency, which keeps its time
+                    delta[i] = 0;
+                    continue;
+                }
+                long time = values[2 * pair + 1];
+                // Counters only move backwards if the stats were reset
+                delta[i] = Math.max(0, time - current[i]);
+                current[i] = time;
+                ticks += delta[i];
+                weighted += delta[i] * frequencies[i];
+            }
+            intervalTicks = ticks;
+            effectiveFrequency = ticks == 0 ? UNKNOWN_FREQUENCY : (float) weighted / ticks;
+        }
+
+        // The pair of frequency in values, looked for at hint first as the table rarely changes
+        private static int indexOf(long frequency, long[] values, int pairs, int hint) {
+            if (hint < pairs && values[2 * hint] == frequency) return hint;
+            for (int i = 0; i < pairs; i++) {
+                if (values[2 * i] == frequency) return i;
+            }
+            return -1;
+        }
+
+        /** Number of frequencies in the policy's table at discovery. */
+        public int getFrequencyCount() {
+            return count;
+        }
+
+        /** Frequency {@code index} of the table in kHz. */
+        public long getFrequency(int index) {
+            return frequencies[index];
+        }
+
+        /** Ticks spent at frequency {@code index} since discovery. */
+        public long getTimeSinceStart(int index) {
+            return current[index] - initial[index];
+        }
+
+        /** Ticks spent at frequency {@code index} between the last two samples. */
+        public long getTimeInInterval(int index) {
+            return delta[index];
+        }
+
+        /** Ticks accounted for across all frequencies in the last interval. */
+        public long getIntervalTicks() {
+            return intervalTicks;
+        }
+
+        /**
+         * Residency-weighted average frequency over the last interval in kHz, or
+         * {@link #UNKNOWN_FREQUENCY} if no time was accounted.
+         */
+        public float getEffectiveFrequency() {
+            return effectiveFrequency;
+        }
+    }
+}
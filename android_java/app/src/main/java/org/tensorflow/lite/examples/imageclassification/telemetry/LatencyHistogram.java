@@ -0,0 +1,181 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency distribution in fixed memory, recorded without locks or allocation.
+ *
+ * <p>Latencies are counted in microsecond buckets laid out log-linearly, as in HdrHistogram:
+ * every power of two is split into 16 equal buckets, so a bucket is never wider than 1/16 of the
+ * values in it, from a microsecond up to about 71 minutes. Percentiles report the highest value
+ * of their bucket, capped at the largest latency recorded.
+ *
+ * <p>Any number of threads may record; readers take a {@link Snapshot}, which can be merged with
+ * snapshots of other histograms. A {@link Window} turns consecutive snapshots into the
+ * distribution of the last few ticks.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    // Longer latencies are counted in the last bucket
+    private static final long MAX_MICROS = (1L << 32) - 1;
+    static final int BUCKETS = bucketOf(MAX_MICROS) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) return (int) micros;
+        int shift = 64 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+        return shift * HALF_SUB_BUCKETS + (int) (micros >>> shift);
+    }
+
+    /** Highest latency counted in {@code bucket}, in nanoseconds. */
+    static long highestNanos(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket * 1000L + 999;
+        int shift = bucket / HALF_SUB_BUCKETS - 1;
+        long subBucket = bucket - shift * HALF_SUB_BUCKETS;
+        return ((subBucket + 1) << shift) * 1000 - 1;
+    }
+
+    public void recordNanos(long nanos) {
+        long micros = Math.min(Math.max(0, nanos / 1000), MAX_MICROS);
+        counts.incrementAndGet(bucketOf(micros));
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /** Forgets everything recorded; latencies recorded meanwhile may or may not be kept. */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        maxNanos.set(0);
+    }
+
+    /** Copies the counts into {@code into}, replacing what it held. */
+    public void snapshot(Snapshot into) {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long bucketCount = counts.get(i);
+            into.counts[i] = bucketCount;
+            count += bucketCount;
+        }
+        into.count = count;
+        into.maxNanos = maxNanos.get();
+    }
+
+    /** Counts of one or more histograms at some point; used by one thread at a time. */
+    public static final class Snapshot {
+        final long[] counts = new long[BUCKETS];
+        long count;
+        long maxNanos;
+
+        public long getCount() {
+            return count;
+        }
+
+        /** Largest latency counted, or 0 if none was. */
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /** Latency below which {@code percentile} percent of the latencies fall, or 0. */
+        public long percentileNanos(double percentile) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(highestNanos(i), maxNanos);
+            }
+            return maxNanos;
+        }
+
+        public void clear() {
+            Arrays.fill(counts, 0);
+            count = 0;
+            maxNanos = 0;
+        }
+
+        /** Merges {@code other} into this, e.g. to combine the histograms of several tasks. */
+        public Snapshot add(Snapshot other) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += other.counts[i];
+            }
+            count += other.count;
+            maxNanos = Math.max(maxNanos, other.maxNanos);
+            return this;
+        }
+
+        void set(Snapshot other) {
+            System.arraycopy(other.counts, 0, counts, 0, BUCKETS);
+            count = other.count;
+            maxNanos = other.maxNanos;
+        }
+
+        /** Removes the counts of an earlier snapshot, leaving what was recorded since. */
+        void subtract(Snapshot earlier) {
+            count = 0;
+            int highest = -1;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = Math.max(0, counts[i] - earlier.counts[i]);
+                count += counts[i];
+                if (counts[i] > 0) highest = i;
+            }
+            // The exact maximum of an interval is not kept; its bucket bounds it
+            maxNanos = highest < 0 ? 0 : Math.min(highestNanos(highest), maxNanos);
+        }
+    }
+
+    /**
+     * The latencies recorded over the last {@code ticks} calls to {@link #tick()}, kept by the one
+     * thread calling it. Holds {@code ticks + 1} snapshots.
+     */
+    public static final class Window {
+        private final LatencyHistogram source;
+        private final Snapshot[] ring;
+        private final Snapshot window = new Snapshot();
+        private int next;
+        private int filled;
+
+        public Window(LatencyHistogram source, int ticks) {
+            this.source = source;
+            ring = new Snapshot[ticks + 1];
+            for (int i = 0; i < ring.length; i++) {
+                ring[i] = new Snapshot();
+            }
+        }
+
+        /**
+         * Snapshots the histogram and returns what it recorded since {@code ticks} ticks ago, or
+         * since it was created or reset. The result is reused by the next tick.
+         */
+        public Snapshot tick() {
+            Snapshot current = ring[next];
+            source.snapshot(current);
+            Snapshot previous = ring[(next + ring.length - 1) % ring.length];
+            if (filled > 0 && current.count < previous.count) {
+                // Reset since the last tick: older snapshots no longer apply
+                filled = 0;
+            }
+            filled = Math.min(filled + 1, ring.length);
+            window.set(current);
+            if (filled == ring.length) {
+                window.subtract(ring[(next + 1) % ring.length]);
+            }
+            next = (next + 1) % ring.length;
+            return window;
+        }
+
+        /** The result of the last {@link #tick()}. */
+        public Snapshot get() {
+            return window;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate of events, such as finished inferences, over monotonic time.
+ *
+ * <p>Events are counted in 100 ms slots kept for a minute. Counts and rates over the last 1 to 60
+ * seconds are summed from the completed slots, so they are exact but trail the present by up to
+ * one slot. Alongside, exponentially weighted rates with time constants of 1, 10 and 60 seconds
+ * are updated at every slot boundary, as in Dropwizard Metrics' meters. They are bias corrected,
+ * so they do not start out near zero, and they fade an old burst out instead of dropping it when
+ * it leaves a window.
+ *
+ * <p>Rates are events per second. Marks and reads are synchronized and do constant work, unless
+ * the meter was idle for many slots.
+ */
+public final class RateMeter {
+    public static final long SLOT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    /** Longest window counts are kept for. */
+    public static final long MAX_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(60);
+    public static final int ONE_SECOND = 0;
+    public static final int TEN_SECONDS = 1;
+    public static final int ONE_MINUTE = 2;
+
+    private static final int SLOTS = (int) (MAX_WINDOW_NANOS / SLOT_NANOS);
+    private static final double SLOT_SECONDS = SLOT_NANOS / 1e9;
+    // Indexed by ONE_SECOND, TEN_SECONDS and ONE_MINUTE
+    private static final double[] TIME_CONSTANTS_SECONDS = {1, 10, 60};
+
+    // Events of the completed slots, newest at newestSlot
+    private final long[] slots = new long[SLOTS];
+    private final double[] decays = new double[TIME_CONSTANTS_SECONDS.length];
+    private final double[] rates = new double[TIME_CONSTANTS_SECONDS.length];
+    private int newestSlot;
+    private long completedSlots;
+    private long startNanos;
+    private long slotStartNanos;
+    private long slotEvents;
+    private long count;
+
+    public RateMeter(long startNanos) {
+        for (int i = 0; i < decays.length; i++) {
+            decays[i] = Math.exp(-SLOT_SECONDS / TIME_CONSTANTS_SECONDS[i]);
+        }
+        reset(startNanos);
+    }
+
+    /** Forgets all events and starts measuring at {@code nowNanos}. */
+    public synchronized void reset(long nowNanos) {
+        Arrays.fill(slots, 0);
+        Arrays.fill(rates, 0);
+        completedSlots = 0;
+        startNanos = nowNanos;
+        slotStartNanos = nowNanos;
+        slotEvents = 0;
+        count = 0;
+    }
+
+    /** Counts one event at {@code nowNanos}. */
+    public synchronized void mark(long nowNanos) {
+        advance(nowNanos);
+        slotEvents++;
+        count++;
+    }
+
+    /** Events since the start or last reset. */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /** Events per second since the start or last reset; 0 before any time has passed. */
+    public synchronized double getMeanRate(long nowNanos) {
+        long elapsed = nowNanos - startNanos;
+        return elapsed <= 0 ? 0 : count / (elapsed / 1e9);
+    }
+
+    /**
+     * Exponentially weighted rate with the time constant {@code ONE_SECOND}, {@code TEN_SECONDS}
+     * or {@code ONE_MINUTE}; 0 until the first slot completes.
+     */
+    public synchronized double getMovingRate(int timeConstant, long nowNanos) {
+        advance(nowNanos);
+        if (completedSlots == 0) return 0;
+        // Weights of the slots seen so far add up to this, not 1
+        double weight = 1 - Math.pow(decays[timeConstant], completedSlots);
+        return rates[timeConstant] / weight;
+    }
+
+    /**
+     * Events in the last {@code windowNanos}, at most {@link #MAX_WINDOW_NANOS}, up to the last
+     * completed slot. Covers less if the meter has not run that long.
+     */
+    public synchronized long getWindowCount(long windowNanos, long nowNanos) {
+        advance(nowNanos);
+        int windowSlots = windowSlots(windowNanos);
+        long events = 0;
+        for (int i = 0; i < windowSlots; i++) {
+            events += slots[(newestSlot - i + SLOTS) % SLOTS];
+        }
+        return events;
+    }
+
+    /** {@link #getWindowCount} per second of the time it covers; 0 if it covers none. */
+    public synchronized double getWindowRate(long windowNanos, long nowNanos) {
+        long events = getWindowCount(windowNanos, nowNanos);
+        int windowSlots = windowSlots(windowNanos);
+        return windowSlots == 0 ? 0 : events / (windowSlots * SLOT_SECONDS);
+    }
+
+    private int windowSlots(long windowNanos) {
+        long requested = Math.min(windowNanos, MAX_WINDOW_NANOS) / SLOT_NANOS;
+        return (int) Math.min(requested, completedSlots);
+    }
+
+    private void advance(long nowNanos) {
+        long ended = (nowNanos - slotStartNanos) / SLOT_NANOS;
+        if (ended <= 0) return;
+        completeSlot(slotEvents);
+        slotEvents = 0;
+        // The slots after it were empty; past a minute of them only the rates still change
+        long empty = ended - 1;
+        int stored = (int) Math.min(empty, SLOTS);
+        for (int i = 0; i < stored; i++) {
+            completeSlot(0);
+        }
+        long unstored = empty - stored;
+        if (unstored > 0) {
+            for (int i = 0; i < rates.length; i++) {
+                rates[i] *= Math.pow(decays[i], unstored);
+            }
+            completedSlots += unstored;
+        }
+        slotStartNanos += ended * SLOT_NANOS;
+    }
+
+    private void completeSlot(long events) {
+        newestSlot = (newestSlot + 1) % SLOTS;
+        slots[newestSlot] = events;
+        completedSlots++;
+        double rate = events / SLOT_SECONDS;
+        for (int i = 0; i < rates.length; i++) {
+            rates[i] = decays[i] * rates[i] + (1 - decays[i]) * rate;
+        }
+    }
+}
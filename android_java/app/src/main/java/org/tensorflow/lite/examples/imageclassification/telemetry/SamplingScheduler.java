@@ -0,0 +1,206 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every telemetry sampling task on one thread, on one fixed-period grid.
+ *
+ * <p>Tick {@code n} is due at {@code origin + n * period} on the {@link System#nanoTime()} clock,
+ * so ticks never drift. All tasks of a tick see the same {@link Tick}, which makes rows from
+ * different streams joinable on {@link Tick#getSequence()}. A tick that overruns the next deadline
+ * does not queue up catch-up ticks: the missed ticks are skipped and counted as coalesced.
+ *
+ * <p>Work triggered by events can be run on the same thread with {@link #runOutOfBand(Task)}, so
+ * it never overlaps a tick.
+ */
+public class SamplingScheduler implements Closeable {
+    /** Called on the scheduler thread once per tick. */
+    public interface Task {
+        /** {@code tick} is reused; copy what is needed before returning. */
+        void onTick(Tick tick);
+    }
+
+    /** When a tick was due, when it actually ran, and how many ticks were skipped before it. */
+    public static final class Tick {
+        private long sequence;
+        private long scheduledNanos;
+        private long sampleNanos;
+        private long coalesced;
+
+        /**
+         * Index of this tick on the period grid, counted from {@link #start()}, or -1 for an
+         * out-of-band run.
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /** {@link System#nanoTime()} the tick was due at, or requested at if out of band. */
+        public long getScheduledNanos() {
+            return scheduledNanos;
+        }
+
+        /** {@link System#nanoTime()} the tick actually started at. */
+        public long getSampleNanos() {
+            return sampleNanos;
+        }
+
+        /** How late the tick ran, in nanoseconds. */
+        public long getLatenessNanos() {
+            return sampleNanos - scheduledNanos;
+        }
+
+        /** Ticks skipped right before this one because the previous tick overran. */
+        public long getCoalesced() {
+            return coalesced;
+        }
+    }
+
+    private static final Task[] NO_TASKS = new Task[0];
+
+    private final long periodNanos;
+    private final ScheduledThreadPoolExecutor executor;
+    private final Tick tick = new Tick();
+    private final Tick outOfBandTick = new Tick();
+    private final Runnable runTick = this::runTick;
+    private volatile Task[] tasks = NO_TASKS;
+
+    private long origin;
+    private long nextSequence;
+    private volatile boolean started;
+    private volatile long tickCount;
+    private volatile long coalescedCount;
+    private volatile long maxLatenessNanos;
+
+    public SamplingScheduler(long periodMs) {
+        if (periodMs <= 0) throw new IllegalArgumentException("period must be positive");
+        periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMs);
+        executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            // Short enough to survive the kernel's 15 character comm
+            Thread thread = new Thread(runnable, "Sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // A pending tick must not run once the scheduler is closed
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    public long getPeriodNanos() {
+        return periodNanos;
+    }
+
+    /** Adds {@code task} from the next tick on. */
+    public synchronized void add(Task task) {
+        Task[] updated = Arrays.copyOf(tasks, tasks.length + 1);
+        updated[tasks.length] = task;
+        tasks = updated;
+    }
+
+    /** Removes {@code task}; a tick already running may still call it once. */
+    public synchronized void remove(Task task) {
+        for (int i = 0; i < tasks.length; i++) {
+            if (tasks[i] == task) {
+                Task[] updated = new Task[tasks.length - 1];
+                System.arraycopy(tasks, 0, updated, 0, i);
+                System.arraycopy(tasks, i + 1, updated, i, updated.length - i);
+                tasks = updated;
+                return;
+            }
+        }
+    }
+
+    /** Starts ticking; tick 0 runs immediately. Later calls do nothing. */
+    public synchronized void start() {
+        if (started) return;
+        started = true;
+        executor.execute(() -> {
+            origin = System.nanoTime();
+            nextSequence = 0;
+            runTick();
+        });
+    }
+
+    /**
+     * Runs {@code task} once on the scheduler thread as soon as the current tick, if any, is done.
+     * Ignored after {@link #close()}.
+     */
+    public void runOutOfBand(final Task task) {
+        final long requestedNanos = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                outOfBandTick.sequence = -1;
+                outOfBandTick.scheduledNanos = requestedNanos;
+                outOfBandTick.sampleNanos = System.nanoTime();
+                outOfBandTick.coalesced = 0;
+                run(task, outOfBandTick);
+            });
+        } catch (RejectedExecutionException closed) {
+            // Nothing to sample into any more
+        }
+    }
+
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /** Ticks skipped in total because a tick overran the next deadline. */
+    public long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    public long getMaxLatenessNanos() {
+        return maxLatenessNanos;
+    }
+
+    private void runTick() {
+        long sequence = nextSequence;
+        tick.sequence = sequence;
+        tick.scheduledNanos = origin + sequence * periodNanos;
+        tick.sampleNanos = System.nanoTime();
+        long lateness = tick.getLatenessNanos();
+        if (lateness > maxLatenessNanos) maxLatenessNanos = lateness;
+
+        for (Task task : tasks) {
+            run(task, tick);
+        }
+        tickCount++;
+
+        // Next tick is the first grid point still in the future
+        long now = System.nanoTime();
+        long next = Math.max(sequence + 1, (now - origin) / periodNanos + 1);
+        long skipped = next - sequence - 1;
+        coalescedCount += skipped;
+        tick.coalesced = skipped;
+        nextSequence = next;
+        try {
+            executor.schedule(runTick, origin + next * periodNanos - now, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException closed) {
+            // Closed while this tick was running
+        }
+    }
+
+    private static void run(Task task, Tick tick) {
+        try {
+            task.onTick(tick);
+        } catch (RuntimeException e) {
+            // One failing stream must not stop the others
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /** Stops ticking and waits for a running tick to finish. */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(periodNanos + TimeUnit.SECONDS.toNanos(1),
+                    TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
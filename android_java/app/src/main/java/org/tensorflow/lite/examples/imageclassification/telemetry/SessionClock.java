@@ -0,0 +1,67 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Monotonic time base for one measurement session.
+ *
+ * <p>Records are stamped with nanoseconds since the session started on the
+ * {@link System#nanoTime()} clock, which never jumps and does not wrap at midnight. The wall-clock
+ * time of the start is captured once and written into file headers as an anchor, so absolute
+ * times can be recovered offline as {@code anchor + sessionNanos}.
+ */
+public final class SessionClock {
+    /** Header property holding the session start as an ISO 8601 local time. */
+    public static final String ANCHOR_WALL_CLOCK = "sessionStartWallClock";
+    /** Header property holding the session start in milliseconds since the epoch. */
+    public static final String ANCHOR_EPOCH_MILLIS = "sessionStartEpochMillis";
+
+    private final long startNanos;
+    private final long startEpochMillis;
+
+    public SessionClock() {
+        this(System.nanoTime(), System.currentTimeMillis());
+    }
+
+    SessionClock(long startNanos, long startEpochMillis) {
+        this.startNanos = startNanos;
+        this.startEpochMillis = startEpochMillis;
+    }
+
+    /** Nanoseconds since the session started. */
+    public long nanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /** Converts a {@link System#nanoTime()} reading to session time. */
+    public long toSessionNanos(long nanoTime) {
+        return nanoTime - startNanos;
+    }
+
+    /** Wall-clock milliseconds since the epoch for a session time. */
+    public long toEpochMillis(long sessionNanos) {
+        return startEpochMillis + sessionNanos / 1000000;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getStartEpochMillis() {
+        return startEpochMillis;
+    }
+
+    /** Formats the session start, e.g. for file names. */
+    public String format(String pattern) {
+        return new SimpleDateFormat(pattern, Locale.US).format(new Date(startEpochMillis));
+    }
+
+    /** Writes the wall-clock anchor into the header of a schema. */
+    public TelemetrySchema.Builder addAnchor(TelemetrySchema.Builder schema) {
+        return schema
+                .putProperty(ANCHOR_WALL_CLOCK, format("yyyy-MM-dd'T'HH:mm:ss.SSSZ"))
+                .putProperty(ANCHOR_EPOCH_MILLIS, Long.toString(startEpochMillis));
+    }
+}
@@ -0,0 +1,146 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A single sysfs/procfs file that is opened once and re-read in place.
+ *
+ * <p>Each {@link #read()} is a positional read at offset 0 into a buffer owned by the node, so
+ * sampling a node does not fork a process or allocate. Nodes that cannot be opened by the app
+ * (e.g. GPU utilization on a rooted Pixel) fall back to {@code su -c cat} when the owning
+ * {@link SysfsReader} allows privileged reads.
+ */
+public final class SysfsNode implements Closeable {
+    private final File file;
+    private final ByteBuffer buffer;
+    private final boolean privilegedFallback;
+    private FileChannel channel;
+    private boolean privileged;
+
+    SysfsNode(File file, int capacity, boolean privilegedFallback) {
+        this.file = file;
+        this.buffer = ByteBuffer.allocate(capacity);
+        this.privilegedFallback = privilegedFallback;
+        open();
+    }
+
+    private void open() {
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            privileged = false;
+        } catch (IOException | SecurityException e) {
+            channel = null;
+            privileged = privilegedFallback;
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /** Whether this node is read through the privileged {@code su} fallback. */
+    public boolean isPrivileged() {
+        return privileged;
+    }
+
+    /** Whether this node can be read at all. */
+    public boolean isReadable() {
+        return channel != null || privileged;
+    }
+
+    /**
+     * Re-reads the node from offset 0. Returns the number of bytes read, or -1 if the node could
+     * not be read. The contents are available through {@link #buffer()} until the next read.
+     */
+    public int read() {
+        buffer.clear();
+        int total = -1;
+        if (channel != null) {
+            try {
+                total = 0;
+                int n;
+                while (buffer.hasRemaining() && (n = channel.read(buffer, total)) > 0) {
+                    total += n;
+                }
+            } catch (IOException e) {
+                total = -1;
+                buffer.clear();
+            }
+        } else if (privileged) {
+            total = readPrivileged();
+        }
+        buffer.flip();
+        return total;
+    }
+
+    /** Buffer holding the bytes of the last {@link #read()}. */
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    /** Reads the node and parses its first integer, or returns {@code missing}. */
+    public long readLong(long missing) {
+        if (read() <= 0) return missing;
+        return SysfsParser.parseLong(buffer, missing);
+    }
+
+    /** Reads the node and parses all integers into {@code out}. Returns the count parsed. */
+    public int readLongs(long[] out) {
+        if (read() <= 0) return 0;
+        return SysfsParser.parseLongs(buffer, out);
+    }
+
+    /** Reads the first line of the node. Allocates, so only meant for discovery. */
+    public String readLine(String missing) {
+        int n = read();
+        if (n <= 0) return missing;
+        int end = 0;
+        while (end < n && buffer.get(end) != '\n') end++;
+        return new String(buffer.array(), 0, end, StandardCharsets.US_ASCII).trim();
+    }
+
+    private int readPrivileged() {
+        Process process = null;
+        try {
+            process = Runtime.getRuntime().exec(new String[]{"su", "-c", "cat " + file.getPath()});
+            int total = 0;
+            try (InputStream in = process.getInputStream()) {
+                int n;
+                byte[] array = buffer.array();
+                while (total < array.length
+                        && (n = in.read(array, total, array.length - total)) > 0) {
+                    total += n;
+                }
+            }
+            process.waitFor();
+            buffer.position(total);
+            return total;
+        } catch (IOException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        } finally {
+            if (process != null) process.destroy();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Nothing useful to do with a failed close on a read-only node.
+            }
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Allocation-free parsers for the ASCII integers exposed by sysfs and procfs.
+ * All methods read between the buffer's position and limit using absolute gets,
+ * so the buffer itself is never modified.
+ */
+public final class SysfsParser {
+
+    private SysfsParser() {}
+
+    /** Parses the first integer in the buffer, or returns {@code missing} if there is none. */
+    public static long parseLong(ByteBuffer buffer, long missing) {
+        return parseLongFrom(buffer, buffer.position(), missing);
+    }
+
+    private static long parseLongFrom(ByteBuffer buffer, int start, long missing) {
+        int limit = buffer.limit();
+        int i = skipWhitespace(buffer, start, limit);
+        if (i >= limit) return missing;
+
+        boolean negative = false;
+        byte b = buffer.get(i);
+        if (b == '-' || b == '+') {
+            negative = b == '-';
+            i++;
+        }
+
+        long value = 0;
+        int digits = 0;
+        while (i < limit) {
+            b = buffer.get(i);
+            if (b < '0' || b > '9') break;
+            value = value * 10 + (b - '0');
+            digits++;
+            i++;
+        }
+        if (digits == 0) return missing;
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses every whitespace separated integer in the buffer into {@code out}, in order.
+     * Tokens that are not integers are skipped. Returns the number of values written,
+     * which is at most {@code out.length}.
+     */
+    public static int parseLongs(ByteBuffer buffer, long[] out) {
+        int limit = buffer.limit();
+        int i = buffer.position();
+        int count = 0;
+        while (count < out.length) {
+            i = skipWhitespace(buffer, i, limit);
+            if (i >= limit) break;
+
+            boolean negative = false;
+            byte b = buffer.get(i);
+            if (b == '-' || b == '+') {
+                negative = b == '-';
+                i++;
+            }
+            long value = 0;
+            boolean valid = true;
+            int digits = 0;
+            while (i < limit) {
+                b = buffer.get(i);
+                if (isWhitespace(b)) break;
+                if (b < '0' || b > '9') {
+                    valid = false;
+                } else {
+                    value = value * 10 + (b - '0');
+                    digits++;
+                }
+                i++;
+            }
+            if (valid && digits > 0) {
+                out[count++] = negative ? -value : value;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Parses the integer found {@code token} whitespace separated tokens after {@code start}
+     * (0 being the token at {@code start}), or returns {@code missing}.
+     */
+    public static long parseLongAt(ByteBuffer buffer, int start, int token, long missing) {
+        int limit = buffer.limit();
+        int i = skipWhitespace(buffer, start, limit);
+        for (int t = 0; t < token && i < limit; t++) {
+            while (i < limit && !isWhitespace(buffer.get(i))) i++;
+            i = skipWhitespace(buffer, i, limit);
+        }
+        if (i >= limit) return missing;
+        return parseLongFrom(buffer, i, missing);
+    }
+
+    /** Index of the last occurrence of {@code b} before the limit, or -1. */
+    public static int lastIndexOf(ByteBuffer buffer, byte b) {
+        for (int i = buffer.limit() - 1; i >= buffer.position(); i--) {
+            if (buffer.get(i) == b) return i;
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(ByteBuffer buffer, int i, int limit) {
+        while (i < limit && isWhitespace(buffer.get(i))) i++;
+        return i;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\t' || b == '\r' || b == 0;
+    }
+}
@@ -0,0 +1,126 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Telemetry reader over a sysfs style directory tree.
+ *
+ * <p>Nodes are opened once on first use and cached by relative path, so the sampling loop only
+ * issues positional reads. The root is pluggable so the same code runs against a fake tree in
+ * unit tests.
+ */
+public class SysfsReader implements Closeable {
+    public static final String DEFAULT_ROOT = "/sys";
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private final File root;
+    private final boolean privilegedFallback;
+    private final Map<String, SysfsNode> nodes = new HashMap<>();
+
+    public SysfsReader(File root, boolean privilegedFallback) {
+        this.root = root;
+        this.privilegedFallback = privilegedFallback;
+    }
+
+    public File getRoot() {
+        return root;
+    }
+
+    public File resolve(String relativePath) {
+        return new File(root, relativePath);
+    }
+
+    /** Returns the cached node for {@code relativePath}, opening it if needed. */
+    public SysfsNode open(String relativePath) {
+        return open(relativePath, DEFAULT_CAPACITY);
+    }
+
+    /** Returns the cached node for {@code relativePath} with a buffer of at least {@code capacity}. */
+    public synchronized SysfsNode open(String relativePath, int capacity) {
+        SysfsNode node = nodes.get(relativePath);
+        if (node == null || node.buffer().capacity() < capacity) {
+            if (node != null) node.close();
+            node = new SysfsNode(resolve(relativePath), capacity, privilegedFallback);
+            nodes.put(relativePath, node);
+        }
+        return node;
+    }
+
+    /** Closes and forgets the node for {@code relativePath}, e.g. once a task has exited. */
+    public synchronized void release(String relativePath) {
+        SysfsNode node = nodes.remove(relativePath);
+        if (node != null) node.close();
+    }
+
+    /**
+     * Lists the entries of {@code relativeDir} in natural order ("thermal_zone2" before
+     * "thermal_zone10"). Falls back to {@code su -c ls} if the directory cannot be listed by the
+     * app. Returns an empty array if nothing could be listed.
+     */
+    public String[] list(String relativeDir) {
+        String[] entries = listUnsorted(relativeDir);
+        Arrays.sort(entries, SysfsReader::compareNumberedNames);
+        return entries;
+    }
+
+    private String[] listUnsorted(String relativeDir) {
+        File dir = resolve(relativeDir);
+        String[] entries = dir.list();
+        if (entries != null) return entries;
+        if (!privilegedFallback) return new String[0];
+
+        List<String> names = new ArrayList<>();
+        Process process = null;
+        try {
+            process = Runtime.getRuntime().exec(new String[]{"su", "-c", "ls " + dir.getPath()});
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty()) names.add(line.trim());
+                }
+            }
+            process.waitFor();
+        } catch (IOException e) {
+            return new String[0];
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (process != null) process.destroy();
+        }
+        return names.toArray(new String[0]);
+    }
+
+    // Orders names by their non-numeric prefix, then by their numeric suffix
+    static int compareNumberedNames(String a, String b) {
+        int aDigits = numericSuffixStart(a);
+        int bDigits = numericSuffixStart(b);
+        int prefix = a.substring(0, aDigits).compareTo(b.substring(0, bDigits));
+        if (prefix != 0) return prefix;
+        if (aDigits == a.length() || bDigits == b.length()) return a.compareTo(b);
+        return Long.compare(Long.parseLong(a.substring(aDigits)), Long.parseLong(b.substring(bDigits)));
+    }
+
+    private static int numericSuffixStart(String name) {
+        int i = name.length();
+        while (i > 0 && Character.isDigit(name.charAt(i - 1))) i--;
+        return i;
+    }
+
+    @Override
+    public synchronized void close() {
+        for (SysfsNode node : nodes.values()) {
+            node.close();
+        }
+        nodes.clear();
+    }
+}
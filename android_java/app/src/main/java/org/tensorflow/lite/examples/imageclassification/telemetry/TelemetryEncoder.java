@@ -0,0 +1,15 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Serializes a {@link TelemetrySchema} header and its records into a byte buffer.
+ *
+ * <p>Both methods throw {@link java.nio.BufferOverflowException} when {@code out} does not have
+ * room; the sink then flushes the buffer and retries.
+ */
+public interface TelemetryEncoder {
+    void encodeHeader(TelemetrySchema schema, ByteBuffer out);
+
+    void encode(TelemetryRecord record, ByteBuffer out);
+}
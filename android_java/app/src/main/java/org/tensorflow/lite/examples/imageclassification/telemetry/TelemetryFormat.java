@@ -0,0 +1,32 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+/** On-disk formats a {@link TelemetrySink} can write. */
+public enum TelemetryFormat {
+    /** Human-readable, one comma separated line per record. */
+    CSV(".csv"),
+    /** Fixed-width little-endian rows, see {@link BinaryTelemetryEncoder}. */
+    BINARY(".bin");
+
+    private final String extension;
+
+    TelemetryFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /** File extension including the leading dot. */
+    public String extension() {
+        return extension;
+    }
+
+    public TelemetryEncoder newEncoder() {
+        return this == BINARY ? new BinaryTelemetryEncoder() : new CsvTelemetryEncoder();
+    }
+
+    /** The format called {@code name}, ignoring case, or CSV if there is none. */
+    public static TelemetryFormat fromName(String name) {
+        for (TelemetryFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) return format;
+        }
+        return CSV;
+    }
+}
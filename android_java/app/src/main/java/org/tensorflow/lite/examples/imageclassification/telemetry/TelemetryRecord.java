@@ -0,0 +1,71 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import java.util.Arrays;
+
+/**
+ * A preallocated row of a {@link TelemetrySchema}. Records are owned by a {@link TelemetrySink}
+ * and reused: producers fill a claimed record in place and publish it back.
+ */
+public final class TelemetryRecord {
+    private final TelemetrySchema schema;
+    private final long[] longs;
+    private final float[] floats;
+    private final String[] texts;
+    // Ring position this record was claimed at
+    long position;
+
+    TelemetryRecord(TelemetrySchema schema) {
+        this.schema = schema;
+        longs = new long[schema.size()];
+        floats = new float[schema.size()];
+        texts = new String[schema.size()];
+    }
+
+    public TelemetrySchema getSchema() {
+        return schema;
+    }
+
+    /** Sets a numeric column; a FLOAT column takes the value as a float. */
+    public TelemetryRecord set(int column, long value) {
+        if (schema.getType(column) == TelemetrySchema.Type.FLOAT) {
+            floats[column] = value;
+        } else {
+            longs[column] = value;
+        }
+        return this;
+    }
+
+    /** Sets a numeric column; a LONG column takes the value rounded to the nearest long. */
+    public TelemetryRecord set(int column, float value) {
+        if (schema.getType(column) == TelemetrySchema.Type.LONG) {
+            longs[column] = Math.round((double) value);
+        } else {
+            floats[column] = value;
+        }
+        return this;
+    }
+
+    public TelemetryRecord set(int column, String value) {
+        texts[column] = value;
+        return this;
+    }
+
+    public long getLong(int column) {
+        return longs[column];
+    }
+
+    public float getFloat(int column) {
+        return floats[column];
+    }
+
+    /** Text value of {@code column}, or null if unset. */
+    public String getText(int column) {
+        return texts[column];
+    }
+
+    void clear() {
+        Arrays.fill(longs, 0L);
+        Arrays.fill(floats, 0f);
+        Arrays.fill(texts, null);
+    }
+}
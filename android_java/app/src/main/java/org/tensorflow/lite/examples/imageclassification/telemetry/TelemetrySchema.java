@@ -0,0 +1,103 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ordered, typed column layout shared by every record written to a {@link TelemetrySink}, plus
+ * file-level properties that encoders write once into the header.
+ */
+public final class TelemetrySchema {
+
+    /** Column value types. */
+    public enum Type {
+        LONG,
+        FLOAT,
+        TEXT
+    }
+
+    private final String[] names;
+    private final Type[] types;
+    private final Map<String, String> properties;
+
+    private TelemetrySchema(List<String> names, List<Type> types, Map<String, String> properties) {
+        this.names = names.toArray(new String[0]);
+        this.types = types.toArray(new Type[0]);
+        this.properties = Collections.unmodifiableMap(new LinkedHashMap<>(properties));
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String getName(int column) {
+        return names[column];
+    }
+
+    public Type getType(int column) {
+        return types[column];
+    }
+
+    /** Column names in order. */
+    public List<String> getNames() {
+        List<String> list = new ArrayList<>(names.length);
+        Collections.addAll(list, names);
+        return list;
+    }
+
+    /** Index of the column called {@code name}, or -1. */
+    public int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    /** Header properties in insertion order. */
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    /** Value of header property {@code key}, or null. */
+    public String getProperty(String key) {
+        return properties.get(key);
+    }
+
+    /** Builder for {@link TelemetrySchema}. */
+    public static final class Builder {
+        private final List<String> names = new ArrayList<>();
+        private final List<Type> types = new ArrayList<>();
+        private final Map<String, String> properties = new LinkedHashMap<>();
+
+        public Builder add(String name, Type type) {
+            names.add(name);
+            types.add(type);
+            return this;
+        }
+
+        public Builder addLong(String name) {
+            return add(name, Type.LONG);
+        }
+
+        public Builder addFloat(String name) {
+            return add(name, Type.FLOAT);
+        }
+
+        public Builder addText(String name) {
+            return add(name, Type.TEXT);
+        }
+
+        /** Sets a header property; keys and values must not contain line breaks. */
+        public Builder putProperty(String key, String value) {
+            properties.put(key, value);
+            return this;
+        }
+
+        public TelemetrySchema build() {
+            return new TelemetrySchema(names, types, properties);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous, batched writer for one telemetry file.
+ *
+ * <p>Producers {@link #claim()} a preallocated record from a bounded lock-free ring, fill it and
+ * {@link #publish(TelemetryRecord)} it; they never block and never touch the file. If the ring is
+ * full the record is dropped and counted. A single writer thread drains published records in
+ * batches into a long-lived file channel, forces it to storage periodically, and flushes
+ * everything on {@link #close()}.
+ */
+public class TelemetrySink implements Closeable {
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final long DEFAULT_FSYNC_INTERVAL_MS = 5000;
+    private static final int BATCH_SIZE = 64;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    // Numbers the writer threads, whose names must fit the kernel's 15 character comm
+    private static final AtomicInteger sinkCount = new AtomicInteger();
+
+    private final File file;
+    private final TelemetrySchema schema;
+    private final TelemetryEncoder encoder;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final long fsyncIntervalNanos;
+
+    // Ring slots follow the bounded MPMC queue of D. Vyukov, with a single consumer
+    private final TelemetryRecord[] records;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    private final AtomicLong dropCount = new AtomicLong();
+    private volatile long writtenCount;
+    private volatile long errorCount;
+    private volatile int maxQueueDepth;
+
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public TelemetrySink(File file, TelemetrySchema schema, TelemetryEncoder encoder)
+            throws IOException {
+        this(file, schema, encoder, DEFAULT_CAPACITY, DEFAULT_FSYNC_INTERVAL_MS);
+    }
+
+    public TelemetrySink(File file, TelemetrySchema schema, TelemetryEncoder encoder,
+                         int capacity, long fsyncIntervalMs) throws IOException {
+        this.file = file;
+        this.schema = schema;
+        this.encoder = encoder;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMs);
+
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        records = new TelemetryRecord[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            records[i] = new TelemetryRecord(schema);
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        encoder.encodeHeader(schema, buffer);
+        writeBuffer();
+
+        writer = new Thread(this::runWriter, "Sink-" + sinkCount.incrementAndGet());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public TelemetrySchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Claims a cleared record to fill, or returns null (and counts a drop) if the ring is full or
+     * the sink is closed. A claimed record must be passed to {@link #publish(TelemetryRecord)}.
+     */
+    public TelemetryRecord claim() {
+        if (!running) {
+            dropCount.incrementAndGet();
+            return null;
+        }
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    TelemetryRecord record = records[index];
+                    record.clear();
+                    record.position = position;
+                    return record;
+                }
+            } else if (difference < 0) {
+                dropCount.incrementAndGet();
+                return null;
+            }
+        }
+    }
+
+    /** Hands a claimed record to the writer thread. */
+    public void publish(TelemetryRecord record) {
+        long position = record.position;
+        sequences.set((int) position & mask, position + 1);
+        int depth = getQueueDepth();
+        if (depth > maxQueueDepth) maxQueueDepth = depth;
+    }
+
+    /** Records dropped because the ring was full or the sink was closed. */
+    public long getDropCount() {
+        return dropCount.get();
+    }
+
+    /** Records claimed but not yet written. */
+    public int getQueueDepth() {
+        return (int) (tail.get() - head);
+    }
+
+    /** Largest queue depth seen at publish time. */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    public long getWrittenCount() {
+        return writtenCount;
+    }
+
+    /** Failed writes; records in a failed batch are lost. */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    private void runWriter() {
+        long lastSync = System.nanoTime();
+        while (true) {
+            boolean stopping = !running;
+            int drained = drain(stopping ? Integer.MAX_VALUE : BATCH_SIZE);
+            writeBuffer();
+
+            long now = System.nanoTime();
+            if (now - lastSync >= fsyncIntervalNanos) {
+                force();
+                lastSync = now;
+            }
+            if (stopping) break;
+            if (drained == 0) LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+        force();
+    }
+
+    private int drain(int max) {
+        int drained = 0;
+        long position = head;
+        while (drained < max) {
+            int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) break;
+            encode(records[index]);
+            sequences.set(index, position + records.length);
+            position++;
+            head = position;
+            drained++;
+        }
+        writtenCount += drained;
+        return drained;
+    }
+
+    private void encode(TelemetryRecord record) {
+        int mark = buffer.position();
+        try {
+            encoder.encode(record, buffer);
+        } catch (BufferOverflowException e) {
+            buffer.position(mark);
+            writeBuffer();
+            try {
+                encoder.encode(record, buffer);
+            } catch (BufferOverflowException tooLarge) {
+                buffer.clear();
+                errorCount++;
+            }
+        }
+    }
+
+    private void writeBuffer() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            errorCount++;
+            System.out.println(e.getMessage());
+        }
+        buffer.clear();
+    }
+
+    private void force() {
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            errorCount++;
+        }
+    }
+
+    /** Stops accepting records, writes everything already published and closes the file. */
+    @Override
+    public void close() {
+        if (!running) return;
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
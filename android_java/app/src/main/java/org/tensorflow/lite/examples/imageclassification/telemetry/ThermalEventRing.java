@@ -0,0 +1,97 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue of thermal status transitions.
+ *
+ * <p>Platform callbacks {@link #offer(ThermalStatus, long)} an event, which only stores a status
+ * and a timestamp and never blocks; if the ring is full the event is dropped and counted, but
+ * {@link #getLatest()} still reflects it. A single consumer, the sampler thread, drains events
+ * with {@link #poll(Event)}.
+ */
+public final class ThermalEventRing {
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /** A drained transition; reused by the consumer. */
+    public static final class Event {
+        private ThermalStatus status = ThermalStatus.UNKNOWN;
+        private long sessionNanos;
+
+        public ThermalStatus getStatus() {
+            return status;
+        }
+
+        /** When the transition was reported, on the {@link SessionClock}. */
+        public long getSessionNanos() {
+            return sessionNanos;
+        }
+    }
+
+    private static final ThermalStatus[] STATUSES = ThermalStatus.values();
+
+    // Same slot protocol as the TelemetrySink ring: bounded MPMC queue of D. Vyukov
+    private final long[] timestamps;
+    private final int[] statuses;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    private final AtomicLong dropCount = new AtomicLong();
+    private volatile ThermalStatus latest;
+
+    public ThermalEventRing(int capacity, ThermalStatus initial) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        timestamps = new long[size];
+        statuses = new int[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+        latest = initial;
+    }
+
+    /** Queues a transition; returns false if the ring was full and the event was dropped. */
+    public boolean offer(ThermalStatus status, long sessionNanos) {
+        latest = status;
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    timestamps[index] = sessionNanos;
+                    statuses[index] = status.ordinal();
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                dropCount.incrementAndGet();
+                return false;
+            }
+        }
+    }
+
+    /** Moves the oldest queued transition into {@code into}; returns false if there is none. */
+    public boolean poll(Event into) {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) return false;
+        into.sessionNanos = timestamps[index];
+        into.status = STATUSES[statuses[index]];
+        sequences.set(index, head + sequences.length());
+        head++;
+        return true;
+    }
+
+    /** Most recently offered status, including dropped events. */
+    public ThermalStatus getLatest() {
+        return latest;
+    }
+
+    public long getDropCount() {
+        return dropCount.get();
+    }
+}
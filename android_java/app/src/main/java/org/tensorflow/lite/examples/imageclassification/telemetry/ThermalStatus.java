@@ -0,0 +1,42 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+/**
+ * Thermal throttling levels reported by the platform. Codes match the
+ * {@code PowerManager.THERMAL_STATUS_*} constants.
+ */
+public enum ThermalStatus {
+    NONE(0, "None"),
+    LIGHT(1, "Light"),
+    MODERATE(2, "Moderate"),
+    SEVERE(3, "Severe"),
+    CRITICAL(4, "Critical"),
+    EMERGENCY(5, "Emergency"),
+    SHUTDOWN(6, "Shutdown"),
+    UNKNOWN(-1, "Unknown");
+
+    private static final ThermalStatus[] BY_CODE = {
+            NONE, LIGHT, MODERATE, SEVERE, CRITICAL, EMERGENCY, SHUTDOWN
+    };
+
+    private final int code;
+    private final String displayName;
+
+    ThermalStatus(int code, String displayName) {
+        this.code = code;
+        this.displayName = displayName;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    /** Name written to the telemetry logs, e.g. "Moderate". */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /** Status for a {@code PowerManager.THERMAL_STATUS_*} code, or UNKNOWN. */
+    public static ThermalStatus fromCode(int code) {
+        return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : UNKNOWN;
+    }
+}
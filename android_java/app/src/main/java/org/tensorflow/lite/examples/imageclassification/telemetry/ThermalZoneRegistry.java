@@ -0,0 +1,120 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable set of thermal zones discovered once at startup.
+ *
+ * <p>Zone types never change at runtime, so discovery reads every {@code type} file once and
+ * classifies the zone against the types of interest. The sampling loop then only reads
+ * temperatures, addressing zones by their registry index.
+ */
+public final class ThermalZoneRegistry {
+    public static final String DEFAULT_THERMAL_DIR = "class/thermal";
+    public static final String DEFAULT_ZONE_TYPE = "default_zone_type";
+    public static final float MISSING_TEMPERATURE = -1f;
+
+    private final ThermalZone[] zones;
+    private final String[] typesOfInterest;
+    private final int[] zonesOfInterest;
+
+    private ThermalZoneRegistry(ThermalZone[] zones, String[] typesOfInterest) {
+        this.zones = zones;
+        this.typesOfInterest = typesOfInterest.clone();
+        int count = 0;
+        for (ThermalZone zone : zones) {
+            if (zone.isOfInterest()) count++;
+        }
+        zonesOfInterest = new int[count];
+        count = 0;
+        for (ThermalZone zone : zones) {
+            if (zone.isOfInterest()) zonesOfInterest[count++] = zone.index;
+        }
+    }
+
+    /**
+     * Discovers every {@code thermal_zone*} directory under {@code thermalDir} of {@code reader}.
+     * A zone is of interest if its type contains one of {@code typesOfInterest}; the first match
+     * in list order wins.
+     */
+    public static ThermalZoneRegistry discover(
+            SysfsReader reader, String thermalDir, String[] typesOfInterest) {
+        List<ThermalZone> zones = new ArrayList<>();
+        for (String name : reader.list(thermalDir)) {
+            if (!name.contains("thermal_zone")) continue;
+            String path = thermalDir + "/" + name + "/";
+            String type = reader.open(path + "type").readLine(DEFAULT_ZONE_TYPE);
+            // Types are only needed once, so there is no reason to keep the node open
+            reader.release(path + "type");
+
+            int interest = -1;
+            for (int i = 0; i < typesOfInterest.length; i++) {
+                if (type.contains(typesOfInterest[i])) {
+                    interest = i;
+                    break;
+                }
+            }
+            zones.add(new ThermalZone(zones.size(), path, type, interest,
+                    reader.open(path + "temp")));
+        }
+        return new ThermalZoneRegistry(zones.toArray(new ThermalZone[0]), typesOfInterest);
+    }
+
+    public int size() {
+        return zones.length;
+    }
+
+    public ThermalZone get(int index) {
+        return zones[index];
+    }
+
+    public String[] getTypesOfInterest() {
+        return typesOfInterest.clone();
+    }
+
+    /** Registry indices of the zones of interest, in registry order. */
+    public int[] getZonesOfInterest() {
+        return zonesOfInterest.clone();
+    }
+
+    /**
+     * Reads the temperature of zone {@code index} in degrees Celsius. Negative readings are
+     * clamped to 0; unreadable zones report {@link #MISSING_TEMPERATURE}.
+     */
+    public float readTemperature(int index) {
+        long milliCelsius = zones[index].tempNode.readLong(Long.MIN_VALUE);
+        if (milliCelsius == Long.MIN_VALUE) return MISSING_TEMPERATURE;
+        if (milliCelsius < 0) milliCelsius = 0;
+        return milliCelsius / 1000f;
+    }
+
+    /** Reads every zone's temperature into {@code out}, indexed by registry index. */
+    public void readTemperatures(float[] out) {
+        for (int i = 0; i < zones.length; i++) {
+            out[i] = readTemperature(i);
+        }
+    }
+
+    /** A discovered thermal zone. */
+    public static final class ThermalZone {
+        public final int index;
+        public final String path;
+        public final String type;
+        /** Index into the types of interest, or -1 if the zone is not of interest. */
+        public final int interest;
+        final SysfsNode tempNode;
+
+        ThermalZone(int index, String path, String type, int interest, SysfsNode tempNode) {
+            this.index = index;
+            this.path = path;
+            this.type = type;
+            this.interest = interest;
+            this.tempNode = tempNode;
+        }
+
+        public boolean isOfInterest() {
+            return interest >= 0;
+        }
+    }
+}
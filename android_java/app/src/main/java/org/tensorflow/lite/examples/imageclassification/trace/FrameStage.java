@@ -0,0 +1,28 @@
+package org.tensorflow.lite.examples.imageclassification.trace;
+
+/** A step of the frame pipeline, from the camera to the results on screen. */
+public enum FrameStage {
+    /** The analyzer handling a CameraX frame, from delivery to publishing it. */
+    ANALYZE("analyze"),
+    /** Copying the camera image into a ring bitmap. */
+    COPY("copy"),
+    /** From publishing a frame until a classifier takes it from the stream. */
+    HANDOFF("handoff"),
+    PREPROCESS("preprocess"),
+    INVOKE("invoke"),
+    /** Handing the results to the listener. */
+    RESULTS("results"),
+    /** From posting the results to the UI thread until they are shown. */
+    UI("ui");
+
+    private final String displayName;
+
+    FrameStage(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /** Name in traces, e.g. "preprocess". */
+    public String getDisplayName() {
+        return displayName;
+    }
+}
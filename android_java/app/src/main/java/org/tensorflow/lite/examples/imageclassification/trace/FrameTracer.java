@@ -0,0 +1,55 @@
+package org.tensorflow.lite.examples.imageclassification.trace;
+
+import android.os.Trace;
+
+/**
+ * Switch and entry points of frame tracing, shared by every stage of the pipeline.
+ *
+ * <p>Trace points check {@link #isEnabled()} once and do nothing else while tracing is off, not
+ * even read the clock. While on, spans go into a {@link TraceBuffer}, and stages running
+ * synchronously on one thread are also marked as sections for systrace and Perfetto.
+ */
+public final class FrameTracer {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static volatile boolean enabled;
+    private static volatile TraceBuffer buffer;
+
+    private FrameTracer() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Starts tracing into a new buffer of {@code capacity} spans. */
+    public static synchronized void start(int capacity) {
+        buffer = new TraceBuffer(capacity);
+        enabled = true;
+    }
+
+    /** Stops tracing and returns the spans recorded, or null if tracing was off. */
+    public static synchronized TraceBuffer stop() {
+        TraceBuffer stopped = buffer;
+        enabled = false;
+        buffer = null;
+        return stopped;
+    }
+
+    /** Records a span of {@code frame} that has ended. */
+    public static void span(FrameStage stage, long frame, long beginNanos, long endNanos) {
+        // Null if tracing stopped since the caller checked
+        TraceBuffer current = buffer;
+        if (current != null) current.record(stage, frame, beginNanos, endNanos);
+    }
+
+    /** Opens a platform trace section for {@code stage} on this thread. */
+    public static void beginSection(FrameStage stage) {
+        Trace.beginSection(stage.getDisplayName());
+    }
+
+    /** Closes the section opened last on this thread. */
+    public static void endSection() {
+        Trace.endSection();
+    }
+}
@@ -0,0 +1,115 @@
+package org.tensorflow.lite.examples.imageclassification.trace;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Preallocated ring of frame pipeline spans, exported as Chrome trace-event JSON.
+ *
+ * <p>Any thread may {@link #record} a span; it claims the next slot with one atomic increment and
+ * overwrites the oldest span once the ring is full, so a long run keeps its most recent spans.
+ * Nothing is allocated per span; a thread is named once, on its first span. Export once the
+ * writers are done, e.g. after {@link FrameTracer#stop()}.
+ */
+public final class TraceBuffer {
+    private static final FrameStage[] STAGES = FrameStage.values();
+
+    private final long[] frames;
+    private final long[] beginNanos;
+    private final long[] endNanos;
+    private final int[] stages;
+    private final int[] tracks;
+    // Sequence + 1 of the span a slot holds, set once its fields are written; 0 if empty
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+
+    // Index of each thread's name in trackNames
+    private final ThreadLocal<Integer> track = new ThreadLocal<>();
+    private final List<String> trackNames = new ArrayList<>();
+
+    public TraceBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        frames = new long[size];
+        beginNanos = new long[size];
+        endNanos = new long[size];
+        stages = new int[size];
+        tracks = new int[size];
+        published = new AtomicLongArray(size);
+        mask = size - 1;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /** Spans recorded so far, including those overwritten since. */
+    public long getRecordedCount() {
+        return next.get();
+    }
+
+    /** Records that {@code frame} spent {@code beginNanos} to {@code endNanos} in {@code stage}. */
+    public void record(FrameStage stage, long frame, long beginNanos, long endNanos) {
+        int track = currentTrack();
+        long sequence = next.getAndIncrement();
+        int slot = (int) sequence & mask;
+        published.set(slot, 0);
+        frames[slot] = frame;
+        this.beginNanos[slot] = beginNanos;
+        this.endNanos[slot] = endNanos;
+        stages[slot] = stage.ordinal();
+        tracks[slot] = track;
+        published.set(slot, sequence + 1);
+    }
+
+    private int currentTrack() {
+        Integer index = track.get();
+        if (index != null) return index;
+        synchronized (trackNames) {
+            index = trackNames.size();
+            trackNames.add(Thread.currentThread().getName());
+        }
+        track.set(index);
+        return index;
+    }
+
+    /**
+     * Writes the spans in the ring as complete ("X") events, oldest first, one track per thread.
+     * Times are in microseconds since {@code originNanos} and each event carries its frame id.
+     */
+    public void writeChromeTrace(Writer out, long originNanos) throws IOException {
+        out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+        boolean first = true;
+        synchronized (trackNames) {
+            for (int i = 0; i < trackNames.size(); i++) {
+                if (!first) out.write(",\n");
+                first = false;
+                out.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + i
+                        + ",\"args\":{\"name\":\"" + escape(trackNames.get(i)) + "\"}}");
+            }
+        }
+        long end = next.get();
+        for (long sequence = Math.max(0, end - capacity()); sequence < end; sequence++) {
+            int slot = (int) sequence & mask;
+            if (published.get(slot) != sequence + 1) continue;
+            if (!first) out.write(",\n");
+            first = false;
+            out.write(String.format(Locale.US,
+                    "{\"name\":\"%s\",\"cat\":\"frame\",\"ph\":\"X\",\"pid\":1,\"tid\":%d,"
+                            + "\"ts\":%.3f,\"dur\":%.3f,\"args\":{\"frame\":%d}}",
+                    STAGES[stages[slot]].getDisplayName(), tracks[slot],
+                    (beginNanos[slot] - originNanos) / 1e3,
+                    (endNanos[slot] - beginNanos[slot]) / 1e3, frames[slot]));
+        }
+        out.write("\n]}\n");
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
@@ -0,0 +1,47 @@
+package org.tensorflow.lite.examples.imageclassification;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class InferenceStatsTest {
+    private static final long MS = 1000000;
+
+    @Test
+    public void idlesUntilThePeriodEnds() {
+        InferenceStats stats = new InferenceStats();
+        stats.record(2 * MS, 30 * MS, 1 * MS, 100, 0);
+        assertEquals(33 * MS, stats.getLastTurnAroundNanos());
+        assertEquals(100 * MS, stats.getMeasuredPeriodNanos());
+        assertEquals(10, stats.getPeriodThroughput(), 1e-9);
+    }
+
+    @Test
+    public void overrunsStretchThePeriod() {
+        InferenceStats stats = new InferenceStats();
+        stats.record(10 * MS, 180 * MS, 10 * MS, 100, 0);
+        assertEquals(200 * MS, stats.getMeasuredPeriodNanos());
+        assertEquals(5, stats.getPeriodThroughput(), 1e-9);
+    }
+
+    @Test
+    public void averagesEveryStage() {
+        InferenceStats stats = new InferenceStats();
+        stats.record(2 * MS, 40 * MS, 0, 0, 0);
+        stats.record(4 * MS, 60 * MS, 2 * MS, 0, 0);
+        assertEquals(2, stats.getCount());
+        assertEquals(3 * MS, stats.getAvgPreprocessNanos());
+        assertEquals(50 * MS, stats.getAvgInvokeNanos());
+        assertEquals(1 * MS, stats.getAvgPostprocessNanos());
+        assertEquals(54 * MS, stats.getAvgTurnAroundNanos());
+        assertEquals(54 * MS, stats.getAvgMeasuredPeriodNanos());
+        // 1000 / 66 inferences per second, not truncated
+        assertEquals(1000 / 66.0, stats.getPeriodThroughput(), 1e-9);
+        assertEquals(2, stats.getCompletions().getCount());
+
+        stats.reset();
+        assertEquals(0, stats.getCount());
+        assertEquals(0, stats.getAvgInvokeNanos());
+        assertEquals(0, stats.getCompletions().getCount());
+    }
+}
@@ -0,0 +1,129 @@
+package org.tensorflow.lite.examples.imageclassification.experiment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tensorflow.lite.examples.imageclassification.scheduler.Accelerator;
+
+public class ExperimentPlanTest {
+    private static final String JSON = "{\"name\": \"sweep\", \"cooldownTemperatureC\": 40,\n"
+            + " \"phases\": [\n"
+            + "  {\"id\": \"1a\", \"warmupMs\": 30000, \"durationMs\": 240000, \"tasks\": [\n"
+            + "    {\"model\": \"mobilenetv1\", \"delegate\": \"CPU\", \"threads\": 2,"
+            + " \"periodMs\": 30},\n"
+            + "    {\"model\": \"efficientnet-lite0\", \"delegate\": \"gpu\", \"threads\": 1,"
+            + " \"periodMs\": 40}]},\n"
+            + "  {\"id\": \"2a\", \"durationMs\": 60000, \"cooldownTemperatureC\": 0,"
+            + " \"cooldownTimeoutMs\": 1000, \"tasks\": [\n"
+            + "    {\"model\": \"efficientnet-lite1\", \"delegate\": \"NPU\", \"threads\": 4,"
+            + " \"periodMs\": 0}]}]}";
+
+    private static final String PROPERTIES = "name = sweep\n"
+            + "cooldownTemperatureC = 40\n"
+            + "phases = 1a, 2a\n"
+            + "phase.1a.warmupMs = 30000\n"
+            + "phase.1a.durationMs = 240000\n"
+            + "phase.1a.tasks = mobilenetv1:CPU:2:30, efficientnet-lite0:gpu:1:40\n"
+            + "phase.2a.durationMs = 60000\n"
+            + "phase.2a.cooldownTemperatureC = 0\n"
+            + "phase.2a.cooldownTimeoutMs = 1000\n"
+            + "phase.2a.tasks = efficientnet-lite1:NPU:4:0\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void assertSweep(ExperimentPlan plan) {
+        assertEquals("sweep", plan.getName());
+        assertEquals(2, plan.getPhases().size());
+
+        ExperimentPlan.Phase first = plan.getPhases().get(0);
+        assertEquals("1a", first.id);
+        assertEquals(30000, first.warmupMs);
+        assertEquals(240000, first.durationMs);
+        assertEquals(40f, first.cooldownTemperatureC, 0f);
+        assertEquals(ExperimentPlan.DEFAULT_COOLDOWN_TIMEOUT_MS, first.cooldownTimeoutMs);
+        assertEquals(2, first.tasks.size());
+        assertEquals("mobilenetv1:CPU:2:30", first.tasks.get(0).toString());
+        assertEquals(Accelerator.GPU, first.tasks.get(1).delegate);
+        assertEquals(1, first.tasks.get(1).threads);
+        assertEquals(40, first.tasks.get(1).periodMs);
+
+        ExperimentPlan.Phase second = plan.getPhases().get(1);
+        assertEquals("2a", second.id);
+        assertEquals(0, second.warmupMs);
+        assertEquals(0f, second.cooldownTemperatureC, 0f);
+        assertEquals(1000, second.cooldownTimeoutMs);
+        assertEquals("efficientnet-lite1:NPU:4:0", second.tasks.get(0).toString());
+    }
+
+    @Test
+    public void parsesJsonAndPropertiesAlike() throws IOException {
+        assertSweep(ExperimentPlan.parseJson(JSON));
+        assertSweep(ExperimentPlan.parseProperties(new StringReader(PROPERTIES)));
+    }
+
+    @Test
+    public void loadsByExtension() throws IOException {
+        File json = folder.newFile("plan.json");
+        Files.write(json.toPath(), JSON.getBytes(StandardCharsets.UTF_8));
+        File properties = folder.newFile("plan.properties");
+        Files.write(properties.toPath(), PROPERTIES.getBytes(StandardCharsets.UTF_8));
+
+        assertSweep(ExperimentPlan.load(json));
+        assertSweep(ExperimentPlan.load(properties));
+    }
+
+    @Test
+    public void rejectsInvalidPlans() {
+        String[] invalid = {
+                "{\"phases\": []}",
+                "{\"phases\": [{\"id\": \"a\", \"durationMs\": 1, \"tasks\": []}]}",
+                // Missing threads
+                "{\"phases\": [{\"id\": \"a\", \"durationMs\": 1, \"tasks\": ["
+                        + "{\"model\": \"m\", \"delegate\": \"CPU\", \"periodMs\": 30}]}]}",
+                "{\"phases\": [{\"id\": \"a\", \"durationMs\": 1.5, \"tasks\": ["
+                        + "{\"model\": \"m\", \"delegate\": \"CPU\", \"threads\": 1,"
+                        + " \"periodMs\": 30}]}]}",
+                "{\"phases\": [{\"id\": \"a\", \"durationMs\": 1, \"tasks\": ["
+                        + "{\"model\": \"m\", \"delegate\": \"TPU\", \"threads\": 1,"
+                        + " \"periodMs\": 30}]}]}",
+                JSON.replace("\"2a\"", "\"1a\""),
+                JSON.substring(0, JSON.length() - 1),
+        };
+        for (String plan : invalid) {
+            try {
+                ExperimentPlan.parseJson(plan);
+                fail("accepted " + plan);
+            } catch (IllegalArgumentException expected) {
+                // Rejected
+            }
+        }
+        try {
+            ExperimentPlan.parseProperties(
+                    new StringReader("phases = a\nphase.a.tasks = m:CPU:1\n"));
+            fail("accepted a task without a period");
+        } catch (IllegalArgumentException | IOException expected) {
+            // Rejected
+        }
+    }
+
+    @Test
+    public void bundledPlanParses() throws IOException {
+        // Unit tests run in the app module directory
+        File bundled = new File("src/main/assets/experiment_plan.json");
+        if (!bundled.isFile()) return;
+        ExperimentPlan plan = ExperimentPlan.load(bundled);
+        assertEquals(5, plan.getPhases().size());
+        for (ExperimentPlan.Phase phase : plan.getPhases()) {
+            assertEquals(3, phase.tasks.size());
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package org.tensorflow.lite.examples.imageclassification.experiment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tensorflow.lite.examples.imageclassification.telemetry.CsvTelemetryEncoder;
+import org.tensorflow.lite.examples.imageclassification.telemetry.TelemetrySchema;
+import org.tensorflow.lite.examples.imageclassification.telemetry.TelemetrySink;
+
+/** Drives the runner with a simulated thermal feed, one reading per second. */
+public class ExperimentRunnerTest {
+    private static final String PLAN = "name = test\n"
+            + "cooldownTemperatureC = 40\n"
+            + "cooldownTimeoutMs = 60000\n"
+            + "phases = a, b\n"
+            + "phase.a.warmupMs = 2000\n"
+            + "phase.a.durationMs = 3000\n"
+            + "phase.a.tasks = mobilenetv1:CPU:2:30\n"
+            + "phase.b.durationMs = 2000\n"
+            + "phase.b.tasks = efficientnet-lite0:GPU:2:40\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<String> events = new ArrayList<>();
+    private final ExperimentRunner.Listener listener = new ExperimentRunner.Listener() {
+        @Override
+        public void onPhaseStart(ExperimentPlan.Phase phase) {
+            events.add(second + " start " + phase.id);
+        }
+
+        @Override
+        public void onMeasureStart(ExperimentPlan.Phase phase) {
+            events.add(second + " measure " + phase.id);
+        }
+
+        @Override
+        public void onPhaseEnd(ExperimentPlan.Phase phase) {
+            events.add(second + " end " + phase.id);
+        }
+
+        @Override
+        public void onFinished(ExperimentPlan plan) {
+            events.add(second + " finished " + plan.getName());
+        }
+    };
+    private long second;
+
+    private static ExperimentPlan plan(String properties) {
+        try {
+            return ExperimentPlan.parseProperties(new java.io.StringReader(properties));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void feed(ExperimentRunner runner, float temperatureC) {
+        runner.update(TimeUnit.SECONDS.toNanos(second), temperatureC);
+        second++;
+    }
+
+    @Test
+    public void waitsForCooldownThenRunsPhasesBackToBack() {
+        ExperimentRunner runner = new ExperimentRunner(null);
+        feed(runner, 45f);
+        runner.start(plan(PLAN), listener, TimeUnit.SECONDS.toNanos(second));
+        assertEquals(ExperimentRunner.Stage.COOLDOWN, runner.getStage());
+        assertEquals("a", runner.getPhaseId());
+
+        // Too hot to start
+        feed(runner, 44f);
+        feed(runner, 41f);
+        assertTrue(events.isEmpty());
+        feed(runner, 40f);
+        assertEquals(ExperimentRunner.Stage.WARMUP, runner.getStage());
+        // Warmup of 2 s, then 3 s measured
+        while (runner.getStage() != ExperimentRunner.Stage.COOLDOWN) {
+            feed(runner, 50f);
+        }
+        assertEquals("b", runner.getPhaseId());
+        // Hot after phase a: b waits until the zone cools down again
+        feed(runner, 50f);
+        feed(runner, 38f);
+        // No warmup: measured from the start
+        assertEquals(ExperimentRunner.Stage.MEASURE, runner.getStage());
+        feed(runner, 38f);
+        feed(runner, 38f);
+
+        assertEquals(ExperimentRunner.Stage.DONE, runner.getStage());
+        assertEquals("", runner.getPhaseId());
+        assertFalse(runner.isRunning());
+        List<String> expected = new ArrayList<>();
+        expected.add("3 start a");
+        expected.add("5 measure a");
+        expected.add("8 end a");
+        expected.add("10 start b");
+        expected.add("10 measure b");
+        expected.add("12 end b");
+        expected.add("12 finished test");
+        assertEquals(expected, events);
+    }
+
+    @Test
+    public void cooldownTimesOut() {
+        ExperimentRunner runner = new ExperimentRunner(null);
+        feed(runner, 80f);
+        runner.start(plan(PLAN.replace("60000", "5000")), listener, 0);
+        for (int i = 0; i < 4; i++) {
+            feed(runner, 80f);
+        }
+        assertEquals(ExperimentRunner.Stage.COOLDOWN, runner.getStage());
+        feed(runner, 80f);
+        assertEquals(ExperimentRunner.Stage.WARMUP, runner.getStage());
+        assertEquals("5 start a", events.get(0));
+    }
+
+    @Test
+    public void ungatedPhaseStartsRightAwayAndStopEndsIt() {
+        ExperimentRunner runner = new ExperimentRunner(null);
+        runner.start(plan(PLAN.replace("cooldownTemperatureC = 40", "")), listener, 0);
+        assertEquals(ExperimentRunner.Stage.WARMUP, runner.getStage());
+
+        feed(runner, 90f);
+        runner.stop(TimeUnit.SECONDS.toNanos(second));
+        assertEquals(ExperimentRunner.Stage.IDLE, runner.getStage());
+        assertEquals("", runner.getPhaseId());
+        // Readings after a stop do nothing
+        feed(runner, 20f);
+        assertEquals(2, events.size());
+        assertEquals("1 end a", events.get(1));
+    }
+
+    @Test
+    public void logsEveryTransition() throws IOException {
+        File file = folder.newFile("phases.csv");
+        TelemetrySchema schema =
+                ExperimentRunner.addTransitionColumns(new TelemetrySchema.Builder()).build();
+        TelemetrySink sink = new TelemetrySink(file, schema, new CsvTelemetryEncoder());
+        ExperimentRunner runner = new ExperimentRunner(sink);
+        runner.start(plan(PLAN.replace("cooldownTemperatureC = 40", "")), listener, 0);
+        while (runner.isRunning()) {
+            feed(runner, 30f);
+        }
+        sink.close();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        // Header, then cooldown, warmup, measure for a and b, and done
+        assertEquals(1 + 7, lines.size());
+        assertTrue(lines.get(3), lines.get(3).contains(",test,a,measure,"));
+        assertTrue(lines.get(7), lines.get(7).contains(",test,b,done,"));
+    }
+}
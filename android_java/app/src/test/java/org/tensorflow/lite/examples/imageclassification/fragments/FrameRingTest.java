@@ -0,0 +1,108 @@
+package org.tensorflow.lite.examples.imageclassification.fragments;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class FrameRingTest {
+
+    @Test
+    public void consumersGetTheLatestFrame() {
+        FrameRing<int[]> ring = new FrameRing<>(3);
+        assertNull(ring.acquireLatest());
+
+        FrameRing.Slot<int[]> first = ring.claim();
+        ring.publish(first, 90);
+        FrameRing.Slot<int[]> second = ring.claim();
+        ring.publish(second, 180);
+
+        FrameRing.Slot<int[]> latest = ring.acquireLatest();
+        assertSame(second, latest);
+        assertEquals(2, latest.getSequence());
+        assertEquals(180, latest.getRotation());
+        ring.release(latest);
+    }
+
+    @Test
+    public void dropsFramesInsteadOfOverwritingHeldOnes() {
+        FrameRing<int[]> ring = new FrameRing<>(2);
+        ring.publish(ring.claim(), 0);
+        FrameRing.Slot<int[]> held = ring.acquireLatest();
+        FrameRing.Slot<int[]> writing = ring.claim();
+        assertNotNull(writing);
+
+        // One slot is held by a consumer and the other is being written
+        assertNull(ring.claim());
+        assertEquals(1, ring.getDropCount());
+
+        ring.publish(writing, 0);
+        ring.release(held);
+        assertSame(held, ring.claim());
+    }
+
+    @Test
+    public void concurrentConsumersNeverSeeTornFrames() throws Exception {
+        final int consumers = 3;
+        final FrameRing<int[]> ring = new FrameRing<>(consumers + 2);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicReference<String> failure = new AtomicReference<>();
+        final Set<int[]> buffers = Collections.newSetFromMap(new IdentityHashMap<int[], Boolean>());
+
+        Thread[] threads = new Thread[consumers];
+        for (int i = 0; i < consumers; i++) {
+            threads[i] = new Thread(() -> {
+                long last = 0;
+                while (running.get()) {
+                    FrameRing.Slot<int[]> slot = ring.acquireLatest();
+                    if (slot == null) continue;
+                    try {
+                        long sequence = slot.getSequence();
+                        if (sequence < last) failure.set("went back from " + last + " to " + sequence);
+                        last = sequence;
+                        for (int value : slot.getBuffer()) {
+                            if (value != (int) sequence) failure.set("torn frame " + sequence);
+                        }
+                    } finally {
+                        ring.release(slot);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+
+        int published = 0;
+        for (int frame = 0; frame < 20000; frame++) {
+            FrameRing.Slot<int[]> slot = ring.claim();
+            if (slot == null) continue;
+            if (slot.getBuffer() == null) {
+                slot.setBuffer(new int[256]);
+                buffers.add(slot.getBuffer());
+            }
+            Arrays.fill(slot.getBuffer(), published + 1);
+            ring.publish(slot, 0);
+            published++;
+        }
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(failure.get(), failure.get());
+        assertEquals(published, ring.getPublishedCount());
+        // Buffers are reused, never allocated per frame
+        assertTrue(buffers.size() <= ring.size());
+        // With one slot per consumer plus two, the producer always finds a free one
+        assertEquals(0, ring.getDropCount());
+    }
+}
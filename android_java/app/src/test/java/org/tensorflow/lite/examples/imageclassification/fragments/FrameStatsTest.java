@@ -0,0 +1,31 @@
+package org.tensorflow.lite.examples.imageclassification.fragments;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class FrameStatsTest {
+
+    @Test
+    public void countsSkippedAndReusedFrames() {
+        FrameStats stats = new FrameStats();
+        stats.onFrame(3);
+        stats.onFrame(4);
+        stats.onFrame(7);
+        stats.onFrame(7);
+        assertEquals(4, stats.getProcessed());
+        assertEquals(2, stats.getSkipped());
+        assertEquals(1, stats.getReused());
+        assertEquals(7, stats.getLastSequence());
+    }
+
+    @Test
+    public void doesNotCountFramesMissedWhilePaused() {
+        FrameStats stats = new FrameStats();
+        stats.onFrame(1);
+        stats.reset();
+        stats.onFrame(40);
+        assertEquals(0, stats.getSkipped());
+        assertEquals(2, stats.getProcessed());
+    }
+}
@@ -0,0 +1,148 @@
+package org.tensorflow.lite.examples.imageclassification.governor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tensorflow.lite.examples.imageclassification.telemetry.CsvTelemetryEncoder;
+import org.tensorflow.lite.examples.imageclassification.telemetry.TelemetrySchema;
+import org.tensorflow.lite.examples.imageclassification.telemetry.TelemetrySink;
+import org.tensorflow.lite.examples.imageclassification.telemetry.ThermalStatus;
+
+/** Drives the governor with a simulated thermal feed, one reading per second. */
+public class ThermalGovernorTest {
+    private static final String TABLE =
+            "# name, status, temperatureC, periodScale, minPeriodMs, maxThreads\n"
+                    + "nominal, NONE, 0, 1.0, 0, 0\n"
+                    + "hot, MODERATE, 60, 1.5, 0, 0\n"
+                    + "severe, SEVERE, 70, 3.0, 50, 1\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private long second;
+
+    private int feed(ThermalGovernor governor, ThermalStatus status, float temperatureC) {
+        return governor.update(TimeUnit.SECONDS.toNanos(second++), status, temperatureC);
+    }
+
+    @Test
+    public void stretchesImmediatelyAndRestoresAfterHysteresisAndDwell() {
+        ThermalGovernor governor = new ThermalGovernor(ThermalPolicy.parse(TABLE), null);
+        SimulatedTask task = new SimulatedTask(0, 20, 4);
+        governor.register(task);
+
+        assertEquals(0, feed(governor, ThermalStatus.NONE, 45f));
+        assertEquals(20, task.periodMs);
+
+        assertEquals(1, feed(governor, ThermalStatus.NONE, 61f));
+        assertEquals(30, task.periodMs);
+        assertEquals(2, feed(governor, ThermalStatus.SEVERE, 64f));
+        assertEquals(60, task.periodMs);
+        assertEquals(1, task.threads);
+
+        // Below the threshold but inside the hysteresis margin: hold
+        assertEquals(2, feed(governor, ThermalStatus.MODERATE, 68f));
+        // Cool enough, but the level has not been held for the dwell time yet
+        assertEquals(2, feed(governor, ThermalStatus.MODERATE, 50f));
+        second += 10;
+        assertEquals(1, feed(governor, ThermalStatus.MODERATE, 50f));
+        assertEquals(30, task.periodMs);
+        assertEquals(4, task.threads);
+
+        second += 10;
+        assertEquals(0, feed(governor, ThermalStatus.NONE, 40f));
+        assertEquals(20, task.periodMs);
+    }
+
+    @Test
+    public void unknownStatusFallsBackToTemperature() {
+        ThermalGovernor governor = new ThermalGovernor(ThermalPolicy.parse(TABLE), null);
+        assertEquals(0, feed(governor, ThermalStatus.UNKNOWN, 50f));
+        assertEquals(2, feed(governor, ThermalStatus.UNKNOWN, 71f));
+    }
+
+    @Test
+    public void restoresTasksOnUnregisterAndLogsEveryDecision() throws IOException {
+        File file = new File(folder.getRoot(), "decisions.csv");
+        TelemetrySink sink = new TelemetrySink(file,
+                ThermalGovernor.addDecisionColumns(new TelemetrySchema.Builder()).build(),
+                new CsvTelemetryEncoder());
+        ThermalGovernor governor = new ThermalGovernor(ThermalPolicy.parse(TABLE), sink);
+        SimulatedTask first = new SimulatedTask(0, 0, 2);
+        SimulatedTask second = new SimulatedTask(1, 40, 2);
+        governor.register(first);
+        governor.register(second);
+
+        feed(governor, ThermalStatus.SEVERE, 55f);
+        assertEquals(50, first.periodMs);
+        assertEquals(120, second.periodMs);
+        governor.unregister(second);
+        assertEquals(40, second.periodMs);
+        assertEquals(2, second.threads);
+        sink.close();
+
+        // Level change, two task changes and the restore
+        assertEquals(4, governor.getDecisionCount());
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.US_ASCII);
+        assertEquals(5, lines.size());
+        assertEquals("0,Severe,55.0,nominal,severe,-1,0,0", lines.get(1));
+        assertEquals("0,Severe,55.0,nominal,severe,1,120,1", lines.get(3));
+    }
+
+    @Test
+    public void rejectsMalformedTables() {
+        try {
+            ThermalPolicy.parse("nominal, NONE, 0, 1.0, 0, 0\nhot, WARM, 60, 1.5, 0, 0\n");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().startsWith("line 2"));
+            return;
+        }
+        throw new AssertionError("Expected a parse error");
+    }
+
+    private static final class SimulatedTask implements GovernedTask {
+        final int index;
+        long periodMs;
+        int threads;
+
+        SimulatedTask(int index, long periodMs, int threads) {
+            this.index = index;
+            this.periodMs = periodMs;
+            this.threads = threads;
+        }
+
+        @Override
+        public int getIndex() {
+            return index;
+        }
+
+        @Override
+        public long getPeriodMs() {
+            return periodMs;
+        }
+
+        @Override
+        public void setPeriodMs(long periodMs) {
+            this.periodMs = periodMs;
+        }
+
+        @Override
+        public int getThreads() {
+            return threads;
+        }
+
+        @Override
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+    }
+}
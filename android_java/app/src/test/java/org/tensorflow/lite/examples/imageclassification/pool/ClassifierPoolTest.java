@@ -0,0 +1,224 @@
+package org.tensorflow.lite.examples.imageclassification.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.tensorflow.lite.examples.imageclassification.scheduler.Accelerator;
+
+public class ClassifierPoolTest {
+    private static final long MB = 1 << 20;
+
+    /** Stands in for a classifier; loading takes a millisecond. */
+    private static final class FakeClassifier implements Closeable {
+        final ClassifierPool.Key key;
+        boolean closed;
+        Thread closedOn;
+
+        FakeClassifier(ClassifierPool.Key key) {
+            this.key = key;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            closedOn = Thread.currentThread();
+        }
+    }
+
+    private final List<FakeClassifier> loaded = new ArrayList<>();
+    private final ClassifierPool.Loader<FakeClassifier> loader =
+            new ClassifierPool.Loader<FakeClassifier>() {
+                @Override
+                public FakeClassifier load(ClassifierPool.Key key) {
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    FakeClassifier classifier = new FakeClassifier(key);
+                    loaded.add(classifier);
+                    return classifier;
+                }
+
+                @Override
+                public long sizeOf(ClassifierPool.Key key) {
+                    // 4 MB of weights, twice that with a delegate
+                    return key.accelerator == Accelerator.CPU ? 4 * MB : 8 * MB;
+                }
+            };
+
+    private static ClassifierPool.Key key(String model, Accelerator accelerator, int threads) {
+        return new ClassifierPool.Key(model, accelerator, threads, null);
+    }
+
+    @Test
+    public void reusesReleasedClassifiersOfTheSameConfiguration() throws Exception {
+        ClassifierPool<FakeClassifier> pool = new ClassifierPool<>(loader, 64 * MB);
+        ClassifierPool.Lease<FakeClassifier> first = pool.acquire(key("a", Accelerator.CPU, 2));
+        assertFalse(first.isReused());
+        assertTrue(first.getLoadNanos() > 0);
+
+        // Leased exclusively: a second user of the same configuration gets its own
+        ClassifierPool.Lease<FakeClassifier> second = pool.acquire(key("a", Accelerator.CPU, 2));
+        assertNotSame(first.instance, second.instance);
+        pool.release(first);
+        pool.release(second);
+
+        ClassifierPool.Lease<FakeClassifier> again = pool.acquire(key("a", Accelerator.CPU, 2));
+        assertTrue(again.isReused());
+        // Most recently released first
+        assertSame(second.instance, again.instance);
+        assertNotSame(first.instance,
+                pool.acquire(key("a", Accelerator.CPU, 4)).instance);
+
+        assertEquals(1, pool.getHits());
+        assertEquals(1, pool.getIdleCount());
+        assertEquals(3, pool.getMisses());
+        assertEquals(3, loaded.size());
+        assertEquals(12 * MB, pool.getBytes());
+        assertTrue(pool.getTotalLoadNanos() >= 3000000);
+    }
+
+    @Test
+    public void evictsLeastRecentlyReleasedOverBudget() throws Exception {
+        ClassifierPool<FakeClassifier> pool = new ClassifierPool<>(loader, 16 * MB);
+        ClassifierPool.Lease<FakeClassifier> a = pool.acquire(key("a", Accelerator.CPU, 2));
+        ClassifierPool.Lease<FakeClassifier> b = pool.acquire(key("b", Accelerator.CPU, 2));
+        ClassifierPool.Lease<FakeClassifier> c = pool.acquire(key("c", Accelerator.CPU, 2));
+        pool.release(b);
+        pool.release(a);
+        pool.release(c);
+        assertEquals(12 * MB, pool.getBytes());
+
+        // 8 MB more: b, then a, are the least recently released
+        ClassifierPool.Lease<FakeClassifier> d = pool.acquire(key("d", Accelerator.GPU, 2));
+        assertTrue(b.instance.closed);
+        assertFalse(a.instance.closed);
+        assertEquals(16 * MB, pool.getBytes());
+        ClassifierPool.Lease<FakeClassifier> e = pool.acquire(key("e", Accelerator.CPU, 2));
+        assertTrue(a.instance.closed);
+        assertFalse(c.instance.closed);
+        assertEquals(2, pool.getEvictions());
+
+        // Leased classifiers stay even when the pool is over budget
+        ClassifierPool.Lease<FakeClassifier> f = pool.acquire(key("f", Accelerator.GPU, 2));
+        assertTrue(c.instance.closed);
+        assertFalse(d.instance.closed || e.instance.closed || f.instance.closed);
+        assertEquals(20 * MB, pool.getBytes());
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void ownedClassifiersAreOnlyHandedToTheirOwner() throws Exception {
+        ClassifierPool<FakeClassifier> pool = new ClassifierPool<>(loader, 64 * MB);
+        ExecutorService first = Executors.newSingleThreadExecutor();
+        ExecutorService second = Executors.newSingleThreadExecutor();
+        try {
+            ClassifierPool.Key firstKey = new ClassifierPool.Key("a", Accelerator.GPU, 2, first);
+            ClassifierPool.Lease<FakeClassifier> lease = on(first, () -> pool.acquire(firstKey));
+            on(first, () -> release(pool, lease));
+
+            // Same configuration, but owned by another thread: loaded again
+            ClassifierPool.Key secondKey = new ClassifierPool.Key("a", Accelerator.GPU, 2, second);
+            ClassifierPool.Lease<FakeClassifier> other = on(second, () -> pool.acquire(secondKey));
+            assertNotSame(lease.instance, other.instance);
+            assertTrue(on(first, () -> pool.acquire(firstKey)).isReused());
+        } finally {
+            first.shutdown();
+            second.shutdown();
+        }
+    }
+
+    @Test
+    public void evictsAcrossOwnersAndClosesOnTheOwner() throws Exception {
+        ClassifierPool<FakeClassifier> pool = new ClassifierPool<>(loader, 16 * MB);
+        ExecutorService first = Executors.newSingleThreadExecutor();
+        ExecutorService second = Executors.newSingleThreadExecutor();
+        try {
+            Thread firstThread = on(first, Thread::currentThread);
+            Thread secondThread = on(second, Thread::currentThread);
+            ClassifierPool.Lease<FakeClassifier> a = on(first, () -> pool.acquire(
+                    new ClassifierPool.Key("a", Accelerator.GPU, 2, first)));
+            ClassifierPool.Lease<FakeClassifier> b = on(second, () -> pool.acquire(
+                    new ClassifierPool.Key("b", Accelerator.GPU, 2, second)));
+            on(first, () -> release(pool, a));
+            on(second, () -> release(pool, b));
+            assertEquals(16 * MB, pool.getBytes());
+
+            // Both owners are alive, yet the budget holds: the oldest goes, on its own thread
+            pool.acquire(key("c", Accelerator.CPU, 2));
+            assertEquals(12 * MB, pool.getBytes());
+            on(first, () -> null);
+            assertTrue(a.instance.closed);
+            assertSame(firstThread, a.instance.closedOn);
+            assertFalse(b.instance.closed);
+
+            pool.acquire(key("d", Accelerator.GPU, 2));
+            on(second, () -> null);
+            assertSame(secondThread, b.instance.closedOn);
+            assertEquals(2, pool.getEvictions());
+            assertEquals(12 * MB, pool.getBytes());
+        } finally {
+            first.shutdown();
+            second.shutdown();
+        }
+    }
+
+    @Test
+    public void closesOnTheCallerOnceTheOwnerStopped() throws Exception {
+        ClassifierPool<FakeClassifier> pool = new ClassifierPool<>(loader, 64 * MB);
+        ExecutorService owner = Executors.newSingleThreadExecutor();
+        ClassifierPool.Lease<FakeClassifier> lease = on(owner, () -> pool.acquire(
+                new ClassifierPool.Key("a", Accelerator.GPU, 2, owner)));
+        on(owner, () -> release(pool, lease));
+        pool.acquire(key("b", Accelerator.CPU, 2));
+
+        // What an owner does last: clear its own, after it stopped taking tasks
+        owner.execute(() -> pool.clear(owner));
+        owner.shutdown();
+        owner.awaitTermination(1, TimeUnit.SECONDS);
+        assertTrue(lease.instance.closed);
+        assertNotSame(Thread.currentThread(), lease.instance.closedOn);
+        assertEquals(4 * MB, pool.getBytes());
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void clearClosesIdleNowAndLeasedOnRelease() throws Exception {
+        ClassifierPool<FakeClassifier> pool = new ClassifierPool<>(loader, 64 * MB);
+        ClassifierPool.Lease<FakeClassifier> idle = pool.acquire(key("a", Accelerator.CPU, 2));
+        ClassifierPool.Lease<FakeClassifier> leased = pool.acquire(key("b", Accelerator.CPU, 2));
+        pool.release(idle);
+
+        pool.clear();
+        assertTrue(idle.instance.closed);
+        assertFalse(leased.instance.closed);
+        assertEquals(4 * MB, pool.getBytes());
+
+        pool.release(leased);
+        assertTrue(leased.instance.closed);
+        assertEquals(0, pool.getBytes());
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    private static <V> V on(ExecutorService owner, Callable<V> action) throws Exception {
+        return owner.submit(action).get(1, TimeUnit.SECONDS);
+    }
+
+    private static Void release(ClassifierPool<FakeClassifier> pool,
+                                ClassifierPool.Lease<FakeClassifier> lease) {
+        pool.release(lease);
+        return null;
+    }
+}
@@ -0,0 +1,80 @@
+package org.tensorflow.lite.examples.imageclassification.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tensorflow.lite.examples.imageclassification.scheduler.Accelerator;
+
+public class DelegateCacheTest {
+    private static final String HASH_A = DelegateCache.sha256(
+            ByteBuffer.wrap("model a".getBytes(StandardCharsets.UTF_8)));
+    private static final String HASH_B = DelegateCache.sha256(
+            ByteBuffer.wrap("model b".getBytes(StandardCharsets.UTF_8)));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void hashesTheRemainingBytes() {
+        ByteBuffer buffer = ByteBuffer.wrap("xxmodel a".getBytes(StandardCharsets.UTF_8));
+        buffer.position(2);
+        assertEquals(HASH_A, DelegateCache.sha256(buffer));
+        assertEquals(2, buffer.position());
+        assertEquals(64, HASH_A.length());
+    }
+
+    @Test
+    public void firstInitIsColdAndLaterOnesWarmAcrossRuns() throws IOException {
+        File root = folder.newFolder("cache");
+        DelegateCache.Entry gpu =
+                new DelegateCache(root).open("m.tflite", HASH_A, Accelerator.GPU, "threads=2");
+        assertFalse(gpu.isWarm());
+        assertFalse(gpu.recordInit(900));
+        assertTrue(gpu.isWarm());
+
+        // Another run of the app
+        DelegateCache.Entry again =
+                new DelegateCache(root).open("m.tflite", HASH_A, Accelerator.GPU, "threads=2");
+        assertEquals(gpu.directory, again.directory);
+        assertEquals(gpu.token, again.token);
+        assertTrue(again.recordInit(100));
+        assertTrue(again.recordInit(200));
+        assertEquals(900, again.getColdNanos());
+        assertEquals(150, again.getAvgWarmNanos());
+
+        // Other delegates and options have caches of their own
+        DelegateCache cache = new DelegateCache(root);
+        assertFalse(cache.open("m.tflite", HASH_A, Accelerator.NPU, "threads=2").isWarm());
+        DelegateCache.Entry four = cache.open("m.tflite", HASH_A, Accelerator.GPU, "threads=4");
+        assertFalse(four.isWarm());
+        assertNotEquals(gpu.directory, four.directory);
+    }
+
+    @Test
+    public void changedModelInvalidatesItsCaches() throws IOException {
+        DelegateCache cache = new DelegateCache(folder.newFolder("cache"));
+        DelegateCache.Entry old = cache.open("m.tflite", HASH_A, Accelerator.GPU, "threads=2");
+        old.recordInit(900);
+        assertTrue(new File(old.directory, "m.bin").createNewFile());
+        DelegateCache.Entry other = cache.open("n.tflite", HASH_A, Accelerator.GPU, "threads=2");
+        other.recordInit(800);
+
+        DelegateCache.Entry changed =
+                cache.open("m.tflite", HASH_B, Accelerator.GPU, "threads=2");
+        assertFalse(changed.isWarm());
+        assertFalse(new File(changed.directory, "m.bin").exists());
+        assertNotEquals(old.token, changed.token);
+        assertEquals(1, cache.getInvalidations());
+        // Only the changed model's caches go
+        assertTrue(other.isWarm());
+    }
+}
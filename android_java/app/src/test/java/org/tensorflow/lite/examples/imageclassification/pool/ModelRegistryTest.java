@@ -0,0 +1,82 @@
+package org.tensorflow.lite.examples.imageclassification.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ModelRegistryTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Map<String, Integer> mapped = new HashMap<>();
+    private ModelRegistry registry;
+
+    @Before
+    public void setUp() throws IOException {
+        // Two models packed into one file at an offset, the way assets sit in an APK
+        final File apk = folder.newFile("app.apk");
+        Files.write(apk.toPath(), new byte[16 + 1000 + 3000]);
+        registry = new ModelRegistry(model -> {
+            mapped.merge(model, 1, Integer::sum);
+            long offset = model.equals("small.tflite") ? 16 : 1016;
+            long length = model.equals("small.tflite") ? 1000 : 3000;
+            try (RandomAccessFile file = new RandomAccessFile(apk, "r");
+                 FileChannel channel = file.getChannel()) {
+                return ModelRegistry.map(channel, offset, length);
+            }
+        });
+    }
+
+    @Test
+    public void mapsEachModelOnceAndSharesTheBuffer() throws IOException {
+        ModelRegistry.Model a = registry.acquire("small.tflite");
+        ModelRegistry.Model b = registry.acquire("small.tflite");
+        ModelRegistry.Model c = registry.acquire("large.tflite");
+
+        assertSame(a.buffer, b.buffer);
+        assertTrue(a.buffer.isReadOnly());
+        assertEquals(1000, a.buffer.capacity());
+        assertEquals(1, (int) mapped.get("small.tflite"));
+        assertEquals(2, registry.getRefCount("small.tflite"));
+        assertEquals(1, registry.getRefCount("large.tflite"));
+        assertEquals(4000, registry.getMappedBytes());
+        assertEquals("{large.tflite=1, small.tflite=2}", registry.getRefCounts().toString());
+        c.close();
+        b.close();
+        a.close();
+    }
+
+    @Test
+    public void dropsTheMappingWithTheLastReference() throws IOException {
+        ModelRegistry.Model a = registry.acquire("small.tflite");
+        ModelRegistry.Model b = registry.acquire("small.tflite");
+        a.close();
+        // Closing twice drops one reference only
+        a.close();
+        assertEquals(1, registry.getRefCount("small.tflite"));
+        assertEquals(1000, registry.getMappedBytes());
+
+        b.close();
+        assertEquals(0, registry.getRefCount("small.tflite"));
+        assertEquals(0, registry.getMappedBytes());
+        assertTrue(registry.getRefCounts().isEmpty());
+
+        MappedByteBuffer again = registry.acquire("small.tflite").buffer;
+        assertEquals(1000, again.capacity());
+        assertEquals(2, (int) mapped.get("small.tflite"));
+        assertEquals(2, registry.getMapCount());
+    }
+}
@@ -0,0 +1,117 @@
+package org.tensorflow.lite.examples.imageclassification.preprocess;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class FramePreprocessorTest {
+    private static final int WIDTH = 4;
+    private static final int HEIGHT = 3;
+
+    /** A frame whose every pixel has a distinct colour. */
+    private static int[] frame(int width, int height) {
+        int[] argb = new int[width * height];
+        for (int i = 0; i < argb.length; i++) {
+            argb[i] = 0xff000000 | (i * 7) << 16 | (i * 11) << 8 | (i * 13);
+        }
+        return argb;
+    }
+
+    /** Rotates clockwise by a quarter turn, the slow and obvious way. */
+    private static int[] rotateClockwise(int[] argb, int width, int height) {
+        int[] rotated = new int[argb.length];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                rotated[x * height + (height - 1 - y)] = argb[y * width + x];
+            }
+        }
+        return rotated;
+    }
+
+    private static void assertPixels(int[] expected, ByteBuffer output) {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("red of " + i, (expected[i] >> 16) & 0xff, output.get(3 * i) & 0xff);
+            assertEquals("green of " + i, (expected[i] >> 8) & 0xff, output.get(3 * i + 1) & 0xff);
+            assertEquals("blue of " + i, expected[i] & 0xff, output.get(3 * i + 2) & 0xff);
+        }
+    }
+
+    @Test
+    public void copiesPixelsWhenNothingChanges() {
+        int[] argb = frame(WIDTH, HEIGHT);
+        FramePreprocessor preprocessor = new FramePreprocessor(WIDTH, HEIGHT);
+        assertPixels(argb, preprocessor.process(argb, WIDTH, HEIGHT, 0));
+    }
+
+    @Test
+    public void rotatesClockwise() {
+        int[] argb = frame(WIDTH, HEIGHT);
+        int[] expected = rotateClockwise(argb, WIDTH, HEIGHT);
+        FramePreprocessor preprocessor = new FramePreprocessor(HEIGHT, WIDTH);
+        assertPixels(expected, preprocessor.process(argb, WIDTH, HEIGHT, 90));
+
+        expected = rotateClockwise(rotateClockwise(expected, HEIGHT, WIDTH), WIDTH, HEIGHT);
+        assertPixels(expected, preprocessor.process(argb, WIDTH, HEIGHT, 270));
+        assertPixels(expected, preprocessor.process(argb, WIDTH, HEIGHT, -90));
+    }
+
+    @Test
+    public void rotatesHalfATurn() {
+        int[] argb = frame(WIDTH, HEIGHT);
+        int[] expected = rotateClockwise(rotateClockwise(argb, WIDTH, HEIGHT), HEIGHT, WIDTH);
+        FramePreprocessor preprocessor = new FramePreprocessor(WIDTH, HEIGHT);
+        assertPixels(expected, preprocessor.process(argb, WIDTH, HEIGHT, 180));
+    }
+
+    @Test
+    public void resizesBilinearly() {
+        // A horizontal ramp keeps its ends and interpolates in between
+        int[] argb = new int[] {0x000000, 0x404040, 0x808080, 0xc0c0c0};
+        FramePreprocessor preprocessor = new FramePreprocessor(2, 1);
+        ByteBuffer output = preprocessor.process(argb, 4, 1, 0);
+        assertEquals(0x20, output.get(0) & 0xff);
+        assertEquals(0xa0, output.get(3) & 0xff);
+    }
+
+    @Test
+    public void normalizesAndQuantizes() {
+        int[] argb = new int[] {0x00ff80};
+        FramePreprocessor floats = new FramePreprocessor(1, 1, 127.5f, 127.5f);
+        ByteBuffer output = floats.process(argb, 1, 1, 0);
+        assertEquals(-1f, output.getFloat(0), 1e-6f);
+        assertEquals(1f, output.getFloat(4), 1e-6f);
+        assertEquals(0.5f / 127.5f, output.getFloat(8), 1e-6f);
+
+        FramePreprocessor quantized = new FramePreprocessor(1, 1, 127.5f, 127.5f, 1f / 64, 128);
+        output = quantized.process(argb, 1, 1, 0);
+        assertEquals(64, output.get(0) & 0xff);
+        assertEquals(192, output.get(1) & 0xff);
+        assertEquals(128, output.get(2) & 0xff);
+    }
+
+    @Test
+    public void doesNotAllocatePerFrame() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) return;
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        long thread = Thread.currentThread().getId();
+
+        int[] argb = frame(640, 480);
+        FramePreprocessor preprocessor = new FramePreprocessor(224, 224);
+        // Warm up so every rotation's sampling is cached and the loop is compiled
+        for (int i = 0; i < 200; i++) {
+            preprocessor.process(argb, 640, 480, 90 * (i % 4));
+        }
+        long before = allocations.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 1000; i++) {
+            preprocessor.process(argb, 640, 480, 90 * (i % 4));
+        }
+        long perFrame = (allocations.getThreadAllocatedBytes(thread) - before) / 1000;
+        assertTrue("allocated " + perFrame + " bytes per frame", perFrame < 16);
+    }
+}
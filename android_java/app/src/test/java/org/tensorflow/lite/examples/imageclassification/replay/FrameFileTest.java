@@ -0,0 +1,98 @@
+package org.tensorflow.lite.examples.imageclassification.replay;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FrameFileTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsBackRecordedFrames() throws IOException {
+        File file = folder.newFile("frames" + FrameFile.EXTENSION);
+        int[] first = {0xff102030, 0x80405060, 0x00000000, 0xffffffff, 0x7f00ff01, 0x01020304};
+        int[] second = new int[6];
+        for (int i = 0; i < second.length; i++) {
+            second[i] = 0xff000000 | (i * 0x111111);
+        }
+        try (FrameFile.Writer writer = new FrameFile.Writer(file, 3, 2, 90)) {
+            writer.appendArgb(first);
+            writer.appendArgb(second);
+            assertEquals(2, writer.getFrameCount());
+        }
+
+        FrameFile frames = FrameFile.open(file);
+        assertEquals(3, frames.getWidth());
+        assertEquals(2, frames.getHeight());
+        assertEquals(90, frames.getRotation());
+        assertEquals(2, frames.getFrameCount());
+        int[] argb = new int[6];
+        frames.readArgb(0, argb);
+        assertArrayEquals(first, argb);
+        frames.readArgb(1, argb);
+        assertArrayEquals(second, argb);
+
+        // Bytes in RGBA order, as a bitmap copies them
+        ByteBuffer pixels = frames.select(frames.newView(), 0);
+        assertEquals(24, pixels.remaining());
+        assertEquals(0x10, pixels.get());
+        assertEquals(0x20, pixels.get());
+        assertEquals(0x30, pixels.get());
+        assertEquals((byte) 0xff, pixels.get());
+    }
+
+    @Test
+    public void ignoresATruncatedLastFrame() throws IOException {
+        File file = folder.newFile("frames" + FrameFile.EXTENSION);
+        ByteBuffer frame = ByteBuffer.allocate(16);
+        try (FrameFile.Writer writer = new FrameFile.Writer(file, 2, 2, 0)) {
+            for (int i = 0; i < 3; i++) {
+                frame.clear();
+                writer.append(frame);
+            }
+        }
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(out.length() - 5);
+        }
+
+        FrameFile frames = FrameFile.open(file);
+        assertEquals(2, frames.getFrameCount());
+        try {
+            frames.readArgb(2, new int[4]);
+            fail("read past the last complete frame");
+        } catch (IndexOutOfBoundsException expected) {
+        }
+    }
+
+    @Test
+    public void rejectsOtherFiles() throws IOException {
+        File file = folder.newFile("coffee.jpg");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[64]);
+        }
+        try {
+            FrameFile.open(file);
+            fail("opened a file that is not a recording");
+        } catch (IOException expected) {
+        }
+
+        File empty = folder.newFile("empty" + FrameFile.EXTENSION);
+        new FrameFile.Writer(empty, 4, 4, 0).close();
+        try {
+            FrameFile.open(empty);
+            fail("opened a recording without frames");
+        } catch (IOException expected) {
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package org.tensorflow.lite.examples.imageclassification.replay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.tensorflow.lite.examples.imageclassification.fragments.FrameRing;
+import org.tensorflow.lite.examples.imageclassification.fragments.FrameSink;
+import org.tensorflow.lite.examples.imageclassification.scheduler.Accelerator;
+import org.tensorflow.lite.examples.imageclassification.scheduler.LatencyDistribution;
+import org.tensorflow.lite.examples.imageclassification.scheduler.PeriodicTask;
+import org.tensorflow.lite.examples.imageclassification.scheduler.SimulatedBackend;
+import org.tensorflow.lite.examples.imageclassification.scheduler.StandardPolicy;
+import org.tensorflow.lite.examples.imageclassification.scheduler.TaskScheduler;
+
+public class FrameReplayerTest {
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+
+    /** Frames whose pixels all hold their index. */
+    private static final FrameReplayer.FrameReader<int[]> INDEXED = (index, buffer) -> {
+        int[] frame = buffer != null ? buffer : new int[WIDTH * HEIGHT];
+        Arrays.fill(frame, index);
+        return frame;
+    };
+
+    /** Records what is published and hands it on to a ring, as if each frame were taken. */
+    private static final class RecordingSink implements FrameSink<int[]> {
+        final FrameRing<int[]> ring = new FrameRing<>(3);
+        final List<Integer> frames = new ArrayList<>();
+        final List<Long> publishNanos = new ArrayList<>();
+        int rotation = -1;
+
+        @Override
+        public FrameRing.Slot<int[]> claim() {
+            return ring.claim();
+        }
+
+        @Override
+        public void abort(FrameRing.Slot<int[]> slot) {
+            ring.abort(slot);
+        }
+
+        @Override
+        public void publish(FrameRing.Slot<int[]> slot, int rotation) {
+            frames.add(slot.getBuffer()[0]);
+            publishNanos.add(slot.getPublishNanos());
+            this.rotation = rotation;
+            ring.publish(slot, rotation);
+        }
+
+        @Override
+        public void awaitAcquired() {
+        }
+    }
+
+    @Test
+    public void loopsOverTheRecordingInOrder() {
+        RecordingSink sink = new RecordingSink();
+        FrameReplayer<int[]> replayer = new FrameReplayer<>(sink, INDEXED, 3, 270).setLoops(2);
+        replayer.run();
+
+        assertEquals(6, replayer.getReplayedCount());
+        assertEquals("[0, 1, 2, 0, 1, 2]", sink.frames.toString());
+        assertEquals(270, sink.rotation);
+        assertEquals(6, sink.ring.getPublishedCount());
+        assertTrue(sink.publishNanos.get(0) > 0);
+    }
+
+    @Test
+    public void publishesOnAFixedSchedule() {
+        RecordingSink sink = new RecordingSink();
+        FrameReplayer<int[]> replayer = new FrameReplayer<>(sink, INDEXED, 4, 0)
+                .setPeriodNanos(10 * MS)
+                .setLoops(5);
+        long start = System.nanoTime();
+        replayer.run();
+        long elapsed = System.nanoTime() - start;
+
+        assertEquals(20, replayer.getReplayedCount());
+        // The first frame is due right away, the last 19 periods later
+        assertTrue(elapsed + " ns", elapsed >= 19 * 10 * MS);
+        assertTrue(elapsed + " ns", elapsed < 19 * 10 * MS + 150 * MS);
+        long span = sink.publishNanos.get(19) - sink.publishNanos.get(0);
+        assertTrue(span + " ns", span >= 19 * 10 * MS - MS);
+    }
+
+    @Test
+    public void dropsFramesWhileEveryBufferIsHeld() {
+        RecordingSink sink = new RecordingSink();
+        new FrameReplayer<>(sink, INDEXED, 2, 0).setLoops(1).run();
+        // Two classifiers each hold a frame, leaving one of the three buffers free
+        FrameRing.Slot<int[]> first = sink.ring.acquireLatest();
+        new FrameReplayer<>(sink, INDEXED, 1, 0).setLoops(1).run();
+        FrameRing.Slot<int[]> second = sink.ring.acquireLatest();
+
+        FrameReplayer<int[]> replayer = new FrameReplayer<>(sink, INDEXED, 3, 0).setLoops(1);
+        replayer.run();
+        // Frame 0 takes the free buffer; 1 and 2 find the ring holding it as the latest
+        assertEquals(1, replayer.getReplayedCount());
+        assertEquals(2, sink.ring.getDropCount());
+        assertEquals("[0, 1, 0, 0]", sink.frames.toString());
+        sink.ring.release(first);
+        sink.ring.release(second);
+        assertTrue(sink.ring.claim() != null);
+    }
+
+    @Test
+    public void unpacedFramesWaitToBeAcquired() throws InterruptedException {
+        FrameRing<int[]> ring = new FrameRing<>(3);
+        FrameReplayer<int[]> replayer = new FrameReplayer<>(ring, INDEXED, 4, 0).setLoops(2);
+        Thread camera = new Thread(replayer);
+        camera.start();
+        // Nobody takes the first frame, so no other is published
+        Thread.sleep(50);
+        assertEquals(1, replayer.getReplayedCount());
+
+        List<Integer> frames = new ArrayList<>();
+        while (frames.size() < 8) {
+            FrameRing.Slot<int[]> slot = ring.acquireLatest();
+            if (slot == null) continue;
+            if (frames.size() == slot.getSequence() - 1) frames.add(slot.getBuffer()[0]);
+            ring.release(slot);
+        }
+        camera.join(1000);
+
+        assertFalse(camera.isAlive());
+        assertEquals("[0, 1, 2, 3, 0, 1, 2, 3]", frames.toString());
+        assertEquals(0, ring.getDropCount());
+    }
+
+    @Test
+    public void stopsWhenInterrupted() throws InterruptedException {
+        RecordingSink sink = new RecordingSink();
+        FrameReplayer<int[]> replayer = new FrameReplayer<>(sink, INDEXED, 3, 0)
+                .setPeriodNanos(5 * MS);
+        Thread thread = new Thread(replayer);
+        thread.start();
+        Thread.sleep(50);
+        thread.interrupt();
+        thread.join(1000);
+
+        assertFalse(thread.isAlive());
+        long replayed = replayer.getReplayedCount();
+        assertTrue(replayed + " frames", replayed > 0 && replayed < 30);
+    }
+
+    @Test
+    public void runsAScheduledExperimentOnReplayedFrames() throws Exception {
+        FrameRing<int[]> ring = new FrameRing<>(5);
+        FrameReplayer<int[]> replayer = new FrameReplayer<>(ring, INDEXED, 8, 90)
+                .setPeriodNanos(5 * MS);
+        SimulatedBackend classifier =
+                new SimulatedBackend(LatencyDistribution.constant(2 * MS), 1);
+        // Small inputs, so profiling before the JIT warms up stays within the periods
+        ReplayBackend backend = new ReplayBackend(ring, WIDTH, HEIGHT, classifier)
+                .setInputSize("mobilenetv1", 24)
+                .setInputSize("efficientnet-lite2", 32);
+        TaskScheduler scheduler = new TaskScheduler(StandardPolicy.EDF, backend);
+        PeriodicTask mobilenet = new PeriodicTask(1, "mobilenetv1", Accelerator.CPU, 20 * MS);
+        PeriodicTask efficientnet =
+                new PeriodicTask(2, "efficientnet-lite2", Accelerator.GPU, 30 * MS);
+        Thread camera = new Thread(replayer);
+        camera.start();
+        try {
+            Thread.sleep(20);
+            assertTrue(scheduler.admit(mobilenet, 1).get(1, TimeUnit.SECONDS));
+            assertTrue(scheduler.admit(efficientnet, 1).get(1, TimeUnit.SECONDS));
+            Thread.sleep(300);
+        } finally {
+            scheduler.close();
+            camera.interrupt();
+            camera.join(1000);
+        }
+
+        assertEquals(0, backend.getMissingFrames());
+        // Jobs cut short by closing the scheduler classified a frame but did not finish
+        long unfinished = backend.getClassifiedFrames() - classifier.getInferenceCount();
+        assertTrue(unfinished + " unfinished", unfinished >= 0 && unfinished <= 2);
+        assertTrue(mobilenet.getExecutions() > 5);
+        assertTrue(efficientnet.getExecutions() > 5);
+        assertTrue(replayer.getReplayedCount() > 40);
+        // Every slot was given back once the run ended
+        assertEquals(0, ring.getDropCount());
+    }
+}
@@ -0,0 +1,71 @@
+package org.tensorflow.lite.examples.imageclassification.scheduler;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class PeriodicPacerTest {
+    private static final long MS = 1000000;
+
+    @Test
+    public void releasesOnAFixedRateTimeline() {
+        PeriodicPacer pacer = new PeriodicPacer(10 * MS);
+        assertEquals(0, pacer.delayNanos(0));
+        pacer.onStart(1 * MS);
+        pacer.onFinish(4 * MS);
+        // Measured from the release, not from when the job happened to finish
+        assertEquals(6 * MS, pacer.delayNanos(4 * MS));
+        assertEquals(10 * MS, pacer.getReleaseNanos());
+
+        pacer.onStart(12 * MS);
+        pacer.onFinish(15 * MS);
+        assertEquals(20 * MS, pacer.getReleaseNanos());
+        assertEquals(2, pacer.getJobs());
+        assertEquals(2 * MS, pacer.getMaxJitterNanos());
+        assertEquals(3 * MS / 2, pacer.getAvgJitterNanos());
+        assertEquals(5 * MS, pacer.getMaxResponseNanos());
+        assertEquals(0, pacer.getDeadlineMisses());
+    }
+
+    @Test
+    public void overrunsSkipReleasesInsteadOfQueueing() {
+        PeriodicPacer pacer = new PeriodicPacer(10 * MS);
+        pacer.delayNanos(0);
+        pacer.onStart(0);
+        pacer.onFinish(35 * MS);
+        assertEquals(1, pacer.getDeadlineMisses());
+        // Releases at 10 and 20 passed unserved; the one at 30 is already due
+        assertEquals(2, pacer.getSkippedReleases());
+        assertEquals(30 * MS, pacer.getReleaseNanos());
+        assertEquals(0, pacer.delayNanos(35 * MS));
+
+        pacer.onStart(35 * MS);
+        assertEquals(5 * MS, pacer.getLastJitterNanos());
+        pacer.onFinish(38 * MS);
+        assertEquals(40 * MS, pacer.getReleaseNanos());
+    }
+
+    @Test
+    public void periodChangesKeepTheNextRelease() {
+        PeriodicPacer pacer = new PeriodicPacer(10 * MS);
+        pacer.delayNanos(0);
+        pacer.onStart(0);
+        pacer.onFinish(2 * MS);
+        pacer.setPeriodNanos(25 * MS);
+        assertEquals(10 * MS, pacer.getReleaseNanos());
+        pacer.onStart(10 * MS);
+        pacer.onFinish(12 * MS);
+        assertEquals(35 * MS, pacer.getReleaseNanos());
+    }
+
+    @Test
+    public void unpacedJobsRunBackToBack() {
+        PeriodicPacer pacer = new PeriodicPacer(0);
+        pacer.delayNanos(0);
+        pacer.onStart(0);
+        pacer.onFinish(50 * MS);
+        assertEquals(0, pacer.delayNanos(50 * MS));
+        assertEquals(0, pacer.getDeadlineMisses());
+        assertEquals(0, pacer.getSkippedReleases());
+    }
+}
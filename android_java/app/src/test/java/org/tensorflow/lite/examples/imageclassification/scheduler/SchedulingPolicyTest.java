@@ -0,0 +1,97 @@
+package org.tensorflow.lite.examples.imageclassification.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.junit.Test;
+
+public class SchedulingPolicyTest {
+
+    private static PeriodicTask task(int id, long wcet, long period, long deadline) {
+        return new PeriodicTask(id, "model", Accelerator.CPU, period, deadline,
+                new PeriodicPacer(period)).setWcetNanos(wcet);
+    }
+
+    private static PeriodicTask task(int id, long wcet, long period) {
+        return task(id, wcet, period, period);
+    }
+
+    @Test
+    public void rejectsOverloadEverywhere() {
+        List<PeriodicTask> tasks = Arrays.asList(task(1, 3, 5), task(2, 5, 10));
+        for (StandardPolicy policy : StandardPolicy.values()) {
+            assertFalse(policy.name(), policy.isSchedulable(tasks));
+        }
+    }
+
+    @Test
+    public void rejectsWcetBeyondTheDeadline() {
+        List<PeriodicTask> tasks = Arrays.asList(task(1, 6, 20, 5));
+        for (StandardPolicy policy : StandardPolicy.values()) {
+            assertFalse(policy.name(), policy.isSchedulable(tasks));
+        }
+    }
+
+    @Test
+    public void accountsForNonPreemptiveBlocking() {
+        // Half the utilization, but a started long job makes the short one miss its deadline
+        List<PeriodicTask> tasks = Arrays.asList(task(1, 1, 4), task(2, 5, 20));
+        for (StandardPolicy policy : StandardPolicy.values()) {
+            assertFalse(policy.name(), policy.isSchedulable(tasks));
+        }
+        List<PeriodicTask> shorter = Arrays.asList(task(1, 1, 4), task(2, 3, 20));
+        assertTrue(StandardPolicy.EDF.isSchedulable(shorter));
+        assertTrue(StandardPolicy.RATE_MONOTONIC.isSchedulable(shorter));
+    }
+
+    @Test
+    public void edfAndRateMonotonicGoBeyondFifo() {
+        List<PeriodicTask> tasks = Arrays.asList(task(1, 2, 5), task(2, 4, 7));
+        assertTrue(StandardPolicy.EDF.isSchedulable(tasks));
+        assertTrue(StandardPolicy.RATE_MONOTONIC.isSchedulable(tasks));
+        // One job of each may be queued ahead: 2 + 4 exceeds the deadline of 5
+        assertFalse(StandardPolicy.FIFO.isSchedulable(tasks));
+        assertTrue(StandardPolicy.FIFO.isSchedulable(
+                Arrays.asList(task(1, 2, 10), task(2, 3, 10), task(3, 4, 10))));
+    }
+
+    @Test
+    public void edfAdmitsWhatRateMonotonicCannot() {
+        // The long-period task has the tight deadline, which fixed priorities by period ignore
+        List<PeriodicTask> tasks = Arrays.asList(task(1, 3, 10, 10), task(2, 2, 12, 4));
+        assertTrue(StandardPolicy.EDF.isSchedulable(tasks));
+        assertFalse(StandardPolicy.RATE_MONOTONIC.isSchedulable(tasks));
+    }
+
+    @Test
+    public void ordersJobsByPolicy() {
+        PeriodicTask fast = task(1, 1, 10, 10);
+        PeriodicTask slow = task(2, 1, 50, 5);
+        Job early = new Job(slow, 0, 0);
+        Job urgent = new Job(fast, 1, 1);
+
+        assertSame(early, first(StandardPolicy.FIFO, urgent, early));
+        assertSame(early, first(StandardPolicy.EDF, urgent, early));
+        assertSame(urgent, first(StandardPolicy.RATE_MONOTONIC, early, urgent));
+    }
+
+    private static Job first(StandardPolicy policy, Job... jobs) {
+        PriorityQueue<Job> queue = new PriorityQueue<>(4, policy.getOrder());
+        queue.addAll(Arrays.asList(jobs));
+        return queue.poll();
+    }
+
+    @Test
+    public void parsesPoliciesAndLatencies() {
+        assertSame(StandardPolicy.RATE_MONOTONIC, StandardPolicy.fromName("rm"));
+        assertSame(StandardPolicy.EDF, StandardPolicy.fromName("edf"));
+        assertEquals(250000, LatencyDistribution.parseNanos("250us"));
+        assertEquals(20000000, LatencyDistribution.parse("constant:20ms").sampleNanos(null));
+    }
+}
@@ -0,0 +1,139 @@
+package org.tensorflow.lite.examples.imageclassification.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TaskSchedulerTest {
+    private static final long MS = 1000000;
+
+    @Test
+    public void runsAdmittedTasksAtTheirRates() throws Exception {
+        SimulatedBackend backend = new SimulatedBackend(LatencyDistribution.constant(2 * MS), 1)
+                .setLatency("slow", Accelerator.GPU, LatencyDistribution.uniform(8 * MS, 10 * MS));
+        TaskScheduler scheduler = new TaskScheduler(StandardPolicy.EDF, backend);
+        PeriodicTask a = new PeriodicTask(1, "fast", Accelerator.CPU, 20 * MS);
+        PeriodicTask b = new PeriodicTask(2, "fast", Accelerator.CPU, 30 * MS);
+        PeriodicTask c = new PeriodicTask(3, "slow", Accelerator.GPU, 20 * MS);
+        long elapsed;
+        try {
+            long start = System.nanoTime();
+            assertTrue(scheduler.admit(a, 3).get(1, TimeUnit.SECONDS));
+            assertTrue(scheduler.admit(b, 3).get(1, TimeUnit.SECONDS));
+            assertTrue(scheduler.admit(c, 3).get(1, TimeUnit.SECONDS));
+            Thread.sleep(600);
+            elapsed = System.nanoTime() - start;
+        } finally {
+            scheduler.close();
+        }
+
+        // One job per period each, with the accelerators running side by side
+        assertJobs(a, elapsed);
+        assertJobs(b, elapsed);
+        assertJobs(c, elapsed);
+        assertTrue(c.getWcetNanos() >= 8 * MS);
+        assertEquals(PeriodicTask.State.ADMITTED, a.getState());
+        assertFalse(scheduler.isOverloaded(Accelerator.CPU));
+    }
+
+    @Test
+    public void rejectsTasksItCannotSchedule() throws Exception {
+        SimulatedBackend backend = new SimulatedBackend(LatencyDistribution.constant(6 * MS), 1);
+        TaskScheduler scheduler = new TaskScheduler(StandardPolicy.RATE_MONOTONIC, backend);
+        PeriodicTask first = new PeriodicTask(1, "model", Accelerator.NPU, 10 * MS);
+        PeriodicTask second = new PeriodicTask(2, "model", Accelerator.NPU, 10 * MS);
+        try {
+            assertTrue(scheduler.admit(first, 2).get(1, TimeUnit.SECONDS));
+            // Two 6 ms jobs every 10 ms do not fit
+            assertFalse(scheduler.admit(second, 2).get(1, TimeUnit.SECONDS));
+        } finally {
+            scheduler.close();
+        }
+        assertEquals(PeriodicTask.State.REJECTED, second.getState());
+        assertEquals(1, scheduler.getTasks(Accelerator.NPU).size());
+    }
+
+    @Test
+    public void leavesTheWarmUpRunOutOfTheWcet() throws Exception {
+        SimulatedBackend simulated =
+                new SimulatedBackend(LatencyDistribution.constant(2 * MS), 1);
+        // The first inference loads the model
+        InferenceBackend backend = new InferenceBackend() {
+            private boolean loaded;
+
+            @Override
+            public void infer(PeriodicTask task) throws InterruptedException {
+                if (!loaded) {
+                    Thread.sleep(30);
+                    loaded = true;
+                }
+                simulated.infer(task);
+            }
+        };
+        TaskScheduler scheduler = new TaskScheduler(StandardPolicy.EDF, backend);
+        PeriodicTask task = new PeriodicTask(1, "model", Accelerator.GPU, 10 * MS);
+        try {
+            assertTrue(scheduler.admit(task, 3).get(1, TimeUnit.SECONDS));
+        } finally {
+            scheduler.close();
+        }
+        assertEquals(PeriodicTask.State.ADMITTED, task.getState());
+        assertTrue(task.getWcetNanos() + " ns", task.getWcetNanos() < 10 * MS);
+    }
+
+    @Test
+    public void releasesAtAChangedPeriod() throws Exception {
+        SimulatedBackend backend = new SimulatedBackend(LatencyDistribution.constant(1 * MS), 1);
+        TaskScheduler scheduler = new TaskScheduler(StandardPolicy.EDF, backend);
+        PeriodicTask task = new PeriodicTask(1, "model", Accelerator.CPU, 10 * MS);
+        long jobs;
+        try {
+            assertTrue(scheduler.admit(task, 0).get(1, TimeUnit.SECONDS));
+            scheduler.setPeriod(task, 40 * MS);
+            Thread.sleep(50);
+            long start = task.getPacer().getJobs();
+            Thread.sleep(400);
+            jobs = task.getPacer().getJobs() - start;
+        } finally {
+            scheduler.close();
+        }
+        assertEquals(40 * MS, task.getPeriodNanos());
+        assertEquals(40 * MS, task.getDeadlineNanos());
+        assertEquals(40 * MS, task.getPacer().getPeriodNanos());
+        // About 10 jobs in 400 ms, rather than 40
+        assertTrue(jobs + " jobs", jobs >= 8 && jobs <= 12);
+        assertFalse(scheduler.isOverloaded(Accelerator.CPU));
+    }
+
+    @Test
+    public void stopsReleasingRemovedTasks() throws Exception {
+        SimulatedBackend backend = new SimulatedBackend(LatencyDistribution.constant(1 * MS), 1);
+        TaskScheduler scheduler = new TaskScheduler(StandardPolicy.FIFO, backend);
+        PeriodicTask task = new PeriodicTask(1, "model", Accelerator.CPU, 10 * MS);
+        try {
+            assertTrue(scheduler.admit(task, 0).get(1, TimeUnit.SECONDS));
+            Thread.sleep(50);
+            scheduler.remove(task);
+            Thread.sleep(20);
+            long jobs = task.getPacer().getJobs();
+            Thread.sleep(50);
+            assertEquals(jobs, task.getPacer().getJobs());
+        } finally {
+            scheduler.close();
+        }
+        assertEquals(PeriodicTask.State.REMOVED, task.getState());
+    }
+
+    private static void assertJobs(PeriodicTask task, long elapsedNanos) {
+        long expected = elapsedNanos / task.getPeriodNanos();
+        long jobs = task.getPacer().getJobs();
+        // Admission of the later tasks delays the start of the earlier ones' timelines
+        assertTrue(task + " ran " + jobs + " jobs, expected about " + expected,
+                jobs <= expected + 1 && jobs >= expected * 3 / 4);
+        assertEquals(0, task.getPacer().getDeadlineMisses());
+    }
+}
@@ -0,0 +1,92 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BinaryTelemetryTest {
+    private static final TelemetrySchema SCHEMA = new TelemetrySchema.Builder()
+            .addText("time")
+            .addLong("relativeTime")
+            .addFloat("cpuFrequency")
+            .build();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File writeRows(int rows) throws IOException {
+        File file = new File(folder.getRoot(), "rows.bin");
+        TelemetrySink sink = new TelemetrySink(file, SCHEMA, new BinaryTelemetryEncoder());
+        for (int i = 0; i < rows; i++) {
+            TelemetryRecord record = sink.claim();
+            record.set(0, "12:00:0" + i).set(1, i * 1000L).set(2, 1.5f * i);
+            sink.publish(record);
+        }
+        sink.close();
+        return file;
+    }
+
+    @Test
+    public void roundTripsThroughReader() throws IOException {
+        File file = writeRows(3);
+        try (BinaryTelemetryReader reader = new BinaryTelemetryReader(file)) {
+            assertEquals(3, reader.getSchema().size());
+            assertEquals("cpuFrequency", reader.getSchema().getName(2));
+            assertEquals(TelemetrySchema.Type.FLOAT, reader.getSchema().getType(2));
+            assertEquals(3, reader.getRowCount());
+            assertArrayEquals(new long[] {0, 1000, 2000}, reader.readLongColumn(1));
+            assertArrayEquals(new float[] {0f, 1.5f, 3f}, reader.readFloatColumn(2), 0f);
+
+            StringWriter csv = new StringWriter();
+            reader.writeCsv(csv);
+            assertEquals("time,relativeTime,cpuFrequency\n"
+                    + "12:00:00,0,0.0\n12:00:01,1000,1.5\n12:00:02,2000,3.0\n", csv.toString());
+        }
+    }
+
+    @Test
+    public void keepsSessionAnchorInHeader() throws IOException {
+        SessionClock clock = new SessionClock(5000000000L, 1700000000123L);
+        TelemetrySchema schema = clock.addAnchor(new TelemetrySchema.Builder())
+                .addLong("sessionNanos")
+                .build();
+        File file = new File(folder.getRoot(), "anchored.bin");
+        TelemetrySink sink = new TelemetrySink(file, schema, new BinaryTelemetryEncoder());
+        TelemetryRecord record = sink.claim();
+        record.set(0, clock.toSessionNanos(7500000000L));
+        sink.publish(record);
+        sink.close();
+
+        try (BinaryTelemetryReader reader = new BinaryTelemetryReader(file)) {
+            TelemetrySchema read = reader.getSchema();
+            assertEquals("1700000000123", read.getProperty(SessionClock.ANCHOR_EPOCH_MILLIS));
+            assertEquals(schema.getProperty(SessionClock.ANCHOR_WALL_CLOCK),
+                    read.getProperty(SessionClock.ANCHOR_WALL_CLOCK));
+            assertEquals(2500000000L, reader.getLong(0, 0));
+            assertEquals(1700000002623L, clock.toEpochMillis(reader.getLong(0, 0)));
+
+            StringWriter csv = new StringWriter();
+            reader.writeCsv(csv);
+            assertEquals(0, csv.toString().indexOf("# sessionStartWallClock="));
+        }
+    }
+
+    @Test
+    public void ignoresTruncatedLastRow() throws IOException {
+        File file = writeRows(2);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+        try (BinaryTelemetryReader reader = new BinaryTelemetryReader(file)) {
+            assertEquals(1, reader.getRowCount());
+            assertEquals("12:00:00", reader.getText(0, 0));
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Runs the utilization sampler against fixture procfs files. */
+public class CpuUtilizationSamplerTest {
+    private static final float EPSILON = 0.01f;
+    // One second, i.e. 100 jiffies of one core
+    private static final long SECOND = 1000000000L;
+
+    @Rule
+    public TemporaryFolder proc = new TemporaryFolder();
+
+    @Test
+    public void computesUtilizationFromDeltas() throws IOException {
+        // Two cores, 100 jiffies each per sample
+        writeStat(0, 0, 0, 0);
+        writeTask("self/stat", 4242, "imageclassifica", 0, 0);
+        writeTask("self/task/4242/stat", 4242, "imageclassifica", 0, 0);
+        writeTask("self/task/4250/stat", 4250, "DefaultDispatch", 0, 0);
+
+        CpuUtilizationSampler sampler = new CpuUtilizationSampler(proc.getRoot(), 8);
+        sampler.sample(0);
+
+        // core0 75% busy, core1 25% busy; process used 60 jiffies, 50 of them on one thread
+        writeStat(75, 25, 25, 75);
+        writeTask("self/stat", 4242, "imageclassifica", 40, 20);
+        writeTask("self/task/4242/stat", 4242, "imageclassifica", 5, 5);
+        writeTask("self/task/4250/stat", 4250, "DefaultDispatch", 30, 20);
+        sampler.sample(SECOND);
+
+        assertEquals(2, sampler.getCoreCount());
+        assertEquals(200, sampler.getLastTotalDelta());
+        assertEquals(50f, sampler.getSystemUtilization(), EPSILON);
+        assertEquals(75f, sampler.getCoreUtilization(0), EPSILON);
+        assertEquals(25f, sampler.getCoreUtilization(1), EPSILON);
+        assertEquals(60f, sampler.getProcessUtilization(), EPSILON);
+        assertEquals(50f, sampler.getThreadUtilization(4250), EPSILON);
+        assertEquals(50f, sampler.getThreadUtilization("DefaultDispatch"), EPSILON);
+        assertEquals("DefaultDispatch", sampler.getThreadNames().get(4250));
+        sampler.close();
+    }
+
+    @Test
+    public void matchesPrefixesLongerThanTheComm() throws IOException {
+        writeStat(0, 0, 0, 0);
+        writeTask("self/stat", 1, "app", 0, 0);
+        // The kernel cut "SamplingScheduler" to 15 characters
+        writeTask("self/task/9/stat", 9, "SamplingSchedul", 0, 0);
+
+        CpuUtilizationSampler sampler = new CpuUtilizationSampler(proc.getRoot(), 8);
+        sampler.sample(0);
+
+        writeStat(100, 0, 100, 0);
+        writeTask("self/stat", 1, "app", 20, 0);
+        writeTask("self/task/9/stat", 9, "SamplingSchedul", 10, 10);
+        sampler.sample(SECOND);
+
+        assertEquals(20f, sampler.getThreadUtilization("SamplingScheduler"), EPSILON);
+        assertEquals(20f, sampler.getThreadUtilization("SamplingSchedul"), EPSILON);
+        assertEquals(0f, sampler.getThreadUtilization("Sampler-"), EPSILON);
+        sampler.close();
+    }
+
+    @Test
+    public void measuresTheProcessWithoutSystemStat() throws IOException {
+        // Apps may not read /proc/stat since Android 8
+        writeTask("self/stat", 1, "app", 0, 0);
+        writeTask("self/task/3/stat", 3, "Classifier-0", 0, 0);
+
+        CpuUtilizationSampler sampler = new CpuUtilizationSampler(proc.getRoot(), 8);
+        sampler.sample(0);
+
+        // 150 jiffies over half a second: one and a half cores busy
+        writeTask("self/stat", 1, "app", 100, 50);
+        writeTask("self/task/3/stat", 3, "Classifier-0", 40, 10);
+        sampler.sample(SECOND / 2);
+
+        assertEquals(0, sampler.getLastTotalDelta());
+        assertEquals(0f, sampler.getSystemUtilization(), EPSILON);
+        assertEquals(300f, sampler.getProcessUtilization(), EPSILON);
+        assertEquals(100f, sampler.getThreadUtilization("Classifier-"), EPSILON);
+        sampler.close();
+    }
+
+    @Test
+    public void forgetsExitedThreads() throws IOException {
+        writeStat(0, 0, 0, 0);
+        writeTask("self/stat", 1, "app", 0, 0);
+        writeTask("self/task/7/stat", 7, "worker (1)", 0, 0);
+
+        CpuUtilizationSampler sampler = new CpuUtilizationSampler(proc.getRoot(), 8);
+        sampler.sample(0);
+        assertEquals("worker (1)", sampler.getThreadNames().get(7));
+
+        new File(proc.getRoot(), "self/task/7/stat").delete();
+        new File(proc.getRoot(), "self/task/7").delete();
+        sampler.sample(SECOND);
+        assertEquals(-1f, sampler.getThreadUtilization(7), EPSILON);
+        sampler.close();
+    }
+
+    private void writeStat(long busy0, long idle0, long busy1, long idle1) throws IOException {
+        write("stat",
+                "cpu  " + (busy0 + busy1) + " 0 0 " + (idle0 + idle1) + " 0 0 0 0 0 0\n"
+                        + "cpu0 " + busy0 + " 0 0 " + idle0 + " 0 0 0 0 0 0\n"
+                        + "cpu1 " + busy1 + " 0 0 " + idle1 + " 0 0 0 0 0 0\n"
+                        + "intr 12345 0 0 0\n"
+                        + "ctxt 999\n");
+    }
+
+    private void writeTask(String path, int pid, String comm, long utime, long stime)
+            throws IOException {
+        write(path, pid + " (" + comm + ") S 1 1 0 0 -1 4194624 100 0 0 0 "
+                + utime + " " + stime + " 0 0 20 0 12 0 500 0 0\n");
+    }
+
+    private void write(String relativePath, String contents) throws IOException {
+        File file = new File(proc.getRoot(), relativePath);
+        file.getParentFile().mkdirs();
+        try (FileOutputStream out = new FileOutputStream(file, false)) {
+            out.write(contents.getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Runs residency tracking against a synthetic cpufreq tree. */
+public class FrequencyResidencyTrackerTest {
+    private static final String CPUFREQ = FrequencyResidencyTracker.DEFAULT_CPUFREQ_DIR;
+
+    @Rule
+    public TemporaryFolder sysfs = new TemporaryFolder();
+
+    @Test
+    public void discoversPoliciesAndComputesIntervalDeltas() throws IOException {
+        writePolicy(0, "0 1", "300000 100\n1000000 50\n");
+        writePolicy(2, "2 3 4", "500000 10\n2000000 0\n");
+        write(CPUFREQ + "/schedutil/rate_limit_us", "500\n");
+
+        SysfsReader reader = new SysfsReader(sysfs.getRoot(), false);
+        FrequencyResidencyTracker tracker = FrequencyResidencyTracker.discover(reader, CPUFREQ);
+        assertEquals(2, tracker.size());
+        assertEquals("policy2", tracker.get(1).name);
+        assertEquals("2 3 4", tracker.get(1).cpus);
+        assertEquals(2, tracker.get(0).getFrequencyCount());
+        assertEquals(1000000, tracker.get(0).getFrequency(1));
+
+        writePolicy(0, "0 1", "300000 130\n1000000 60\n");
+        writePolicy(2, "2 3 4", "500000 10\n2000000 0\n");
+        tracker.sample();
+        FrequencyResidencyTracker.Policy little = tracker.get(0);
+        assertEquals(30, little.getTimeInInterval(0));
+        assertEquals(10, little.getTimeInInterval(1));
+        assertEquals(40, little.getIntervalTicks());
+        assertEquals((300000f * 30 + 1000000f * 10) / 40, little.getEffectiveFrequency(), 1f);
+        assertEquals(FrequencyResidencyTracker.UNKNOWN_FREQUENCY,
+                tracker.get(1).getEffectiveFrequency(), 0f);
+
+        writePolicy(0, "0 1", "300000 130\n1000000 80\n");
+        tracker.sample();
+        assertEquals(0, little.getTimeInInterval(0));
+        assertEquals(20, little.getTimeInInterval(1));
+        assertEquals(30, little.getTimeSinceStart(0));
+        assertEquals(30, little.getTimeSinceStart(1));
+        assertEquals(1000000f, little.getEffectiveFrequency(), 1f);
+        reader.close();
+    }
+
+    @Test
+    public void keepsTheDiscoveredTableWhenItChanges() throws IOException {
+        writePolicy(0, "0", "300000 100\n900000 0\n");
+        SysfsReader reader = new SysfsReader(sysfs.getRoot(), false);
+        FrequencyResidencyTracker tracker = FrequencyResidencyTracker.discover(reader, CPUFREQ);
+
+        writePolicy(0, "0", "300000 120\n600000 5\n");
+        tracker.sample();
+        FrequencyResidencyTracker.Policy policy = tracker.get(0);
+        assertEquals(2, policy.getFrequencyCount());
+        assertEquals(900000, policy.getFrequency(1));
+        assertEquals(20, policy.getTimeSinceStart(0));
+        assertEquals(0, policy.getTimeSinceStart(1));
+        assertEquals(20, policy.getIntervalTicks());
+        reader.close();
+    }
+
+    @Test
+    public void keepsTheLastValuesOverAFailedRead() throws IOException {
+        writePolicy(0, "0", "300000 100\n600000 0\n");
+        SysfsReader reader = new SysfsReader(sysfs.getRoot(), false);
+        FrequencyResidencyTracker tracker = FrequencyResidencyTracker.discover(reader, CPUFREQ);
+        FrequencyResidencyTracker.Policy policy = tracker.get(0);
+
+        writePolicy(0, "0", "300000 110\n600000 10\n");
+        tracker.sample();
+        // An offline policy reads as empty
+        writePolicy(0, "0", "");
+        tracker.sample();
+        assertEquals(2, policy.getFrequencyCount());
+        assertEquals(10, policy.getTimeSinceStart(0));
+        assertEquals(10, policy.getTimeSinceStart(1));
+
+        writePolicy(0, "0", "300000 115\n600000 10\n");
+        tracker.sample();
+        assertEquals(15, policy.getTimeSinceStart(0));
+        assertEquals(5, policy.getIntervalTicks());
+        reader.close();
+    }
+
+    private void writePolicy(int policy, String cpus, String timeInState) throws IOException {
+        write(CPUFREQ + "/policy" + policy + "/related_cpus", cpus + "\n");
+        write(CPUFREQ + "/policy" + policy + "/stats/time_in_state", timeInState);
+    }
+
+    private void write(String relativePath, String contents) throws IOException {
+        File file = new File(sysfs.getRoot(), relativePath);
+        file.getParentFile().mkdirs();
+        try (FileOutputStream out = new FileOutputStream(file, false)) {
+            out.write(contents.getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+}
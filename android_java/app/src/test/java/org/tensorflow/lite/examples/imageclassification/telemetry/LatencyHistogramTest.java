@@ -0,0 +1,118 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static void assertNear(long expected, long actual) {
+        // Buckets are at most 1/16 of their values wide
+        assertTrue(expected + " vs " + actual,
+                actual >= expected && actual <= expected + expected / 16 + 1000);
+    }
+
+    @Test
+    public void bucketsCoverTheRangeWithoutGaps() {
+        int previous = -1;
+        for (long micros = 0; micros < 1 << 20; micros++) {
+            int bucket = LatencyHistogram.bucketOf(micros);
+            assertTrue(micros + " in " + bucket, bucket == previous || bucket == previous + 1);
+            assertTrue(LatencyHistogram.highestNanos(bucket) >= micros * 1000 + 999);
+            previous = bucket;
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1,
+                LatencyHistogram.bucketOf((1L << 32) - 1));
+    }
+
+    @Test
+    public void percentilesFindTheTail() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1 to 1000 ms, one each
+        for (int ms = 1; ms <= 1000; ms++) {
+            histogram.recordNanos(ms * MS);
+        }
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram.Snapshot();
+        histogram.snapshot(snapshot);
+
+        assertEquals(1000, snapshot.getCount());
+        assertNear(500 * MS, snapshot.percentileNanos(50));
+        assertNear(900 * MS, snapshot.percentileNanos(90));
+        assertNear(990 * MS, snapshot.percentileNanos(99));
+        assertNear(999 * MS, snapshot.percentileNanos(99.9));
+        assertEquals(1000 * MS, snapshot.percentileNanos(100));
+        assertEquals(1000 * MS, snapshot.getMaxNanos());
+        assertEquals(0, new LatencyHistogram.Snapshot().percentileNanos(99));
+    }
+
+    @Test
+    public void snapshotsMerge() {
+        LatencyHistogram fast = new LatencyHistogram();
+        LatencyHistogram slow = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            fast.recordNanos(10 * MS);
+        }
+        slow.recordNanos(200 * MS);
+        LatencyHistogram.Snapshot merged = new LatencyHistogram.Snapshot();
+        LatencyHistogram.Snapshot other = new LatencyHistogram.Snapshot();
+        fast.snapshot(merged);
+        slow.snapshot(other);
+        merged.add(other);
+
+        assertEquals(100, merged.getCount());
+        assertNear(10 * MS, merged.percentileNanos(99));
+        assertEquals(200 * MS, merged.percentileNanos(99.9));
+    }
+
+    @Test
+    public void windowSlidesOverTheLastTicks() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        LatencyHistogram.Window window = new LatencyHistogram.Window(histogram, 3);
+        // A slow tick, then three fast ones push it out of the window
+        histogram.recordNanos(500 * MS);
+        assertEquals(1, window.tick().getCount());
+        for (int tick = 0; tick < 2; tick++) {
+            histogram.recordNanos(20 * MS);
+            histogram.recordNanos(30 * MS);
+            window.tick();
+            assertNear(500 * MS, window.get().getMaxNanos());
+        }
+        histogram.recordNanos(20 * MS);
+        histogram.recordNanos(30 * MS);
+        LatencyHistogram.Snapshot last = window.tick();
+        assertEquals(6, last.getCount());
+        assertNear(30 * MS, last.getMaxNanos());
+        assertTrue(last.getMaxNanos() < 500 * MS);
+
+        // A reset restarts the window
+        histogram.reset();
+        histogram.recordNanos(40 * MS);
+        assertEquals(1, window.tick().getCount());
+        assertNear(40 * MS, window.get().percentileNanos(50));
+    }
+
+    @Test
+    public void concurrentRecordersLoseNothing() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final long nanos = (t + 1) * MS;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    histogram.recordNanos(nanos);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram.Snapshot();
+        histogram.snapshot(snapshot);
+        assertEquals(40000, snapshot.getCount());
+        assertEquals(4 * MS, snapshot.getMaxNanos());
+    }
+}
@@ -0,0 +1,85 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class RateMeterTest {
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    // An arbitrary System.nanoTime() origin
+    private static final long T0 = 123456789L;
+
+    /** Marks one event every {@code periodMs} from {@code fromNanos} until {@code toNanos}. */
+    private static long run(RateMeter meter, long fromNanos, long toNanos, long periodMs) {
+        long t = fromNanos;
+        for (; t < toNanos; t += periodMs * MS) {
+            meter.mark(t);
+        }
+        return t;
+    }
+
+    @Test
+    public void countsFractionalRatesExactly() {
+        RateMeter meter = new RateMeter(T0);
+        // 30 ms period: 33.3 inferences per second, which whole-FPS math truncates to 33
+        run(meter, T0, T0 + 30 * SECOND, 30);
+
+        long now = T0 + 30 * SECOND;
+        assertEquals(1000, meter.getCount());
+        assertEquals(1000 / 30.0, meter.getMeanRate(now), 1e-9);
+        assertEquals(333, meter.getWindowCount(10 * SECOND, now), 1);
+        assertEquals(1000 / 30.0, meter.getWindowRate(10 * SECOND, now), 0.2);
+        assertEquals(1000 / 30.0, meter.getMovingRate(RateMeter.TEN_SECONDS, now), 0.5);
+        assertEquals(1000 / 30.0, meter.getMovingRate(RateMeter.ONE_MINUTE, now), 0.5);
+    }
+
+    @Test
+    public void windowsCoverOnlyTheTimeRun() {
+        RateMeter meter = new RateMeter(T0);
+        assertEquals(0, meter.getMeanRate(T0), 0);
+        assertEquals(0, meter.getWindowRate(SECOND, T0), 0);
+        assertEquals(0, meter.getMovingRate(RateMeter.ONE_MINUTE, T0), 0);
+
+        run(meter, T0, T0 + 2 * SECOND, 50);
+        long now = T0 + 2 * SECOND;
+        // Two seconds at 20 per second, not diluted over the minute asked for
+        assertEquals(40, meter.getWindowCount(60 * SECOND, now));
+        assertEquals(20, meter.getWindowRate(60 * SECOND, now), 1e-9);
+        // Bias corrected: right from the start rather than climbing from zero
+        assertEquals(20, meter.getMovingRate(RateMeter.ONE_MINUTE, now), 1e-6);
+    }
+
+    @Test
+    public void ratesFollowAChange() {
+        RateMeter meter = new RateMeter(T0);
+        long t = run(meter, T0, T0 + 60 * SECOND, 10);
+        // Drops from 100 to 10 per second
+        t = run(meter, t, t + 5 * SECOND, 100);
+
+        assertEquals(10, meter.getWindowRate(SECOND, t), 1e-9);
+        assertEquals(10, meter.getMovingRate(RateMeter.ONE_SECOND, t), 1);
+        double tenSeconds = meter.getMovingRate(RateMeter.TEN_SECONDS, t);
+        double minute = meter.getMovingRate(RateMeter.ONE_MINUTE, t);
+        assertTrue(tenSeconds + " " + minute, 10 < tenSeconds && tenSeconds < minute);
+        assertTrue(minute < 100);
+    }
+
+    @Test
+    public void idleTimeDecaysTheRates() {
+        RateMeter meter = new RateMeter(T0);
+        long t = run(meter, T0, T0 + 10 * SECOND, 10);
+        // Ten idle minutes
+        t += 600 * SECOND;
+
+        assertEquals(0, meter.getWindowCount(60 * SECOND, t));
+        assertEquals(0, meter.getMovingRate(RateMeter.ONE_MINUTE, t), 1e-3);
+        assertEquals(1000, meter.getCount());
+
+        meter.reset(t);
+        assertEquals(0, meter.getCount());
+        assertEquals(0, meter.getWindowCount(60 * SECOND, t + SECOND));
+    }
+}
@@ -0,0 +1,92 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class SamplingSchedulerTest {
+
+    @Test
+    public void ticksOnAFixedGridSharedByAllTasks() throws InterruptedException {
+        SamplingScheduler scheduler = new SamplingScheduler(20);
+        final List<long[]> first = new ArrayList<>();
+        final List<long[]> second = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(5);
+        scheduler.add(tick -> first.add(new long[] {tick.getSequence(), tick.getSampleNanos()}));
+        scheduler.add(tick -> {
+            second.add(new long[] {tick.getSequence(), tick.getScheduledNanos()});
+            done.countDown();
+        });
+        scheduler.start();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        scheduler.close();
+
+        long origin = second.get(0)[1];
+        for (int i = 0; i < 5; i++) {
+            assertEquals(first.get(i)[0], second.get(i)[0]);
+            long sequence = second.get(i)[0];
+            // Due times stay on the grid no matter how late earlier ticks ran
+            assertEquals(origin + sequence * scheduler.getPeriodNanos(), second.get(i)[1]);
+            assertTrue(first.get(i)[1] >= second.get(i)[1]);
+        }
+    }
+
+    @Test
+    public void coalescesOverrunsInsteadOfQueueing() throws InterruptedException {
+        SamplingScheduler scheduler = new SamplingScheduler(10);
+        final List<Long> sequences = new ArrayList<>();
+        final List<Long> coalesced = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(3);
+        scheduler.add(tick -> {
+            sequences.add(tick.getSequence());
+            coalesced.add(tick.getCoalesced());
+            if (tick.getSequence() == 0) {
+                try {
+                    Thread.sleep(55);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            done.countDown();
+        });
+        scheduler.start();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        scheduler.close();
+
+        // Ticks 1..5 were missed while tick 0 slept; the next tick runs once at slot 6 or later
+        assertTrue(sequences.get(1) >= 6);
+        assertEquals(sequences.get(1) - 1, (long) coalesced.get(1));
+        assertTrue(scheduler.getCoalescedCount() >= 5);
+    }
+
+    @Test
+    public void runsOutOfBandTasksOnTheTickThread() throws InterruptedException {
+        SamplingScheduler scheduler = new SamplingScheduler(1000);
+        final Thread[] threads = new Thread[2];
+        final long[] sequence = {0};
+        final CountDownLatch ticked = new CountDownLatch(1);
+        final CountDownLatch ranOutOfBand = new CountDownLatch(1);
+        scheduler.add(tick -> {
+            threads[0] = Thread.currentThread();
+            ticked.countDown();
+        });
+        scheduler.start();
+        assertTrue(ticked.await(5, TimeUnit.SECONDS));
+        scheduler.runOutOfBand(tick -> {
+            threads[1] = Thread.currentThread();
+            sequence[0] = tick.getSequence();
+            ranOutOfBand.countDown();
+        });
+        assertTrue(ranOutOfBand.await(5, TimeUnit.SECONDS));
+        scheduler.close();
+
+        assertEquals(threads[0], threads[1]);
+        assertEquals(-1, sequence[0]);
+        assertEquals(1, scheduler.getTickCount());
+    }
+}
@@ -0,0 +1,97 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Runs the sysfs reader against a fake sysfs tree. */
+public class SysfsReaderTest {
+    @Rule
+    public TemporaryFolder sysfs = new TemporaryFolder();
+
+    @Test
+    public void rereadsNodeInPlace() throws IOException {
+        write("class/thermal/thermal_zone0/temp", "41500\n");
+        SysfsReader reader = new SysfsReader(sysfs.getRoot(), false);
+
+        SysfsNode node = reader.open("class/thermal/thermal_zone0/temp");
+        assertEquals(41500, node.readLong(-1));
+
+        write("class/thermal/thermal_zone0/temp", "-2000\n");
+        assertEquals(-2000, node.readLong(-1));
+        assertSame(node, reader.open("class/thermal/thermal_zone0/temp"));
+        reader.close();
+    }
+
+    @Test
+    public void parsesTimeInStatePairs() throws IOException {
+        write("devices/system/cpu/cpufreq/policy0/stats/time_in_state",
+                "300000 1200\n574000 35\n738000 0\n");
+        SysfsReader reader = new SysfsReader(sysfs.getRoot(), false);
+
+        long[] values = new long[16];
+        int count = reader.open("devices/system/cpu/cpufreq/policy0/stats/time_in_state", 4096)
+                .readLongs(values);
+        assertEquals(6, count);
+        assertArrayEquals(new long[]{300000, 1200, 574000, 35, 738000, 0},
+                Arrays.copyOf(values, count));
+        reader.close();
+    }
+
+    @Test
+    public void missingNodeReturnsDefault() {
+        SysfsReader reader = new SysfsReader(sysfs.getRoot(), false);
+        SysfsNode node = reader.open("class/kgsl/kgsl-3d0/gpu_busy_percentage");
+        assertFalse(node.isReadable());
+        assertEquals(-1, node.readLong(-1));
+        assertEquals("default_zone_type", node.readLine("default_zone_type"));
+    }
+
+    @Test
+    public void readsFirstLineAndListsDirectories() throws IOException {
+        write("class/thermal/thermal_zone0/type", "BIG\n");
+        write("class/thermal/thermal_zone1/type", "G3D\n");
+        SysfsReader reader = new SysfsReader(sysfs.getRoot(), false);
+
+        assertEquals("BIG", reader.open("class/thermal/thermal_zone0/type").readLine(null));
+        String[] zones = reader.list("class/thermal");
+        Arrays.sort(zones);
+        assertArrayEquals(new String[]{"thermal_zone0", "thermal_zone1"}, zones);
+        assertEquals(0, reader.list("class/missing").length);
+    }
+
+    @Test
+    public void parserHandlesUnitsAndGarbage() {
+        assertEquals(45, SysfsParser.parseLong(ascii("45 %\n"), -1));
+        assertEquals(-1, SysfsParser.parseLong(ascii("  \n"), -1));
+        assertEquals(-1, SysfsParser.parseLong(ascii("N/A"), -1));
+
+        long[] values = new long[4];
+        assertEquals(2, SysfsParser.parseLongs(ascii("12 abc 7"), values));
+        assertEquals(12, values[0]);
+        assertEquals(7, values[1]);
+    }
+
+    private void write(String relativePath, String contents) throws IOException {
+        File file = new File(sysfs.getRoot(), relativePath);
+        file.getParentFile().mkdirs();
+        try (FileOutputStream out = new FileOutputStream(file, false)) {
+            out.write(contents.getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    private static ByteBuffer ascii(String contents) {
+        return ByteBuffer.wrap(contents.getBytes(StandardCharsets.US_ASCII));
+    }
+}
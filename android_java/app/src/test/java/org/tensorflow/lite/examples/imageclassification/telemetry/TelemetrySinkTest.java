@@ -0,0 +1,148 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TelemetrySinkTest {
+    private static final TelemetrySchema SCHEMA = new TelemetrySchema.Builder()
+            .addText("time")
+            .addLong("producer")
+            .addLong("sequence")
+            .addFloat("value")
+            .build();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesHeaderAndRowsOnClose() throws IOException {
+        File file = new File(folder.getRoot(), "rows.csv");
+        TelemetrySink sink = new TelemetrySink(file, SCHEMA, new CsvTelemetryEncoder());
+        TelemetryRecord record = sink.claim();
+        record.set(0, "12:00:00:000").set(1, 1).set(2, 2).set(3, 41.5f);
+        sink.publish(record);
+        sink.close();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.US_ASCII);
+        assertEquals("time,producer,sequence,value", lines.get(0));
+        assertEquals("12:00:00:000,1,2,41.5", lines.get(1));
+        assertEquals(1, sink.getWrittenCount());
+        assertNull(sink.claim());
+    }
+
+    @Test
+    public void writesPropertiesAsCommentLines() throws IOException {
+        File file = new File(folder.getRoot(), "props.csv");
+        TelemetrySchema schema = new TelemetrySchema.Builder()
+                .putProperty(SessionClock.ANCHOR_EPOCH_MILLIS, "1700000000123")
+                .addLong("sessionNanos")
+                .build();
+        new TelemetrySink(file, schema, new CsvTelemetryEncoder()).close();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.US_ASCII);
+        assertEquals("# sessionStartEpochMillis=1700000000123", lines.get(0));
+        assertEquals("sessionNanos", lines.get(1));
+    }
+
+    @Test
+    public void storesNumbersAsTheColumnType() throws IOException {
+        File file = new File(folder.getRoot(), "types.csv");
+        TelemetrySink sink = new TelemetrySink(file, SCHEMA, new CsvTelemetryEncoder());
+        TelemetryRecord record = sink.claim();
+        record.set(0, "12:00:00:000").set(1, 2.6f).set(2, 3).set(3, 4L);
+        assertEquals(3L, record.getLong(1));
+        assertEquals(4f, record.getFloat(3), 0f);
+        sink.publish(record);
+        sink.close();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.US_ASCII);
+        assertEquals("12:00:00:000,3,3,4.0", lines.get(1));
+    }
+
+    @Test
+    public void dropsInsteadOfBlockingWhenFull() throws IOException {
+        File file = new File(folder.getRoot(), "full.csv");
+        // A writer that never gets to drain: claim without publishing
+        TelemetrySink sink = new TelemetrySink(
+                file, SCHEMA, new CsvTelemetryEncoder(), 4, TelemetrySink.DEFAULT_FSYNC_INTERVAL_MS);
+        for (int i = 0; i < 4; i++) {
+            assertNotNull(sink.claim());
+        }
+        assertNull(sink.claim());
+        assertEquals(1, sink.getDropCount());
+        assertEquals(4, sink.getQueueDepth());
+        sink.close();
+    }
+
+    @Test
+    public void keepsEveryRowFromConcurrentProducers() throws Exception {
+        final int producers = 4;
+        final int rows = 5000;
+        File file = new File(folder.getRoot(), "concurrent.csv");
+        final TelemetrySink sink = new TelemetrySink(file, SCHEMA, new CsvTelemetryEncoder(),
+                64, TelemetrySink.DEFAULT_FSYNC_INTERVAL_MS);
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            threads[p] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < rows; i++) {
+                    TelemetryRecord record;
+                    while ((record = sink.claim()) == null) {
+                        Thread.yield();
+                    }
+                    record.set(1, producer).set(2, i);
+                    sink.publish(record);
+                }
+            });
+            threads[p].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        sink.close();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.US_ASCII);
+        assertEquals(producers * rows + 1, lines.size());
+        Set<String> unique = new HashSet<>(lines.subList(1, lines.size()));
+        assertEquals(producers * rows, unique.size());
+        assertEquals(producers * rows, sink.getWrittenCount());
+        assertTrue(sink.getMaxQueueDepth() <= 64);
+    }
+
+    @Test
+    public void csvEncoderReportsOverflow() {
+        TelemetryRecord record = new TelemetryRecord(SCHEMA);
+        record.set(0, "a long time stamp");
+        ByteBuffer small = ByteBuffer.allocate(4);
+        try {
+            new CsvTelemetryEncoder().encode(record, small);
+        } catch (BufferOverflowException expected) {
+            assertEquals(0, small.position());
+            return;
+        }
+        throw new AssertionError("Expected overflow");
+    }
+}
@@ -0,0 +1,72 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ThermalEventRingTest {
+
+    @Test
+    public void drainsInOrderAndDropsWhenFull() {
+        ThermalEventRing ring = new ThermalEventRing(2, ThermalStatus.NONE);
+        assertTrue(ring.offer(ThermalStatus.LIGHT, 10));
+        assertTrue(ring.offer(ThermalStatus.MODERATE, 20));
+        assertFalse(ring.offer(ThermalStatus.SEVERE, 30));
+        assertEquals(1, ring.getDropCount());
+        assertEquals(ThermalStatus.SEVERE, ring.getLatest());
+
+        ThermalEventRing.Event event = new ThermalEventRing.Event();
+        assertTrue(ring.poll(event));
+        assertEquals(ThermalStatus.LIGHT, event.getStatus());
+        assertEquals(10, event.getSessionNanos());
+        assertTrue(ring.poll(event));
+        assertEquals(ThermalStatus.MODERATE, event.getStatus());
+        assertFalse(ring.poll(event));
+
+        assertTrue(ring.offer(ThermalStatus.NONE, 40));
+        assertTrue(ring.poll(event));
+        assertEquals(40, event.getSessionNanos());
+    }
+
+    @Test
+    public void keepsEveryEventFromConcurrentCallbacks() throws InterruptedException {
+        final int perThread = 10000;
+        final ThermalEventRing ring = new ThermalEventRing(64, ThermalStatus.NONE);
+        Thread[] producers = new Thread[3];
+        for (int p = 0; p < producers.length; p++) {
+            final ThermalStatus status = ThermalStatus.fromCode(p + 1);
+            producers[p] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    while (!ring.offer(status, i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            producers[p].start();
+        }
+
+        int[] counts = new int[ThermalStatus.values().length];
+        long[] last = {-1, -1, -1, -1};
+        ThermalEventRing.Event event = new ThermalEventRing.Event();
+        int drained = 0;
+        while (drained < producers.length * perThread) {
+            if (!ring.poll(event)) {
+                Thread.yield();
+                continue;
+            }
+            int code = event.getStatus().getCode();
+            // Each producer's events come out in the order it offered them
+            assertEquals(last[code] + 1, event.getSessionNanos());
+            last[code] = event.getSessionNanos();
+            counts[event.getStatus().ordinal()]++;
+            drained++;
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        assertEquals(perThread, counts[ThermalStatus.LIGHT.ordinal()]);
+        assertEquals(perThread, counts[ThermalStatus.SEVERE.ordinal()]);
+    }
+}
@@ -0,0 +1,76 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Runs thermal zone discovery against a synthetic sysfs tree. */
+public class ThermalZoneRegistryTest {
+    private static final String[] TYPES = {"BIG", "MID", "LITTLE", "TPU", "G3D"};
+
+    @Rule
+    public TemporaryFolder sysfs = new TemporaryFolder();
+
+    @Test
+    public void discoversZonesInNaturalOrder() throws IOException {
+        writeZone(0, "BIG", "52000");
+        writeZone(2, "battery", "30000");
+        writeZone(10, "G3D", "-5");
+        write("class/thermal/cooling_device0/type", "thermal-cpufreq-0\n");
+
+        SysfsReader reader = new SysfsReader(sysfs.getRoot(), false);
+        ThermalZoneRegistry registry = ThermalZoneRegistry.discover(
+                reader, ThermalZoneRegistry.DEFAULT_THERMAL_DIR, TYPES);
+
+        assertEquals(3, registry.size());
+        assertEquals("class/thermal/thermal_zone2/", registry.get(1).path);
+        assertEquals("battery", registry.get(1).type);
+        assertFalse(registry.get(1).isOfInterest());
+        assertEquals(0, registry.get(0).interest);
+        assertEquals(4, registry.get(2).interest);
+        assertArrayEquals(new int[]{0, 2}, registry.getZonesOfInterest());
+        reader.close();
+    }
+
+    @Test
+    public void readsTemperaturesByIndexWithoutRereadingTypes() throws IOException {
+        writeZone(0, "BIG", "52000");
+        writeZone(1, "G3D", "-5");
+        SysfsReader reader = new SysfsReader(sysfs.getRoot(), false);
+        ThermalZoneRegistry registry = ThermalZoneRegistry.discover(
+                reader, ThermalZoneRegistry.DEFAULT_THERMAL_DIR, TYPES);
+
+        write("class/thermal/thermal_zone0/type", "renamed\n");
+        write("class/thermal/thermal_zone0/temp", "61250\n");
+
+        float[] temps = new float[registry.size()];
+        registry.readTemperatures(temps);
+        assertEquals(61.25f, temps[0], 0.001f);
+        assertEquals(0f, temps[1], 0.001f);
+        assertEquals("BIG", registry.get(0).type);
+        assertTrue(registry.get(0).isOfInterest());
+        reader.close();
+    }
+
+    private void writeZone(int zone, String type, String temp) throws IOException {
+        write("class/thermal/thermal_zone" + zone + "/type", type + "\n");
+        write("class/thermal/thermal_zone" + zone + "/temp", temp + "\n");
+    }
+
+    private void write(String relativePath, String contents) throws IOException {
+        File file = new File(sysfs.getRoot(), relativePath);
+        file.getParentFile().mkdirs();
+        try (FileOutputStream out = new FileOutputStream(file, false)) {
+            out.write(contents.getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+}
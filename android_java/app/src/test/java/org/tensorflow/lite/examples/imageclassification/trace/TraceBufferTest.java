@@ -0,0 +1,81 @@
+package org.tensorflow.lite.examples.imageclassification.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import org.junit.Test;
+
+public class TraceBufferTest {
+    // An arbitrary System.nanoTime() origin
+    private static final long T0 = 5000000000L;
+
+    private static String export(TraceBuffer buffer, long originNanos) throws IOException {
+        StringWriter out = new StringWriter();
+        buffer.writeChromeTrace(out, originNanos);
+        return out.toString();
+    }
+
+    @Test
+    public void exportsSpansAsCompleteEvents() throws IOException {
+        TraceBuffer buffer = new TraceBuffer(8);
+        buffer.record(FrameStage.PREPROCESS, 7, T0 + 1500, T0 + 4000);
+        buffer.record(FrameStage.INVOKE, 7, T0 + 4000, T0 + 2004000);
+
+        String json = export(buffer, T0);
+        assertTrue(json, json.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["));
+        assertTrue(json, json.contains("\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":0,"
+                + "\"args\":{\"name\":\"" + Thread.currentThread().getName() + "\"}"));
+        // Microseconds since the origin
+        assertTrue(json, json.contains("{\"name\":\"preprocess\",\"cat\":\"frame\",\"ph\":\"X\","
+                + "\"pid\":1,\"tid\":0,\"ts\":1.500,\"dur\":2.500,\"args\":{\"frame\":7}}"));
+        assertTrue(json, json.contains("\"name\":\"invoke\",\"cat\":\"frame\",\"ph\":\"X\","
+                + "\"pid\":1,\"tid\":0,\"ts\":4.000,\"dur\":2000.000,"));
+        assertTrue(json, json.endsWith("]}\n"));
+    }
+
+    @Test
+    public void namesOneTrackPerThread() throws Exception {
+        final TraceBuffer buffer = new TraceBuffer(8);
+        buffer.record(FrameStage.ANALYZE, 1, T0, T0 + 1000);
+        Thread worker = new Thread(() -> {
+            buffer.record(FrameStage.INVOKE, 1, T0 + 1000, T0 + 2000);
+            buffer.record(FrameStage.RESULTS, 1, T0 + 2000, T0 + 3000);
+        }, "classifier \"0\"");
+        worker.start();
+        worker.join();
+
+        String json = export(buffer, T0);
+        assertTrue(json, json.contains("\"tid\":1,\"args\":{\"name\":\"classifier \\\"0\\\"\"}"));
+        assertTrue(json, json.contains("\"name\":\"invoke\",\"cat\":\"frame\",\"ph\":\"X\","
+                + "\"pid\":1,\"tid\":1,"));
+        assertTrue(json, json.contains("\"name\":\"analyze\",\"cat\":\"frame\",\"ph\":\"X\","
+                + "\"pid\":1,\"tid\":0,"));
+    }
+
+    @Test
+    public void keepsTheNewestSpansOnceFull() throws IOException {
+        TraceBuffer buffer = new TraceBuffer(5);
+        assertEquals(8, buffer.capacity());
+        for (int frame = 1; frame <= 20; frame++) {
+            buffer.record(FrameStage.INVOKE, frame, T0 + frame * 1000L, T0 + frame * 1000L + 500);
+        }
+
+        assertEquals(20, buffer.getRecordedCount());
+        String json = export(buffer, T0);
+        assertFalse(json, json.contains("\"frame\":12}"));
+        for (int frame = 13; frame <= 20; frame++) {
+            assertTrue(json, json.contains("\"frame\":" + frame + "}"));
+        }
+        // Oldest first
+        assertTrue(json, json.indexOf("\"frame\":13}") < json.indexOf("\"frame\":20}"));
+    }
+
+    @Test
+    public void exportsAnEmptyBuffer() throws IOException {
+        assertEquals("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n\n]}\n",
+                export(new TraceBuffer(4), T0));
+    }
+}
@@ -0,0 +1,76 @@
+package org.tensorflow.lite.examples.imageclassification;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.tensorflow.lite.examples.imageclassification.telemetry.RateMeter;
+import org.tensorflow.lite.examples.imageclassification.telemetry.TelemetryRecord;
+import org.tensorflow.lite.examples.imageclassification.telemetry.TelemetryRecords;
+import org.tensorflow.lite.examples.imageclassification.telemetry.TelemetrySchema;
+
+/**
+ * The rate and latency accounting of the classifier helpers: what every inference records, and
+ * what the sampling thread reads once per tick.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class InferenceStatsBenchmark {
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final InferenceStats stats = new InferenceStats();
+    private TelemetryRecord record;
+    private long now;
+    private int run;
+
+    @Setup
+    public void setUp() {
+        record = TelemetryRecords.create(
+                StageLatencies.addColumns(new TelemetrySchema.Builder()).build());
+        now = System.nanoTime();
+        // A minute of history at 30 inferences per second
+        for (int i = 0; i < 1800; i++) {
+            recordInference();
+        }
+    }
+
+    private void recordInference() {
+        // Varying durations, so the histograms do not hit one bucket
+        int jitter = run++ & 63;
+        now += 33 * MS;
+        stats.record(2 * MS + jitter * 1000L, 12 * MS + jitter * 10000L, 300000L + jitter, 33,
+                now);
+    }
+
+    /** Everything one inference records. */
+    @Benchmark
+    public void record() {
+        recordInference();
+    }
+
+    /** One sampling tick: advance the latency windows and write their percentiles. */
+    @Benchmark
+    public int sampleLatencies() {
+        StageLatencies latencies = stats.getLatencies();
+        latencies.sample();
+        return latencies.put(record, 0);
+    }
+
+    /** The rates read for one row of the throughput log. */
+    @Benchmark
+    public void readRates(Blackhole blackhole) {
+        RateMeter completions = stats.getCompletions();
+        blackhole.consume(completions.getMeanRate(now));
+        blackhole.consume(completions.getMovingRate(RateMeter.ONE_SECOND, now));
+        blackhole.consume(completions.getMovingRate(RateMeter.TEN_SECONDS, now));
+        blackhole.consume(completions.getMovingRate(RateMeter.ONE_MINUTE, now));
+        blackhole.consume(completions.getWindowCount(RateMeter.MAX_WINDOW_NANOS, now));
+        blackhole.consume(stats.getPeriodThroughput());
+    }
+}
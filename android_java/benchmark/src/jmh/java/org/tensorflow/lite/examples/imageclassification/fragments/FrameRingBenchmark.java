@@ -0,0 +1,75 @@
+package org.tensorflow.lite.examples.imageclassification.fragments;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The frame handoff between the camera and the classifiers. BitmapUpdaterApi and
+ * DynamicBitmapSource add only a StateFlow and Bitmap buffers on top of {@link FrameRing}, so
+ * the ring is measured directly, with plain arrays as frames.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FrameRingBenchmark {
+    private static final int SLOTS = 5;
+
+    @State(Scope.Group)
+    public static class Ring {
+        final FrameRing<int[]> ring = new FrameRing<>(SLOTS);
+
+        @Setup
+        public void setUp() {
+            // Gives every slot a buffer; the last one stays published as the latest frame
+            for (int i = 0; i < SLOTS; i++) {
+                FrameRing.Slot<int[]> slot = ring.claim();
+                slot.setBuffer(new int[16]);
+                ring.publish(slot, 0);
+            }
+        }
+    }
+
+    /** One frame through the ring on one thread, without contention. */
+    @Benchmark
+    @Group("uncontended")
+    public long publishAndAcquire(Ring state) {
+        FrameRing<int[]> ring = state.ring;
+        FrameRing.Slot<int[]> slot = ring.claim();
+        ring.publish(slot, 90);
+        FrameRing.Slot<int[]> frame = ring.acquireLatest();
+        long sequence = frame.getSequence();
+        ring.release(frame);
+        return sequence;
+    }
+
+    /** The camera thread, publishing as fast as it can claim a free slot. */
+    @Benchmark
+    @Group("cameraAndThreeClassifiers")
+    @GroupThreads(1)
+    public void publish(Ring state, Blackhole blackhole) {
+        FrameRing.Slot<int[]> slot = state.ring.claim();
+        if (slot == null) {
+            blackhole.consume(state.ring.getDropCount());
+            return;
+        }
+        state.ring.publish(slot, 90);
+    }
+
+    /** Classifier threads, each taking the latest frame and giving it back. */
+    @Benchmark
+    @Group("cameraAndThreeClassifiers")
+    @GroupThreads(3)
+    public void acquire(Ring state, Blackhole blackhole) {
+        FrameRing.Slot<int[]> frame = state.ring.acquireLatest();
+        blackhole.consume(frame.getBuffer());
+        state.ring.release(frame);
+    }
+}
@@ -0,0 +1,49 @@
+package org.tensorflow.lite.examples.imageclassification.preprocess;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Rotating, resizing and normalizing a 640x480 camera frame into a 224x224 model input. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FramePreprocessorBenchmark {
+    private static final int FRAME_WIDTH = 640;
+    private static final int FRAME_HEIGHT = 480;
+    private static final int INPUT_SIZE = 224;
+
+    @Param({"0", "90"})
+    public int rotation;
+
+    /** Raw pixels as quantized models take them, or normalized to floats. */
+    @Param({"UINT8", "FLOAT32"})
+    public FramePreprocessor.OutputType outputType;
+
+    private final int[] argb = new int[FRAME_WIDTH * FRAME_HEIGHT];
+    private FramePreprocessor preprocessor;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < argb.length; i++) {
+            argb[i] = 0xff000000 | random.nextInt(0x1000000);
+        }
+        preprocessor = outputType == FramePreprocessor.OutputType.UINT8
+                ? new FramePreprocessor(INPUT_SIZE, INPUT_SIZE)
+                : new FramePreprocessor(INPUT_SIZE, INPUT_SIZE, 127.5f, 127.5f);
+    }
+
+    @Benchmark
+    public ByteBuffer process() {
+        return preprocessor.process(argb, FRAME_WIDTH, FRAME_HEIGHT, rotation);
+    }
+}
@@ -0,0 +1,113 @@
+package org.tensorflow.lite.examples.imageclassification.replay;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.tensorflow.lite.examples.imageclassification.fragments.FrameRing;
+import org.tensorflow.lite.examples.imageclassification.scheduler.Accelerator;
+import org.tensorflow.lite.examples.imageclassification.scheduler.PeriodicTask;
+
+/**
+ * Classifying replayed frames: the app's test images, scaled to camera frames, are replayed as
+ * fast as possible while three classifier threads preprocess the latest frame for a stub model
+ * that returns at once. Measures the frame handoff and preprocessing with a live producer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReplayBenchmark {
+    private static final int FRAME_WIDTH = 640;
+    private static final int FRAME_HEIGHT = 480;
+    // As reported for a phone held upright
+    private static final int ROTATION = 90;
+
+    private File recording;
+    private Thread camera;
+    private ReplayBackend backend;
+
+    @State(Scope.Thread)
+    public static class Classifier {
+        private static final AtomicInteger ids = new AtomicInteger();
+
+        final PeriodicTask task = new PeriodicTask(ids.incrementAndGet(), "mobilenetv1",
+                Accelerator.CPU, TimeUnit.MILLISECONDS.toNanos(33));
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        recording = File.createTempFile("replay", FrameFile.EXTENSION);
+        record(new File(System.getProperty("replay.images", "../app/src/androidTest/assets")),
+                recording);
+        FrameFile frames = FrameFile.open(recording);
+        // Three classifiers holding a frame each, the latest frame and the one being written
+        FrameRing<int[]> ring = new FrameRing<>(5);
+        FrameReplayer<int[]> replayer = new FrameReplayer<>(ring, (index, buffer) -> {
+            int[] argb = buffer != null ? buffer : new int[FRAME_WIDTH * FRAME_HEIGHT];
+            frames.readArgb(index, argb);
+            return argb;
+        }, frames.getFrameCount(), frames.getRotation());
+        camera = new Thread(replayer, "replay");
+        camera.start();
+        // Every measured job should find a frame
+        FrameRing.Slot<int[]> first;
+        while ((first = ring.acquireLatest()) == null) {
+            Thread.yield();
+        }
+        ring.release(first);
+        backend = new ReplayBackend(ring, FRAME_WIDTH, FRAME_HEIGHT, task -> {
+        });
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        camera.interrupt();
+        camera.join();
+        recording.delete();
+    }
+
+    @Benchmark
+    @Threads(3)
+    public void classifyLatest(Classifier classifier) throws InterruptedException {
+        backend.infer(classifier.task);
+    }
+
+    /** Records the images in {@code directory} as camera frames, in name order. */
+    private static void record(File directory, File recording) throws IOException {
+        File[] images = directory.listFiles();
+        if (images == null) throw new IOException("cannot list " + directory);
+        Arrays.sort(images);
+        BufferedImage frame =
+                new BufferedImage(FRAME_WIDTH, FRAME_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        int[] argb = new int[FRAME_WIDTH * FRAME_HEIGHT];
+        try (FrameFile.Writer writer =
+                     new FrameFile.Writer(recording, FRAME_WIDTH, FRAME_HEIGHT, ROTATION)) {
+            for (File image : images) {
+                BufferedImage decoded = ImageIO.read(image);
+                if (decoded == null) continue;
+                Graphics2D graphics = frame.createGraphics();
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                        RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.drawImage(decoded, 0, 0, FRAME_WIDTH, FRAME_HEIGHT, null);
+                graphics.dispose();
+                frame.getRGB(0, 0, FRAME_WIDTH, FRAME_HEIGHT, argb, 0, FRAME_WIDTH);
+                writer.appendArgb(argb);
+            }
+            if (writer.getFrameCount() == 0) throw new IOException("no images in " + directory);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Parsing the sysfs and procfs contents read at every sampling tick. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SysfsParserBenchmark {
+    // As read from cpufreq/scaling_cur_freq and thermal_zone*/temp
+    private final ByteBuffer frequency = contents("1804800\n");
+    private final ByteBuffer temperature = contents("41300\n");
+    private final ByteBuffer timeInState = contents(
+            "300000 1234567\n576000 23456\n768000 34567\n1017600 4567\n1248000 5678\n"
+                    + "1324800 678\n1516800 789\n1612800 89\n1708800 9012\n1804800 123456\n");
+    private final ByteBuffer procStatCpu = contents(
+            "cpu4 1203345 20481 743214 98562311 41251 118532 39427 0 0 0\n");
+    private final ByteBuffer taskStat = contents(
+            "4321 (inference (0)) S 1 4321 0 0 -1 4210752 12345 0 0 0 56789 4321 0 0 20 0 "
+                    + "31 0 123456 2147483648 54321 18446744073709551615 1 1 0 0 0 0 4612 "
+                    + "1 1073775864 0 0 0 17 4 0 0 0 0 0\n");
+    private final long[] pairs = new long[32];
+
+    private static ByteBuffer contents(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Benchmark
+    public long parseFrequency() {
+        return SysfsParser.parseLong(frequency, -1);
+    }
+
+    @Benchmark
+    public long parseTemperature() {
+        return SysfsParser.parseLong(temperature, -1);
+    }
+
+    @Benchmark
+    public int parseTimeInState() {
+        return SysfsParser.parseLongs(timeInState, pairs);
+    }
+
+    /** The per-core totals and idle time, as CpuUtilizationSampler reads them. */
+    @Benchmark
+    public void parseProcStatLine(Blackhole blackhole) {
+        long total = 0;
+        for (int field = 0; field < 10; field++) {
+            total += SysfsParser.parseLongAt(procStatCpu, 4, field, 0);
+        }
+        blackhole.consume(total);
+        blackhole.consume(SysfsParser.parseLongAt(procStatCpu, 4, 3, 0)
+                + SysfsParser.parseLongAt(procStatCpu, 4, 4, 0));
+    }
+
+    /** utime and stime of a thread, counted from the end of its name. */
+    @Benchmark
+    public long parseTaskStat() {
+        int commEnd = SysfsParser.lastIndexOf(taskStat, (byte) ')');
+        return SysfsParser.parseLongAt(taskStat, commEnd + 1, 11, -1)
+                + SysfsParser.parseLongAt(taskStat, commEnd + 1, 12, -1);
+    }
+}
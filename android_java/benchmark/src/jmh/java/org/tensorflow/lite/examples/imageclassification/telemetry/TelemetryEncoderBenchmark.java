@@ -0,0 +1,69 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.tensorflow.lite.examples.imageclassification.StageLatencies;
+
+/**
+ * Encoding one row of a throughput log: a timestamp and label, per-classifier counters and
+ * rates, and the latency percentile columns.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TelemetryEncoderBenchmark {
+    private static final int COUNTERS = 40;
+    private static final int RATES = 8;
+
+    @Param({"CSV", "BINARY"})
+    public TelemetryFormat format;
+
+    private TelemetryEncoder encoder;
+    private TelemetryRecord record;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(64 * 1024);
+
+    @Setup
+    public void setUp() {
+        TelemetrySchema.Builder schema = new TelemetrySchema.Builder()
+                .addLong("timestamp")
+                .addText("phase");
+        for (int i = 0; i < COUNTERS; i++) {
+            schema.addLong("counter" + i);
+        }
+        for (int i = 0; i < RATES; i++) {
+            schema.addFloat("rate" + i);
+        }
+        StageLatencies.addColumns(schema);
+        record = new TelemetryRecord(schema.build());
+
+        int column = 0;
+        record.set(column++, 1700000000123L);
+        record.set(column++, "steady");
+        for (int i = 0; i < COUNTERS; i++) {
+            record.set(column++, 1000003L * (i + 1));
+        }
+        for (int i = 0; i < RATES; i++) {
+            record.set(column++, 33.333f * (i + 1));
+        }
+        while (column < record.getSchema().size()) {
+            record.set(column, 150000L + 7919L * column);
+            column++;
+        }
+        encoder = format.newEncoder();
+    }
+
+    @Benchmark
+    public int encodeRow() {
+        out.clear();
+        encoder.encode(record, out);
+        return out.position();
+    }
+}
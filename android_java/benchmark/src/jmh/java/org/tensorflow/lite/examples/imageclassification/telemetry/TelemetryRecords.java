@@ -0,0 +1,11 @@
+package org.tensorflow.lite.examples.imageclassification.telemetry;
+
+/** Creates records without a sink, for benchmarks outside this package. */
+public final class TelemetryRecords {
+    private TelemetryRecords() {
+    }
+
+    public static TelemetryRecord create(TelemetrySchema schema) {
+        return new TelemetryRecord(schema);
+    }
+}